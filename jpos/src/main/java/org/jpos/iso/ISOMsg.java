@@ -1300,9 +1300,11 @@ public class ISOMsg extends ISOComponent
         byte[] b = new byte[in.readShort()];
         in.readFully(b);
         try {
-            Class mypClass = Class.forName(new String(b));
-            ISOPackager myp = (ISOPackager) mypClass.newInstance();
-            setPackager(myp);
+            // resolve without initializing and check the type before running any constructor
+            Class<?> mypClass = Class.forName(new String(b), false, getClass().getClassLoader());
+            if (!ISOPackager.class.isAssignableFrom(mypClass))
+                throw new ClassCastException(mypClass.getName());
+            setPackager((ISOPackager) mypClass.getDeclaredConstructor().newInstance());
         } catch (Exception e) {
             setPackager(null);
         }
@@ -26,6 +26,7 @@ import org.jpos.core.Configurable;
 import org.jpos.core.Configuration;
 import org.jpos.core.ConfigurationException;
 import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionManager;
 import org.jpos.space.Space;
 import org.jpos.space.SpaceFactory;
 import java.util.Date;
@@ -83,6 +84,7 @@ public class IncomingListener extends Log implements ISORequestListener, Configu
                 e -> ctx.put(e.getKey(), e.getValue(), remote)
             );
         }
+        TransactionManager.markQueued(ctx);
         sp.out(queue, ctx, timeout);
         return true;
     }
@@ -18,6 +18,9 @@
 
 package org.jpos.iso;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * MUX interface
  * @author Alejandro Revilla
@@ -42,4 +45,30 @@ public interface MUX extends ISOSource {
      */
     void request(ISOMsg m, long timeout, ISOResponseListener r, Object handBack)
         throws ISOException;
+
+    /**
+     * Sends a message to remote host without blocking the caller.
+     *
+     * <p>The returned future completes with the response, or with {@code null}
+     * if none arrives within {@code timeout}; it completes exceptionally if the
+     * request can not be sent. Dependent stages registered with non-async
+     * methods may run on the MUX's receiving thread.</p>
+     *
+     * <p>The default implementation adapts
+     * {@link #request(ISOMsg, long, ISOResponseListener, Object)}.</p>
+     *
+     * @param m message to send
+     * @param timeout time to wait for the response
+     * @return future response
+     * @since 3.0.2
+     */
+    default CompletableFuture<ISOMsg> requestAsync(ISOMsg m, Duration timeout) {
+        CompletableFuture<ISOMsg> f = new CompletableFuture<>();
+        try {
+            request(m, timeout.toMillis(), (resp, handBack) -> f.complete(resp), null);
+        } catch (ISOException | RuntimeException e) {
+            f.completeExceptionally(e);
+        }
+        return f;
+    }
 }
@@ -31,6 +31,20 @@ public enum MeterInfo {
     TM_OPERATION("jpos.tm.op", "TransactionManager operation"),
     /** TransactionManager arbitrary counter. */
     TM_COUNTER("jpos.tm.cnt", "TransactionManager counter"),
+    /** Time contexts spend in the TransactionManager queue before a session picks them up. */
+    TM_QUEUE_WAIT("jpos.tm.queue.wait", "TransactionManager queue wait"),
+    /** Time a TransactionManager session spends processing a transaction. */
+    TM_PROCESS("jpos.tm.process", "TransactionManager processing time"),
+    /** Transactions waiting in a TransactionManager partition lane. */
+    TM_LANE_DEPTH("jpos.tm.lane.depth", "TransactionManager partition lane depth"),
+    /** Session limit chosen by the TransactionManager adaptive controller. */
+    TM_SESSION_LIMIT("jpos.tm.session.limit", "TransactionManager adaptive session limit"),
+    /** Short and long window latency observed by the TransactionManager adaptive controller. */
+    TM_SESSION_RTT("jpos.tm.session.rtt", "TransactionManager adaptive controller latency"),
+    /** Prepare calls that did not prepare, per participant; callers add a {@code result} tag ({@code aborted}, {@code retry}). */
+    TM_PARTICIPANT("jpos.tm.participant", "TransactionManager participant result"),
+    /** Transactions sent down the abort path because their deadline expired. */
+    TM_DEADLINE_ABORT("jpos.tm.deadline.abort", "TransactionManager deadline aborts"),
 
     /** Active inbound connections accepted by ISOServer. */
     ISOSERVER_CONNECTION_COUNT("jpos.server.connections", "Incoming active connections"),
@@ -60,7 +74,22 @@ public enum MeterInfo {
     /** MUX matched-response counter, tagged {@code type=match}. */
     MUX_MATCH ("jpos.mux", "MUX rx unhandled", Tags.of("type", "match")),
     /** MUX unhandled-response counter, tagged {@code type=unhandled}. */
-    MUX_UNHANDLED ("jpos.mux", "MUX rx unhandled", Tags.of("type", "unhandled"));
+    MUX_UNHANDLED ("jpos.mux", "MUX rx unhandled", Tags.of("type", "unhandled")),
+    /** Duplicate requests served by a pending request's response, tagged {@code type=coalesced}. */
+    MUX_COALESCED ("jpos.mux", "MUX rx coalesced", Tags.of("type", "coalesced")),
+    /** MUX response time by MTI class and response code, see {@link org.jpos.metrics.iso.ISOMsgLatency}. */
+    MUX_LATENCY("jpos.mux.latency", "MUX response by message class"),
+
+    /** Space listener notification latency. */
+    SPACE_LISTENER_LATENCY("jpos.space.listener.latency", "Space listener latency"),
+    /** Space listener notifications waiting to be delivered. */
+    SPACE_LISTENER_BACKLOG("jpos.space.listener.backlog", "Space listener backlog"),
+    /** Number of entries held by a bounded space key. */
+    SPACE_QUEUE_DEPTH("jpos.space.depth", "Space queue depth"),
+    /** Entries discarded from a full bounded space key, tagged {@code type=dropped}. */
+    SPACE_QUEUE_DROPPED("jpos.space.full", "Space queue entries dropped", Tags.of("type", "dropped")),
+    /** Writes rejected by a full bounded space key, tagged {@code type=rejected}. */
+    SPACE_QUEUE_REJECTED("jpos.space.full", "Space queue writes rejected", Tags.of("type", "rejected"));
 
     final String id;
     final String description;
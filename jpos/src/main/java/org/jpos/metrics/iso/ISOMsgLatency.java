@@ -0,0 +1,213 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.metrics.iso;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.AtomicHistogram;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.metrics.MeterFactory;
+import org.jpos.metrics.MeterInfo;
+import org.jpos.util.Loggeable;
+import org.jpos.util.Metrics;
+import org.jpos.util.MetricsProvider;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dimensional {@link ISOMsgTimer}: records round trips by MTI class, response
+ * code (field 39, {@code timeout} for expired requests) and, optionally, a
+ * configurable request field such as the destination or issuer.
+ *
+ * <p>Each distinct tag tuple gets a cached {@link MeterInfo#MUX_LATENCY} timer and an
+ * HdrHistogram in {@link #getMetrics()} (named {@code mti.rc[.field]}), which can be
+ * exported with {@link Metrics#dumpHistograms(java.io.File, String)}. Once
+ * {@code max-tags} tuples exist, further tuples are recorded as {@code other}.</p>
+ *
+ * <p>Configuration properties:</p>
+ * <ul>
+ *   <li>{@code mti} - tag by MTI class, e.g. {@code 0100} for 0100/0110 (default true)</li>
+ *   <li>{@code rc} - tag by response code (default true)</li>
+ *   <li>{@code field} - request field path to tag by (optional)</li>
+ *   <li>{@code field-tag} - tag name for {@code field} (default {@code field})</li>
+ *   <li>{@code max-tags} - maximum number of tag tuples (default {@value #DEFAULT_MAX_TAGS})</li>
+ * </ul>
+ *
+ * @since 3.0.2
+ */
+public class ISOMsgLatency implements ISOMsgTimer, Configurable, MetricsProvider, Loggeable {
+    /** Default maximum number of tag tuples. */
+    public static final int DEFAULT_MAX_TAGS = 256;
+    static final String OTHER = "other";
+
+    private boolean mtiTag = true;
+    private boolean rcTag = true;
+    private String field;
+    private String fieldTag = "field";
+    private int maxTags = DEFAULT_MAX_TAGS;
+
+    private volatile MeterRegistry registry;
+    private Tags tags = Tags.empty();
+    private final Map<Dims,Handle> handles = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics(new AtomicHistogram(60000, 2));
+    private final AtomicLong overflow = new AtomicLong();
+
+    /** Default constructor. */
+    public ISOMsgLatency() { }
+
+    @Override
+    public void setConfiguration (Configuration cfg) throws ConfigurationException {
+        mtiTag = cfg.getBoolean("mti", true);
+        rcTag = cfg.getBoolean("rc", true);
+        field = cfg.get("field", null);
+        fieldTag = cfg.get("field-tag", "field");
+        maxTags = cfg.getInt("max-tags", DEFAULT_MAX_TAGS);
+        if (field != null && !field.matches("^[0-9]+(\\.[0-9]+)*$"))
+            throw new ConfigurationException("Invalid field '" + field + "'");
+        if (maxTags < 1)
+            throw new ConfigurationException("Invalid max-tags " + maxTags);
+    }
+
+    @Override
+    public void record (ISOMsg request, ISOMsg response, long elapsed) {
+        Handle h = handle (dims (request, response));
+        metrics.record(h.name, elapsed);
+        if (h.timer != null)
+            h.timer.record(elapsed, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean register (MeterRegistry registry, Tags tags) {
+        this.tags = Tags.of(tags);
+        handles.clear(); // re-create handles with timers
+        this.registry = registry;
+        return true;
+    }
+
+    @Override
+    public void unregister() {
+        MeterRegistry r = registry;
+        registry = null;
+        if (r != null)
+            handles.values().forEach(h -> MeterFactory.remove(r, h.timer));
+        handles.clear();
+    }
+
+    /**
+     * Returns the number of tag tuples currently cached.
+     *
+     * @return distinct tag tuples
+     */
+    public int size() {
+        return handles.size();
+    }
+
+    /**
+     * Returns how many recordings were folded into the {@code other} tuple
+     * because {@code max-tags} was reached.
+     *
+     * @return overflowed recordings
+     */
+    public long getOverflow() {
+        return overflow.get();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        metrics.dump(p, indent);
+    }
+
+    private Dims dims (ISOMsg request, ISOMsg response) {
+        return new Dims (
+          mtiTag ? mtiClass(request) : null,
+          rcTag ? response == null ? "timeout" : value(response.getString(39)) : null,
+          field != null ? value(request.getString(field)) : null
+        );
+    }
+
+    private Handle handle (Dims d) {
+        Handle h = handles.get(d);
+        if (h != null)
+            return h;
+        if (handles.size() >= maxTags) {
+            overflow.incrementAndGet();
+            d = new Dims (
+              mtiTag ? OTHER : null, rcTag ? OTHER : null, field != null ? OTHER : null);
+            h = handles.get(d);
+            if (h != null)
+                return h;
+        }
+        return handles.computeIfAbsent(d, this::newHandle);
+    }
+
+    private Handle newHandle (Dims d) {
+        MeterRegistry r = registry;
+        Timer timer = null;
+        if (r != null) {
+            Tags t = tags;
+            if (d.mti != null)
+                t = t.and("mti", d.mti);
+            if (d.rc != null)
+                t = t.and("rc", d.rc);
+            if (d.field != null)
+                t = t.and(fieldTag, d.field);
+            timer = MeterFactory.timer(r, MeterInfo.MUX_LATENCY, t);
+        }
+        return new Handle(d.toString(), timer);
+    }
+
+    private static String mtiClass (ISOMsg m) {
+        String mti = m.getString(0);
+        return mti != null && mti.length() == 4 ? mti.substring(0, 2) + "00" : "none";
+    }
+
+    private static String value (String s) {
+        return s != null && !s.isEmpty() ? s : "none";
+    }
+
+    private record Dims (String mti, String rc, String field) {
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (String s : new String[] { mti, rc, field }) {
+                if (s != null) {
+                    if (!sb.isEmpty())
+                        sb.append('.');
+                    sb.append(s);
+                }
+            }
+            return sb.isEmpty() ? "all" : sb.toString();
+        }
+    }
+
+    private record Handle (String name, Timer timer) { }
+}
@@ -0,0 +1,70 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.metrics.iso;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.jpos.iso.ISOMsg;
+
+/**
+ * Records request/response round trip times, the latency counterpart of
+ * {@link ISOMsgMetrics}.
+ *
+ * <p>Implementations get both messages, so they can tag their meters with the
+ * same message fields a channel's {@link ISOMsgCounter} uses ({@code mti},
+ * {@code rc}, etc.), making MUX latencies and channel traffic correlatable.</p>
+ *
+ * @since 3.0.2
+ */
+public interface ISOMsgTimer {
+    /** Implemented by components that accept an {@link ISOMsgTimer}. */
+    interface Source {
+        /**
+         * Sets the ISOMsgTimer instance.
+         * @param timer the ISOMsgTimer to attach, may be {@code null}
+         */
+        void setISOMsgTimer(ISOMsgTimer timer);
+        /**
+         * Returns the attached ISOMsgTimer.
+         * @return the ISOMsgTimer, or null
+         */
+        ISOMsgTimer getISOMsgTimer();
+    }
+
+    /**
+     * Records a round trip.
+     *
+     * @param request the request
+     * @param response the response, or {@code null} if the request expired
+     * @param elapsed elapsed time in milliseconds
+     */
+    void record(ISOMsg request, ISOMsg response, long elapsed);
+
+    /**
+     * Starts publishing meters to {@code registry}.
+     *
+     * @param registry the meter registry
+     * @param tags tags added to every meter (e.g. the component's {@code name})
+     * @return true if successful
+     */
+    boolean register(MeterRegistry registry, Tags tags);
+
+    /** Removes the meters created by this object and detaches it from its registry. */
+    void unregister();
+}
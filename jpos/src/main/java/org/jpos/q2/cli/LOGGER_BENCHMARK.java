@@ -23,21 +23,40 @@ import org.jpos.q2.CLIContext;
 import org.jpos.util.LogEvent;
 import org.jpos.util.Logger;
 import org.jpos.util.Profiler;
+import org.jpos.util.SimpleLogListener;
+import org.jpos.util.SimpleLogSource;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 import java.util.concurrent.CountDownLatch;
 
-/** CLI command that benchmarks logger throughput for a given thread count and message count. */
+/**
+ * CLI command that benchmarks logger throughput for a given thread count and message count.
+ * <p>
+ * {@code LOGGER_BENCHMARK threads messages} logs through the Q2 logger.
+ * {@code LOGGER_BENCHMARK threads messages compare} logs the same load to a scratch file
+ * through a private logger, first synchronously and then with asynchronous dispatch
+ * (using the {@code block} and {@code drop-all} overflow policies), and reports the time
+ * producers spent inside {@link Logger#log(LogEvent)} for each mode.
+ */
 @SuppressWarnings("unused")
 public class LOGGER_BENCHMARK implements CLICommand {
     /** Default constructor; no instance state to initialise. */
     public LOGGER_BENCHMARK() {}
     public void exec(CLIContext ctx, String[] args) throws Exception {
-        if (args.length != 3) {
-            ctx.println (String.format ("Usage: %s threads messages", args[0]));
+        boolean compare = args.length == 4 && "compare".equalsIgnoreCase(args[3]);
+        if (args.length != 3 && !compare) {
+            ctx.println (String.format ("Usage: %s threads messages [compare]", args[0]));
             return;
         }
         int threadCount = Integer.parseInt(args[1]);
         final int numMessages = Integer.parseInt(args[2]);
+        if (compare) {
+            compare (ctx, threadCount, numMessages);
+            return;
+        }
         final Profiler p = new Profiler();
         final CountDownLatch done = new CountDownLatch(threadCount);
         for (int i = 0; i<threadCount; i++) {
@@ -58,4 +77,68 @@ public class LOGGER_BENCHMARK implements CLICommand {
         done.await();
         p.dump (System.out, "");
     }
+
+    private void compare (CLIContext ctx, int threadCount, int numMessages) throws Exception {
+        File file = File.createTempFile("logger-benchmark", ".log");
+        Logger logger = new Logger();
+        SimpleLogListener listener = new SimpleLogListener(
+          new PrintStream(new BufferedOutputStream(new FileOutputStream(file)))
+        );
+        logger.addListener(listener);
+        try {
+            long total = (long) threadCount * numMessages;
+            long sync = run (logger, threadCount, numMessages);
+            ctx.println (String.format ("sync:  %,d events in %,d ms (%,d events/s)",
+              total, sync / 1_000_000L, rate(total, sync)));
+
+            for (Logger.OverflowPolicy policy : new Logger.OverflowPolicy[] {
+              Logger.OverflowPolicy.BLOCK, Logger.OverflowPolicy.DROP_ALL }) {
+                logger.startAsync(65536, policy, 256);
+                long async = run (logger, threadCount, numMessages);
+                long dropped = logger.getDropped();
+                long start = System.nanoTime();
+                logger.stopAsync();
+                long drained = async + System.nanoTime() - start;
+                ctx.println (String.format ("async %s: %,d events in %,d ms (%,d events/s), written after %,d ms, dropped %,d",
+                  policy.name().toLowerCase(), total, async / 1_000_000L, rate(total, async),
+                  drained / 1_000_000L, dropped));
+            }
+        } finally {
+            logger.destroy();
+            listener.close();
+            file.delete();
+        }
+    }
+
+    private long run (Logger logger, int threadCount, int numMessages) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i<threadCount; i++) {
+            SimpleLogSource source = new SimpleLogSource(logger, "thread-" + i);
+            Thread.ofPlatform().start(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < numMessages; j++) {
+                    LogEvent ev = new LogEvent(source, "info");
+                    ev.addMessage(source.getRealm() + " " + j);
+                    Logger.log(ev);
+                }
+                done.countDown();
+            });
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        return System.nanoTime() - start;
+    }
+
+    private static long rate (long events, long nanos) {
+        return nanos > 0L ? events * 1_000_000_000L / nanos : 0L;
+    }
 }
@@ -0,0 +1,289 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpos.q2.iso;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Correlation key model compiled once from a {@link QMUX}'s {@code <key>},
+ * {@code <mtimapping>} and header settings.
+ *
+ * <p>{@link #extract(ISOMsg)} produces the same key as the historical
+ * string-building {@code QMUX.getKey}, but writes it straight into a
+ * per-thread buffer: field lists are resolved through a table indexed by
+ * MTI class (plus an optional processing-code map), and STAN/terminal
+ * padding, MTI mapping and header hex conversion are done in place, so the
+ * only allocations are the resulting {@link Key} and its character array.</p>
+ */
+final class KeyExtractor {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final ThreadLocal<char[][]> BUFFER = ThreadLocal.withInitial (() -> new char[][] { new char[128] });
+
+    private final char[] prefix;
+    private final char[][] mtiMapping;
+    private final boolean headerIsKey;
+    private final Field[] defaultFields;
+    private final ClassRule[] digitRules = new ClassRule[100];
+    private final Map<String,ClassRule> otherRules = new HashMap<>();
+
+    /**
+     * @param out outbound queue name, used as key prefix
+     * @param key default key fields
+     * @param mtiKey per MTI class ({@code "02"}) or MTI class and pcode ({@code "02:381000"}) key fields
+     * @param mtiMapping three ten-character MTI mapping tables
+     * @param headerIsKey true to include the message header
+     */
+    KeyExtractor (String out, String[] key, Map<String,String[]> mtiKey, String[] mtiMapping, boolean headerIsKey) {
+        this.prefix = (out + ".").toCharArray();
+        this.mtiMapping = new char[mtiMapping.length][];
+        for (int i=0; i<mtiMapping.length; i++)
+            this.mtiMapping[i] = mtiMapping[i].toCharArray();
+        this.headerIsKey = headerIsKey;
+        this.defaultFields = compile (key);
+        for (Map.Entry<String,String[]> entry : mtiKey.entrySet()) {
+            String k = entry.getKey();
+            int colon = k.indexOf (':');
+            String mtiClass = colon < 0 ? k : k.substring (0, colon);
+            ClassRule rule = rule (mtiClass);
+            if (colon < 0)
+                rule.fields = compile (entry.getValue());
+            else
+                rule.byPcode.put (k.substring (colon + 1), compile (entry.getValue()));
+        }
+    }
+
+    /**
+     * Builds the correlation key for {@code m}.
+     *
+     * @param m request or response
+     * @return correlation key
+     * @throws ISOException if {@code m} has no MTI or none of the key fields
+     */
+    Key extract (ISOMsg m) throws ISOException {
+        String mti = m.getMTI();
+        char[][] holder = BUFFER.get();
+        char[] buf = holder[0];
+        int len = 0;
+        buf = ensure (holder, buf, len, prefix.length + 3);
+        System.arraycopy (prefix, 0, buf, 0, prefix.length);
+        len = prefix.length;
+        len = appendMappedMTI (buf, len, mti);
+
+        if (headerIsKey) {
+            byte[] header = m.getHeader();
+            if (header != null) {
+                buf = ensure (holder, buf, len, header.length * 2 + 2);
+                buf[len++] = '.';
+                for (byte b : header) {
+                    buf[len++] = HEX[(b >> 4) & 0x0F];
+                    buf[len++] = HEX[b & 0x0F];
+                }
+                buf[len++] = '.';
+            }
+        }
+
+        boolean hasFields = false;
+        for (Field f : fields (m, mti)) {
+            String v = f.number >= 0 ? m.getString (f.number) : m.getString (f.name);
+            if (v == null)
+                continue;
+            hasFields = true;
+            switch (f.kind) {
+                case Field.STAN -> {
+                    int l = mti.charAt(0) == '2' ? 12 : 6;
+                    int from = trimStart (v), to = trimEnd (v, from);
+                    if (to - from < l) {
+                        buf = ensure (holder, buf, len, l);
+                        len = pad (buf, len, v, from, to, l);
+                    } else {
+                        buf = ensure (holder, buf, len, v.length());
+                        v.getChars (0, v.length(), buf, len);
+                        len += v.length();
+                    }
+                }
+                case Field.TERMINAL -> {
+                    int from = trimStart (v), to = trimEnd (v, from);
+                    if (to - from > 16)
+                        throw new ISOException ("invalid len " + (to - from) + "/16");
+                    buf = ensure (holder, buf, len, 16);
+                    len = pad (buf, len, v, from, to, 16);
+                }
+                default -> {
+                    buf = ensure (holder, buf, len, v.length());
+                    v.getChars (0, v.length(), buf, len);
+                    len += v.length();
+                }
+            }
+        }
+        if (!hasFields)
+            throw new ISOException ("Key fields not found - not sending " + new String (buf, 0, len));
+        return new Key (Arrays.copyOf (buf, len));
+    }
+
+    private Field[] fields (ISOMsg m, String mti) {
+        if (mti.length() < 2)
+            return defaultFields;
+        char c0 = mti.charAt (0), c1 = mti.charAt (1);
+        ClassRule rule = c0 >= '0' && c0 <= '9' && c1 >= '0' && c1 <= '9'
+          ? digitRules[(c0 - '0') * 10 + (c1 - '0')]
+          : otherRules.get (mti.substring (0, 2));
+        if (rule == null)
+            return defaultFields;
+        if (!rule.byPcode.isEmpty() && m.hasField (3)) {
+            String pcode = m.getString (3);
+            if (pcode != null) {
+                Field[] f = rule.byPcode.get (pcode);
+                if (f == null && !pcode.isEmpty() && (pcode.charAt (0) <= ' ' || pcode.charAt (pcode.length()-1) <= ' '))
+                    f = rule.byPcode.get (pcode.trim());
+                if (f != null)
+                    return f;
+            }
+        }
+        return rule.fields;
+    }
+
+    private int appendMappedMTI (char[] buf, int len, String mti) throws ISOException {
+        if (mti.length() < 4)
+            mti = org.jpos.iso.ISOUtil.zeropad (mti, 4); // #jPOS-55
+        if (mti.length() == 4) {
+            for (int i=0; i<mtiMapping.length; i++) {
+                int c = mti.charAt (i) - '0';
+                if (c >= 0 && c < 10)
+                    buf[len++] = mtiMapping[i][c];
+            }
+        }
+        return len;
+    }
+
+    private ClassRule rule (String mtiClass) {
+        ClassRule rule;
+        if (mtiClass.length() == 2 && Character.isDigit (mtiClass.charAt (0)) && Character.isDigit (mtiClass.charAt (1))) {
+            int i = (mtiClass.charAt (0) - '0') * 10 + (mtiClass.charAt (1) - '0');
+            if (digitRules[i] == null)
+                digitRules[i] = new ClassRule (defaultFields);
+            rule = digitRules[i];
+        } else {
+            rule = otherRules.computeIfAbsent (mtiClass, k -> new ClassRule (defaultFields));
+        }
+        return rule;
+    }
+
+    private static Field[] compile (String[] names) {
+        Field[] fields = new Field[names.length];
+        for (int i=0; i<names.length; i++)
+            fields[i] = new Field (names[i]);
+        return fields;
+    }
+
+    private static char[] ensure (char[][] holder, char[] buf, int len, int extra) {
+        if (len + extra <= buf.length)
+            return buf;
+        holder[0] = Arrays.copyOf (buf, Math.max (buf.length * 2, len + extra));
+        return holder[0];
+    }
+
+    private static int trimStart (String v) {
+        int from = 0;
+        while (from < v.length() && v.charAt (from) <= ' ')
+            from++;
+        return from;
+    }
+
+    private static int trimEnd (String v, int from) {
+        int to = v.length();
+        while (to > from && v.charAt (to - 1) <= ' ')
+            to--;
+        return to;
+    }
+
+    private static int pad (char[] buf, int len, String v, int from, int to, int width) {
+        for (int fill = width - (to - from); fill > 0; fill--)
+            buf[len++] = '0';
+        v.getChars (from, to, buf, len);
+        return len + to - from;
+    }
+
+    /**
+     * Correlation key; equal to another key when their text is equal.
+     */
+    static final class Key {
+        private final char[] chars;
+        private final int hash;
+
+        Key (char[] chars) {
+            this.chars = chars;
+            this.hash = Arrays.hashCode (chars);
+        }
+
+        /**
+         * Wraps a key in its textual form, as returned by {@code QMUX.getKey}.
+         *
+         * @param s key text
+         * @return key
+         */
+        static Key of (String s) {
+            return new Key (s.toCharArray());
+        }
+
+        @Override
+        public boolean equals (Object o) {
+            return this == o || o instanceof Key k && hash == k.hash && Arrays.equals (chars, k.chars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return new String (chars);
+        }
+    }
+
+    private static final class ClassRule {
+        Field[] fields;
+        final Map<String,Field[]> byPcode = new HashMap<>();
+
+        ClassRule (Field[] fields) {
+            this.fields = fields;
+        }
+    }
+
+    private static final class Field {
+        static final int PLAIN = 0;
+        static final int STAN = 1;
+        static final int TERMINAL = 2;
+
+        final String name;
+        final int number;
+        final int kind;
+
+        Field (String name) {
+            this.name = name;
+            this.number = !name.isEmpty() && name.chars().allMatch (Character::isDigit) && name.length() < 5
+              ? Integer.parseInt (name) : -1;
+            this.kind = "11".equals (name) ? STAN : "41".equals (name) ? TERMINAL : PLAIN;
+        }
+    }
+}
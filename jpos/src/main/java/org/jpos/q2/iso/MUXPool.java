@@ -18,29 +18,60 @@
 
 package org.jpos.q2.iso;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 import org.jdom2.Element;
 import org.jpos.core.ConfigurationException;
 import org.jpos.iso.*;
 import org.jpos.q2.QBeanSupport;
 import org.jpos.q2.QFactory;
+import org.jpos.space.LocalSpace;
 import org.jpos.space.Space;
 import org.jpos.space.SpaceFactory;
+import org.jpos.space.SpaceListener;
+import org.jpos.util.Loggeable;
 import org.jpos.util.NameRegistrar;
 import org.jpos.util.Realm;
+import org.jpos.util.TimingWheel;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Pool of {@link MUX} instances that selects a delegate per request based on
  * the configured strategy (one of {@link #PRIMARY_SECONDARY}, {@link #ROUND_ROBIN},
- * {@link #ROUND_ROBIN_WITH_OVERRIDE}, or {@link #SPLIT_BY_DIVISOR}).
+ * {@link #ROUND_ROBIN_WITH_OVERRIDE}, {@link #SPLIT_BY_DIVISOR}, {@link #LEAST_PENDING}
+ * or {@link #EWMA_LATENCY}).
+ *
+ * <p>Each member can be guarded by a circuit breaker ({@code breaker-failure-rate} &gt; 0):
+ * once at least {@code breaker-min-requests} requests within {@code breaker-window} ms
+ * show that failure (timeout) rate, the member is skipped for {@code breaker-open-time} ms
+ * and then gets a single probe request that either closes or re-opens the breaker.</p>
+ *
+ * <p>When no member is usable, selection waits for a ready indicator (or
+ * {@code <mux>.enabled} entry) to change instead of polling.</p>
+ *
+ * <p>Idempotent requests can be hedged: when {@code hedge-mti} (and optionally
+ * {@code hedge-pcode}, matched as a prefix of field 3) selects a request and the
+ * chosen member has not answered within the pool's observed p95 response time,
+ * a copy is sent to another member and the first answer wins. {@code hedge-budget}
+ * caps the extra traffic as a percentage of the requests going through the pool.</p>
  *
  * @author apr
  */
-public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
+public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean, Loggeable {
     /** Default constructor; no instance state to initialise. */
     public MUXPool() {}
     /** Strategy: try MUXes in order, falling through to the next when unusable. */
@@ -51,6 +82,16 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
     public static final int ROUND_ROBIN_WITH_OVERRIDE = 2;
     /** Strategy: hash-by-divisor selection driven by a configured field value. */
     public static final int SPLIT_BY_DIVISOR = 3;
+    /**
+     * Strategy: the usable MUX with the fewest outstanding requests.
+     * @since 3.0.2
+     */
+    public static final int LEAST_PENDING = 4;
+    /**
+     * Strategy: the usable MUX with the lowest exponentially weighted moving average response time.
+     * @since 3.0.2
+     */
+    public static final int EWMA_LATENCY = 5;
 
     int strategy = 0;
     String[] muxName;
@@ -62,6 +103,31 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
     boolean checkEnabled;
     Space sp;
     StrategyHandler strategyHandler;
+    Member[] members;
+    double ewmaAlpha;
+    double breakerFailureRate;
+    int breakerMinRequests;
+    long breakerWindow;
+    long breakerOpenTime;
+    String[] hedgeMTIs;
+    String[] hedgePCodes;
+    double hedgeBudget;
+    long hedgeDelay;
+    int hedgeMinSamples;
+    long hedgeWindow;
+    private final Recorder latency = new Recorder(2);
+    private final Histogram latencyWindow = new Histogram(2);
+    private Histogram latencyInterval;
+    private long latencyRefresh;
+    private volatile long p95;
+    private final AtomicLong hedgeCredit = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private static final long HEDGE_UNIT = 10_000L;
+    private static final long HEDGE_BURST = 10L * HEDGE_UNIT;
+    private final Object readySignal = new Object();
+    private long readyGeneration;
+    private final List<Runnable> readyListenerRemovals = new ArrayList<>();
 
     @Override
     protected String defaultRealm() {
@@ -76,6 +142,17 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
         originalChannelField = e.getChildTextTrim("original-channel-field");
         splitField = e.getChildTextTrim("split-field");
         checkEnabled = cfg.getBoolean("check-enabled");
+        ewmaAlpha = cfg.getDouble("ewma-alpha", 0.2);
+        breakerFailureRate = cfg.getDouble("breaker-failure-rate", 0.0);
+        breakerMinRequests = cfg.getInt("breaker-min-requests", 20);
+        breakerWindow = cfg.getLong("breaker-window", 10000L);
+        breakerOpenTime = cfg.getLong("breaker-open-time", 5000L);
+        hedgeMTIs = toStringArray(cfg.get("hedge-mti", null));
+        hedgePCodes = toStringArray(cfg.get("hedge-pcode", null));
+        hedgeBudget = cfg.getDouble("hedge-budget", 5.0);
+        hedgeDelay = cfg.getLong("hedge-delay", 1000L);
+        hedgeMinSamples = cfg.getInt("hedge-min-samples", 100);
+        hedgeWindow = cfg.getLong("hedge-window", 10000L);
         sp = grabSpace (e.getChild ("space"));
 
         // Sanitize muxes list using only muxes that exist
@@ -104,12 +181,33 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
 
         muxName = found.toArray(new String[0]);
         mux = muxes.toArray(new MUX[0]);
+        members = new Member[mux.length];
+        for (int i=0; i<mux.length; i++)
+            members[i] = new Member(muxName[i]);
 
         initHandler(e.getChild("strategy-handler"));
         NameRegistrar.register ("mux."+getName (), this);
     }
 
+    @Override
+    public void startService () {
+        for (MUX m : mux) {
+            if (m instanceof QMUX qmux) {
+                String[] readyNames = qmux.getReadyIndicatorNames();
+                if (readyNames != null)
+                    for (String name : readyNames)
+                        addReadyListener (qmux.getSpace(), name);
+                if (checkEnabled)
+                    addReadyListener (sp, qmux.getName() + ".enabled");
+            }
+        }
+    }
+
     public void stopService () {
+        synchronized (readyListenerRemovals) {
+            readyListenerRemovals.forEach (Runnable::run);
+            readyListenerRemovals.clear();
+        }
         NameRegistrar.unregister ("mux."+getName ());
     }
 
@@ -140,8 +238,26 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
         MUX mux = getMUX(m,maxWait);
         if (mux != null) {
             long remainingTimeout = maxWait - System.currentTimeMillis();
-            if (remainingTimeout >= 0)
-                return mux.request(m, remainingTimeout);
+            if (remainingTimeout >= 0) {
+                mux = admit(mux, m, maxWait);
+                if (mux == null)
+                    return null;
+                remainingTimeout = maxWait - System.currentTimeMillis();
+                if (remainingTimeout > 0 && isHedgeable(m))
+                    return get(hedgedRequest(mux, m, maxWait), maxWait);
+                remainingTimeout = Math.max (remainingTimeout, 1L);
+                Member member = member(mux);
+                if (member == null)
+                    return mux.request(m, remainingTimeout);
+                long start = member.begin();
+                ISOMsg resp = null;
+                try {
+                    resp = mux.request(m, remainingTimeout);
+                } finally {
+                    member.end(resp != null, start);
+                }
+                return resp;
+            }
         }
         return null;
     }
@@ -164,15 +280,267 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
         MUX mux = getMUX(m,maxWait);
         if (mux != null) {
             long remainingTimeout = maxWait - System.currentTimeMillis();
-            if (remainingTimeout >= 0)
-                mux.request(m, remainingTimeout, r, handBack);
-            else {
+            if (remainingTimeout >= 0) {
+                mux = admit(mux, m, maxWait);
+                if (mux == null)
+                    throw new ISOException ("No MUX available");
+                remainingTimeout = maxWait - System.currentTimeMillis();
+                boolean hedge = remainingTimeout > 0 && isHedgeable(m);
+                remainingTimeout = Math.max (remainingTimeout, 1L);
+                Member member = member(mux);
+                if (hedge) {
+                    hedgedRequest(mux, m, maxWait).whenComplete((resp, t) -> {
+                        if (resp != null)
+                            r.responseReceived(resp, handBack);
+                        else
+                            r.expired(handBack);
+                    });
+                } else if (member == null) {
+                    mux.request(m, remainingTimeout, r, handBack);
+                } else {
+                    long start = member.begin();
+                    try {
+                        mux.request(m, remainingTimeout, new ISOResponseListener() {
+                            @Override
+                            public void responseReceived(ISOMsg resp, Object hb) {
+                                member.end(resp != null, start);
+                                r.responseReceived(resp, hb);
+                            }
+                            @Override
+                            public void expired(Object hb) {
+                                member.end(false, start);
+                                r.expired(hb);
+                            }
+                        }, handBack);
+                    } catch (ISOException | RuntimeException e) {
+                        member.end(false, start);
+                        throw e;
+                    }
+                }
+            } else {
                 new Thread(()->r.expired(handBack)).start();
             }
         } else
             throw new ISOException ("No MUX available");
     }
 
+    /**
+     * Selects a member MUX with the configured strategy and delegates to its
+     * {@link MUX#requestAsync(ISOMsg, Duration)} (hedging the request when it
+     * is eligible).
+     *
+     * <p>Unlike {@link #request(ISOMsg, long)}, selection never waits for a
+     * member to become usable: callers such as {@link MUXProxyServer} run on
+     * threads that must not block, so the future fails right away when no
+     * member is usable.</p>
+     *
+     * @param m message to send
+     * @param timeout time to wait for the response
+     * @return future response, failing with {@link ISOException} if no MUX is available
+     * @since 3.0.2
+     */
+    @Override
+    public CompletableFuture<ISOMsg> requestAsync (ISOMsg m, Duration timeout) {
+        long now = System.currentTimeMillis();
+        MUX mux = admit(getMUX(m, now), m, now); // an expired deadline selects without waiting
+        if (mux == null)
+            return CompletableFuture.failedFuture(new ISOException ("No MUX available"));
+        long maxWait = now + timeout.toMillis();
+        long remainingTimeout = maxWait - System.currentTimeMillis();
+        if (remainingTimeout > 0 && isHedgeable(m))
+            return hedgedRequest(mux, m, maxWait);
+        return requestAsync(mux, m, Math.max (remainingTimeout, 1L));
+    }
+
+    /**
+     * Returns the number of hedge requests sent so far.
+     *
+     * @return hedges
+     * @since 3.0.2
+     */
+    @Override
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Returns the number of hedge requests whose response arrived before the original's.
+     *
+     * @return hedge wins
+     * @since 3.0.2
+     */
+    @Override
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Returns the delay after which an eligible request is hedged: the p95
+     * response time observed by this pool, or {@code hedge-delay} until
+     * {@code hedge-min-samples} responses have been seen.
+     *
+     * @return hedge delay in milliseconds
+     * @since 3.0.2
+     */
+    public long getHedgeDelay() {
+        long now = System.currentTimeMillis();
+        synchronized (latency) {
+            if (now >= latencyRefresh) {
+                latencyRefresh = now + hedgeWindow;
+                latencyInterval = latency.getIntervalHistogram(latencyInterval);
+                latencyWindow.add(latencyInterval);
+                if (latencyWindow.getTotalCount() >= hedgeMinSamples) {
+                    p95 = TimeUnit.MICROSECONDS.toMillis(latencyWindow.getValueAtPercentile(95.0) + 999L);
+                    latencyWindow.reset();
+                }
+            }
+        }
+        return p95 > 0L ? p95 : hedgeDelay;
+    }
+
+    /**
+     * Admits a request on {@code mux}'s circuit breaker. When another request
+     * has already taken the half-open probe, that member is no longer usable
+     * and the request is routed to the next one the strategy selects.
+     *
+     * @return the admitted MUX, or {@code null} if none is available before {@code maxWait}
+     */
+    private MUX admit (MUX mux, ISOMsg m, long maxWait) {
+        for (int i=0; mux != null && i <= this.mux.length; i++) {
+            Member member = member(mux);
+            if (member == null || member.admit())
+                return mux;
+            mux = getMUX(m, maxWait);
+        }
+        return null;
+    }
+
+    private CompletableFuture<ISOMsg> requestAsync (MUX mux, ISOMsg m, long timeout) {
+        Member member = member(mux);
+        if (member == null)
+            return mux.requestAsync(m, Duration.ofMillis(timeout));
+        long start = member.begin();
+        return mux.requestAsync(m, Duration.ofMillis(timeout))
+          .whenComplete((resp, t) -> member.end(resp != null, start));
+    }
+
+    /**
+     * Tells whether {@code m} matches the hedge filters. Every call earns
+     * {@code hedge-budget} percent of a hedge, up to a small burst.
+     */
+    private boolean isHedgeable (ISOMsg m) {
+        if (hedgeMTIs == null || mux.length < 2)
+            return false;
+        long earned = (long) (hedgeBudget * HEDGE_UNIT / 100.0);
+        hedgeCredit.updateAndGet (c -> Math.min (c + earned, HEDGE_BURST));
+        if (!contains(hedgeMTIs, m.getString(0)))
+            return false;
+        if (hedgePCodes == null)
+            return true;
+        String pcode = m.getString(3);
+        if (pcode != null) {
+            for (String p : hedgePCodes)
+                if (pcode.startsWith(p))
+                    return true;
+        }
+        return false;
+    }
+
+    private CompletableFuture<ISOMsg> hedgedRequest (MUX primary, ISOMsg m, long maxWait) {
+        CompletableFuture<ISOMsg> result = new CompletableFuture<>();
+        AtomicInteger legs = new AtomicInteger(1);
+        AtomicBoolean answered = new AtomicBoolean();
+        ISOMsg copy = (ISOMsg) m.clone(); // the primary's channel may still be packing m
+        TimingWheel.Timeout timer = TimingWheel.getDefault().schedule(() -> {
+            long remaining = maxWait - System.currentTimeMillis();
+            if (result.isDone() || remaining <= 0L)
+                return;
+            MUX alt = hedgeMUX(primary);
+            if (alt == null || !takeHedgeCredit())
+                return;
+            Member member = member(alt);
+            if (member != null && !member.admit()) {
+                hedgeCredit.updateAndGet (c -> Math.min (c + HEDGE_UNIT, HEDGE_BURST)); // lost the probe, keep the credit
+                return;
+            }
+            legs.incrementAndGet();
+            hedges.incrementAndGet();
+            requestAsync(alt, copy, remaining)
+              .whenComplete((resp, t) -> completeLeg(result, resp, t, legs, answered, true));
+        }, getHedgeDelay(), TimeUnit.MILLISECONDS);
+        requestAsync(primary, m, Math.max (maxWait - System.currentTimeMillis(), 1L))
+          .whenComplete((resp, t) -> {
+              if (resp != null)
+                  timer.cancel();
+              completeLeg(result, resp, t, legs, answered, false);
+          });
+        return result;
+    }
+
+    private void completeLeg (CompletableFuture<ISOMsg> result, ISOMsg resp, Throwable t,
+                              AtomicInteger legs, AtomicBoolean answered, boolean hedge) {
+        if (resp != null) {
+            if (answered.compareAndSet(false, true)) {
+                if (hedge)
+                    hedgeWins.incrementAndGet(); // before completing, so callers see it
+                result.complete(resp);
+            }
+        } else if (legs.decrementAndGet() == 0) {
+            if (t != null)
+                result.completeExceptionally(t);
+            else
+                result.complete(null);
+        }
+    }
+
+    private boolean takeHedgeCredit() {
+        for (;;) {
+            long c = hedgeCredit.get();
+            if (c < HEDGE_UNIT)
+                return false;
+            if (hedgeCredit.compareAndSet(c, c - HEDGE_UNIT))
+                return true;
+        }
+    }
+
+    // usable member other than primary with the fewest outstanding requests, without waiting
+    private MUX hedgeMUX (MUX primary) {
+        MUX best = null;
+        int bestPending = Integer.MAX_VALUE;
+        for (int i=0; i<mux.length; i++) {
+            if (mux[i] != primary && isUsable(mux[i])) {
+                int pending = members[i].pending();
+                if (pending < bestPending) {
+                    best = mux[i];
+                    bestPending = pending;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static ISOMsg get (CompletableFuture<ISOMsg> f, long maxWait) throws ISOException {
+        try {
+            return f.get(Math.max (maxWait - System.currentTimeMillis(), 1L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null; // legs still outstanding at the deadline are left to expire on their own
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ISOException ie)
+                throw ie;
+            throw new ISOException (e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static boolean contains (String[] values, String s) {
+        for (String v : values)
+            if (v.equals(s))
+                return true;
+        return false;
+    }
+
     public void send (ISOMsg m) throws ISOException, IOException {
         long maxWait = System.currentTimeMillis() + 1000L; // reasonable default
         MUX mux = getMUX(m,maxWait);
@@ -201,16 +569,89 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
      * @return a usable MUX, or {@code null} if none became available before the deadline
      */
     protected MUX nextAvailableMUX (int mnumber, long maxWait) {
-        do {
+        return awaitMUX (() -> {
             for (int i=0; i<mux.length; i++) {
                 int j = (mnumber+i) % mux.length;
                 if (isUsable(mux[j]))
                     return mux[j];
                 msgno.incrementAndGet();
             }
-            ISOUtil.sleep (1000);
-        } while (System.currentTimeMillis() < maxWait);
-        return null;
+            return null;
+        }, maxWait);
+    }
+
+    /**
+     * Returns the usable MUX with the lowest load, waiting up to {@code maxWait}.
+     * Ties go to the first candidate in round-robin order.
+     *
+     * @param load load function ({@link Member#pending()} or {@link Member#ewma()})
+     * @param maxWait wall-clock deadline in milliseconds since epoch
+     * @return a usable MUX, or {@code null} if none became available before the deadline
+     * @since 3.0.2
+     */
+    protected MUX leastLoadedMUX (ToDoubleFunction<Member> load, long maxWait) {
+        int offset = msgno.incrementAndGet() & Integer.MAX_VALUE;
+        return awaitMUX (() -> {
+            MUX best = null;
+            double bestLoad = Double.MAX_VALUE;
+            for (int i=0; i<mux.length; i++) {
+                int j = (offset+i) % mux.length;
+                if (isUsable(mux[j])) {
+                    double l = load.applyAsDouble(members[j]);
+                    if (best == null || l < bestLoad) {
+                        best = mux[j];
+                        bestLoad = l;
+                    }
+                }
+            }
+            return best;
+        }, maxWait);
+    }
+
+    private MUX awaitMUX (Supplier<MUX> selector, long maxWait) {
+        for (;;) {
+            long generation;
+            synchronized (readySignal) {
+                generation = readyGeneration;
+            }
+            MUX m = selector.get();
+            if (m != null)
+                return m;
+            long now = System.currentTimeMillis();
+            if (now >= maxWait)
+                return null;
+            long wait = Math.min (maxWait - now, 1000L); // members without ready indicators are polled
+            for (Member member : members)
+                if (member.openUntil > now)
+                    wait = Math.min (wait, member.openUntil - now);
+            synchronized (readySignal) {
+                if (generation == readyGeneration) {
+                    try {
+                        readySignal.wait (Math.max (wait, 1L));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void addReadyListener (Space<?,?> space, String key) {
+        if (space instanceof LocalSpace<?,?> s) {
+            @SuppressWarnings("unchecked") // ready indicators are String keys
+            LocalSpace<String,Object> ls = (LocalSpace<String,Object>) s;
+            SpaceListener<String,Object> listener = (k, v) -> {
+                synchronized (readySignal) {
+                    readyGeneration++;
+                    readySignal.notifyAll();
+                }
+            };
+            ls.addListener (key, listener);
+            synchronized (readyListenerRemovals) {
+                readyListenerRemovals.add (() -> ls.removeListener (key, listener));
+            }
+        }
     }
 
     private boolean overrideMTI(String mtiReq) {
@@ -270,6 +711,8 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
             case "round-robin": return ROUND_ROBIN;
             case "round-robin-with-override": return ROUND_ROBIN_WITH_OVERRIDE;
             case "split-by-divisor": return SPLIT_BY_DIVISOR;
+            case "least-pending": return LEAST_PENDING;
+            case "ewma-latency": return EWMA_LATENCY;
             default: return PRIMARY_SECONDARY;
         }
     }
@@ -288,6 +731,8 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
             case ROUND_ROBIN: return nextAvailableMUX(msgno.incrementAndGet(), maxWait);
             case ROUND_ROBIN_WITH_OVERRIDE: return nextAvailableWithOverrideMUX(m, maxWait);
             case SPLIT_BY_DIVISOR: return splitByDivisorMUX(m, maxWait);
+            case LEAST_PENDING: return leastLoadedMUX(Member::pending, maxWait);
+            case EWMA_LATENCY: return leastLoadedMUX(Member::ewma, maxWait);
             default: return firstAvailableMUX(maxWait);
         }
     }
@@ -324,8 +769,24 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
         return false;
     }
 
-    @SuppressWarnings("unchecked")
     private boolean isUsable (MUX mux) {
+        if (!isConnected(mux))
+            return false;
+        Member member = member(mux);
+        return member == null || member.isAvailable(System.currentTimeMillis());
+    }
+
+    private Member member (MUX m) {
+        if (members != null) {
+            for (int i=0; i<mux.length; i++)
+                if (mux[i] == m)
+                    return members[i];
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isConnected (MUX mux) {
         if (!checkEnabled || !(mux instanceof QMUX))
             return mux.isConnected();
 
@@ -339,10 +800,181 @@ public class MUXPool extends QBeanSupport implements MUX, MUXPoolMBean {
         return mux.isConnected() && sp.rdp (enabledKey) != null;
     }
 
-    private String[] toStringArray (String s) {
+    private static String[] toStringArray (String s) {
         return (s != null && s.length() > 0) ? ISOUtil.toStringArray(s) : null;
     }
 
+    @Override
+    public void dump (PrintStream p, String indent) {
+        if (members == null)
+            return;
+        for (Member member : members)
+            p.println (indent + member);
+        if (hedgeMTIs != null)
+            p.printf ("%shedges=%d, wins=%d, delay=%dms%n", indent, hedges.get(), hedgeWins.get(), getHedgeDelay());
+    }
+
+    /**
+     * Per-member load and health: outstanding requests, EWMA response time
+     * and circuit breaker state.
+     *
+     * @since 3.0.2
+     */
+    public final class Member {
+        static final int CLOSED = 0;
+        static final int OPEN = 1;
+        static final int HALF_OPEN = 2;
+
+        private final String name;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile double ewma;
+        private final AtomicInteger state = new AtomicInteger(CLOSED); // HALF_OPEN while its single probe is in flight
+        volatile long openUntil;
+        private long windowStart;
+        private int requests;
+        private int failures;
+        private long opened;
+
+        Member (String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the number of outstanding requests: the member's
+         * {@link QMUX#getRXPending()} when it is a QMUX, or the requests
+         * this pool has in flight on it otherwise.
+         *
+         * @return outstanding requests
+         */
+        public int pending() {
+            return mux[index()] instanceof QMUX q ? q.getRXPending() : inflight.get();
+        }
+
+        /**
+         * Returns the exponentially weighted moving average response time.
+         *
+         * @return average response time in milliseconds, 0 until the first response
+         */
+        public double ewma() {
+            return ewma / 1_000_000.0;
+        }
+
+        /**
+         * Tells whether the circuit breaker currently rejects requests.
+         *
+         * @return true if the breaker is open
+         */
+        public boolean isOpen() {
+            return state.get() != CLOSED && !isAvailable (System.currentTimeMillis());
+        }
+
+        /**
+         * Returns how many times this member's breaker has opened.
+         *
+         * @return breaker openings
+         */
+        public synchronized long getOpenCount() {
+            return opened;
+        }
+
+        boolean isAvailable (long now) {
+            return switch (state.get()) {
+                case OPEN -> now >= openUntil;
+                case HALF_OPEN -> false;
+                default -> true;
+            };
+        }
+
+        /**
+         * Tells whether the breaker lets a request through. Once the open
+         * period is over, only the caller that moves the breaker from open
+         * to half-open gets through, as the probe.
+         */
+        boolean admit() {
+            for (;;) {
+                switch (state.get()) {
+                    case CLOSED:
+                        return true;
+                    case HALF_OPEN:
+                        return false;
+                    default:
+                        if (System.currentTimeMillis() < openUntil)
+                            return false;
+                        if (state.compareAndSet(OPEN, HALF_OPEN))
+                            return true;
+                }
+            }
+        }
+
+        long begin() {
+            inflight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        synchronized void end (boolean ok, long start) {
+            inflight.decrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            ewma = ewma == 0.0 ? elapsed : ewma + ewmaAlpha * (elapsed - ewma);
+            if (ok && hedgeMTIs != null)
+                latency.recordValue (TimeUnit.NANOSECONDS.toMicros (elapsed));
+            if (breakerFailureRate <= 0.0)
+                return;
+            long now = System.currentTimeMillis();
+            switch (state.get()) {
+                case HALF_OPEN -> {
+                    if (ok)
+                        close (now);
+                    else
+                        open (now);
+                }
+                case CLOSED -> {
+                    if (now - windowStart > breakerWindow) {
+                        windowStart = now;
+                        requests = failures = 0;
+                    }
+                    requests++;
+                    if (!ok)
+                        failures++;
+                    if (requests >= breakerMinRequests && failures >= breakerFailureRate * requests)
+                        open (now);
+                }
+                default -> { } // late completion while open
+            }
+        }
+
+        private void open (long now) {
+            openUntil = now + breakerOpenTime;
+            state.set(OPEN); // after openUntil, which admit() reads once it sees OPEN
+            opened++;
+            getLog().warn ("MUXPool " + getName() + ": circuit open for '" + name + "' (" + failures + "/" + requests + " failed)");
+        }
+
+        private void close (long now) {
+            openUntil = 0L;
+            state.set(CLOSED);
+            windowStart = now;
+            requests = failures = 0;
+            getLog().info ("MUXPool " + getName() + ": circuit closed for '" + name + "'");
+            synchronized (readySignal) {
+                readyGeneration++;
+                readySignal.notifyAll();
+            }
+        }
+
+        private int index() {
+            for (int i=0; i<members.length; i++)
+                if (members[i] == this)
+                    return i;
+            throw new IllegalStateException ("not a member");
+        }
+
+        @Override
+        public String toString() {
+            return String.format ("%s: pending=%d, ewma=%.1fms, breaker=%s, opened=%d",
+              name, pending(), ewma(), state.get() == CLOSED ? "closed" : isOpen() ? "open" : "half-open", opened);
+        }
+    }
+
 
     /**
      * A class implementing this interface can be added to a {@link MUXPool} to override the classical built-in strategies.<br>
@@ -39,4 +39,20 @@ public interface MUXPoolMBean extends org.jpos.q2.QBeanSupportMBean {
      */
     int getStrategy();
 
+    /**
+     * Returns the number of hedge requests sent.
+     *
+     * @return hedges
+     * @since 3.0.2
+     */
+    long getHedges();
+
+    /**
+     * Returns the number of hedge requests that answered first.
+     *
+     * @return hedge wins
+     * @since 3.0.2
+     */
+    long getHedgeWins();
+
 }
\ No newline at end of file
@@ -0,0 +1,328 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.*;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.util.Loggeable;
+import org.jpos.util.NameRegistrar;
+import org.jpos.util.Realm;
+import org.jpos.util.TimingWheel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MUX} backed by a remote MUX exposed by a {@link MUXProxyServer}.
+ *
+ * <p>All requests share one TCP connection and are correlated by id, so any
+ * number of them can be outstanding; the synchronous API just waits on
+ * {@link #requestAsync(ISOMsg, Duration)}. The connection is re-established
+ * every {@code reconnect-delay} ms while down. Requests outstanding when the
+ * connection drops complete as expired (with no response).</p>
+ *
+ * <pre>
+ *   &lt;mux class="org.jpos.q2.iso.MUXProxyClient" logger="Q2" name="host"&gt;
+ *     &lt;property name="host" value="10.0.0.1" /&gt;
+ *     &lt;property name="port" value="9100" /&gt;
+ *   &lt;/mux&gt;
+ * </pre>
+ *
+ * <p>{@link #isConnected()} reflects both the proxy connection and the
+ * remote MUX's own status, refreshed by the server every second.</p>
+ *
+ * @since 3.0.2
+ */
+public class MUXProxyClient extends QBeanSupport implements MUX, MUXProxyClientMBean, Loggeable {
+    String host;
+    int port;
+    long reconnectDelay;
+    int connectTimeout;
+    ISOPackager packager;
+    private volatile MUXProxyLink link;
+    private volatile boolean remoteConnected;
+    private final Map<Integer,Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicLong tx = new AtomicLong();
+    private final AtomicLong rx = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final Object connectLock = new Object();
+    private Thread connector;
+
+    /** Default constructor. */
+    public MUXProxyClient() {
+        super();
+    }
+
+    @Override
+    protected String defaultRealm() {
+        return Realm.COMM_MUX;
+    }
+
+    @Override
+    public void initService() throws ConfigurationException {
+        host = cfg.get("host", "localhost");
+        port = cfg.getInt("port");
+        if (port <= 0)
+            throw new ConfigurationException ("MUXProxyClient " + getName() + ": invalid port " + port);
+        reconnectDelay = cfg.getLong("reconnect-delay", 1000L);
+        connectTimeout = cfg.getInt("connect-timeout", 5000);
+        packager = MUXProxyServer.createPackager(this);
+        NameRegistrar.register ("mux." + getName(), this);
+    }
+
+    @Override
+    public void startService() {
+        connector = Thread.ofVirtual().name("mux-proxy-client-" + getName()).start(this::connect);
+    }
+
+    @Override
+    public void stopService() {
+        MUXProxyLink l = link;
+        if (l != null)
+            l.close();
+        synchronized (connectLock) {
+            connectLock.notifyAll();
+        }
+        if (connector != null)
+            connector.interrupt();
+    }
+
+    @Override
+    public void destroyService() {
+        NameRegistrar.unregister ("mux." + getName());
+    }
+
+    @Override
+    public ISOMsg request (ISOMsg m, long timeout) throws ISOException {
+        return get(requestAsync(m, Duration.ofMillis(timeout)));
+    }
+
+    @Override
+    public void request (ISOMsg m, long timeout, ISOResponseListener rl, Object handBack) throws ISOException {
+        CompletableFuture<ISOMsg> f = requestAsync(m, Duration.ofMillis(timeout));
+        if (f.isCompletedExceptionally())
+            get(f); // throws the failure
+        f.whenComplete((resp, t) -> {
+            if (resp != null)
+                rl.responseReceived(resp, handBack);
+            else
+                rl.expired(handBack);
+        });
+    }
+
+    private static ISOMsg get (CompletableFuture<ISOMsg> f) throws ISOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ISOException ie)
+                throw ie;
+            throw new ISOException (e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Sends {@code m} to the remote MUX.
+     *
+     * @param m message to send
+     * @param timeout time to wait for the response, enforced locally and by the server
+     * @return future response, {@code null} on timeout or if the connection drops;
+     *   failing with {@link ISOException} if not connected or if the server reports an error
+     */
+    @Override
+    public CompletableFuture<ISOMsg> requestAsync (ISOMsg m, Duration timeout) {
+        MUXProxyLink l = link;
+        if (l == null)
+            return CompletableFuture.failedFuture(new ISOException ("MUX is not connected"));
+        int id = ids.incrementAndGet();
+        Pending p = new Pending();
+        pending.put(id, p);
+        long t = timeout.toMillis();
+        if (t > 0L) {
+            p.timer = TimingWheel.getDefault().schedule(() -> {
+                if (pending.remove(id, p)) {
+                    expired.incrementAndGet();
+                    p.future.complete(null);
+                }
+            }, t, TimeUnit.MILLISECONDS);
+        }
+        try {
+            l.request(id, t, m);
+            tx.incrementAndGet();
+        } catch (IOException | ISOException e) {
+            if (pending.remove(id, p)) {
+                if (p.timer != null)
+                    p.timer.cancel();
+                p.future.completeExceptionally(e instanceof ISOException ? e : new ISOException (e.getMessage(), e));
+            }
+            if (e instanceof IOException)
+                l.close();
+        }
+        return p.future;
+    }
+
+    @Override
+    public void send (ISOMsg m) throws ISOException, IOException {
+        MUXProxyLink l = link;
+        if (l == null)
+            throw new ISOException ("MUX is not connected");
+        l.send(m);
+        tx.incrementAndGet();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return link != null && remoteConnected;
+    }
+
+    @Override
+    public int getPending() {
+        return pending.size();
+    }
+
+    @Override
+    public long getTX() {
+        return tx.get();
+    }
+
+    @Override
+    public long getRX() {
+        return rx.get();
+    }
+
+    @Override
+    public long getExpired() {
+        return expired.get();
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        p.printf ("%s%s:%d connected=%s, tx=%d, rx=%d, expired=%d, pending=%d%n",
+          indent, host, port, isConnected(), tx.get(), rx.get(), expired.get(), pending.size());
+    }
+
+    private void connect() {
+        while (running()) {
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(host, port), connectTimeout);
+                MUXProxyLink l = new MUXProxyLink(s, packager);
+                String peer = l.connect(getName());
+                l.setSoTimeout((int) MUXProxyLink.HEARTBEAT * 5);
+                link = l;
+                getLog().info("connected to " + peer + " at " + host + ":" + port);
+                read(l);
+            } catch (EOFException | SocketException e) {
+                if (running() && link != null)
+                    getLog().info("disconnected from " + host + ":" + port);
+            } catch (IOException e) {
+                if (running())
+                    getLog().warn("link " + host + ":" + port, e);
+            } finally {
+                link = null;
+                remoteConnected = false;
+                expireAll();
+            }
+            synchronized (connectLock) {
+                if (!running())
+                    return;
+                try {
+                    connectLock.wait(reconnectDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void read (MUXProxyLink l) throws IOException {
+        while (running()) {
+            MUXProxyLink.Frame f = l.read();
+            switch (f.type()) {
+                case MUXProxyLink.STATUS -> remoteConnected = f.connected();
+                case MUXProxyLink.RESPONSE -> {
+                    Pending p = pending.remove(f.id());
+                    if (p != null) {
+                        ISOMsg resp;
+                        try {
+                            resp = l.unpack(f);
+                        } catch (ISOException e) {
+                            complete(p, null, e);
+                            continue;
+                        }
+                        rx.incrementAndGet();
+                        complete(p, resp, null);
+                    }
+                }
+                case MUXProxyLink.EXPIRED -> {
+                    Pending p = pending.remove(f.id());
+                    if (p != null) {
+                        expired.incrementAndGet();
+                        complete(p, null, null);
+                    }
+                }
+                case MUXProxyLink.ERROR -> {
+                    Pending p = pending.remove(f.id());
+                    if (p != null)
+                        complete(p, null, new ISOException (f.text()));
+                }
+                default -> throw new IOException ("Unexpected frame type " + f.type());
+            }
+        }
+    }
+
+    private static void complete (Pending p, ISOMsg resp, Throwable t) {
+        if (p.timer != null)
+            p.timer.cancel();
+        if (t != null)
+            p.future.completeExceptionally(t);
+        else
+            p.future.complete(resp);
+    }
+
+    private void expireAll() {
+        for (Integer id : pending.keySet()) {
+            Pending p = pending.remove(id);
+            if (p != null) {
+                expired.incrementAndGet();
+                complete(p, null, null);
+            }
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<ISOMsg> future = new CompletableFuture<>();
+        volatile TimingWheel.Timeout timer;
+    }
+}
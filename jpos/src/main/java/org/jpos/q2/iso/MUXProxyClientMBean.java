@@ -0,0 +1,62 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+/**
+ * MBean interface.
+ *
+ * @since 3.0.2
+ */
+public interface MUXProxyClientMBean extends org.jpos.q2.QBeanSupportMBean {
+
+    /**
+     * Tells whether the proxy connection is up and the remote MUX is connected.
+     *
+     * @return true if connected
+     */
+    boolean isConnected();
+
+    /**
+     * Returns the number of requests awaiting a response.
+     *
+     * @return outstanding requests
+     */
+    int getPending();
+
+    /**
+     * Returns the number of messages sent to the server.
+     *
+     * @return transmitted messages
+     */
+    long getTX();
+
+    /**
+     * Returns the number of responses received.
+     *
+     * @return received responses
+     */
+    long getRX();
+
+    /**
+     * Returns the number of requests that expired or were lost with the connection.
+     *
+     * @return expired requests
+     */
+    long getExpired();
+}
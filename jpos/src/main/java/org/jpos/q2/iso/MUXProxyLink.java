@@ -0,0 +1,275 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One end of a {@link MUXProxyServer} / {@link MUXProxyClient} connection.
+ *
+ * <p>Frames are a type byte and a correlation id followed by a type specific
+ * body; ISO messages travel as length-prefixed images packed with the
+ * configured packager:</p>
+ * <pre>
+ *   REQUEST  id timeout:long image     client to server
+ *   SEND     0  image                  client to server
+ *   RESPONSE id image                  server to client
+ *   EXPIRED  id                        server to client
+ *   ERROR    id message:utf            server to client
+ *   STATUS   0  connected:boolean      server to client, on connect and every second
+ * </pre>
+ *
+ * <p>Writes are serialized; the stream is flushed by the last of a group of
+ * concurrent writers, so pipelined responses share TCP segments. Once
+ * {@link #startWriter(String)} is called, frames are queued instead and
+ * written by a dedicated thread, so callers never block on the socket.</p>
+ */
+final class MUXProxyLink implements Closeable {
+    static final int MAGIC     = 0x6A4D5831; // jMX1
+    static final byte HELLO    = 1;
+    static final byte WELCOME  = 2;
+    static final byte REQUEST  = 3;
+    static final byte RESPONSE = 4;
+    static final byte EXPIRED  = 5;
+    static final byte ERROR    = 6;
+    static final byte SEND     = 7;
+    static final byte STATUS   = 8;
+    static final long HEARTBEAT = 1000L;
+    static final int MAX_IMAGE = 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final ISOPackager packager;
+    private final AtomicInteger writers = new AtomicInteger();
+    private final BlockingQueue<Frame> outbound = new LinkedBlockingQueue<>();
+    private volatile Thread writer;
+
+    MUXProxyLink (Socket socket, ISOPackager packager) throws IOException {
+        this.socket = socket;
+        this.packager = packager;
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 65536));
+    }
+
+    /**
+     * Client side handshake.
+     * @param name local name
+     * @return peer name
+     */
+    String connect (String name) throws IOException {
+        synchronized (out) {
+            out.writeByte(HELLO);
+            out.writeInt(MAGIC);
+            out.writeUTF(name);
+            out.flush();
+        }
+        if (in.readByte() != WELCOME || in.readInt() != MAGIC)
+            throw new StreamCorruptedException ("Invalid handshake");
+        return in.readUTF();
+    }
+
+    /**
+     * Server side handshake.
+     * @param name local name
+     * @return peer name
+     */
+    String accept (String name) throws IOException {
+        if (in.readByte() != HELLO || in.readInt() != MAGIC)
+            throw new StreamCorruptedException ("Invalid handshake");
+        String peer = in.readUTF();
+        synchronized (out) {
+            out.writeByte(WELCOME);
+            out.writeInt(MAGIC);
+            out.writeUTF(name);
+            out.flush();
+        }
+        return peer;
+    }
+
+    void request (int id, long timeout, ISOMsg m) throws IOException, ISOException {
+        write(REQUEST, id, timeout, pack(m), null, false);
+    }
+
+    void send (ISOMsg m) throws IOException, ISOException {
+        write(SEND, 0, 0L, pack(m), null, false);
+    }
+
+    void response (int id, ISOMsg m) throws IOException {
+        byte[] image;
+        try {
+            image = pack(m);
+        } catch (ISOException e) {
+            error(id, "Can not pack response: " + e.getMessage());
+            return;
+        }
+        write(RESPONSE, id, 0L, image, null, false);
+    }
+
+    void expired (int id) throws IOException {
+        write(EXPIRED, id, 0L, null, null, false);
+    }
+
+    void error (int id, String message) throws IOException {
+        write(ERROR, id, 0L, null, message != null ? message : "error", false);
+    }
+
+    void status (boolean connected) throws IOException {
+        write(STATUS, 0, 0L, null, null, connected);
+    }
+
+    /**
+     * Hands subsequent writes to a dedicated thread that drains them in
+     * order, flushing once the queue is empty.
+     * @param name writer thread name
+     */
+    void startWriter (String name) {
+        writer = Thread.ofVirtual().name(name).start(this::drain);
+    }
+
+    /**
+     * Reads the next frame, blocking.
+     * @return frame
+     */
+    Frame read() throws IOException {
+        byte type = in.readByte();
+        int id = in.readInt();
+        return switch (type) {
+            case REQUEST -> {
+                long timeout = in.readLong();
+                yield new Frame(type, id, timeout, readImage(), null, false);
+            }
+            case SEND, RESPONSE -> new Frame(type, id, 0L, readImage(), null, false);
+            case EXPIRED -> new Frame(type, id, 0L, null, null, false);
+            case ERROR -> new Frame(type, id, 0L, null, in.readUTF(), false);
+            case STATUS -> new Frame(type, id, 0L, null, null, in.readBoolean());
+            default -> throw new StreamCorruptedException ("Invalid frame type " + type);
+        };
+    }
+
+    /**
+     * Unpacks a frame's image.
+     * @param f frame carrying an image
+     * @return unpacked message
+     */
+    ISOMsg unpack (Frame f) throws ISOException {
+        ISOMsg m = new ISOMsg();
+        packager.unpack(m, f.image);
+        return m;
+    }
+
+    void setSoTimeout (int timeout) throws IOException {
+        socket.setSoTimeout(timeout);
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) { }
+        Thread w = writer;
+        if (w != null)
+            w.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    private void write (byte type, int id, long timeout, byte[] image, String text, boolean flag) throws IOException {
+        if (writer != null) {
+            if (socket.isClosed())
+                throw new SocketException ("Socket closed");
+            outbound.add(new Frame(type, id, timeout, image, text, flag));
+            return;
+        }
+        writers.incrementAndGet();
+        synchronized (out) {
+            try {
+                write(new Frame(type, id, timeout, image, text, flag));
+            } finally {
+                if (writers.decrementAndGet() == 0)
+                    out.flush(); // nobody else waiting to write
+            }
+        }
+    }
+
+    private void write (Frame f) throws IOException {
+        out.writeByte(f.type);
+        out.writeInt(f.id);
+        if (f.type == REQUEST)
+            out.writeLong(f.timeout);
+        if (f.image != null) {
+            out.writeInt(f.image.length);
+            out.write(f.image);
+        }
+        if (f.text != null)
+            out.writeUTF(f.text);
+        if (f.type == STATUS)
+            out.writeBoolean(f.connected);
+    }
+
+    private void drain() {
+        try {
+            for (;;) {
+                Frame f = outbound.take();
+                synchronized (out) {
+                    do {
+                        write(f);
+                    } while ((f = outbound.poll()) != null);
+                    out.flush(); // queue drained
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } catch (IOException e) {
+            close(); // reader will see the broken link
+        }
+        outbound.clear();
+    }
+
+    private byte[] pack (ISOMsg m) throws ISOException {
+        synchronized (m) {
+            m.recalcBitMap();
+            return packager.pack(m);
+        }
+    }
+
+    private byte[] readImage() throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > MAX_IMAGE)
+            throw new StreamCorruptedException ("Invalid image length " + len);
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+
+    record Frame (byte type, int id, long timeout, byte[] image, String text, boolean connected) { }
+}
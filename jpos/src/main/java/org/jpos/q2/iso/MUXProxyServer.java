@@ -0,0 +1,347 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.MUX;
+import org.jpos.iso.packager.ISO87BPackager;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.q2.QFactory;
+import org.jpos.util.Loggeable;
+import org.jpos.util.NameRegistrar;
+import org.jpos.util.Realm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exposes a local {@link MUX} to {@link MUXProxyClient}s over a multiplexed
+ * binary protocol (see {@link MUXProxyLink}), a lightweight alternative to
+ * the RMI based {@link QMUXProxy}.
+ *
+ * <p>Each client connection carries any number of outstanding requests;
+ * requests are handed to the local MUX with {@link MUX#requestAsync(ISOMsg, Duration)}
+ * and responses are written back as they arrive, in any order.</p>
+ *
+ * <pre>
+ *   &lt;mux-proxy-server class="org.jpos.q2.iso.MUXProxyServer" logger="Q2"
+ *      packager="org.jpos.iso.packager.GenericPackager"&gt;
+ *     &lt;property name="mux" value="host" /&gt;
+ *     &lt;property name="port" value="9100" /&gt;
+ *     &lt;property name="bind-address" value="10.0.0.1" /&gt;
+ *     &lt;property name="allow" value="10.0.0.2" /&gt;
+ *     &lt;property name="allow" value="10.0.1.*" /&gt;
+ *     &lt;property name="max-timeout" value="60000" /&gt;
+ *     &lt;property name="max-inflight" value="1000" /&gt;
+ *     &lt;property name="packager-config" value="cfg/packager/cmf.xml" /&gt;
+ *   &lt;/mux-proxy-server&gt;
+ * </pre>
+ *
+ * <p>The protocol carries no authentication, so the server listens on the
+ * loopback interface unless {@code bind-address} says otherwise, and a
+ * non-loopback {@code bind-address} requires an {@code allow} list: peers
+ * must match one of its addresses (a trailing {@code *} matches a prefix),
+ * loopback peers are always accepted.</p>
+ *
+ * <p>Request timeouts sent by clients must be positive and are capped at
+ * {@code max-timeout}; each connection may have up to {@code max-inflight}
+ * outstanding requests, further ones are answered with an error. Responses
+ * are written by a per-connection writer thread, never by the thread that
+ * completes the local MUX's future.</p>
+ *
+ * <p>The packager (default {@link ISO87BPackager}) must match the clients'.</p>
+ *
+ * @since 3.0.2
+ */
+public class MUXProxyServer extends QBeanSupport implements MUXProxyServerMBean, Loggeable {
+    String muxName;
+    int port;
+    String bindAddress;
+    String[] allow;
+    long maxTimeout;
+    int maxInflight;
+    ISOPackager packager;
+    private MUX mux;
+    private volatile ServerSocket serverSocket;
+    private final Set<MUXProxyLink> links = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong responses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    /** Default constructor. */
+    public MUXProxyServer() {
+        super();
+    }
+
+    @Override
+    protected String defaultRealm() {
+        return Realm.COMM_MUX;
+    }
+
+    @Override
+    public void initService() throws ConfigurationException {
+        muxName = cfg.get("mux", null);
+        if (muxName == null)
+            throw new ConfigurationException ("MUXProxyServer " + getName() + ": 'mux' property not configured");
+        port = cfg.getInt("port");
+        bindAddress = cfg.get("bind-address", null);
+        allow = Arrays.stream(cfg.getAll("allow"))
+          .map(String::trim)
+          .filter(a -> !a.isEmpty())
+          .toArray(String[]::new);
+        if (bindAddress != null && allow.length == 0) {
+            try {
+                if (!InetAddress.getByName(bindAddress).isLoopbackAddress())
+                    throw new ConfigurationException ("MUXProxyServer " + getName() + ": 'allow' is required to bind to " + bindAddress);
+            } catch (UnknownHostException e) {
+                throw new ConfigurationException ("MUXProxyServer " + getName() + ": invalid bind-address " + bindAddress, e);
+            }
+        }
+        maxTimeout = cfg.getLong("max-timeout", 60000L);
+        maxInflight = cfg.getInt("max-inflight", 1000);
+        packager = createPackager(this);
+    }
+
+    @Override
+    public void startService() throws NameRegistrar.NotFoundException, IOException {
+        mux = NameRegistrar.get ("mux." + muxName);
+        ServerSocket ss = new ServerSocket();
+        ss.setReuseAddress(true);
+        ss.bind(bindAddress != null ?
+          new InetSocketAddress(bindAddress, port) : new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        serverSocket = ss;
+        Thread.ofVirtual().name("mux-proxy-accept-" + getName()).start(this::accept);
+        Thread.ofVirtual().name("mux-proxy-status-" + getName()).start(this::heartbeat);
+    }
+
+    @Override
+    public void stopService() {
+        ServerSocket ss = serverSocket;
+        serverSocket = null;
+        if (ss != null) {
+            try {
+                ss.close();
+            } catch (IOException ignored) { }
+        }
+        links.forEach(MUXProxyLink::close);
+        links.clear();
+    }
+
+    @Override
+    public int getLocalPort() {
+        ServerSocket ss = serverSocket;
+        return ss != null ? ss.getLocalPort() : -1;
+    }
+
+    @Override
+    public int getConnectionCount() {
+        return links.size();
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.get();
+    }
+
+    @Override
+    public long getResponses() {
+        return responses.get();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        p.printf ("%smux=%s, port=%d, connections=%d, requests=%d, responses=%d, expired=%d, errors=%d%n",
+          indent, muxName, getLocalPort(), links.size(), requests.get(), responses.get(), expirations.get(), errors.get());
+    }
+
+    /**
+     * Creates the packager named by the bean's {@code packager} attribute
+     * (configured with the bean's properties), or an {@link ISO87BPackager}.
+     */
+    static ISOPackager createPackager (QBeanSupport bean) throws ConfigurationException {
+        String name = bean.getPersist() != null ? QFactory.getAttributeValue (bean.getPersist(), "packager") : null;
+        if (name == null)
+            return new ISO87BPackager();
+        QFactory f = bean.getFactory();
+        ISOPackager p = f.newInstance(name);
+        f.setConfiguration(p, bean.getPersist());
+        return p;
+    }
+
+    /**
+     * Tells whether {@code peer} may connect: loopback addresses always may,
+     * others must match an {@code allow} entry exactly or, for entries ending
+     * in {@code *}, by prefix.
+     */
+    static boolean isAllowed (InetAddress peer, String[] allow) {
+        if (peer.isLoopbackAddress())
+            return true;
+        String ip = peer.getHostAddress();
+        for (String a : allow) {
+            if (a.endsWith("*") ? ip.startsWith(a.substring(0, a.length()-1)) : ip.equals(a))
+                return true;
+        }
+        return false;
+    }
+
+    private void accept() {
+        ServerSocket ss = serverSocket;
+        while (running() && ss != null && !ss.isClosed()) {
+            try {
+                Socket s = ss.accept();
+                Thread.ofVirtual().name("mux-proxy-" + getName()).start(() -> serve(s));
+            } catch (IOException e) {
+                if (running() && !ss.isClosed())
+                    getLog().warn("accept", e);
+            }
+        }
+    }
+
+    private void serve (Socket s) {
+        if (!isAllowed(s.getInetAddress(), allow)) {
+            getLog().warn("access denied, ip=" + s.getInetAddress().getHostAddress());
+            try {
+                s.close();
+            } catch (IOException ignored) { }
+            return;
+        }
+        MUXProxyLink link = null;
+        try {
+            link = new MUXProxyLink(s, packager);
+            String peer = link.accept(getName());
+            link.startWriter("mux-proxy-writer-" + getName());
+            links.add(link);
+            getLog().info("client " + peer + " connected from " + link);
+            link.status(mux.isConnected());
+            AtomicInteger inflight = new AtomicInteger();
+            while (running()) {
+                MUXProxyLink.Frame f = link.read();
+                switch (f.type()) {
+                    case MUXProxyLink.REQUEST -> request(link, f, inflight);
+                    case MUXProxyLink.SEND -> send(link, f);
+                    default -> throw new IOException ("Unexpected frame type " + f.type());
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            if (running())
+                getLog().info("client disconnected: " + s.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (running())
+                getLog().warn("client " + s.getRemoteSocketAddress(), e);
+        } finally {
+            if (link != null) {
+                links.remove(link);
+                link.close();
+            } else {
+                try {
+                    s.close();
+                } catch (IOException ignored) { }
+            }
+        }
+    }
+
+    private void request (MUXProxyLink link, MUXProxyLink.Frame f, AtomicInteger inflight) throws IOException {
+        requests.incrementAndGet();
+        if (f.timeout() <= 0L) {
+            errors.incrementAndGet();
+            link.error(f.id(), "Invalid timeout " + f.timeout());
+            return;
+        }
+        ISOMsg m;
+        try {
+            m = link.unpack(f);
+        } catch (ISOException e) {
+            errors.incrementAndGet();
+            link.error(f.id(), "Can not unpack request: " + e.getMessage());
+            return;
+        }
+        if (inflight.incrementAndGet() > maxInflight) {
+            inflight.decrementAndGet();
+            errors.incrementAndGet();
+            link.error(f.id(), "Too many requests in flight");
+            return;
+        }
+        mux.requestAsync(m, Duration.ofMillis(Math.min(f.timeout(), maxTimeout))).whenComplete((resp, t) -> {
+            inflight.decrementAndGet();
+            try {
+                if (t != null) {
+                    errors.incrementAndGet();
+                    link.error(f.id(), t.getMessage());
+                } else if (resp == null) {
+                    expirations.incrementAndGet();
+                    link.expired(f.id());
+                } else {
+                    responses.incrementAndGet();
+                    link.response(f.id(), resp);
+                }
+            } catch (IOException e) {
+                link.close(); // reader will see the broken link
+            }
+        });
+    }
+
+    private void send (MUXProxyLink link, MUXProxyLink.Frame f) {
+        try {
+            mux.send(link.unpack(f));
+        } catch (ISOException | IOException e) {
+            errors.incrementAndGet();
+            getLog().warn("send", e);
+        }
+    }
+
+    private void heartbeat() {
+        while (running()) {
+            try {
+                Thread.sleep(MUXProxyLink.HEARTBEAT);
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean connected = mux.isConnected();
+            for (MUXProxyLink link : links) {
+                try {
+                    link.status(connected);
+                } catch (IOException e) {
+                    link.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+/**
+ * MBean interface.
+ *
+ * @since 3.0.2
+ */
+public interface MUXProxyServerMBean extends org.jpos.q2.QBeanSupportMBean {
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return local port, -1 when not started
+     */
+    int getLocalPort();
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return client connections
+     */
+    int getConnectionCount();
+
+    /**
+     * Returns the number of requests received.
+     *
+     * @return requests
+     */
+    long getRequests();
+
+    /**
+     * Returns the number of responses sent back.
+     *
+     * @return responses
+     */
+    long getResponses();
+
+    /**
+     * Returns the number of requests the local MUX did not answer in time.
+     *
+     * @return expired requests
+     */
+    long getExpirations();
+}
@@ -27,6 +27,8 @@ import org.jpos.core.Environment;
 import org.jpos.iso.*;
 import org.jpos.metrics.MeterFactory;
 import org.jpos.metrics.MeterInfo;
+import org.jpos.metrics.iso.ISOMsgLatency;
+import org.jpos.metrics.iso.ISOMsgTimer;
 import org.jpos.q2.QBeanSupport;
 import org.jpos.q2.QFactory;
 import org.jpos.space.*;
@@ -35,18 +37,29 @@ import org.jpos.util.Metrics;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A Q2-managed multiplexer that routes ISO messages between channels and listeners.
+ *
+ * <p>Outstanding requests are tracked in a lock-free correlation table keyed by
+ * {@link #getKey(ISOMsg)}; a response is matched by atomically removing its
+ * entry, so a request is completed exactly once, either by its response or by
+ * its expiration.</p>
  * @author Alejandro Revilla
  */
 @SuppressWarnings("unchecked")
 public class QMUX
     extends QBeanSupport
-    implements SpaceListener, MUX, QMUXMBean, Loggeable, MetricsProvider
+    implements SpaceListener, MUX, QMUXMBean, Loggeable, MetricsProvider, ISOMsgTimer.Source
 {
     static final String nomap = "0123456789";
     static final String DEFAULT_KEY = "41, 11";
@@ -60,16 +73,27 @@ public class QMUX
     protected String[] key;
     /** Comma-separated response codes to ignore (treat as if no response was received). */
     protected String ignorerc;
-    /** Three-character MTI mapping table used by {@link #mapMTI(String)}. */
+    /** Three-character MTI mapping table applied to the MTI when building correlation keys. */
     protected String[] mtiMapping;
     private boolean headerIsKey;
     private boolean returnRejects;
-    private LocalSpace isp; // internal space
+    private Set<String> coalesceMTIs;
+    private final Map<KeyExtractor.Key,PendingRequest> pending = new ConcurrentHashMap<>();
+    private volatile KeyExtractor keyExtractor;
+    private final boolean customKey = isGetKeyOverridden (getClass());
     private Map<String,String[]> mtiKey = new HashMap<>();
     private Metrics metrics = new Metrics(new AtomicHistogram(60000, 2));
+    private volatile ISOMsgTimer isoMsgTimer;
 
     List<ISORequestListener> listeners;
-    private volatile int rx, tx, rxExpired, txExpired, rxPending, rxUnhandled, rxForwarded;
+    private final AtomicInteger rx = new AtomicInteger();
+    private final AtomicInteger tx = new AtomicInteger();
+    private final AtomicInteger rxExpired = new AtomicInteger();
+    private final AtomicInteger txExpired = new AtomicInteger();
+    private final AtomicInteger rxPending = new AtomicInteger();
+    private final AtomicInteger rxUnhandled = new AtomicInteger();
+    private final AtomicInteger rxForwarded = new AtomicInteger();
+    private final AtomicInteger rxCoalesced = new AtomicInteger();
     private volatile long lastTxn = 0L;
     private boolean listenerRegistered;
 
@@ -81,6 +105,7 @@ public class QMUX
     private Counter rxCounter;
     private Counter rxMatchCounter;
     private Counter rxUnhandledCounter;
+    private Counter rxCoalescedCounter;
 
     /** Default constructor. */
     public QMUX () {
@@ -96,7 +121,7 @@ public class QMUX
     public void initService () throws ConfigurationException {
         Element e = getPersist ();
         sp        = grabSpace (e.getChild ("space"));
-        isp       = cfg.getBoolean("reuse-space", false) ? sp : new TSpace();
+        returnRejects = cfg.getBoolean("return-rejects", false);
         in        = Environment.get(e.getChildTextTrim ("in"));
         out       = Environment.get(e.getChildTextTrim ("out"));
 
@@ -105,7 +130,6 @@ public class QMUX
         }
         ignorerc  = Environment.get(e.getChildTextTrim ("ignore-rc"));
         key = toStringArray(DEFAULT_KEY, ", ", null);
-        returnRejects = cfg.getBoolean("return-rejects", false);
         for (Element keyElement : e.getChildren("key")) {
             String mtiOverride = QFactory.getAttributeValue(keyElement, "mti");
             if (mtiOverride != null && mtiOverride.length() >= 2) {
@@ -122,6 +146,10 @@ public class QMUX
             mtiMapping = new String[] { nomap, nomap, "0022446689" };
         addListeners ();
         unhandled = Environment.get(e.getChildTextTrim ("unhandled"));
+        String[] coalesce = cfg.getAll("coalesce-mti");
+        coalesceMTIs = coalesce.length > 0 ? Set.of(String.join(" ", coalesce).trim().split("[, ]+")) : null;
+        keyExtractor = null;
+        initISOMsgTimer(e.getChild("metrics"));
         initMeters();
         NameRegistrar.register ("mux."+getName (), this);
     }
@@ -166,46 +194,48 @@ public class QMUX
      * @return response or null
      */
     public ISOMsg request (ISOMsg m, long timeout) throws ISOException {
-        String key = getKey (m);
-        String req = key + ".req";
-        synchronized (isp) {
-            if (isp.rdp (req) != null)
-                throw new ISOException ("Duplicate key '" + req + "' detected");
-            isp.out (req, m);
+        KeyExtractor.Key key = key (m);
+        PendingRequest pr = new PendingRequest (timeout, null);
+        PendingRequest original = pending.putIfAbsent (key, pr);
+        if (original != null) {
+            if (!isCoalesceable (m))
+                throw new ISOException ("Duplicate key '" + key + ".req' detected");
+            return PendingRequest.await (coalesce (original, timeout), timeout);
         }
         m.setDirection(0);
         Chronometer c = new Chronometer();
-        if (timeout > 0)
-            sp.out (out, m, timeout);
-        else
-            sp.out (out, m);
-
-        txCounter.increment();
-        ISOMsg resp;
+        ISOMsg resp = null;
+        rxPending.incrementAndGet(); // balanced by the decrement in finally, even if sp.out fails
         try {
-            synchronized (this) { tx++; rxPending++; }
-
-            for (;;) {
-                resp = (ISOMsg) isp.in (key, timeout);
-                if (!shouldIgnore (resp))
-                    break;
+            if (timeout > 0)
+                sp.out (out, m, timeout);
+            else
+                sp.out (out, m);
+
+            txCounter.increment();
+            tx.incrementAndGet();
+            resp = pr.await (timeout);
+            if (resp == null) {
+                if (pending.remove (key, pr))
+                    pr.future.complete (null); // release coalesced requests
+                else
+                    resp = pr.await (10000L); // notify claimed the entry but has not completed it yet
             }
-            if (resp == null && isp.inp (req) == null) {
-                // possible race condition, retry for a few extra seconds
-                resp = (ISOMsg) isp.in (key, 10000);
+            if (shouldIgnore (resp)) {
+                pr.sleepUntilDeadline(); // treat as if no response was received
+                resp = null;
             }
-            synchronized (this) {
-                if (resp != null) {
-                    rx++;
-                    lastTxn = System.currentTimeMillis();
-                } else {
-                    rxExpired++;
-                    if (m.getDirection() != ISOMsg.OUTGOING)
-                        txExpired++;
-                }
+            if (resp != null) {
+                rx.incrementAndGet();
+                lastTxn = System.currentTimeMillis();
+            } else {
+                rxExpired.incrementAndGet();
+                if (m.getDirection() != ISOMsg.OUTGOING)
+                    txExpired.incrementAndGet();
             }
         } finally {
-            synchronized (this) { rxPending--; }
+            pending.remove (key, pr);
+            rxPending.decrementAndGet();
         }
         long elapsed = c.elapsed();
         metrics.record("all", elapsed);
@@ -213,29 +243,142 @@ public class QMUX
             responseTimer.record(elapsed, TimeUnit.MILLISECONDS);
             metrics.record("ok", elapsed);
         }
+        record(m, resp, elapsed);
         return resp;
     }
     public void request (ISOMsg m, long timeout, ISOResponseListener rl, Object handBack)
       throws ISOException
     {
-        String key = getKey (m);
-        String req = key + ".req";
-        synchronized (isp) {
-            if (isp.rdp (req) != null)
-                throw new ISOException ("Duplicate key '" + req + "' detected.");
-            m.setDirection(0);
-            AsyncRequest ar = new AsyncRequest (rl, handBack);
-            synchronized (ar) {
-                if (timeout > 0)
-                    ar.setFuture(getScheduledThreadPoolExecutor().schedule(ar, timeout, TimeUnit.MILLISECONDS));
-            }
-            isp.out (req, ar, timeout);
+        KeyExtractor.Key key = key (m);
+        AsyncRequest ar = new AsyncRequest (rl, handBack);
+        PendingRequest pr = new PendingRequest (timeout, ar);
+        ar.key = key;
+        ar.request = m;
+        ar.pr = pr;
+        PendingRequest original = pending.putIfAbsent (key, pr);
+        if (original != null) {
+            if (!isCoalesceable (m))
+                throw new ISOException ("Duplicate key '" + key + ".req' detected.");
+            coalesce (original, timeout).thenAccept (resp -> {
+                if (resp != null)
+                    rl.responseReceived (resp, handBack);
+                else
+                    rl.expired (handBack);
+            });
+            return;
         }
+        m.setDirection(0);
+        if (timeout > 0)
+            pr.timer = TimingWheel.getDefault().schedule(ar, timeout, TimeUnit.MILLISECONDS);
+        tx.incrementAndGet();
+        rxPending.incrementAndGet();
         if (timeout > 0)
             sp.out (out, m, timeout);
         else
             sp.out (out, m);
-        synchronized (this) { tx++; rxPending++; }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A non-positive {@code timeout} is rejected with an
+     * {@link IllegalArgumentException}, as no expiration could ever release
+     * the pending request.</p>
+     */
+    @Override
+    public CompletableFuture<ISOMsg> requestAsync (ISOMsg m, Duration timeout) {
+        long t = timeout.toMillis();
+        if (t <= 0L)
+            return CompletableFuture.failedFuture (new IllegalArgumentException ("timeout must be positive, got " + timeout));
+        KeyExtractor.Key key;
+        try {
+            key = key (m);
+        } catch (ISOException e) {
+            return CompletableFuture.failedFuture (e);
+        }
+        PendingRequest pr = new PendingRequest (t, null);
+        PendingRequest original = pending.putIfAbsent (key, pr);
+        if (original != null) {
+            return isCoalesceable (m) ? coalesce (original, t) :
+              CompletableFuture.failedFuture (new ISOException ("Duplicate key '" + key + ".req' detected"));
+        }
+        m.setDirection(0);
+        Chronometer c = new Chronometer();
+        CompletableFuture<ISOMsg> f = pr.future.thenApply (resp -> {
+            if (pr.timer != null)
+                pr.timer.cancel();
+            rxPending.decrementAndGet();
+            long elapsed = c.elapsed();
+            metrics.record("all", elapsed);
+            if (resp == null || shouldIgnore (resp)) {
+                rxExpired.incrementAndGet();
+                record(m, null, elapsed);
+                return null;
+            }
+            rx.incrementAndGet();
+            lastTxn = System.currentTimeMillis();
+            responseTimer.record(elapsed, TimeUnit.MILLISECONDS);
+            metrics.record("ok", elapsed);
+            record(m, resp, elapsed);
+            return resp;
+        });
+        txCounter.increment();
+        tx.incrementAndGet();
+        rxPending.incrementAndGet();
+        pr.timer = TimingWheel.getDefault().schedule (() -> {
+            if (pending.remove (key, pr))
+                pr.future.complete (null);
+        }, t, TimeUnit.MILLISECONDS);
+        try {
+            sp.out (out, m, t);
+        } catch (RuntimeException e) {
+            pr.timer.cancel();
+            if (pending.remove (key, pr)) {
+                // otherwise the timer or a response claimed it and f's stage does the accounting
+                rxPending.decrementAndGet();
+                pr.future.completeExceptionally (e); // fails coalesced requests too
+            }
+            return CompletableFuture.failedFuture (e);
+        }
+        return f;
+    }
+
+    /**
+     * Tells whether a request whose key collides with a pending one may share its response.
+     */
+    private boolean isCoalesceable (ISOMsg m) {
+        return coalesceMTIs != null && coalesceMTIs.contains (m.getString (0));
+    }
+
+    /**
+     * Attaches a duplicate request to a pending {@code original}.
+     *
+     * @return future completed with a clone of the original's response, or with
+     *   {@code null} if the original expires or {@code timeout} elapses first
+     */
+    private CompletableFuture<ISOMsg> coalesce (PendingRequest original, long timeout) {
+        rxCoalesced.incrementAndGet();
+        rxCoalescedCounter.increment();
+        CompletableFuture<ISOMsg> f = new CompletableFuture<>();
+        TimingWheel.Timeout timer = timeout > 0 ?
+          TimingWheel.getDefault().schedule (() -> f.complete (null), timeout, TimeUnit.MILLISECONDS) : null;
+        original.future.whenComplete ((resp, t) -> {
+            if (timer != null)
+                timer.cancel();
+            f.complete (resp != null && !shouldIgnore (resp) ? (ISOMsg) resp.clone() : null);
+        });
+        return f;
+    }
+
+    /**
+     * Tells whether a request with the given correlation key is awaiting its response.
+     *
+     * @param key correlation key as returned by {@link #getKey(ISOMsg)}
+     * @return true if the request is still pending
+     * @since 3.0.2
+     */
+    public boolean isPending (String key) {
+        return pending.containsKey (KeyExtractor.Key.of (key));
     }
 
     /**
@@ -266,14 +409,12 @@ public class QMUX
             rxCounter.increment();
             try {
                 if (isNotifyEligible(m)) {
-                    String key = getKey (m);
-                    String req = key + ".req";
-                    Object r = isp.inp (req);
-                    if (r != null) {
-                        if (r instanceof AsyncRequest ar) {
-                            ar.responseReceived (m);
+                    PendingRequest pr = pending.remove (key (m));
+                    if (pr != null) {
+                        if (pr.async != null) {
+                            pr.async.responseReceived (m);
                         } else {
-                            isp.out (key, m);
+                            pr.future.complete (m);
                         }
                         rxMatchCounter.increment();
                         return;
@@ -293,51 +434,36 @@ public class QMUX
      * Builds the correlation key used to pair a response with its request,
      * applying any per-MTI/per-PCODE overrides and special-cases for STAN/PAN fields.
      *
+     * <p>The key layout is compiled once from the configuration; subclasses
+     * overriding this method are still honoured for correlation.</p>
+     *
      * @param m message whose key should be derived
      * @return the computed key (queue prefix + MTI + selected field values)
      * @throws ISOException if no key fields are present in {@code m}
      */
     public String getKey (ISOMsg m) throws ISOException {
+        return keyExtractor().extract (m).toString();
+    }
+
+    private KeyExtractor.Key key (ISOMsg m) throws ISOException {
+        return customKey ? KeyExtractor.Key.of (getKey (m)) : keyExtractor().extract (m);
+    }
+
+    private KeyExtractor keyExtractor () {
         if (out == null)
             throw new NullPointerException ("Misconfigured QMUX. Please verify out queue is not null.");
-        StringBuilder sb = new StringBuilder (out);
-        sb.append ('.');
-        sb.append (mapMTI(m.getMTI()));
-        if (headerIsKey && m.getHeader()!=null) {
-            sb.append ('.');
-            sb.append(ISOUtil.hexString(m.getHeader()));
-            sb.append ('.');
-        }
-        boolean hasFields = false;
-        String mti = m.getMTI();
-        String mtiPrefix = mti.substring(0,2);
-        String[] k = null;
-        String pcode = m.hasField(3) ? sanitizePcode(m.getString(3)) : null;
-        if (pcode != null) {
-            k = mtiKey.get(buildMtiKey(mtiPrefix, pcode));
-        }
-        if (k == null) {
-            k = mtiKey.getOrDefault(mtiPrefix, key);
-        }
-        for (String f : k) {
-            String v = m.getString(f);
-            if (v != null) {
-                if ("11".equals(f)) {
-                    String vt = v.trim();
-                    int l = m.getMTI().charAt(0) == '2' ? 12 : 6;
-                    if (vt.length() < l)
-                        v = ISOUtil.zeropad(vt, l);
-                }
-                if ("41".equals(f)) {
-                    v = ISOUtil.zeropad(v.trim(), 16); // BIC ANSI to ISO hack
-                }
-                hasFields = true;
-                sb.append(v);
-            }
+        KeyExtractor x = keyExtractor;
+        if (x == null)
+            keyExtractor = x = new KeyExtractor (out, key, mtiKey, mtiMapping, headerIsKey);
+        return x;
+    }
+
+    private static boolean isGetKeyOverridden (Class<?> c) {
+        try {
+            return c.getMethod ("getKey", ISOMsg.class).getDeclaringClass() != QMUX.class;
+        } catch (NoSuchMethodException e) {
+            return false;
         }
-        if (!hasFields)
-            throw new ISOException ("Key fields not found - not sending " + sb.toString());
-        return sb.toString();
     }
 
     private String sanitizePcode(String pcode) {
@@ -356,21 +482,6 @@ public class QMUX
         return metrics;
     }
 
-    private String mapMTI (String mti) throws ISOException {
-        StringBuilder sb = new StringBuilder();
-        if (mti != null) {
-            if (mti.length() < 4)
-                mti = ISOUtil.zeropad(mti, 4); // #jPOS-55
-            if (mti.length() == 4) {
-                for (int i=0; i<mtiMapping.length; i++) {
-                    int c = mti.charAt (i) - '0';
-                    if (c >= 0 && c < 10)
-                        sb.append (mtiMapping[i].charAt(c));
-                }
-            }
-        }
-        return sb.toString();
-    }
     public synchronized void setInQueue (String in) {
         this.in = in;
         getPersist().getChild("in").setText (in);
@@ -381,6 +492,7 @@ public class QMUX
     }
     public synchronized void setOutQueue (String out) {
         this.out = out;
+        keyExtractor = null;
         getPersist().getChild("out").setText (out);
         setModified (true);
     }
@@ -442,7 +554,8 @@ public class QMUX
      * Resets all in-memory transaction counters and the last-transaction timestamp.
      */
     public synchronized void resetCounters() {
-        rx = tx = rxExpired = txExpired = rxPending = rxUnhandled = rxForwarded = 0;
+        for (AtomicInteger counter : List.of (rx, tx, rxExpired, txExpired, rxPending, rxUnhandled, rxForwarded, rxCoalesced))
+            counter.set (0);
         lastTxn = 0l;
     }
     /**
@@ -452,14 +565,16 @@ public class QMUX
      */
     public String getCountersAsString () {
         StringBuffer sb = new StringBuffer();
-        append (sb, "tx=", tx);
-        append (sb, ", rx=", rx);
+        append (sb, "tx=", tx.get());
+        append (sb, ", rx=", rx.get());
         append (sb, ", tx_expired=", getTXExpired());
         append (sb, ", tx_pending=", getTXPending());
         append (sb, ", rx_expired=", getRXExpired());
         append (sb, ", rx_pending=", getRXPending());
         append (sb, ", rx_unhandled=", getRXUnhandled());
         append (sb, ", rx_forwarded=", getRXForwarded());
+        if (coalesceMTIs != null)
+            append (sb, ", rx_coalesced=", getRXCoalesced());
         sb.append (", connected=");
         sb.append (Boolean.toString(isConnected()));
         sb.append (", last=");
@@ -473,15 +588,15 @@ public class QMUX
     }
 
     public int getTXCounter() {
-        return tx;
+        return tx.get();
     }
     public int getRXCounter() {
-        return rx;
+        return rx.get();
     }
 
     @Override
     public int getTXExpired() {
-        return txExpired;
+        return txExpired.get();
     }
 
     @Override
@@ -491,22 +606,33 @@ public class QMUX
 
     @Override
     public int getRXExpired() {
-        return rxExpired;
+        return rxExpired.get();
     }
 
     @Override
     public int getRXPending() {
-        return rxPending;
+        return rxPending.get();
     }
 
     @Override
     public int getRXUnhandled() {
-        return rxUnhandled;
+        return rxUnhandled.get();
     }
 
     @Override
     public int getRXForwarded() {
-        return rxForwarded;
+        return rxForwarded.get();
+    }
+
+    /**
+     * Returns the number of duplicate requests that shared a pending request's response.
+     *
+     * @return coalesced request count
+     * @since 3.0.2
+     */
+    @Override
+    public int getRXCoalesced() {
+        return rxCoalesced.get();
     }
 
     public long getLastTxnTimestampInMillis() {
@@ -529,12 +655,12 @@ public class QMUX
         rxUnhandledCounter.increment();
         Iterator<ISORequestListener> iter = listeners.iterator();
         if (iter.hasNext())
-            synchronized (this) { rxForwarded++; }
+            rxForwarded.incrementAndGet();
         while (iter.hasNext())
             if (iter.next().process (source, m))
                 return;
         if (unhandled != null) {
-            synchronized (this) { rxUnhandled++; }
+            rxUnhandled.incrementAndGet();
             sp.out (unhandled, m, 120000);
         }
     }
@@ -576,6 +702,25 @@ public class QMUX
     public void dump (PrintStream p, String indent) {
         p.println (indent + getCountersAsString());
         metrics.dump (p, indent);
+        if (isoMsgTimer instanceof Loggeable l)
+            l.dump (p, indent);
+    }
+
+    /**
+     * Sets the {@link ISOMsgTimer} that records round trips by message attributes.
+     * Normally configured with a {@code <metrics>} child element.
+     *
+     * @param timer the timer, or {@code null} to disable dimensional recording
+     * @since 3.0.2
+     */
+    @Override
+    public void setISOMsgTimer (ISOMsgTimer timer) {
+        this.isoMsgTimer = timer;
+    }
+
+    @Override
+    public ISOMsgTimer getISOMsgTimer() {
+        return isoMsgTimer;
     }
     private String[] toStringArray(String s, String delimiter, String def) {
         if (s == null)
@@ -625,6 +770,9 @@ public class QMUX
         Object handBack;
         ScheduledFuture future;
         Chronometer chrono;
+        KeyExtractor.Key key;
+        PendingRequest pr;
+        ISOMsg request;
         /**
          * Constructs an async request paired with the given listener and hand-back token.
          *
@@ -651,27 +799,100 @@ public class QMUX
          * @param response inbound response message
          */
         public void responseReceived (ISOMsg response) {
-            if (future == null || future.cancel(false)) {
-                synchronized (QMUX.this) {
-                    rx++;
-                    rxPending--;
-                    lastTxn = System.currentTimeMillis();
-                }
-                long elapsed = chrono.elapsed();
-                metrics.record("all", elapsed);
-                metrics.record("ok", elapsed);
-                rl.responseReceived(response, handBack);
-            }
+            if (future != null)
+                future.cancel(false);
+            if (pr != null && pr.timer != null)
+                pr.timer.cancel();
+            if (pr != null && !pr.future.complete(response))
+                return; // already expired
+            rx.incrementAndGet();
+            rxPending.decrementAndGet();
+            lastTxn = System.currentTimeMillis();
+            long elapsed = chrono.elapsed();
+            metrics.record("all", elapsed);
+            metrics.record("ok", elapsed);
+            if (request != null)
+                record(request, response, elapsed);
+            rl.responseReceived(response, handBack);
         }
         public void run() {
-            synchronized(QMUX.this) {
-                rxPending--;
-            }
-            metrics.record("all", chrono.elapsed());
+            if (key != null && !pending.remove(key, pr))
+                return; // a response claimed this request first
+            if (pr != null && !pr.future.complete(null))
+                return;
+            rxPending.decrementAndGet();
+            long elapsed = chrono.elapsed();
+            metrics.record("all", elapsed);
+            if (request != null)
+                record(request, null, elapsed);
             rl.expired(handBack);
         }
     }
 
+    /**
+     * Correlation table entry: completed with the response (or {@code null} on
+     * expiration) by whoever removes it from the table first.
+     */
+    private static final class PendingRequest {
+        final CompletableFuture<ISOMsg> future = new CompletableFuture<>();
+        final long deadline;
+        final AsyncRequest async;
+        volatile TimingWheel.Timeout timer;
+
+        PendingRequest (long timeout, AsyncRequest async) {
+            this.deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0L;
+            this.async = async;
+        }
+
+        ISOMsg await (long timeout) {
+            return await (future, timeout);
+        }
+
+        static ISOMsg await (CompletableFuture<ISOMsg> f, long timeout) {
+            try {
+                return f.get (Math.max (timeout, 1L), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        void sleepUntilDeadline () {
+            long t = deadline - System.currentTimeMillis();
+            if (t > 0L)
+                ISOUtil.sleep (t);
+        }
+    }
+
+    /**
+     * Creates the optional dimensional {@link ISOMsgTimer}, by default an {@link ISOMsgLatency}:
+     * <pre>
+     *   &lt;metrics [class="..."]&gt;
+     *     &lt;property name="field" value="113.66" /&gt;
+     *   &lt;/metrics&gt;
+     * </pre>
+     */
+    private void initISOMsgTimer (Element met) throws ConfigurationException {
+        if (met == null || !QFactory.isEnabled(met)) {
+            isoMsgTimer = null;
+            return;
+        }
+        QFactory f = getFactory();
+        String clazz = QFactory.getAttributeValue(met, "class");
+        ISOMsgTimer t = clazz != null ? f.newInstance(clazz) : new ISOMsgLatency();
+        f.setLogger(t, met);
+        f.setConfiguration(t, met);
+        isoMsgTimer = t;
+    }
+
+    private void record (ISOMsg request, ISOMsg response, long elapsed) {
+        ISOMsgTimer t = isoMsgTimer;
+        if (t != null)
+            t.record(request, response, elapsed);
+    }
+
     private void initMeters() {
         var tags = io.micrometer.core.instrument.Tags.of("name", getName());
         var registry = getServer().getMeterRegistry();
@@ -688,19 +909,24 @@ public class QMUX
             (registry, MeterInfo.MUX_RX_PENDING,
               tags,
               null,
-              () -> rxPending
+              rxPending::get
             );
 
         txCounter = MeterFactory.counter(registry, MeterInfo.MUX_TX, tags);
         rxCounter = MeterFactory.counter(registry, MeterInfo.MUX_RX, tags);
         rxMatchCounter = MeterFactory.counter(registry, MeterInfo.MUX_MATCH, tags.and("type", "match"));
         rxUnhandledCounter = MeterFactory.counter(registry, MeterInfo.MUX_UNHANDLED, tags.and("type", "unhandled"));
+        rxCoalescedCounter = MeterFactory.counter(registry, MeterInfo.MUX_COALESCED, tags.and("type", "coalesced"));
         responseTimer = MeterFactory.timer(registry, MeterInfo.MUX_RESPONSE_TIMER, tags);
+        if (isoMsgTimer != null)
+            isoMsgTimer.register(registry, tags);
     }
 
     private void removeMeters() {
         MeterFactory.remove (getServer().getMeterRegistry(),
-          statusGauge, rxPendingGauge, txCounter, rxCounter, rxMatchCounter, rxUnhandledCounter, responseTimer
+          statusGauge, rxPendingGauge, txCounter, rxCounter, rxMatchCounter, rxUnhandledCounter, rxCoalescedCounter, responseTimer
         );
+        if (isoMsgTimer != null)
+            isoMsgTimer.unregister();
     }
 }
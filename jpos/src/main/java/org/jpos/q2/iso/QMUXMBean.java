@@ -116,6 +116,13 @@ public interface QMUXMBean extends org.jpos.q2.QBeanSupportMBean {
      * @return forwarded RX count
      */
     int getRXForwarded();
+    /**
+     * Returns the number of duplicate requests that shared a pending request's response.
+     *
+     * @return coalesced request count
+     * @since 3.0.2
+     */
+    int getRXCoalesced();
     /**
      * Returns the wall-clock timestamp of the last successful transaction.
      *
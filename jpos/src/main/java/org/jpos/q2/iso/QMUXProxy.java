@@ -29,6 +29,8 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.*;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * RMI QMUX Proxy
@@ -74,6 +76,19 @@ public class QMUXProxy implements RemoteQMUX, Configurable {
         qmux.request(m, timeout, rl, handBack);
         
     }
+    /**
+     * Sends {@code m} through the local QMUX without blocking the caller.
+     * This is a local call; it is not part of {@link RemoteQMUX}.
+     *
+     * @param m message to send
+     * @param timeout time to wait for the response
+     * @return future response, {@code null} on timeout
+     * @see QMUX#requestAsync(ISOMsg, Duration)
+     * @since 3.0.2
+     */
+    public CompletableFuture<ISOMsg> requestAsync(ISOMsg m, Duration timeout) {
+        return qmux.requestAsync(m, timeout);
+    }
     public void setConfiguration(Configuration cfg)
             throws ConfigurationException {
         qmux.setConfiguration(cfg);
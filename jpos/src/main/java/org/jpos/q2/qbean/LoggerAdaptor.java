@@ -30,6 +30,12 @@ import java.io.PrintStream;
 /**
  * QBean that materialises a named {@link Logger} from its persist element,
  * optionally redirecting {@code System.out}/{@code System.err} to it.
+ * <p>
+ * Setting the {@code async} property to {@code true} switches the logger to
+ * asynchronous dispatch (see {@link Logger#startAsync(int, Logger.OverflowPolicy, int)}),
+ * tuned by {@code async-capacity} (default 8192), {@code overflow-policy}
+ * ({@code block}, {@code drop-debug} or {@code drop-all}, default {@code block})
+ * and {@code batch-size} (default 256).
  */
 public class LoggerAdaptor extends QBeanSupport {
     /** Default constructor; no instance state to initialise. */
@@ -57,12 +63,20 @@ public class LoggerAdaptor extends QBeanSupport {
             originalErr = System.err;
             System.setErr(new PrintStream(new LogEventOutputStream(logger, "stderr", delay)));
         }
+        if (cfg.getBoolean("async", false)) {
+            logger.startAsync (
+              cfg.getInt("async-capacity", 8192),
+              overflowPolicy(cfg.get("overflow-policy", "block")),
+              cfg.getInt("batch-size", 256)
+            );
+        }
     }
     protected void stopService() {
         if (originalOut != null)
             System.setOut(originalOut);
         if (originalErr != null)
             System.setErr(originalErr);
+        logger.stopAsync ();
         logger.removeAllListeners ();
     }
     protected void destroyService() {
@@ -73,6 +87,14 @@ public class LoggerAdaptor extends QBeanSupport {
         // logger.destroy ();
     }
 
+    private static Logger.OverflowPolicy overflowPolicy (String s) throws ConfigurationException {
+        try {
+            return Logger.OverflowPolicy.valueOf(s.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException ("Invalid overflow-policy '" + s + "'", e);
+        }
+    }
+
     private void addListener (Element e) throws ConfigurationException {
         QFactory factory = getServer().getFactory();
         LogListener listener = factory.newInstance(e);
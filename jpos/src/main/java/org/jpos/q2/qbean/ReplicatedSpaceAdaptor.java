@@ -0,0 +1,125 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.qbean;
+
+import org.jpos.core.ConfigurationException;
+import org.jpos.q2.QBeanSupport;
+import org.jpos.space.LocalSpace;
+import org.jpos.space.ReplicatedSpace;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
+import org.jpos.util.Loggeable;
+import org.jpos.util.NameRegistrar;
+
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Deploys a {@link ReplicatedSpace} and registers it so that
+ * {@code SpaceFactory.getSpace("replicated:<name>")} resolves to it.
+ *
+ * <pre>
+ * &lt;qbean name="rspace" class="org.jpos.q2.qbean.ReplicatedSpaceAdaptor"&gt;
+ *   &lt;property name="space"  value="tspace:default" /&gt;
+ *   &lt;property name="node-id" value="node-a" /&gt;
+ *   &lt;property name="host"   value="10.0.0.1" /&gt;
+ *   &lt;property name="port"   value="9900" /&gt;
+ *   &lt;property name="peer"   value="10.0.0.2:9900" /&gt;
+ *   &lt;property name="prefix" value="mux-ready." /&gt;
+ *   &lt;property name="prefix" value="saf." /&gt;
+ * &lt;/qbean&gt;
+ * </pre>
+ *
+ * <p>Without {@code host} the listener binds to the loopback interface only.
+ * Inbound streams are accepted from the configured peers plus any {@code allow}
+ * hosts; {@code serial-filter} overrides the {@link java.io.ObjectInputFilter}
+ * pattern applied to serialized values.</p>
+ *
+ * @since 3.0.2
+ */
+@SuppressWarnings("unchecked")
+public class ReplicatedSpaceAdaptor extends QBeanSupport implements Loggeable {
+    private ReplicatedSpace rs;
+    private String uri;
+
+    /** Default constructor. */
+    public ReplicatedSpaceAdaptor () {
+        super ();
+    }
+
+    @Override
+    protected void initService () throws ConfigurationException {
+        Space sp = SpaceFactory.getSpace (cfg.get ("space", null));
+        if (!(sp instanceof LocalSpace))
+            throw new ConfigurationException ("Invalid space " + cfg.get ("space"));
+        rs = new ReplicatedSpace ((LocalSpace) sp, cfg.get ("node-id", getName()), cfg.getAll ("prefix"));
+        rs.setLogSize (cfg.getInt ("log-size", ReplicatedSpace.DEFAULT_LOG_SIZE));
+        rs.setBatchSize (cfg.getInt ("batch-size", ReplicatedSpace.DEFAULT_BATCH_SIZE));
+        rs.setReconnectDelay (cfg.getLong ("reconnect-delay", 5000L));
+        rs.setLog (getLog());
+        String filter = cfg.get ("serial-filter", null);
+        if (filter != null)
+            rs.setSerialFilter (filter);
+        uri = SpaceFactory.REPLICATED + ":" + cfg.get ("name", getName());
+        NameRegistrar.register (uri, rs);
+    }
+
+    @Override
+    protected void startService () throws Exception {
+        int port = cfg.getInt ("port", 0);
+        if (port > 0) {
+            String host = cfg.get ("host", null);
+            rs.listen (host != null ? new InetSocketAddress (host, port) : new InetSocketAddress (InetAddress.getLoopbackAddress(), port));
+        }
+        for (String allow : cfg.getAll ("allow"))
+            rs.allowPeer (allow);
+        for (String peer : cfg.getAll ("peer")) {
+            int i = peer.lastIndexOf (':');
+            if (i <= 0)
+                throw new ConfigurationException ("Invalid peer '" + peer + "' (host:port expected)");
+            rs.addPeer (peer.substring (0, i), Integer.parseInt (peer.substring (i+1)));
+        }
+    }
+
+    @Override
+    protected void stopService () {
+        rs.close ();
+    }
+
+    @Override
+    protected void destroyService () {
+        NameRegistrar.unregister (uri);
+    }
+
+    /**
+     * Returns the deployed replicated space.
+     *
+     * @return the replicated space
+     */
+    public ReplicatedSpace getSpace () {
+        return rs;
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        if (rs != null)
+            rs.dump (p, indent);
+    }
+}
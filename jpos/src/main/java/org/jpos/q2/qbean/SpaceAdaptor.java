@@ -18,11 +18,22 @@
 
 package org.jpos.q2.qbean;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.jpos.metrics.MeterFactory;
+import org.jpos.metrics.MeterInfo;
 import org.jpos.q2.Q2;
 import org.jpos.q2.QBeanSupport;
+import org.jpos.space.BoundedSpace;
+import org.jpos.space.LSpace;
+import org.jpos.space.ListenerDispatcher;
 import org.jpos.space.LocalSpace;
 import org.jpos.space.Space;
 import org.jpos.space.SpaceFactory;
+import org.jpos.space.TSpace;
+import org.jpos.util.NameRegistrar;
 
 import javax.management.ObjectName;
 import java.util.Set;
@@ -30,6 +41,14 @@ import java.util.Set;
 /**
  * Space Adaptor
  *
+ * <p>Optional properties {@code listener-dispatch} ({@code inline}, {@code per-key}
+ * or {@code queued}) and {@code listener-queue-size} install a
+ * {@link ListenerDispatcher} on TSpace/LSpace based spaces.</p>
+ *
+ * <p>One or more {@code limit} properties ({@code pattern=capacity[/policy[/timeout]]},
+ * see {@link BoundedSpace}) wrap the space in a {@link BoundedSpace} that is
+ * registered in place of the original one while this adaptor is running.</p>
+ *
  * @author Alejandro Revilla
  * @version $Revision$ $Date$
  */
@@ -41,6 +60,11 @@ public class SpaceAdaptor
     private Space sp = null;
     private String spaceName = null;
     private ObjectName objectName = null;
+    private ListenerDispatcher dispatcher;
+    private Timer listenerTimer;
+    private Gauge listenerBacklog;
+    private BoundedSpace<Object,Object> bounded;
+    private String uri;
 
     /** Default constructor. */
     public SpaceAdaptor () {
@@ -58,10 +82,25 @@ public class SpaceAdaptor
             (spaceName != null ? spaceName : "default")
         );
         getServer().getMBeanServer().registerMBean (sp, objectName);
+        if (cfg != null && cfg.get ("listener-dispatch", null) != null)
+            initListenerDispatcher ();
+        if (cfg != null && cfg.getAll ("limit").length > 0)
+            initBoundedSpace ();
     }
 
     protected void stopService () throws Exception {
         getServer().getMBeanServer().unregisterMBean (objectName);
+        if (bounded != null) {
+            NameRegistrar.register (uri, sp);
+            bounded.close ();
+            bounded = null;
+        }
+        if (dispatcher != null) {
+            setListenerDispatcher (null);
+            MeterFactory.remove (getServer().getMeterRegistry(), listenerTimer, listenerBacklog);
+            dispatcher.close ();
+            dispatcher = null;
+        }
     }
 
     public synchronized void setSpaceName (String spaceName) {
@@ -79,5 +118,54 @@ public class SpaceAdaptor
             return ((LocalSpace)sp).getKeySet ();
         return null;
     }
-}
 
+    /**
+     * Returns the listener dispatcher installed by this adaptor.
+     *
+     * @return listener dispatcher, or {@code null} if listeners are called inline
+     */
+    public ListenerDispatcher getListenerDispatcher () {
+        return dispatcher;
+    }
+
+    private void initBoundedSpace () {
+        if (!(sp instanceof LocalSpace)) {
+            getLog().warn ("limit not supported by " + sp.getClass().getName());
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        LocalSpace<Object,Object> local = (LocalSpace<Object,Object>) sp;
+        bounded = new BoundedSpace<> (local);
+        for (String limit : cfg.getAll ("limit"))
+            bounded.addLimits (limit);
+        bounded.setMeterRegistry (getServer().getMeterRegistry(),
+          Tags.of ("name", getName(), "space", spaceName != null ? spaceName : "default"));
+        uri = SpaceFactory.normalize (spaceName);
+        NameRegistrar.register (uri, bounded);
+    }
+
+    private void initListenerDispatcher () {
+        dispatcher = new ListenerDispatcher (
+          ListenerDispatcher.mode (cfg.get ("listener-dispatch")),
+          cfg.getInt ("listener-queue-size", ListenerDispatcher.DEFAULT_CAPACITY)
+        );
+        MeterRegistry mr = getServer().getMeterRegistry();
+        Tags tags = Tags.of ("name", getName(), "space", spaceName != null ? spaceName : "default");
+        listenerTimer = MeterFactory.timer (mr, MeterInfo.SPACE_LISTENER_LATENCY, tags);
+        listenerBacklog = MeterFactory.gauge (mr, MeterInfo.SPACE_LISTENER_BACKLOG, tags, null, dispatcher::getBacklog);
+        dispatcher.setTimer (listenerTimer);
+        if (!setListenerDispatcher (dispatcher))
+            getLog().warn ("listener-dispatch not supported by " + sp.getClass().getName());
+    }
+
+    private boolean setListenerDispatcher (ListenerDispatcher d) {
+        if (sp instanceof TSpace) {
+            ((TSpace) sp).setListenerDispatcher (d);
+            return true;
+        } else if (sp instanceof LSpace) {
+            ((LSpace) sp).setListenerDispatcher (d);
+            return true;
+        }
+        return false;
+    }
+}
@@ -352,7 +352,8 @@ public class Result implements Loggeable {
         }
     }
 
-    private enum Type {
+    /** Result entry type. */
+    public enum Type {
         /** Informational entry type. */
         INFO,
         /** Warning entry type. */
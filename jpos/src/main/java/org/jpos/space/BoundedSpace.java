@@ -0,0 +1,617 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.jpos.iso.ISOUtil;
+import org.jpos.metrics.MeterFactory;
+import org.jpos.metrics.MeterInfo;
+import org.jpos.util.Loggeable;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * LocalSpace decorator that enforces per-key capacity limits.
+ *
+ * <p>Limits are defined per key pattern ({@code *} matches any sequence of
+ * characters); the first matching limit applies. When a bounded key is at
+ * capacity, {@code out} and {@code push} behave according to the limit's
+ * {@link Policy}. Keys not matching any limit are passed through untouched.</p>
+ *
+ * <p>Limits can be given as a comma separated list of
+ * {@code pattern=capacity[/policy[/timeout]]} rules, either programmatically
+ * via {@link #addLimits(String)} or as a {@code bounded=} parameter of a
+ * {@code tspace} or {@code lspace} URI, e.g.:</p>
+ * <pre>
+ *   Space sp = SpaceFactory.getSpace ("tspace:default:bounded=*.in=5000/block,txnmgr=1000/timeout/500");
+ * </pre>
+ * <p>A bounded URI wraps the space registered under the same scheme and name
+ * ({@code tspace:default} in the example), so producers can write through the
+ * bounded URI while consumers keep using the plain one.</p>
+ *
+ * <p>Blocked producers are woken up as soon as an entry is taken, either
+ * through this space or, for {@link TSpace} and {@link LSpace}, directly
+ * from the underlying space. Other spaces are re-checked every 100ms.
+ * Keys matched by a wildcard pattern share the pattern's meters, and their
+ * per-key state is evicted once they are empty and idle.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @since 3.0.2
+ */
+@SuppressWarnings("unchecked")
+public class BoundedSpace<K,V> implements LocalSpace<K,V>, Loggeable {
+    /** What to do when a bounded key is at capacity. */
+    public enum Policy {
+        /** Wait until there is room. */
+        BLOCK,
+        /** Wait up to the limit's timeout, then reject. */
+        TIMEOUT,
+        /** Discard the oldest entry to make room. */
+        DROP_OLDEST,
+        /** Reject the new entry right away. */
+        REJECT
+    }
+
+    /**
+     * Capacity limit applied to keys matching {@code pattern}.
+     *
+     * @param pattern key pattern, {@code *} matches any sequence of characters
+     * @param capacity maximum number of entries per key
+     * @param policy behavior when a key is at capacity
+     * @param timeout maximum wait in milliseconds, used by {@link Policy#TIMEOUT}
+     */
+    public record Limit (String pattern, int capacity, Policy policy, long timeout) { }
+
+    private static final long WAIT_SLICE = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private final LocalSpace<K,V> sp;
+    private final List<Rule> rules = new CopyOnWriteArrayList<>();
+    private final Map<Object,KeyState> states = new ConcurrentHashMap<>();
+    private final Consumer<Object> takeListener = this::taken;
+    private final boolean notified;
+    private volatile int sweepAt = SWEEP_THRESHOLD;
+    private volatile MeterRegistry registry;
+    private volatile Tags tags = Tags.empty();
+
+    /**
+     * Wraps {@code sp}.
+     *
+     * @param sp the space to bound
+     */
+    public BoundedSpace (LocalSpace<K,V> sp) {
+        this.sp = sp;
+        if (sp instanceof TakeNotifier tn) {
+            tn.addTakeListener (takeListener);
+            notified = true;
+        } else {
+            notified = false;
+        }
+    }
+
+    /**
+     * Wraps {@code sp} applying the given limits.
+     *
+     * @param sp the space to bound
+     * @param limits comma separated {@code pattern=capacity[/policy[/timeout]]} rules
+     */
+    public BoundedSpace (LocalSpace<K,V> sp, String limits) {
+        this (sp);
+        addLimits (limits);
+    }
+
+    /**
+     * Adds a capacity limit.
+     *
+     * @param limit limit to add, checked after previously added limits
+     */
+    public void addLimit (Limit limit) {
+        if (limit.capacity() <= 0)
+            throw new IllegalArgumentException ("Invalid capacity " + limit.capacity() + " for " + limit.pattern());
+        Rule r = new Rule (limit);
+        rules.add (r);
+        MeterRegistry mr = registry;
+        if (mr != null)
+            r.initMeters (mr);
+    }
+
+    /**
+     * Adds limits expressed as comma separated {@code pattern=capacity[/policy[/timeout]]} rules.
+     * Policy names are case-insensitive and may use dashes ({@code drop-oldest}); default policy
+     * is {@code block}.
+     *
+     * @param limits rules to parse
+     * @throws IllegalArgumentException if a rule can not be parsed
+     */
+    public void addLimits (String limits) {
+        if (limits == null)
+            return;
+        for (String s : ISOUtil.commaDecode (limits)) {
+            s = s.trim();
+            if (s.isEmpty())
+                continue;
+            int eq = s.lastIndexOf('=');
+            if (eq <= 0)
+                throw new IllegalArgumentException ("Invalid limit '" + s + "'");
+            String[] v = s.substring(eq+1).split("/");
+            try {
+                addLimit (new Limit (
+                  s.substring(0, eq).trim(),
+                  Integer.parseInt(v[0].trim()),
+                  v.length > 1 ? Policy.valueOf(v[1].trim().toUpperCase().replace('-', '_')) : Policy.BLOCK,
+                  v.length > 2 ? Long.parseLong(v[2].trim()) : 0L
+                ));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException ("Invalid limit '" + s + "'", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the configured limits.
+     *
+     * @return limits, in evaluation order
+     */
+    public List<Limit> getLimits() {
+        List<Limit> l = new ArrayList<>();
+        for (Rule r : rules)
+            l.add (r.limit);
+        return l;
+    }
+
+    /**
+     * Returns the limit applicable to {@code key}.
+     *
+     * @param key entry key
+     * @return first matching limit or {@code null} if the key is unbounded
+     */
+    public Limit getLimit (Object key) {
+        Rule r = rule (key);
+        return r != null ? r.limit : null;
+    }
+
+    /**
+     * Exports depth gauges and full-queue counters to {@code registry}, one set per limit,
+     * tagged with the limit's pattern.
+     *
+     * @param registry the Micrometer registry, {@code null} to stop exporting
+     * @param tags tags added to every meter
+     */
+    public void setMeterRegistry (MeterRegistry registry, Tags tags) {
+        this.tags = tags != null ? tags : Tags.empty();
+        this.registry = registry;
+        if (registry != null) {
+            for (Rule r : rules)
+                r.initMeters (registry);
+        }
+    }
+
+    /**
+     * Removes meters previously created in the registry given to {@link #setMeterRegistry}.
+     */
+    public void removeMeters() {
+        MeterRegistry mr = registry;
+        registry = null;
+        if (mr != null) {
+            for (Rule r : rules)
+                r.removeMeters (mr);
+        }
+    }
+
+    /**
+     * Returns the underlying space.
+     *
+     * @return the bounded space
+     */
+    public LocalSpace<K,V> getSpace() {
+        return sp;
+    }
+
+    /**
+     * Returns the number of entries dropped because of {@link Policy#DROP_OLDEST}
+     * by the limit applicable to {@code key}.
+     *
+     * @param key entry key
+     * @return dropped entries, for every key matching the same limit
+     */
+    public long getDropped (Object key) {
+        Rule r = rule (key);
+        return r != null ? r.dropped.get() : 0L;
+    }
+
+    /**
+     * Returns the number of writes rejected because a key was at capacity
+     * by the limit applicable to {@code key}.
+     *
+     * @param key entry key
+     * @return rejected writes, for every key matching the same limit
+     */
+    public long getRejected (Object key) {
+        Rule r = rule (key);
+        return r != null ? r.rejected.get() : 0L;
+    }
+
+    @Override
+    public void out (K key, V value) {
+        out (key, value, 0L);
+    }
+
+    @Override
+    public void out (K key, V value, long timeout) {
+        KeyState st = lock (key);
+        if (st == null) {
+            sp.out (key, value, timeout);
+            return;
+        }
+        try {
+            makeRoom (key, st);
+            sp.out (key, value, timeout);
+        } finally {
+            st.lock.unlock();
+        }
+    }
+
+    @Override
+    public void push (K key, V value) {
+        push (key, value, 0L);
+    }
+
+    @Override
+    public void push (K key, V value, long timeout) {
+        KeyState st = lock (key);
+        if (st == null) {
+            sp.push (key, value, timeout);
+            return;
+        }
+        try {
+            makeRoom (key, st);
+            sp.push (key, value, timeout);
+        } finally {
+            st.lock.unlock();
+        }
+    }
+
+    @Override
+    public void put (K key, V value) {
+        sp.put (key, value);
+        taken (key);
+    }
+
+    @Override
+    public void put (K key, V value, long timeout) {
+        sp.put (key, value, timeout);
+        taken (key);
+    }
+
+    @Override
+    public V in (K key) {
+        return taken (key, sp.in (key));
+    }
+
+    @Override
+    public V in (K key, long timeout) {
+        return taken (key, sp.in (key, timeout));
+    }
+
+    @Override
+    public V inp (K key) {
+        return taken (key, sp.inp (key));
+    }
+
+    @Override
+    public V rd (K key) {
+        return sp.rd (key);
+    }
+
+    @Override
+    public V rd (K key, long timeout) {
+        return sp.rd (key, timeout);
+    }
+
+    @Override
+    public V rdp (K key) {
+        return sp.rdp (key);
+    }
+
+    @Override
+    public void nrd (K key) {
+        sp.nrd (key);
+    }
+
+    @Override
+    public V nrd (K key, long timeout) {
+        return sp.nrd (key, timeout);
+    }
+
+    @Override
+    public boolean existAny (K[] keys) {
+        return sp.existAny (keys);
+    }
+
+    @Override
+    public boolean existAny (K[] keys, long timeout) {
+        return sp.existAny (keys, timeout);
+    }
+
+    @Override
+    public void addListener (K key, SpaceListener<K,V> listener) {
+        sp.addListener (key, listener);
+    }
+
+    @Override
+    public void addListener (K key, SpaceListener<K,V> listener, long timeout) {
+        sp.addListener (key, listener, timeout);
+    }
+
+    @Override
+    public void removeListener (K key, SpaceListener<K,V> listener) {
+        sp.removeListener (key, listener);
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return sp.getKeySet();
+    }
+
+    @Override
+    public int size (K key) {
+        return sp.size (key);
+    }
+
+    @Override
+    public void close() {
+        if (sp instanceof TakeNotifier tn)
+            tn.removeTakeListener (takeListener);
+        removeMeters();
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        p.printf ("%s<bounded-space>%n", indent);
+        for (Rule r : rules) {
+            p.printf ("%s  %s: depth=%d, capacity=%d, policy=%s, dropped=%d, rejected=%d%n",
+              indent, r.limit.pattern(), r.depth(), r.limit.capacity(), r.limit.policy(),
+              r.dropped.get(), r.rejected.get());
+        }
+        if (sp instanceof Loggeable)
+            ((Loggeable) sp).dump (p, indent + "  ");
+        p.printf ("%s</bounded-space>%n", indent);
+    }
+
+    private void makeRoom (K key, KeyState st) {
+        Limit limit = st.rule.limit;
+        if (sp.size (key) < limit.capacity())
+            return;
+        switch (limit.policy()) {
+            case DROP_OLDEST:
+                while (sp.size (key) >= limit.capacity() && sp.inp (key) != null)
+                    st.rule.dropped();
+                return;
+            case REJECT:
+                st.rule.rejected();
+                throw new SpaceError ("Space full: " + key + " (capacity " + limit.capacity() + ")");
+            default:
+                boolean timed = limit.policy() == Policy.TIMEOUT;
+                long end = timed ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos (limit.timeout()) : 0L;
+                Thread t = Thread.currentThread();
+                // registered before checking the depth, so a take racing with park() leaves a permit behind
+                st.waiters.add (t);
+                try {
+                    while (sp.size (key) >= limit.capacity()) {
+                        long remaining = timed ? end - System.nanoTime() : Long.MAX_VALUE;
+                        if (remaining <= 0L) {
+                            st.rule.rejected();
+                            throw new SpaceError ("Space full: " + key + " (timeout " + limit.timeout() + "ms)");
+                        }
+                        st.lock.unlock();
+                        try {
+                            if (!notified)
+                                LockSupport.parkNanos (this, Math.min (remaining, WAIT_SLICE));
+                            else if (timed)
+                                LockSupport.parkNanos (this, remaining);
+                            else
+                                LockSupport.park (this);
+                        } finally {
+                            st.lock.lock();
+                        }
+                        if (t.isInterrupted())
+                            throw new SpaceError (new InterruptedException ("Interrupted while waiting for " + key));
+                    }
+                } finally {
+                    st.waiters.remove (t);
+                }
+        }
+    }
+
+    private V taken (K key, V value) {
+        if (value != null && !notified)
+            taken (key);
+        return value;
+    }
+
+    private void taken (Object key) {
+        Object k = key instanceof Template ? ((Template) key).getKey() : key;
+        KeyState st = states.get (k);
+        if (st != null) {
+            for (Thread t : st.waiters)
+                LockSupport.unpark (t);
+        }
+    }
+
+    private Rule rule (Object key) {
+        if (key == null || rules.isEmpty())
+            return null;
+        KeyState st = states.get (key);
+        if (st != null)
+            return st.rule;
+        String s = key.toString();
+        for (Rule r : rules) {
+            if (r.pattern.matcher(s).matches())
+                return r;
+        }
+        return null;
+    }
+
+    private KeyState lock (Object key) {
+        for (;;) {
+            KeyState st = state (key);
+            if (st == null)
+                return null;
+            st.lock.lock();
+            if (!st.evicted)
+                return st;
+            st.lock.unlock();
+        }
+    }
+
+    private KeyState state (Object key) {
+        KeyState st = states.get (key);
+        if (st != null)
+            return st;
+        Rule r = rule (key);
+        if (r == null)
+            return null;
+        st = states.computeIfAbsent (key, k -> new KeyState (k, r));
+        if (states.size() > sweepAt)
+            sweep();
+        return st;
+    }
+
+    /**
+     * Evicts the state of keys that are empty and have no waiting producers,
+     * so that wildcard limits do not accumulate one entry per key ever seen.
+     */
+    private synchronized void sweep() {
+        if (states.size() <= sweepAt)
+            return;
+        for (KeyState st : states.values()) {
+            if (st.waiters.isEmpty() && st.lock.tryLock()) {
+                try {
+                    if (st.waiters.isEmpty() && sp.size ((K) st.key) == 0) {
+                        st.evicted = true;
+                        states.remove (st.key, st);
+                    }
+                } finally {
+                    st.lock.unlock();
+                }
+            }
+        }
+        sweepAt = Math.max (SWEEP_THRESHOLD, states.size() * 2);
+    }
+
+    /**
+     * Returns the number of keys currently tracked by this space.
+     *
+     * @return tracked keys
+     */
+    int getTrackedKeys() {
+        return states.size();
+    }
+
+    private class Rule {
+        final Limit limit;
+        final Pattern pattern;
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        Meter depthGauge;
+        Counter droppedCounter;
+        Counter rejectedCounter;
+
+        Rule (Limit limit) {
+            this.limit = limit;
+            StringBuilder sb = new StringBuilder();
+            String[] parts = limit.pattern().split("\\*", -1);
+            for (int i=0; i<parts.length; i++) {
+                if (i > 0)
+                    sb.append (".*");
+                if (!parts[i].isEmpty())
+                    sb.append (Pattern.quote (parts[i]));
+            }
+            this.pattern = Pattern.compile (sb.toString());
+        }
+
+        int depth() {
+            int depth = 0;
+            for (KeyState st : states.values()) {
+                if (st.rule == this)
+                    depth += sp.size ((K) st.key);
+            }
+            return depth;
+        }
+
+        void dropped() {
+            dropped.incrementAndGet();
+            Counter c = droppedCounter;
+            if (c != null)
+                c.increment();
+        }
+
+        void rejected() {
+            rejected.incrementAndGet();
+            Counter c = rejectedCounter;
+            if (c != null)
+                c.increment();
+        }
+
+        synchronized void initMeters (MeterRegistry mr) {
+            if (depthGauge != null)
+                return;
+            Tags t = tags.and ("key", limit.pattern());
+            depthGauge = MeterFactory.gauge (mr, MeterInfo.SPACE_QUEUE_DEPTH, t, null, this::depth);
+            droppedCounter = MeterFactory.counter (mr, MeterInfo.SPACE_QUEUE_DROPPED, t);
+            rejectedCounter = MeterFactory.counter (mr, MeterInfo.SPACE_QUEUE_REJECTED, t);
+        }
+
+        synchronized void removeMeters (MeterRegistry mr) {
+            MeterFactory.remove (mr, depthGauge, droppedCounter, rejectedCounter);
+            depthGauge = null;
+            droppedCounter = null;
+            rejectedCounter = null;
+        }
+    }
+
+    private class KeyState {
+        final Object key;
+        final Rule rule;
+        final ReentrantLock lock = new ReentrantLock();
+        final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+        boolean evicted; // guarded by lock
+
+        KeyState (Object key, Rule rule) {
+            this.key = key;
+            this.rule = rule;
+        }
+    }
+}
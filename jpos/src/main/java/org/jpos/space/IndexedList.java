@@ -0,0 +1,360 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractSequentialList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Doubly linked entry list used by {@link TSpace} and {@link LSpace} for keys
+ * with a {@link TemplateIndex}.
+ *
+ * <p>Besides the usual list operations (head and tail operations are O(1)),
+ * it keeps a map from index key (the value itself, or its MD5 digest) to the
+ * nodes holding it, so that {@link #find(Template, boolean)} can locate and
+ * unlink a matching entry without scanning the list.</p>
+ *
+ * <p>Not thread safe; callers hold the same lock they use for a plain list.</p>
+ */
+final class IndexedList extends AbstractSequentialList<Object> {
+    private final TemplateIndex type;
+    private final Node header = new Node(null, null);
+    private final Map<Object,ArrayDeque<Node>> index = new HashMap<>();
+    private int size;
+
+    IndexedList (TemplateIndex type) {
+        this.type = type;
+        header.next = header.prev = header;
+    }
+
+    IndexedList (TemplateIndex type, Collection<?> c) {
+        this (type);
+        addAll (c);
+    }
+
+    TemplateIndex getType() {
+        return type;
+    }
+
+    /**
+     * Tells whether {@code tmpl} can be served by this list's index.
+     *
+     * @param tmpl template
+     * @return true if {@link #find(Template, boolean)} can be used
+     */
+    boolean isIndexed (Template tmpl) {
+        return lookupKey (tmpl) != null;
+    }
+
+    /**
+     * Returns (and optionally removes) the first live entry matching {@code tmpl}.
+     * Expired entries found along the way are removed.
+     *
+     * @param tmpl template, must satisfy {@link #isIndexed(Template)}
+     * @param remove true to unlink the matching entry
+     * @return matching value or null
+     */
+    Object find (Template tmpl, boolean remove) {
+        Object ikey = lookupKey (tmpl);
+        ArrayDeque<Node> nodes = index.get (ikey);
+        if (nodes == null)
+            return null;
+        Iterator<Node> iter = nodes.iterator();
+        while (iter.hasNext()) {
+            Node n = iter.next();
+            Object value = value (n.item);
+            if (value == null) {
+                iter.remove();
+                unlink (n, false);
+                continue;
+            }
+            if (tmpl.equals (value)) {
+                if (remove) {
+                    iter.remove();
+                    unlink (n, false);
+                }
+                if (nodes.isEmpty())
+                    index.remove (ikey);
+                return value;
+            }
+        }
+        if (nodes.isEmpty())
+            index.remove (ikey);
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        header.next = header.prev = header;
+        index.clear();
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean add (Object o) {
+        linkBefore (o, header);
+        return true;
+    }
+
+    @Override
+    public void addFirst (Object o) {
+        linkBefore (o, header.next);
+    }
+
+    @Override
+    public void addLast (Object o) {
+        linkBefore (o, header);
+    }
+
+    @Override
+    public Object getFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return header.next.item;
+    }
+
+    @Override
+    public Object removeFirst() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        Node n = header.next;
+        unlink (n, true);
+        return n.item;
+    }
+
+    @Override
+    public ListIterator<Object> listIterator (int index) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException ("Index: " + index + ", Size: " + size);
+        return new Itr (index);
+    }
+
+    private void linkBefore (Object o, Node succ) {
+        Node n = new Node (o, indexKey (o));
+        n.next = succ;
+        n.prev = succ.prev;
+        succ.prev.next = n;
+        succ.prev = n;
+        size++;
+        modCount++;
+        if (n.ikey != null) {
+            ArrayDeque<Node> nodes = index.computeIfAbsent (n.ikey, k -> new ArrayDeque<>(2));
+            if (n.next == header)
+                nodes.addLast (n);
+            else if (n.prev == header)
+                nodes.addFirst (n);
+            else
+                reindex (n.ikey, nodes);
+        }
+    }
+
+    private void unlink (Node n, boolean unindex) {
+        n.prev.next = n.next;
+        n.next.prev = n.prev;
+        size--;
+        modCount++;
+        if (unindex && n.ikey != null) {
+            ArrayDeque<Node> nodes = index.get (n.ikey);
+            if (nodes != null) {
+                if (nodes.peekFirst() == n)
+                    nodes.pollFirst();
+                else
+                    nodes.removeFirstOccurrence (n);
+                if (nodes.isEmpty())
+                    index.remove (n.ikey);
+            }
+        }
+    }
+
+    // a node was inserted in the middle of the list, rebuild its index slot in list order
+    private void reindex (Object ikey, ArrayDeque<Node> nodes) {
+        nodes.clear();
+        for (Node n = header.next; n != header; n = n.next)
+            if (ikey.equals (n.ikey))
+                nodes.addLast (n);
+    }
+
+    private Object indexKey (Object item) {
+        Object v = raw (item);
+        if (v == null)
+            return null;
+        if (type == TemplateIndex.EQUALITY)
+            return v;
+        try {
+            return ByteBuffer.wrap (MD5Template.md5 (v));
+        } catch (SpaceError e) {
+            return null; // not serializable, can not match an MD5Template anyway
+        }
+    }
+
+    private Object lookupKey (Template tmpl) {
+        if (type == TemplateIndex.EQUALITY && tmpl.getClass() == ObjectTemplate.class)
+            return ((ObjectTemplate) tmpl).value;
+        if (type == TemplateIndex.DIGEST && tmpl.getClass() == MD5Template.class)
+            return ByteBuffer.wrap (((MD5Template) tmpl).digest);
+        return null;
+    }
+
+    private static Object raw (Object item) {
+        if (item instanceof TSpace.Expirable e)
+            return e.value;
+        if (item instanceof LSpace.Expirable e)
+            return e.value;
+        return item;
+    }
+
+    private static Object value (Object item) {
+        if (item instanceof TSpace.Expirable e)
+            return e.getValue();
+        if (item instanceof LSpace.Expirable e)
+            return e.getValue();
+        return item;
+    }
+
+    private static class Node {
+        final Object item;
+        final Object ikey;
+        Node prev;
+        Node next;
+
+        Node (Object item, Object ikey) {
+            this.item = item;
+            this.ikey = ikey;
+        }
+    }
+
+    private class Itr implements ListIterator<Object> {
+        Node next;
+        Node lastReturned;
+        int nextIndex;
+        int expectedModCount = modCount;
+
+        Itr (int index) {
+            if (index <= size / 2) {
+                next = header.next;
+                for (int i=0; i<index; i++)
+                    next = next.next;
+            } else {
+                next = header;
+                for (int i=size; i>index; i--)
+                    next = next.prev;
+            }
+            nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public Object next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.item;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public Object previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+            next = next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.item;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            if (next == lastReturned)
+                next = lastReturned.next;
+            else
+                nextIndex--;
+            unlink (lastReturned, true);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set (Object o) {
+            checkForComodification();
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            Node n = lastReturned;
+            Node succ = n.next;
+            unlink (n, true);
+            linkBefore (o, succ);
+            lastReturned = succ.prev;
+            if (next == n)
+                next = lastReturned;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void add (Object o) {
+            checkForComodification();
+            lastReturned = null;
+            linkBefore (o, next);
+            nextIndex++;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+}
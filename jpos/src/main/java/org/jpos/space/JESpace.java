@@ -24,8 +24,15 @@ import java.time.Instant;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.sleepycat.je.*;
 import com.sleepycat.persist.EntityStore; 
@@ -41,13 +48,31 @@ import com.sleepycat.persist.model.Relationship;
 import java.util.HashSet;
 import java.util.concurrent.TimeUnit;
 
+import org.HdrHistogram.AtomicHistogram;
 import org.jpos.iso.ISOUtil;
 import org.jpos.util.Log;
 import org.jpos.util.Loggeable;
+import org.jpos.util.Metrics;
+import org.jpos.util.MetricsProvider;
 
 /**
  * BerkeleyDB Jave Edition based persistent space implementation
  *
+ * <p>Writes are normally committed one transaction at a time. When the
+ * {@code group.commit.size} parameter is greater than one, {@code out} and
+ * {@code push} hand their entries to a committer thread that applies up to
+ * that many pending writes in a single transaction (waiting at most
+ * {@code group.commit.wait} milliseconds for the batch to fill), so that
+ * concurrent writers share one durable log sync. Callers still return only
+ * after their entry has been committed, e.g.:</p>
+ * <pre>
+ *   je:mydb:/var/spaces/mydb,group.commit.size=64,group.commit.wait=2
+ * </pre>
+ * <p>Only {@code out} and {@code push} are group-committed; {@code put},
+ * {@code inp}, {@code in} and the garbage collector still run one
+ * transaction per call. Writes still pending when the space is closed fail
+ * with a {@link SpaceError}.</p>
+ *
  * @author Alejandro Revilla
  * @since 1.6.5
 
@@ -55,7 +80,7 @@ import org.jpos.util.Loggeable;
  * @param <V> the value type
  */
 @SuppressWarnings("unchecked")
-public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpace, Loggeable, Runnable {
+public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpace, Loggeable, Runnable, MetricsProvider {
     /** BerkeleyDB JE environment instance. */
     Environment dbe = null;
     /** BerkeleyDB JE entity store. */
@@ -80,8 +105,19 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
     public static final long DEFAULT_TXN_TIMEOUT = 30*1000L;
     /** Default lock timeout in milliseconds. */
     public static final long DEFAULT_LOCK_TIMEOUT = 120*1000L;
+    /** Default maximum wait, in milliseconds, for a group commit batch to fill. */
+    public static final long DEFAULT_GROUP_COMMIT_WAIT = 1L;
     /** Future handle for the scheduled GC task. */
     private Future gcTask;
+    /** Pending writes handed to the committer thread; {@code null} when group commit is disabled. */
+    private BlockingQueue<PendingWrite> writeQueue;
+    private Thread committer;
+    private int groupCommitSize;
+    private long groupCommitWait;
+    private volatile boolean closed;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedWrites = new AtomicLong();
+    private final Metrics metrics = new Metrics(new AtomicHistogram(TimeUnit.SECONDS.toNanos(60), 2));
 
     /** Registry mapping space names to their JESpace instances. */
     static final Map<String,Space> spaceRegistrar = 
@@ -118,6 +154,13 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
             sIndex = store.getSecondaryIndex (pIndex, String.class, "key");
             gcsIndex = store.getSecondaryIndex (gcpIndex, Long.class, "expires");
             gcTask = SpaceFactory.getGCExecutor().scheduleAtFixedRate(this, GC_DELAY, GC_DELAY, TimeUnit.MILLISECONDS);
+            metrics.setConversion(1_000_000.0);
+            groupCommitSize = (int) getParam("group.commit.size", p, 1L);
+            groupCommitWait = getParam("group.commit.wait", p, DEFAULT_GROUP_COMMIT_WAIT);
+            if (groupCommitSize > 1) {
+                writeQueue = new LinkedBlockingQueue<>();
+                committer = Thread.ofPlatform().daemon().name("JESpace-committer-" + name).start(this::commitLoop);
+            }
         } catch (Exception e) {
             throw new SpaceError (e);
         }
@@ -127,51 +170,20 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
         out (key, value, 0L);
     }
     public void out (K key, V value, long timeout) {
-        Transaction txn = null;
-        try {
-            txn = dbe.beginTransaction (null, null);
-            Ref ref = new Ref(key.toString(), value, timeout);
-            pIndex.put (ref);
-            if (timeout > 0L)
-                gcpIndex.putNoReturn (
-                    new GCRef (ref.getId(), ref.getExpiration())
-                );
-            txn.commit();
-            txn = null;
-            synchronized (this) {
-                notifyAll ();
-            }
-            if (sl != null)
-                notifyListeners(key, value);
-        } catch (Exception e) {
-            throw new SpaceError (e);
-        } finally {
-            if (txn != null)
-                abort (txn);
+        write (new Ref(key.toString(), value, timeout), false);
+        synchronized (this) {
+            notifyAll ();
         }
+        if (sl != null)
+            notifyListeners(key, value);
     }
     public void push (K key, V value, long timeout) {
-        Transaction txn = null;
-        try {
-            txn = dbe.beginTransaction (null, null);
-            Ref ref = new Ref(key.toString(), value, timeout);
-            pIndex.put (ref);
-            pIndex.delete (ref.getId());
-            ref.reverseId();
-            pIndex.put (ref);
-            txn.commit();
-            txn = null;
-            synchronized (this) {
-                notifyAll ();
-            }
-            if (sl != null)
-                notifyListeners(key, value);
-        } catch (Exception e) {
-            throw new SpaceError (e);
-        } finally {
-            if (txn != null)
-                abort (txn);
+        write (new Ref(key.toString(), value, timeout), true);
+        synchronized (this) {
+            notifyAll ();
         }
+        if (sl != null)
+            notifyListeners(key, value);
     }
     public void push (K key, V value) {
         push (key, value, 0L);
@@ -342,6 +354,23 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
         }
     }
     public void close () throws DatabaseException {
+        if (writeQueue != null) {
+            synchronized (writeQueue) {
+                closed = true;
+            }
+        } else {
+            closed = true;
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            PendingWrite w;
+            while ((w = writeQueue.poll()) != null)
+                w.done.completeExceptionally(new SpaceError ("JESpace closed"));
+        }
         gcSem.acquireUninterruptibly();
         gcTask.cancel(false);
         while (!gcTask.isDone()) {
@@ -374,6 +403,129 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
     public static JESpace getSpace (String name) {
         return getSpace (name, name);        
     }
+    /**
+     * Returns group commit metrics: {@code commit} (transaction commit time)
+     * and {@code latency} (time from hand-off to commit as seen by writers).
+     *
+     * @return metrics, recorded only when group commit is enabled
+     */
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of group commit batches committed so far.
+     *
+     * @return committed batches
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the number of writes committed through group commit so far.
+     *
+     * @return writes committed in batches
+     */
+    public long getBatchedWriteCount() {
+        return batchedWrites.get();
+    }
+
+    private void write (Ref ref, boolean push) {
+        if (writeQueue == null) {
+            commit (List.of(new PendingWrite(ref, push)));
+            return;
+        }
+        PendingWrite w = new PendingWrite(ref, push);
+        synchronized (writeQueue) {
+            // checked under the same lock close() uses, so nothing is queued once the committer may have left
+            if (closed)
+                throw new SpaceError ("JESpace closed");
+            writeQueue.add (w);
+        }
+        try {
+            w.done.join();
+        } catch (CompletionException e) {
+            Throwable t = e.getCause();
+            throw t instanceof SpaceError se ? se : new SpaceError (t);
+        }
+        metrics.record ("latency", System.nanoTime() - w.enqueued);
+    }
+
+    private void commitLoop() {
+        List<PendingWrite> batch = new ArrayList<>(groupCommitSize);
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitWait);
+        while (!closed || !writeQueue.isEmpty()) {
+            try {
+                PendingWrite w = writeQueue.poll(100L, TimeUnit.MILLISECONDS);
+                if (w == null)
+                    continue;
+                batch.add (w);
+                long deadline = System.nanoTime() + waitNanos;
+                while (batch.size() < groupCommitSize) {
+                    long remaining = deadline - System.nanoTime();
+                    w = remaining > 0L ? writeQueue.poll(remaining, TimeUnit.NANOSECONDS) : writeQueue.poll();
+                    if (w == null)
+                        break;
+                    batch.add (w);
+                }
+            } catch (InterruptedException ignored) { }
+            if (!batch.isEmpty()) {
+                commitBatch (batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitBatch (List<PendingWrite> batch) {
+        try {
+            long start = System.nanoTime();
+            commit (batch);
+            metrics.record ("commit", System.nanoTime() - start);
+            batches.incrementAndGet();
+            batchedWrites.addAndGet(batch.size());
+            for (PendingWrite w : batch)
+                w.done.complete(null);
+        } catch (SpaceError e) {
+            // retry one by one so that a single bad entry does not fail its batch mates
+            for (PendingWrite w : batch) {
+                try {
+                    commit (List.of(w));
+                    w.done.complete(null);
+                } catch (SpaceError e1) {
+                    w.done.completeExceptionally(e1);
+                }
+            }
+        }
+    }
+
+    private void commit (List<PendingWrite> writes) {
+        Transaction txn = null;
+        try {
+            txn = dbe.beginTransaction (null, null);
+            for (PendingWrite w : writes) {
+                Ref ref = w.ref;
+                ref.id = 0L; // let the sequence assign it (again, when retrying a failed batch)
+                pIndex.put (txn, ref);
+                if (w.push) {
+                    pIndex.delete (txn, ref.getId());
+                    ref.reverseId();
+                    pIndex.put (txn, ref);
+                } else if (ref.hasExpiration()) {
+                    gcpIndex.putNoReturn (txn, new GCRef (ref.getId(), ref.getExpiration()));
+                }
+            }
+            txn.commit();
+            txn = null;
+        } catch (Exception e) {
+            throw new SpaceError (e);
+        } finally {
+            if (txn != null)
+                abort (txn);
+        }
+    }
+
     private Object getObject (Object key, boolean remove) throws DatabaseException {
         Transaction txn = null;
         EntityCursor<Ref> cursor = null;
@@ -708,6 +860,18 @@ public class JESpace<K,V> extends Log implements LocalSpace<K,V>, PersistentSpac
         return defaultValue;
     }
 
+    private static class PendingWrite {
+        final Ref ref;
+        final boolean push;
+        final long enqueued = System.nanoTime();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite (Ref ref, boolean push) {
+            this.ref = ref;
+            this.push = push;
+        }
+    }
+
     /**
      * Persistent entity used by the garbage collector to track expiring Ref entries.
      */
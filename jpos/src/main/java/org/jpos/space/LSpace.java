@@ -26,12 +26,14 @@ import java.io.Serializable;
 import java.lang.ref.Cleaner;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * LSpace (Loom-optimized Space) implementation with per-key locking for Virtual Thread efficiency.
@@ -63,11 +65,14 @@ import java.util.concurrent.locks.ReentrantLock;
  * @param <V> the value type
  */
 @SuppressWarnings("unchecked")
-public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
+public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable, TakeNotifier {
     private final ConcurrentHashMap<K, KeyEntry> entries;
     private volatile LocalSpace<K, SpaceListener<K,V>> sl;
     private final ScheduledFuture<?> gcFuture;
     private final Object[] expLocks = new Object[] { new Object(), new Object() };
+    private volatile ListenerDispatcher dispatcher;
+    private final Map<Object,TemplateIndex> indexes = new ConcurrentHashMap<>();
+    private final List<Consumer<Object>> takeListeners = new CopyOnWriteArrayList<>();
 
     /** GC sweep delay in milliseconds. */
     public static final long GCDELAY = 5 * 1000;
@@ -92,8 +97,12 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         final ReentrantLock lock = new ReentrantLock();
         final Condition hasValue = lock.newCondition();   // signaled when value added
         final Condition isEmpty = lock.newCondition();    // signaled when queue becomes empty (for nrd)
-        final LinkedList<Object> queue = new LinkedList<>();
+        List<Object> queue;                               // guarded by lock
         volatile boolean hasExpirable = false;
+
+        KeyEntry(TemplateIndex index) {
+            queue = index != null ? new IndexedList(index) : new LinkedList<>();
+        }
     }
 
 
@@ -181,7 +190,7 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
                 v = new Expirable(value, System.nanoTime() + (timeout * ONE_MILLION));
 
             while (true) {
-                KeyEntry entry = entries.computeIfAbsent(key, k -> new KeyEntry());
+                KeyEntry entry = entries.computeIfAbsent(key, this::newKeyEntry);
 
                 entry.lock.lock();
                 try {
@@ -235,8 +244,8 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         jfr.begin();
         try {
             if (key instanceof Template)
-                return (V) getObjectNonBlocking((Template) key, true);
-            return (V) getHeadNonBlocking((K) key, true);
+                return taken(key, (V) getObjectNonBlocking((Template) key, true));
+            return taken(key, (V) getHeadNonBlocking((K) key, true));
         } finally {
             jfr.commit();
         }
@@ -250,8 +259,8 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         jfr.begin();
         try {
             if (key instanceof Template)
-                return inTemplate((Template) key);
-            return inKey((K) key);
+                return taken(key, inTemplate((Template) key));
+            return taken(key, inKey((K) key));
         } finally {
             jfr.commit();
         }
@@ -265,8 +274,8 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         jfr.begin();
         try {
             if (key instanceof Template)
-                return inTemplate((Template) key, timeout);
-            return inKey((K) key, timeout);
+                return taken(key, inTemplate((Template) key, timeout));
+            return taken(key, inKey((K) key, timeout));
         } finally {
             jfr.commit();
         }
@@ -543,6 +552,9 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         if (sl != null) {
             sl.inp((K) new ObjectTemplate(key, listener));
         }
+        ListenerDispatcher d = dispatcher;
+        if (d != null)
+            d.release(listener);
     }
 
     /** Returns true if this space contains no entries.
@@ -607,6 +619,57 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         jfr.commit();
     }
 
+    /**
+     * Maintains a secondary index for the entries stored under {@code key}, so that
+     * matching {@link ObjectTemplate} ({@link TemplateIndex#EQUALITY}) or
+     * {@link MD5Template} ({@link TemplateIndex#DIGEST}) lookups run in constant
+     * time instead of scanning every entry. Other templates keep working by scan.
+     *
+     * @param key entry key
+     * @param index index kind, or {@code null} to drop the index
+     * @since 3.0.2
+     */
+    public void setTemplateIndex(K key, TemplateIndex index) {
+        ensureOpen();
+        if (index != null)
+            indexes.put(key, index);
+        else
+            indexes.remove(key);
+        KeyEntry entry = entries.get(key);
+        if (entry != null) {
+            entry.lock.lock();
+            try {
+                entry.queue = index != null ? new IndexedList(index, entry.queue) : new LinkedList<>(entry.queue);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private KeyEntry newKeyEntry(Object key) {
+        return new KeyEntry(indexes.get(key));
+    }
+
+    /**
+     * Sets the dispatcher used to deliver listener notifications.
+     *
+     * @param dispatcher listener dispatcher, or {@code null} to call listeners inline
+     * @since 3.0.2
+     */
+    public void setListenerDispatcher (ListenerDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Returns the dispatcher used to deliver listener notifications.
+     *
+     * @return listener dispatcher, or {@code null} if listeners are called inline
+     * @since 3.0.2
+     */
+    public ListenerDispatcher getListenerDispatcher () {
+        return dispatcher;
+    }
+
     /** Notifies all registered listeners for the given key/value pair.
      * @param key the space key
      * @param value the new value
@@ -633,12 +696,17 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         }
 
         if (listeners != null) {
+            ListenerDispatcher d = dispatcher;
             for (Object listener : listeners) {
                 Object o = listener;
                 if (o instanceof Expirable)
                     o = ((Expirable) o).getValue();
-                if (o instanceof SpaceListener)
-                    ((SpaceListener) o).notify(key, value);
+                if (o instanceof SpaceListener) {
+                    if (d != null)
+                        d.dispatch((SpaceListener) o, key, value);
+                    else
+                        ((SpaceListener) o).notify(key, value);
+                }
             }
         }
 
@@ -674,7 +742,7 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         for (var e : (Set<Map.Entry>)entries.entrySet()) {
             K key =  (K)e.getKey();
             List<V> list = (List<V>)e.getValue();
-            KeyEntry entry = this.entries.computeIfAbsent(key, k -> new KeyEntry());
+            KeyEntry entry = this.entries.computeIfAbsent(key, this::newKeyEntry);
             entry.lock.lock();
             try {
                 entry.queue.clear();
@@ -711,6 +779,25 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         cleanable.clean(); // Eager cleanup
     }
 
+    @Override
+    public void addTakeListener(Consumer<Object> listener) {
+        takeListeners.add(listener);
+    }
+
+    @Override
+    public void removeTakeListener(Consumer<Object> listener) {
+        takeListeners.remove(listener);
+    }
+
+    private V taken(Object key, V value) {
+        if (value != null && !takeListeners.isEmpty()) {
+            Object k = key instanceof Template ? ((Template) key).getKey() : key;
+            for (Consumer<Object> l : takeListeners)
+                l.accept(k);
+        }
+        return value;
+    }
+
     // ========== Blocking (deduplicated) ==========
 
     private V inKey(K key) {
@@ -847,6 +934,14 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
      * MUST be called with entry.lock held.
      */
     private Object getObject(KeyEntry entry, K key, Template tmpl, boolean remove) {
+        if (entry.queue instanceof IndexedList il && il.isIndexed(tmpl)) {
+            Object result = il.find(tmpl, remove);
+            if (il.isEmpty()) {
+                entry.hasExpirable = false;
+                unregisterExpirable(key);
+            }
+            return result;
+        }
         Object result = null;
         Iterator<Object> iterator = entry.queue.iterator();
         boolean wasExpirable = false;
@@ -942,7 +1037,7 @@ public class LSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         final long deadlineNanos = timed ? System.nanoTime() + timeoutMillis * ONE_MILLION : 0L;
 
         for (;;) {
-            final KeyEntry entry = entries.computeIfAbsent(key, k -> new KeyEntry());
+            final KeyEntry entry = entries.computeIfAbsent(key, this::newKeyEntry);
 
             entry.lock.lock();
             try {
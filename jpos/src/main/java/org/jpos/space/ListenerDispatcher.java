@@ -0,0 +1,388 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.AtomicHistogram;
+import org.jpos.q2.Q2;
+import org.jpos.util.Log;
+import org.jpos.util.Loggeable;
+import org.jpos.util.Metrics;
+import org.jpos.util.MetricsProvider;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers {@link SpaceListener} notifications on behalf of a space.
+ *
+ * <p>Three modes are supported:</p>
+ * <ul>
+ *   <li>{@link Mode#INLINE} - listeners run on the producer's thread (the historical behavior).</li>
+ *   <li>{@link Mode#PER_KEY} - notifications for a given key run sequentially on a virtual thread
+ *       dedicated to that key while it has pending work; different keys run in parallel.</li>
+ *   <li>{@link Mode#QUEUED} - each listener gets a bounded queue drained by its own virtual thread;
+ *       notifications reach a listener in the order they were produced, and a producer
+ *       blocks when the listener's queue is full. A listener's thread exits once the
+ *       listener has been {@link #release(SpaceListener) released} or stayed idle for
+ *       {@link #IDLE_TIMEOUT} millis, so transient and expired listeners do not pin
+ *       threads.</li>
+ * </ul>
+ *
+ * <p>Listener latency ({@code notify}) and, for the asynchronous modes, queue
+ * wait time ({@code wait}) are recorded in nanoseconds in the dispatcher's
+ * {@link Metrics}; {@link #getBacklog()} reports pending notifications.</p>
+ *
+ * @since 3.0.2
+ */
+@SuppressWarnings("unchecked")
+public class ListenerDispatcher implements Loggeable, MetricsProvider, AutoCloseable {
+    /** Dispatch mode. */
+    public enum Mode {
+        /** Call listeners on the producer's thread. */
+        INLINE,
+        /** Sequential per key, on a virtual thread per active key. */
+        PER_KEY,
+        /** Bounded FIFO queue per listener, drained by a virtual thread. */
+        QUEUED
+    }
+
+    /** Default per-listener queue capacity used by {@link Mode#QUEUED}. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** Millis a {@link Mode#QUEUED} listener thread waits for work before exiting. */
+    public static final long IDLE_TIMEOUT = 30000L;
+    private static final Notification WAKE = new Notification(null, null, null, 0L);
+
+    private final Mode mode;
+    private final int capacity;
+    private final Metrics metrics;
+    private final Map<Object,KeyLane> keyLanes = new ConcurrentHashMap<>();
+    private final Map<SpaceListener,ListenerLane> listenerLanes = new ConcurrentHashMap<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean closed;
+    private volatile Timer timer;
+    private volatile Log log = Log.getLog(Q2.LOGGER_NAME, "space-listener-dispatcher");
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param mode dispatch mode
+     * @param capacity per-listener queue capacity (only used by {@link Mode#QUEUED})
+     */
+    public ListenerDispatcher (Mode mode, int capacity) {
+        this.mode = mode;
+        this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+        this.metrics = new Metrics(new AtomicHistogram(TimeUnit.SECONDS.toNanos(60), 2));
+        this.metrics.setConversion(1_000_000.0);
+    }
+
+    /**
+     * Creates a dispatcher with {@link #DEFAULT_CAPACITY}.
+     *
+     * @param mode dispatch mode
+     */
+    public ListenerDispatcher (Mode mode) {
+        this (mode, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Parses a mode name as used in configuration ({@code inline}, {@code per-key}, {@code queued}).
+     *
+     * @param s mode name, case-insensitive; {@code null} means {@link Mode#INLINE}
+     * @return the corresponding mode
+     * @throws IllegalArgumentException if {@code s} is not a valid mode
+     */
+    public static Mode mode (String s) {
+        if (s == null || s.isBlank())
+            return Mode.INLINE;
+        return Mode.valueOf(s.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * Delivers a notification to {@code listener} according to this dispatcher's mode.
+     *
+     * @param listener target listener
+     * @param key entry key
+     * @param value entry value
+     */
+    public void dispatch (SpaceListener listener, Object key, Object value) {
+        dispatched.incrementAndGet();
+        switch (mode) {
+            case INLINE:
+                invoke(listener, key, value, 0L);
+                break;
+            case PER_KEY:
+                dispatchPerKey(new Notification(listener, key, value));
+                break;
+            case QUEUED:
+                dispatchQueued(new Notification(listener, key, value));
+                break;
+        }
+    }
+
+    /**
+     * Returns the dispatch mode.
+     *
+     * @return mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of notifications accepted but not yet delivered.
+     *
+     * @return pending notifications
+     */
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Returns the number of notifications dispatched so far.
+     *
+     * @return dispatched notifications
+     */
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * Returns the number of listener invocations that threw an exception.
+     *
+     * @return failed notifications
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Sets an optional Micrometer timer that records listener latency
+     * in addition to this dispatcher's {@link Metrics}.
+     *
+     * @param timer listener latency timer, may be {@code null}
+     */
+    public void setTimer (Timer timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Sets the log used to report listener failures on dispatcher threads.
+     *
+     * @param log a Log, may be {@code null}
+     */
+    public void setLog (Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Tells the dispatcher that {@code listener} has been removed from the space.
+     * Notifications already queued for it are still delivered; its
+     * {@link Mode#QUEUED} thread then exits instead of waiting for more work.
+     *
+     * @param listener removed listener
+     */
+    public void release (SpaceListener listener) {
+        ListenerLane lane = listenerLanes.get(listener);
+        if (lane != null) {
+            lane.released = true;
+            lane.queue.offer(WAKE);
+        }
+    }
+
+    /**
+     * Returns the number of {@link Mode#QUEUED} listener threads currently running.
+     *
+     * @return active listener lanes
+     */
+    public int getLanes() {
+        return listenerLanes.size();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ListenerLane lane : listenerLanes.values())
+            lane.thread.interrupt();
+        listenerLanes.clear();
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        p.printf ("%s<listener-dispatcher mode='%s' dispatched='%d' backlog='%d' failures='%d'>%n",
+          indent, mode, dispatched.get(), backlog.get(), failures.get());
+        metrics.dump(p, indent + "  ");
+        p.printf ("%s</listener-dispatcher>%n", indent);
+    }
+
+    private void invoke (SpaceListener listener, Object key, Object value, long enqueued) {
+        long start = System.nanoTime();
+        if (enqueued != 0L)
+            metrics.record("wait", start - enqueued);
+        try {
+            listener.notify(key, value);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            if (mode == Mode.INLINE)
+                throw e;
+            Log l = log;
+            if (l != null)
+                l.warn("listener " + listener.getClass().getName() + " failed on key " + key, e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            metrics.record("notify", elapsed);
+            Timer t = timer;
+            if (t != null)
+                t.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void dispatchPerKey (Notification n) {
+        backlog.incrementAndGet();
+        for (;;) {
+            KeyLane lane = keyLanes.computeIfAbsent(n.key, k -> new KeyLane(k));
+            boolean start;
+            synchronized (lane) {
+                if (lane.retired)
+                    continue; // drainer just gave up this lane, get a fresh one
+                lane.queue.addLast(n);
+                start = !lane.running;
+                lane.running = true;
+            }
+            if (start)
+                Thread.ofVirtual().name("space-listener-" + n.key).start(lane);
+            return;
+        }
+    }
+
+    private void dispatchQueued (Notification n) {
+        if (closed)
+            throw new SpaceError ("ListenerDispatcher closed");
+        ListenerLane lane;
+        for (;;) {
+            lane = listenerLanes.computeIfAbsent(n.listener, ListenerLane::new);
+            synchronized (lane) {
+                if (!lane.retired) {
+                    lane.producers++;
+                    break;
+                }
+            }
+        }
+        backlog.incrementAndGet();
+        try {
+            lane.queue.put(n);
+        } catch (InterruptedException e) {
+            backlog.decrementAndGet();
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lane) {
+                lane.producers--;
+            }
+        }
+    }
+
+    private record Notification (SpaceListener listener, Object key, Object value, long enqueued) {
+        Notification (SpaceListener listener, Object key, Object value) {
+            this (listener, key, value, System.nanoTime());
+        }
+    }
+
+    private class KeyLane implements Runnable {
+        final Object key;
+        final ArrayDeque<Notification> queue = new ArrayDeque<>();
+        boolean running;
+        boolean retired;
+
+        KeyLane (Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                Notification n;
+                synchronized (this) {
+                    n = queue.pollFirst();
+                    if (n == null) {
+                        running = false;
+                        retired = true;
+                        keyLanes.remove(key, this);
+                        return;
+                    }
+                }
+                backlog.decrementAndGet();
+                invoke(n.listener, n.key, n.value, n.enqueued);
+            }
+        }
+    }
+
+    private class ListenerLane implements Runnable {
+        final SpaceListener listener;
+        final BlockingQueue<Notification> queue = new ArrayBlockingQueue<>(capacity);
+        final Thread thread;
+        volatile boolean released;
+        int producers;   // guarded by this
+        boolean retired; // guarded by this
+
+        ListenerLane (SpaceListener listener) {
+            this.listener = listener;
+            thread = Thread.ofVirtual().name("space-listener-" + listener.getClass().getSimpleName()).start(this);
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    Notification n = queue.poll(released ? 10L : IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+                    if (n == null) {
+                        if (retire())
+                            return;
+                    } else if (n != WAKE) {
+                        backlog.decrementAndGet();
+                        invoke(n.listener, n.key, n.value, n.enqueued);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private synchronized boolean retire() {
+            if (producers > 0 || !queue.isEmpty())
+                return false;
+            retired = true;
+            listenerLanes.remove(listener, this);
+            return true;
+        }
+    }
+}
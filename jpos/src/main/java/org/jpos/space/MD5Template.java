@@ -67,6 +67,9 @@ public class MD5Template implements Template, Serializable  {
      * @return the MD5 digest bytes
      */
     public byte[] digest (Object obj) {
+        return md5 (obj);
+    }
+    static byte[] md5 (Object obj) {
         try {
             MessageDigest md = MessageDigest.getInstance ("MD5");
             return md.digest (serialize (obj));
@@ -0,0 +1,945 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import org.jpos.util.Log;
+import org.jpos.util.Loggeable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LocalSpace} decorator that mirrors operations on selected key
+ * prefixes to peer nodes over a compact binary TCP protocol.
+ *
+ * <p>Every {@code out}, {@code push}, {@code put} and every successful
+ * {@code in}/{@code inp} on a replicated key is assigned a sequence number
+ * and appended to a bounded in-memory journal. One outbound link per peer
+ * drains the journal in batches; when a link (re)connects, the peer reports
+ * the last sequence number it applied and the link replays from there, or
+ * sends a snapshot of the replicated entries if the journal no longer covers
+ * the gap.</p>
+ *
+ * <p>The replication protocol is not encrypted. {@link #listen(int)} binds to
+ * the loopback interface; binding elsewhere requires an explicit address, and
+ * inbound streams are only accepted from the hosts given to
+ * {@link #addPeer(String, int)} or {@link #allowPeer(String)}. Serialized
+ * values are decoded through an {@link ObjectInputFilter}, see
+ * {@link #setSerialFilter(String)}.</p>
+ *
+ * <p>Entries are identified across nodes by the incarnation id of the node
+ * that created them plus their sequence number, so a take on one node
+ * removes exactly that entry on its peers. Operations received from a peer
+ * are applied to the local space but never forwarded again, so peers are
+ * expected to form a full mesh (typically an active/active pair).</p>
+ *
+ * <pre>
+ *   ReplicatedSpace rs = new ReplicatedSpace (new TSpace(), "node-a", "ready.", "saf.");
+ *   rs.listen (9900);
+ *   rs.addPeer ("127.0.0.1", 9901);
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @since 3.0.2
+ */
+@SuppressWarnings("unchecked")
+public class ReplicatedSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
+    static final int MAGIC     = 0x6A525331; // jRS1
+    static final byte HELLO    = 1;
+    static final byte WELCOME  = 2;
+    static final byte BATCH    = 3;
+    static final byte SNAPSHOT = 4;
+
+    static final byte OP_OUT   = 1;
+    static final byte OP_PUSH  = 2;
+    static final byte OP_PUT   = 3;
+    static final byte OP_TAKE  = 4;
+
+    /** Default journal size (operations kept for catch-up). */
+    public static final int DEFAULT_LOG_SIZE = 100_000;
+    /** Default maximum number of operations per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long HEARTBEAT = 1000L;
+    private static final long ONE_MILLION = 1_000_000L;
+
+    private final LocalSpace<K,V> sp;
+    private final String nodeId;
+    private final long incarnation;
+    private final String[] prefixes;
+
+    private final Object lock = new Object();
+    private final Map<EntryId,Tracked> byId = new HashMap<>();
+    private final Map<Object,ArrayDeque<Tracked>> byKey = new HashMap<>();
+    private Op[] journal;
+    private long seq;
+    private final Map<Long,Long> applied = new ConcurrentHashMap<>();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private long reconnectDelay = 5000L;
+    private Log log;
+    private volatile ServerSocket serverSocket;
+    private final List<Link> links = new CopyOnWriteArrayList<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private final Set<InetAddress> allowed = ConcurrentHashMap.newKeySet();
+    private volatile ObjectInputFilter serialFilter = SpaceCodec.FILTER;
+    private volatile boolean closed;
+    private final ScheduledFuture<?> gcFuture;
+
+    /**
+     * Creates a replicated view over {@code sp}.
+     *
+     * @param sp underlying local space
+     * @param nodeId human-readable node identifier used in logs and dumps
+     * @param prefixes key prefixes to replicate; none means every key
+     */
+    public ReplicatedSpace (LocalSpace<K,V> sp, String nodeId, String... prefixes) {
+        this.sp = Objects.requireNonNull(sp, "space");
+        this.nodeId = nodeId;
+        this.prefixes = prefixes != null ? prefixes : new String[0];
+        this.incarnation = new SecureRandom().nextLong() & Long.MAX_VALUE;
+        this.journal = new Op[DEFAULT_LOG_SIZE];
+        this.gcFuture = SpaceFactory.getGCExecutor().scheduleAtFixedRate(
+          this, TSpace.GCDELAY, TSpace.GCDELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the number of operations kept in memory for peer catch-up.
+     * Must be called before any replicated operation takes place.
+     *
+     * @param logSize journal capacity
+     */
+    public void setLogSize (int logSize) {
+        if (logSize < 1)
+            throw new IllegalArgumentException ("Invalid log size " + logSize);
+        synchronized (lock) {
+            if (seq > 0)
+                throw new IllegalStateException ("Journal already in use");
+            journal = new Op[logSize];
+        }
+    }
+
+    /**
+     * Sets the maximum number of operations sent in a single batch.
+     *
+     * @param batchSize batch size
+     */
+    public void setBatchSize (int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Sets the delay between reconnection attempts to a peer.
+     *
+     * @param reconnectDelay delay in millis
+     */
+    public void setReconnectDelay (long reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Sets the log used to report link activity and errors.
+     *
+     * @param log a Log, may be {@code null}
+     */
+    public void setLog (Log log) {
+        this.log = log;
+    }
+
+    /**
+     * Sets the {@link ObjectInputFilter} pattern applied to serialized values
+     * received from peers (see {@link ObjectInputFilter.Config#createFilter(String)}).
+     * The default only admits JDK value and collection types and {@code org.jpos.iso}
+     * components; deployments replicating their own classes must list them here.
+     *
+     * @param pattern filter pattern
+     */
+    public void setSerialFilter (String pattern) {
+        this.serialFilter = ObjectInputFilter.Config.createFilter(pattern);
+    }
+
+    /**
+     * Accepts inbound replication streams from {@code host}, in addition to
+     * the hosts given to {@link #addPeer(String, int)}.
+     *
+     * @param host host name or address
+     * @throws UnknownHostException if {@code host} can not be resolved
+     */
+    public void allowPeer (String host) throws UnknownHostException {
+        allowed.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+    }
+
+    /**
+     * Starts accepting replication streams from peers on the loopback interface.
+     *
+     * @param port local port, 0 picks an ephemeral one
+     * @return the bound port
+     * @throws IOException if the port can not be bound
+     */
+    public int listen (int port) throws IOException {
+        return listen (new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts accepting replication streams from peers.
+     *
+     * @param address local address to bind to
+     * @return the bound port
+     * @throws IOException if the address can not be bound
+     */
+    public int listen (InetSocketAddress address) throws IOException {
+        ServerSocket ss = new ServerSocket();
+        ss.setReuseAddress(true);
+        ss.bind(address);
+        serverSocket = ss;
+        Thread.ofVirtual().name("rspace-accept-" + nodeId).start(this::accept);
+        return ss.getLocalPort();
+    }
+
+    /**
+     * Adds a peer this node streams its replicated operations to.
+     *
+     * @param host peer host
+     * @param port peer replication port
+     */
+    public void addPeer (String host, int port) {
+        try {
+            allowPeer(host);
+        } catch (UnknownHostException e) {
+            warn("peer " + host, e);
+        }
+        Link link = new Link(host, port);
+        links.add(link);
+        Thread.ofVirtual().name("rspace-link-" + nodeId + "-" + host + ":" + port).start(link);
+    }
+
+    /**
+     * Stops streaming to a peer added with {@link #addPeer(String, int)}.
+     * Re-adding it later resumes from the last operation the peer applied.
+     *
+     * @param host peer host
+     * @param port peer replication port
+     * @return {@code true} if the peer was found
+     */
+    public boolean removePeer (String host, int port) {
+        for (Link l : links) {
+            if (l.host.equals(host) && l.port == port && links.remove(l)) {
+                l.close();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the space wrapped by this replicated view.
+     *
+     * @return underlying local space
+     */
+    public LocalSpace<K,V> getSpace() {
+        return sp;
+    }
+
+    /**
+     * Returns this node's identifier.
+     *
+     * @return node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the last sequence number assigned to a local operation.
+     *
+     * @return last journal sequence number
+     */
+    public long getSequence() {
+        synchronized (lock) {
+            return seq;
+        }
+    }
+
+    /**
+     * Returns whether every configured peer link is currently connected.
+     *
+     * @return {@code true} if all peers are connected
+     */
+    public boolean isConnected() {
+        for (Link l : links)
+            if (!l.connected)
+                return false;
+        return !links.isEmpty();
+    }
+
+    /**
+     * Indicates whether operations on {@code key} are replicated.
+     *
+     * @param key space key
+     * @return {@code true} if {@code key} matches one of the configured prefixes
+     */
+    public boolean isReplicated (Object key) {
+        if (key == null)
+            return false;
+        if (prefixes.length == 0)
+            return true;
+        String s = key.toString();
+        for (String p : prefixes)
+            if (s.startsWith(p))
+                return true;
+        return false;
+    }
+
+    @Override
+    public void out (K key, V value) {
+        out (key, value, 0L);
+    }
+
+    @Override
+    public void out (K key, V value, long timeout) {
+        write (OP_OUT, key, value, timeout);
+    }
+
+    @Override
+    public void push (K key, V value) {
+        push (key, value, 0L);
+    }
+
+    @Override
+    public void push (K key, V value, long timeout) {
+        write (OP_PUSH, key, value, timeout);
+    }
+
+    @Override
+    public void put (K key, V value) {
+        put (key, value, 0L);
+    }
+
+    @Override
+    public void put (K key, V value, long timeout) {
+        write (OP_PUT, key, value, timeout);
+    }
+
+    @Override
+    public V in (K key) {
+        return taken (key, sp.in(key));
+    }
+
+    @Override
+    public V in (K key, long timeout) {
+        return taken (key, sp.in(key, timeout));
+    }
+
+    @Override
+    public V inp (K key) {
+        return taken (key, sp.inp(key));
+    }
+
+    @Override
+    public V rd (K key) {
+        return sp.rd(key);
+    }
+
+    @Override
+    public V rd (K key, long timeout) {
+        return sp.rd(key, timeout);
+    }
+
+    @Override
+    public V rdp (K key) {
+        return sp.rdp(key);
+    }
+
+    @Override
+    public void nrd (K key) {
+        sp.nrd(key);
+    }
+
+    @Override
+    public V nrd (K key, long timeout) {
+        return sp.nrd(key, timeout);
+    }
+
+    @Override
+    public boolean existAny (K[] keys) {
+        return sp.existAny(keys);
+    }
+
+    @Override
+    public boolean existAny (K[] keys, long timeout) {
+        return sp.existAny(keys, timeout);
+    }
+
+    @Override
+    public void addListener (K key, SpaceListener<K,V> listener) {
+        sp.addListener(key, listener);
+    }
+
+    @Override
+    public void addListener (K key, SpaceListener<K,V> listener, long timeout) {
+        sp.addListener(key, listener, timeout);
+    }
+
+    @Override
+    public void removeListener (K key, SpaceListener<K,V> listener) {
+        sp.removeListener(key, listener);
+    }
+
+    @Override
+    public Set<K> getKeySet() {
+        return sp.getKeySet();
+    }
+
+    @Override
+    public int size (K key) {
+        return sp.size(key);
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        synchronized (lock) {
+            Iterator<Map.Entry<Object,ArrayDeque<Tracked>>> iter = byKey.entrySet().iterator();
+            while (iter.hasNext()) {
+                ArrayDeque<Tracked> q = iter.next().getValue();
+                q.removeIf(t -> {
+                    if (t.isExpired(now)) {
+                        byId.remove(t.id);
+                        return true;
+                    }
+                    return false;
+                });
+                if (q.isEmpty())
+                    iter.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        gcFuture.cancel(false);
+        ServerSocket ss = serverSocket;
+        if (ss != null) {
+            try {
+                ss.close();
+            } catch (IOException ignored) { }
+        }
+        for (Socket s : inbound) {
+            try {
+                s.close();
+            } catch (IOException ignored) { }
+        }
+        for (Link l : links)
+            l.close();
+        links.clear();
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        int tracked;
+        long last;
+        synchronized (lock) {
+            tracked = byId.size();
+            last = seq;
+        }
+        p.printf ("%s<replicated-space node='%s' incarnation='%016x'>%n", indent, nodeId, incarnation);
+        p.printf ("%s  seq: %d, tracked: %d%n", indent, last, tracked);
+        for (Link l : links)
+            p.printf ("%s  peer: %s:%d connected=%b sent=%d%n", indent, l.host, l.port, l.connected, l.cursor);
+        for (Map.Entry<Long,Long> e : applied.entrySet())
+            p.printf ("%s  applied: %016x=%d%n", indent, e.getKey(), e.getValue());
+        p.printf ("%s</replicated-space>%n", indent);
+    }
+
+    // ========== local operations ==========
+
+    private void write (byte type, K key, V value, long timeout) {
+        if (key == null || value == null)
+            throw new NullPointerException ("key=" + key + ", value=" + value);
+        if (!isReplicated(key)) {
+            apply (type, key, value, timeout);
+            return;
+        }
+        synchronized (lock) {
+            long s = ++seq;
+            if (type == OP_PUT)
+                untrackAll(key);
+            Tracked t = track(key, new EntryId(incarnation, s), value, timeout);
+            apply (type, key, value, timeout);
+            append (new Op(type, s, key, t.id, value, t.expires));
+        }
+    }
+
+    private V taken (Object key, V value) {
+        Object k = key instanceof Template tmpl ? tmpl.getKey() : key;
+        if (value != null && isReplicated(k)) {
+            synchronized (lock) {
+                Tracked t = untrack(k, value);
+                if (t != null) {
+                    long s = ++seq;
+                    append (new Op(OP_TAKE, s, k, t.id, null, 0L));
+                }
+            }
+        }
+        return value;
+    }
+
+    private void apply (byte type, K key, V value, long timeout) {
+        switch (type) {
+            case OP_OUT:
+                if (timeout > 0L)
+                    sp.out(key, value, timeout);
+                else
+                    sp.out(key, value);
+                break;
+            case OP_PUSH:
+                if (timeout > 0L)
+                    sp.push(key, value, timeout);
+                else
+                    sp.push(key, value);
+                break;
+            case OP_PUT:
+                if (timeout > 0L)
+                    sp.put(key, value, timeout);
+                else
+                    sp.put(key, value);
+                break;
+            default:
+                throw new IllegalArgumentException ("Invalid operation " + type);
+        }
+    }
+
+    // ========== tracking (requires lock) ==========
+
+    private Tracked track (Object key, EntryId id, Object value, long timeout) {
+        Tracked t = new Tracked(key, id, value, timeout > 0L ? System.nanoTime() + timeout * ONE_MILLION : 0L);
+        byId.put(id, t);
+        ArrayDeque<Tracked> q = byKey.computeIfAbsent(key, k -> new ArrayDeque<>());
+        q.addLast(t);
+        return t;
+    }
+
+    private Tracked untrack (Object key, Object value) {
+        ArrayDeque<Tracked> q = byKey.get(key);
+        if (q == null)
+            return null;
+        Iterator<Tracked> iter = q.iterator();
+        while (iter.hasNext()) {
+            Tracked t = iter.next();
+            if (t.value == value) {
+                iter.remove();
+                byId.remove(t.id);
+                if (q.isEmpty())
+                    byKey.remove(key);
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private void untrackAll (Object key) {
+        ArrayDeque<Tracked> q = byKey.remove(key);
+        if (q != null)
+            for (Tracked t : q)
+                byId.remove(t.id);
+    }
+
+    private void append (Op op) {
+        journal[(int) (op.seq % journal.length)] = op;
+        lock.notifyAll();
+    }
+
+    private long firstAvailable() {
+        return Math.max(1L, seq - journal.length + 1);
+    }
+
+    // ========== remote operations ==========
+
+    private void applyRemote (long origin, Op op) {
+        synchronized (lock) {
+            Long last = applied.get(origin);
+            if (last != null && op.seq <= last)
+                return;
+            applied.put(origin, op.seq);
+            if (op.type == OP_TAKE) {
+                Tracked t = byId.get(op.id);
+                if (t != null) {
+                    untrack(t.key, t.value);
+                    sp.inp((K) new ObjectTemplate(t.key, t.value));
+                }
+                return;
+            }
+            if (byId.containsKey(op.id) || op.expires < 0L)
+                return;
+            if (op.type == OP_PUT)
+                untrackAll(op.key);
+            track(op.key, op.id, op.value, op.expires);
+            apply(op.type, (K) op.key, (V) op.value, op.expires);
+        }
+    }
+
+    /**
+     * Builds a snapshot of the tracked entries. Requires lock.
+     *
+     * @param full {@code true} to include every entry, {@code false} for entries created by other nodes only
+     * @return snapshot entries
+     */
+    private List<Op> snapshot (boolean full) {
+        List<Op> entries = new ArrayList<>(byId.size());
+        for (ArrayDeque<Tracked> q : byKey.values())
+            for (Tracked t : q)
+                if (full || t.id.origin != incarnation)
+                    entries.add(new Op(OP_OUT, 0L, t.key, t.id, t.value, t.expires));
+        return entries;
+    }
+
+    private static void writeSnapshot (DataOutputStream out, boolean full, long snapSeq, List<Op> entries)
+      throws IOException
+    {
+        long now = System.nanoTime();
+        out.writeByte(SNAPSHOT);
+        out.writeBoolean(full);
+        out.writeLong(snapSeq);
+        out.writeInt(entries.size());
+        for (Op op : entries)
+            writeOp(out, op, now);
+        out.flush();
+    }
+
+    /**
+     * Applies a snapshot received from {@code origin}.
+     *
+     * <p>A full snapshot replaces whatever this node holds from {@code origin}
+     * (it is sent when the journal no longer covers the gap) and moves the
+     * applied sequence number forward. Entries created by other nodes are only
+     * ever added, never removed, by a snapshot.</p>
+     */
+    private void applySnapshot (long origin, boolean full, long snapSeq, List<Op> entries) {
+        synchronized (lock) {
+            if (full) {
+                Set<EntryId> ids = new HashSet<>();
+                for (Op op : entries)
+                    ids.add(op.id);
+                for (Tracked t : new ArrayList<>(byId.values())) {
+                    if (t.id.origin == origin && !ids.contains(t.id)) {
+                        untrack(t.key, t.value);
+                        sp.inp((K) new ObjectTemplate(t.key, t.value));
+                    }
+                }
+            }
+            for (Op op : entries) {
+                if (op.id.origin != incarnation && !byId.containsKey(op.id) && op.expires >= 0L) {
+                    track(op.key, op.id, op.value, op.expires);
+                    apply(OP_OUT, (K) op.key, (V) op.value, op.expires);
+                }
+            }
+            if (full)
+                applied.put(origin, snapSeq);
+        }
+    }
+
+    private void accept() {
+        ServerSocket ss = serverSocket;
+        while (!closed && ss != null && !ss.isClosed()) {
+            try {
+                Socket s = ss.accept();
+                if (!allowed.contains(s.getInetAddress())) {
+                    warn("rejected connection from " + s.getRemoteSocketAddress());
+                    s.close();
+                    continue;
+                }
+                inbound.add(s);
+                Thread.ofVirtual().name("rspace-recv-" + nodeId).start(() -> receive(s));
+            } catch (IOException e) {
+                if (!closed)
+                    warn("accept", e);
+            }
+        }
+    }
+
+    private void receive (Socket s) {
+        try (s) {
+            s.setSoTimeout((int) HEARTBEAT * 5);
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (in.readByte() != HELLO || in.readInt() != MAGIC)
+                throw new StreamCorruptedException ("Invalid handshake");
+            String peer = in.readUTF();
+            long origin = in.readLong();
+            Long last = applied.get(origin);
+            out.writeByte(WELCOME);
+            out.writeInt(MAGIC);
+            out.writeUTF(nodeId);
+            out.writeLong(last != null ? last : 0L);
+            out.flush();
+            info("peer " + peer + " connected from " + s.getRemoteSocketAddress() + ", last applied " + last);
+            while (!closed) {
+                byte type = in.readByte();
+                if (type == BATCH) {
+                    int count = readCount(in);
+                    for (int i=0; i<count; i++)
+                        applyRemote(origin, readOp(in));
+                } else if (type == SNAPSHOT) {
+                    boolean full = in.readBoolean();
+                    long snapSeq = in.readLong();
+                    int count = readCount(in);
+                    List<Op> entries = new ArrayList<>(Math.min(count, 1024));
+                    for (int i=0; i<count; i++)
+                        entries.add(readOp(in));
+                    applySnapshot(origin, full, snapSeq, entries);
+                    if (full || count > 0)
+                        info("snapshot from " + peer + ": " + count + " entries, seq " + snapSeq + (full ? "" : " (partial)"));
+                } else {
+                    throw new StreamCorruptedException ("Invalid frame type " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            if (!closed)
+                info("peer disconnected: " + s.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (!closed)
+                warn("receive", e);
+        } finally {
+            inbound.remove(s);
+        }
+    }
+
+    private static void writeOp (DataOutputStream out, Op op, long now) throws IOException {
+        out.writeByte(op.type);
+        out.writeLong(op.seq);
+        out.writeLong(op.id.origin);
+        out.writeLong(op.id.seq);
+        SpaceCodec.write(out, op.key);
+        if (op.type != OP_TAKE) {
+            SpaceCodec.write(out, op.value);
+            // remaining time to live in millis, -1 if already expired
+            long remaining = 0L;
+            if (op.expires != 0L) {
+                remaining = (op.expires - now) / ONE_MILLION;
+                if (remaining <= 0L)
+                    remaining = -1L;
+            }
+            out.writeLong(remaining);
+        }
+    }
+
+    private static int readCount (DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new StreamCorruptedException ("Invalid count " + count);
+        return count;
+    }
+
+    private Op readOp (DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        long s = in.readLong();
+        EntryId id = new EntryId(in.readLong(), in.readLong());
+        ObjectInputFilter filter = serialFilter;
+        Object key = SpaceCodec.read(in, filter);
+        Object value = null;
+        long timeout = 0L;
+        if (type != OP_TAKE) {
+            value = SpaceCodec.read(in, filter);
+            timeout = in.readLong();
+        }
+        // on the receiving side 'expires' carries the remaining timeout in millis
+        return new Op(type, s, key, id, value, timeout);
+    }
+
+    private void info (Object detail) {
+        if (log != null)
+            log.info(detail);
+    }
+
+    private void warn (Object detail) {
+        if (log != null)
+            log.warn(detail);
+    }
+
+    private void warn (Object detail, Throwable t) {
+        if (log != null)
+            log.warn(detail, t);
+    }
+
+    /**
+     * Identifies a replicated entry across nodes.
+     * @param origin incarnation id of the node that created the entry
+     * @param seq sequence number of the creating operation
+     */
+    record EntryId (long origin, long seq) { }
+
+    private record Op (byte type, long seq, Object key, EntryId id, Object value, long expires) { }
+
+    private static final class Tracked {
+        final Object key;
+        final EntryId id;
+        final Object value;
+        final long expires;
+
+        Tracked (Object key, EntryId id, Object value, long expires) {
+            this.key = key;
+            this.id = id;
+            this.value = value;
+            this.expires = expires;
+        }
+
+        boolean isExpired (long now) {
+            return expires != 0L && now - expires > 0L;
+        }
+    }
+
+    /**
+     * Outbound replication stream to a single peer.
+     */
+    private class Link implements Runnable {
+        final String host;
+        final int port;
+        volatile boolean connected;
+        volatile long cursor;
+        private volatile boolean stopped;
+        private volatile Socket socket;
+
+        Link (String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        @Override
+        public void run() {
+            while (active()) {
+                try (Socket s = new Socket()) {
+                    socket = s;
+                    s.connect(new InetSocketAddress(host, port), (int) Math.max(reconnectDelay, HEARTBEAT));
+                    s.setTcpNoDelay(true);
+                    s.setSoTimeout((int) HEARTBEAT * 5);
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 65536));
+                    out.writeByte(HELLO);
+                    out.writeInt(MAGIC);
+                    out.writeUTF(nodeId);
+                    out.writeLong(incarnation);
+                    out.flush();
+                    if (in.readByte() != WELCOME || in.readInt() != MAGIC)
+                        throw new StreamCorruptedException ("Invalid handshake");
+                    String peer = in.readUTF();
+                    cursor = in.readLong();
+                    connected = true;
+                    info("connected to " + peer + " at " + host + ":" + port + ", resuming after " + cursor);
+                    stream(out);
+                } catch (IOException e) {
+                    if (active() && connected)
+                        warn("link " + host + ":" + port, e);
+                } finally {
+                    connected = false;
+                    socket = null;
+                }
+                if (active()) {
+                    try {
+                        Thread.sleep(reconnectDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void stream (DataOutputStream out) throws IOException {
+            List<Op> batch = new ArrayList<>(batchSize);
+            if (cursor == 0L) {
+                // peer knows nothing about us: hand over the entries other nodes
+                // created before replaying our own journal from the start
+                List<Op> foreign;
+                synchronized (lock) {
+                    foreign = snapshot(false);
+                }
+                writeSnapshot(out, false, cursor, foreign);
+            }
+            while (active()) {
+                List<Op> snapshot = null;
+                long snapSeq = 0L;
+                batch.clear();
+                synchronized (lock) {
+                    if (seq == cursor) {
+                        try {
+                            lock.wait(HEARTBEAT);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    if (!active())
+                        return;
+                    if (cursor < firstAvailable() - 1) {
+                        snapSeq = seq;
+                        snapshot = snapshot(true);
+                    } else {
+                        for (long s = cursor + 1; s <= seq && batch.size() < batchSize; s++)
+                            batch.add(journal[(int) (s % journal.length)]);
+                    }
+                }
+                if (snapshot != null) {
+                    writeSnapshot(out, true, snapSeq, snapshot);
+                    cursor = snapSeq;
+                } else {
+                    long now = System.nanoTime();
+                    out.writeByte(BATCH);
+                    out.writeInt(batch.size());
+                    for (Op op : batch)
+                        writeOp(out, op, now);
+                    out.flush();
+                    if (!batch.isEmpty())
+                        cursor = batch.get(batch.size() - 1).seq;
+                }
+            }
+        }
+
+        private boolean active() {
+            return !closed && !stopped;
+        }
+
+        void close() {
+            stopped = true;
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            Socket s = socket;
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ignored) { }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import org.jpos.iso.ISOMsg;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Compact tagged encoding for space keys and values sent over the wire.
+ *
+ * <p>Common types (strings, numbers, booleans, byte arrays, dates and
+ * {@link ISOMsg}) get a one-byte tag followed by a minimal payload;
+ * anything else falls back to Java serialization.</p>
+ *
+ * <p>Decoding never trusts the peer: length prefixes are capped at
+ * {@link #MAX_LENGTH} and serialized payloads are read through an
+ * {@link ObjectInputFilter} that, unless the caller supplies its own,
+ * only admits JDK value and collection types and {@code org.jpos.iso}
+ * components.</p>
+ *
+ * @since 3.0.2
+ */
+final class SpaceCodec {
+    static final byte NULL         = 0;
+    static final byte STRING       = 1;
+    static final byte INTEGER      = 2;
+    static final byte LONG         = 3;
+    static final byte BOOLEAN      = 4;
+    static final byte BYTES        = 5;
+    static final byte DATE         = 6;
+    static final byte ISOMSG       = 7;
+    static final byte SERIALIZABLE = 8;
+
+    /** Largest length prefix accepted when decoding. */
+    static final int MAX_LENGTH = 16 * 1024 * 1024;
+    /** Serialization filter pattern used when none is configured. */
+    static final String DEFAULT_FILTER =
+      "maxdepth=32;maxrefs=100000;maxarray=" + MAX_LENGTH + ";maxbytes=" + MAX_LENGTH
+        + ";java.lang.*;java.util.*;java.math.*;java.time.*;org.jpos.iso.*;!*";
+    static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(DEFAULT_FILTER);
+
+    private SpaceCodec() { }
+
+    /**
+     * Writes {@code obj} to {@code out}.
+     *
+     * @param out destination stream
+     * @param obj object to encode, may be {@code null}
+     * @throws IOException on write error or if {@code obj} can not be serialized
+     */
+    static void write (DataOutput out, Object obj) throws IOException {
+        if (obj == null) {
+            out.writeByte(NULL);
+        } else if (obj instanceof String s) {
+            out.writeByte(STRING);
+            writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+        } else if (obj instanceof Integer i) {
+            out.writeByte(INTEGER);
+            out.writeInt(i);
+        } else if (obj instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (obj instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else if (obj instanceof byte[] b) {
+            out.writeByte(BYTES);
+            writeBytes(out, b);
+        } else if (obj instanceof Date d) {
+            out.writeByte(DATE);
+            out.writeLong(d.getTime());
+        } else if (obj instanceof ISOMsg m) {
+            out.writeByte(ISOMSG);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                m.writeExternal(oos);
+            }
+            writeBytes(out, baos.toByteArray());
+        } else if (obj instanceof Serializable) {
+            out.writeByte(SERIALIZABLE);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeObject(obj);
+            }
+            writeBytes(out, baos.toByteArray());
+        } else {
+            throw new NotSerializableException(obj.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads an object previously written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in source stream
+     * @return decoded object, may be {@code null}
+     * @throws IOException on read error or unknown tag
+     */
+    static Object read (DataInput in) throws IOException {
+        return read (in, FILTER);
+    }
+
+    /**
+     * Reads an object previously written by {@link #write(DataOutput, Object)},
+     * checking serialized payloads against {@code filter}.
+     *
+     * @param in source stream
+     * @param filter filter applied to serialized payloads
+     * @return decoded object, may be {@code null}
+     * @throws IOException on read error, unknown tag or rejected class
+     */
+    static Object read (DataInput in, ObjectInputFilter filter) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTES:
+                return readBytes(in);
+            case DATE:
+                return new Date(in.readLong());
+            case ISOMSG:
+                try (ObjectInputStream ois = open(readBytes(in), filter)) {
+                    ISOMsg m = new ISOMsg();
+                    m.readExternal(ois);
+                    return m;
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            case SERIALIZABLE:
+                try (ObjectInputStream ois = open(readBytes(in), filter)) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            default:
+                throw new StreamCorruptedException("Invalid tag " + tag);
+        }
+    }
+
+    private static void writeBytes (DataOutput out, byte[] b) throws IOException {
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static ObjectInputStream open (byte[] b, ObjectInputFilter filter) throws IOException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(b));
+        ois.setObjectInputFilter(filter);
+        return ois;
+    }
+
+    private static byte[] readBytes (DataInput in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > MAX_LENGTH)
+            throw new StreamCorruptedException("Invalid length " + len);
+        byte[] b = new byte[len];
+        in.readFully(b);
+        return b;
+    }
+}
@@ -54,6 +54,12 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
  *
  *   // jdbm space named test, storage located in /tmp/test
  *   Space sp = SpaceFactory.getSpace ("jdbm:test:/tmp/test");
+ *
+ *   // default tspace with at most 5000 entries per key ending in ".in"
+ *   Space sp = SpaceFactory.getSpace ("tspace:default:bounded=*.in=5000/block");
+ *
+ *   // replicated space named "test" (deployed by ReplicatedSpaceAdaptor)
+ *   Space sp = SpaceFactory.getSpace ("replicated:test");
  * </pre>
  *
  */
@@ -74,6 +80,10 @@ public class SpaceFactory {
     public static final String JDBM       = "jdbm";
     /** Scheme constant for Berkeley DB (JE) backed spaces. */
     public static final String JE         = "je";
+    /** Scheme constant used to look up a {@link ReplicatedSpace} deployed by {@code ReplicatedSpaceAdaptor}. */
+    public static final String REPLICATED = "replicated";
+    /** Prefix of the URI parameter that makes a {@code tspace}/{@code lspace} URI a {@link BoundedSpace}. */
+    public static final String BOUNDED    = "bounded=";
     /** Default name used for unnamed spaces. */
     public static final String DEFAULT    = "default";
     private static ScheduledThreadPoolExecutor gcExecutor = ConcurrentUtil.newScheduledThreadPoolExecutor();
@@ -94,32 +104,23 @@ public class SpaceFactory {
      * @return Space for given URI or null
      */
     public static Space getSpace (String spaceUri) {
-        if (spaceUri == null)
-            return getSpace ();
-
-        String scheme = null;
-        String name   = null;
-        String param  = null;
+        String[] p = parse (spaceUri);
+        return getSpace (p[0], p[1], p[2]);
+    }
 
-        StringTokenizer st = new StringTokenizer (spaceUri, ":");
-        int count = st.countTokens();
-        if (count == 0) {
-            scheme = TSPACE;
-            name   = DEFAULT;
-        }
-        else if (count == 1) {
-            scheme = TSPACE;
-            name   = st.nextToken ();
-        }
-        else {
-            scheme = st.nextToken ();
-            name   = st.nextToken ();
-        }
-        if (st.hasMoreTokens()) {
-            param  = st.nextToken ();
-        }
-        return getSpace (scheme, name, param);
+    /**
+     * Returns the canonical form of a space URI, i.e. the name under which
+     * the space is registered in {@link NameRegistrar}.
+     *
+     * @param spaceUri space URI; {@code null} means the default space
+     * @return canonical {@code scheme:name[:param]} URI
+     * @since 3.0.2
+     */
+    public static String normalize (String spaceUri) {
+        String[] p = parse (spaceUri);
+        return normalize (p[0], p[1], p[2]);
     }
+
     /**
      * Resolves the space identified by {@code scheme}, {@code name}, and optional {@code param},
      * registering a newly-created space in {@link NameRegistrar} on first use.
@@ -137,7 +138,7 @@ public class SpaceFactory {
             try {
                 sp = (Space) NameRegistrar.get (uri);
             } catch (NameRegistrar.NotFoundException e) {
-                if (SPACELET.equals (scheme) || "rspace".equals(scheme))
+                if (SPACELET.equals (scheme) || "rspace".equals(scheme) || REPLICATED.equals(scheme))
                     throw new SpaceError (uri + " not found.");
 
                 sp = createSpace (scheme, name, param);
@@ -160,7 +161,12 @@ public class SpaceFactory {
     private static Space createSpace (String scheme, String name, String param)
     {
         Space sp = null;
-        if (TSPACE.equals (scheme) || TRANSIENT.equals (scheme)) {
+        if ((TSPACE.equals (scheme) || TRANSIENT.equals (scheme) || LSPACE.equals (scheme))
+          && param != null && param.startsWith (BOUNDED)) {
+            @SuppressWarnings("unchecked")
+            LocalSpace<Object,Object> local = (LocalSpace<Object,Object>) getSpace (scheme, name, null);
+            sp = new BoundedSpace<> (local, param.substring (BOUNDED.length()));
+        } else if (TSPACE.equals (scheme) || TRANSIENT.equals (scheme)) {
             sp = new TSpace();
         } else if (LSPACE.equals (scheme)) {
             sp = new LSpace();
@@ -177,6 +183,33 @@ public class SpaceFactory {
         }
         return sp;
     }
+    private static String[] parse (String spaceUri) {
+        if (spaceUri == null)
+            return new String[] { TSPACE, DEFAULT, null };
+
+        String scheme = null;
+        String name   = null;
+        String param  = null;
+
+        StringTokenizer st = new StringTokenizer (spaceUri, ":");
+        int count = st.countTokens();
+        if (count == 0) {
+            scheme = TSPACE;
+            name   = DEFAULT;
+        }
+        else if (count == 1) {
+            scheme = TSPACE;
+            name   = st.nextToken ();
+        }
+        else {
+            scheme = st.nextToken ();
+            name   = st.nextToken ();
+        }
+        if (st.hasMoreTokens()) {
+            param  = st.nextToken ();
+        }
+        return new String[] { scheme, name, param };
+    }
     private static String normalize (String scheme, String name, String param) {
         StringBuilder sb = new StringBuilder (scheme);
         sb.append (':');
@@ -24,7 +24,9 @@ import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * TSpace implementation
@@ -37,7 +39,7 @@ import java.util.concurrent.TimeUnit;
  */
 
 @SuppressWarnings("unchecked")
-public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
+public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable, TakeNotifier {
     /** Backing map keyed by user-supplied keys; values are entries or lists of entries. */
     protected Map entries;
     /** Per-key space listeners; itself a {@link TSpace} so it inherits the dispatch model. */
@@ -49,6 +51,9 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
     private static final int MAX_ENTRIES_IN_DUMP = 1000;
     private static final long ONE_MILLION = 1_000_000L;         // multiplier millis --> nanos
     private final Set[] expirables;
+    private volatile ListenerDispatcher dispatcher;
+    private Map<Object,TemplateIndex> indexes;
+    private final List<Consumer<Object>> takeListeners = new CopyOnWriteArrayList<>();
     private long lastLongGC = System.nanoTime();
 
     /** Default constructor. */
@@ -121,9 +126,14 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         var jfr = new SpaceEvent("inp", "" + key);
         jfr.begin();
         try {
+            Object obj;
             if (key instanceof Template)
-                return (V) getObject ((Template) key, true);
-            return (V) getHead (key, true);
+                obj = getObject ((Template) key, true);
+            else
+                obj = getHead (key, true);
+            if (obj != null && !takeListeners.isEmpty())
+                taken (key instanceof Template ? ((Template) key).getKey() : key);
+            return (V) obj;
         } finally {
             jfr.commit();
         }
@@ -288,6 +298,9 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         if (sl != null) {
             sl.inp (new ObjectTemplate (key, listener));
         }
+        ListenerDispatcher d = dispatcher;
+        if (d != null)
+            d.release (listener);
     }
     /**
      * Indicates whether the space currently holds any entries.
@@ -356,6 +369,36 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         jfr.commit();
     }
 
+    /**
+     * Sets the dispatcher used to deliver listener notifications.
+     *
+     * @param dispatcher listener dispatcher, or {@code null} to call listeners inline
+     * @since 3.0.2
+     */
+    public void setListenerDispatcher (ListenerDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Returns the dispatcher used to deliver listener notifications.
+     *
+     * @return listener dispatcher, or {@code null} if listeners are called inline
+     * @since 3.0.2
+     */
+    public ListenerDispatcher getListenerDispatcher () {
+        return dispatcher;
+    }
+
+    @Override
+    public void addTakeListener (Consumer<Object> listener) {
+        takeListeners.add (listener);
+    }
+
+    @Override
+    public void removeTakeListener (Consumer<Object> listener) {
+        takeListeners.remove (listener);
+    }
+
     /**
      * Notifies every listener registered against {@code key} of an entry change.
      *
@@ -375,12 +418,17 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
                 listeners = l.toArray();
         }
         if (listeners != null) {
+            ListenerDispatcher d = dispatcher;
             for (Object listener : listeners) {
                 Object o = listener;
                 if (o instanceof Expirable)
                     o = ((Expirable) o).getValue();
-                if (o instanceof SpaceListener)
-                    ((SpaceListener) o).notify(key, value);
+                if (o instanceof SpaceListener) {
+                    if (d != null)
+                        d.dispatch((SpaceListener) o, key, value);
+                    else
+                        ((SpaceListener) o).notify(key, value);
+                }
             }
         }
         jfr.commit();
@@ -437,7 +485,7 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         var jfr = new SpaceEvent("put", "" + key);
         jfr.begin();
         synchronized (this) {
-            List l = new LinkedList();
+            List l = newList (key);
             l.add (value);
             entries.put (key, l);
             this.notifyAll ();
@@ -459,7 +507,7 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
             v = new Expirable (value, System.nanoTime() + (timeout * ONE_MILLION));
         }
         synchronized (this) {
-            List l = new LinkedList();
+            List l = newList (key);
             l.add (v);
             entries.put (key, l);
             this.notifyAll ();
@@ -514,13 +562,46 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         this.entries = entries;
     }
 
+    /**
+     * Maintains a secondary index for the entries stored under {@code key}, so that
+     * matching {@link ObjectTemplate} ({@link TemplateIndex#EQUALITY}) or
+     * {@link MD5Template} ({@link TemplateIndex#DIGEST}) lookups run in constant
+     * time instead of scanning every entry. Other templates keep working by scan.
+     *
+     * @param key entry key
+     * @param index index kind, or {@code null} to drop the index
+     * @since 3.0.2
+     */
+    public synchronized void setTemplateIndex (Object key, TemplateIndex index) {
+        if (index != null) {
+            if (indexes == null)
+                indexes = new HashMap<>();
+            indexes.put (key, index);
+        } else if (indexes != null) {
+            indexes.remove (key);
+        }
+        List l = (List) entries.get (key);
+        if (l != null)
+            entries.put (key, index != null ? new IndexedList (index, l) : new LinkedList (l));
+    }
+
+    private List newList (Object key) {
+        TemplateIndex index = indexes != null ? indexes.get (key) : null;
+        return index != null ? new IndexedList (index) : new LinkedList();
+    }
+
     private List getList (Object key) {
         List l = (List) entries.get (key);
         if (l == null) 
-            entries.put (key, l = new LinkedList());
+            entries.put (key, l = newList (key));
         return l;
     }
 
+    private void taken (Object key) {
+        for (Consumer<Object> l : takeListeners)
+            l.accept (key);
+    }
+
     private Object getHead (Object key, boolean remove) {
         Object obj = null;
         List l = (List) entries.get (key);
@@ -554,7 +635,13 @@ public class TSpace<K,V> implements LocalSpace<K,V>, Loggeable, Runnable {
         Object obj = null;
         Object key = tmpl.getKey();
         List l = (List) entries.get (key);
-        if (l != null) {
+        if (l instanceof IndexedList il && il.isIndexed (tmpl)) {
+            obj = il.find (tmpl, remove);
+            if (il.isEmpty()) {
+                entries.remove (key);
+                unregisterExpirable(key);
+            }
+        } else if (l != null) {
             Iterator iter = l.iterator();
             boolean wasExpirable = false;
             while (iter.hasNext()) {
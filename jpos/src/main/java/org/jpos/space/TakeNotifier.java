@@ -0,0 +1,47 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import java.util.function.Consumer;
+
+/**
+ * Implemented by local spaces that can report entries being taken
+ * ({@code in}/{@code inp}), so that decorators such as {@link BoundedSpace}
+ * can wake up producers without polling.
+ *
+ * <p>Listeners may be called while the space holds its internal locks; they
+ * must not block nor call back into the space.</p>
+ *
+ * @since 3.0.2
+ */
+interface TakeNotifier {
+    /**
+     * Registers a listener called with the key of every taken entry.
+     *
+     * @param listener take listener
+     */
+    void addTakeListener (Consumer<Object> listener);
+
+    /**
+     * Removes a listener previously registered with {@link #addTakeListener}.
+     *
+     * @param listener take listener
+     */
+    void removeTakeListener (Consumer<Object> listener);
+}
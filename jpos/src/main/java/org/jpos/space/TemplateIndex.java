@@ -0,0 +1,35 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+/**
+ * Secondary index kinds that {@link TSpace} and {@link LSpace} can maintain
+ * for a key, so that template based {@code inp}/{@code rdp} calls do not
+ * have to scan every entry stored under it.
+ *
+ * @see TSpace#setTemplateIndex(Object, TemplateIndex)
+ * @see LSpace#setTemplateIndex(Object, TemplateIndex)
+ * @since 3.0.2
+ */
+public enum TemplateIndex {
+    /** Index entries by value, serves {@link ObjectTemplate} lookups. */
+    EQUALITY,
+    /** Index entries by the MD5 digest of their serialized form, serves {@link MD5Template} lookups. */
+    DIGEST
+}
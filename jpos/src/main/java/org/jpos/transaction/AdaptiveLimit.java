@@ -0,0 +1,124 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency driven concurrency limit used by {@link TransactionManager} when
+ * {@code adaptive-sessions} is configured.
+ *
+ * <p>Sessions report their processing time through {@link #sample(long)};
+ * once per interval {@link #update(int, int)} compares the interval's average
+ * latency (short RTT) against a slowly moving baseline (long RTT) and returns
+ * the new session limit, always within {@code [min, max]}:</p>
+ * <ul>
+ *   <li>{@code AIMD} - backs off multiplicatively when the short RTT exceeds
+ *       {@code tolerance} times the baseline, otherwise grows by one session
+ *       while there is demand.</li>
+ *   <li>{@code GRADIENT} - scales the limit by {@code tolerance * long / short}
+ *       (capped to [0.5, 1]) and adds {@code sqrt(limit)} headroom while there
+ *       is demand, smoothing the result (Vegas/Little's law style: the limit
+ *       tracks throughput times the uncongested latency plus a small queue).</li>
+ * </ul>
+ * <p>There is demand when transactions are waiting in the input queue or
+ * every session is busy; an idle TransactionManager does not grow its limit.</p>
+ */
+final class AdaptiveLimit {
+    enum Mode { AIMD, GRADIENT }
+
+    private static final double BASELINE_WEIGHT = 0.05;
+    private static final double SMOOTHING = 0.2;
+
+    private final Mode mode;
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private final double backoff;
+    private final LongAdder total = new LongAdder();
+    private final LongAdder count = new LongAdder();
+    private volatile int limit;
+    private volatile double shortRtt;
+    private volatile double longRtt;
+
+    AdaptiveLimit (Mode mode, int min, int max, double tolerance, double backoff) {
+        this.mode = mode;
+        this.min = min;
+        this.max = max;
+        this.tolerance = tolerance;
+        this.backoff = backoff;
+        this.limit = min;
+    }
+
+    static Mode mode (String s) {
+        return Mode.valueOf (s.trim().toUpperCase());
+    }
+
+    void sample (long nanos) {
+        total.add (nanos);
+        count.increment();
+    }
+
+    int update (int inFlight, int queued) {
+        long n = count.sumThenReset();
+        long t = total.sumThenReset();
+        int current = limit;
+        if (n == 0)
+            return current;
+        double rtt = (double) t / n;
+        double baseline = longRtt == 0.0 ? rtt : longRtt * (1.0 - BASELINE_WEIGHT) + rtt * BASELINE_WEIGHT;
+        if (baseline > rtt * 2.0)
+            baseline = rtt * 2.0; // latency dropped for good, let the baseline catch up
+        shortRtt = rtt;
+        longRtt = baseline;
+
+        boolean demand = queued > 0 || inFlight >= current;
+        double next;
+        if (mode == Mode.AIMD) {
+            if (rtt > baseline * tolerance)
+                next = current * backoff;
+            else
+                next = demand ? current + 1 : current;
+        } else {
+            double gradient = Math.max (0.5, Math.min (1.0, tolerance * baseline / rtt));
+            next = current * gradient + (demand ? Math.sqrt (current) : 0.0);
+            next = current * (1.0 - SMOOTHING) + next * SMOOTHING;
+            if (next > current && next < current + 1 && demand)
+                next = current + 1; // smoothing alone would never grow small limits
+        }
+        limit = (int) Math.max (min, Math.min (max, Math.round (next)));
+        return limit;
+    }
+
+    int getLimit () {
+        return limit;
+    }
+
+    Mode getMode () {
+        return mode;
+    }
+
+    double getShortRtt () {
+        return shortRtt;
+    }
+
+    double getLongRtt () {
+        return longRtt;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Transaction participant whose phases complete asynchronously.
+ *
+ * <p>When a participant returns a stage that is not yet complete, the
+ * {@link TransactionManager} releases the transaction's session and resumes
+ * the transaction once the stage completes, so a few carrier threads can
+ * drive a large number of in-flight transactions (e.g. outstanding host
+ * calls). A stage that does not complete within the TransactionManager's
+ * {@code pause-timeout} aborts the transaction.</p>
+ *
+ * <p>The synchronous {@link TransactionParticipant} methods are bridged to
+ * their asynchronous counterparts so that the participant can still be
+ * invoked by code that is not aware of this interface.</p>
+ *
+ * @since 3.0.2
+ */
+public interface AsyncTransactionParticipant extends TransactionParticipant {
+    /**
+     * Asynchronous version of {@link TransactionParticipant#prepare(long, Serializable)}.
+     *
+     * @param id the Transaction identifier
+     * @param context transaction context
+     * @return stage completing with PREPARED or ABORTED (| NO_JOIN | READONLY)
+     */
+    CompletionStage<Integer> prepareAsync (long id, Serializable context);
+
+    /**
+     * Asynchronous version of {@link TransactionParticipant#commit(long, Serializable)}.
+     *
+     * @param id the Transaction identifier
+     * @param context transaction context
+     * @return stage completing when the commit is done
+     */
+    default CompletionStage<Void> commitAsync (long id, Serializable context) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Asynchronous version of {@link TransactionParticipant#abort(long, Serializable)}.
+     *
+     * @param id the Transaction identifier
+     * @param context transaction context
+     * @return stage completing when the abort is done
+     */
+    default CompletionStage<Void> abortAsync (long id, Serializable context) {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    default int prepare (long id, Serializable context) {
+        return prepareAsync (id, context).toCompletableFuture().join();
+    }
+
+    @Override
+    default void commit (long id, Serializable context) {
+        commitAsync (id, context).toCompletableFuture().join();
+    }
+
+    @Override
+    default void abort (long id, Serializable context) {
+        abortAsync (id, context).toCompletableFuture().join();
+    }
+}
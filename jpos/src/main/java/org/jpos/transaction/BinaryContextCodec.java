@@ -0,0 +1,523 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.rc.IRC;
+import org.jpos.rc.Result;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link ContextCodec}, a compact tagged binary format.
+ *
+ * <p>Every value starts with a one-byte tag. Strings, numbers, booleans,
+ * byte arrays, dates, {@link TxnId}, {@link Result} and nested
+ * {@link Context}s get a minimal payload (integers and lengths are
+ * variable-length). An {@link ISOMsg} is stored field by field with
+ * {@link ISOMsg#writeExternal(ObjectOutput)}. Anything else falls back to
+ * Java serialization.</p>
+ *
+ * <p>With {@code packed-images} enabled (see {@link #setPackedImages(boolean)}),
+ * messages whose packager can be recreated are stored as their packed image
+ * plus the packager name instead. That is smaller, but only safe when packing
+ * round-trips every value unchanged; most packagers pad or truncate fields
+ * (e.g. fixed-length fields), so the restored message may differ from the
+ * original.</p>
+ *
+ * <p>In image mode, packagers are recreated by class name (as
+ * {@link ISOMsg#readExternal(ObjectInput)} does); packagers that need
+ * configuration, such as {@link GenericPackager}, have to be made known with
+ * {@link #registerPackager(String, ISOPackager)}, otherwise their messages are
+ * stored field by field.</p>
+ *
+ * @since 3.0.2
+ */
+public class BinaryContextCodec implements ContextCodec, Configurable {
+    static final byte NULL         = 0;
+    static final byte STRING       = 1;
+    static final byte INTEGER      = 2;
+    static final byte LONG         = 3;
+    static final byte BOOLEAN      = 4;
+    static final byte BYTES        = 5;
+    static final byte SHORT        = 6;
+    static final byte BYTE         = 7;
+    static final byte CHAR         = 8;
+    static final byte DOUBLE       = 9;
+    static final byte FLOAT        = 10;
+    static final byte BIG_DECIMAL  = 11;
+    static final byte BIG_INTEGER  = 12;
+    static final byte DATE         = 13;
+    static final byte INSTANT      = 14;
+    static final byte TXNID        = 15;
+    static final byte RESULT       = 16;
+    static final byte CONTEXT      = 17;
+    static final byte ISOMSG_IMAGE = 18;
+    static final byte ISOMSG       = 19;
+    static final byte SERIALIZABLE = 20;
+    static final byte OBJECT       = 21;
+
+    private static final byte IRC_NONE = 0;
+    private static final byte IRC_ENUM = 1;
+    private static final byte IRC_CODE = 2;
+
+    private final Map<String,ISOPackager> packagers = new ConcurrentHashMap<>();
+    private final Map<ISOPackager,String> packagerNames = new ConcurrentHashMap<>();
+    private final Map<Class<?>,String> packagerClasses = new ConcurrentHashMap<>();
+
+    private volatile boolean packedImages;
+
+    /** Default constructor. */
+    public BinaryContextCodec() {
+        super();
+    }
+
+    /**
+     * Reads the {@code packed-images} property (default {@code false}).
+     *
+     * @param cfg configuration
+     */
+    @Override
+    public void setConfiguration (Configuration cfg) {
+        setPackedImages (cfg.getBoolean ("packed-images", false));
+    }
+
+    /**
+     * Stores messages as packed images rather than field by field.
+     *
+     * @param packedImages true to store packed images
+     */
+    public void setPackedImages (boolean packedImages) {
+        this.packedImages = packedImages;
+    }
+
+    /**
+     * Tells whether messages are stored as packed images.
+     *
+     * @return true if packed images are enabled
+     */
+    public boolean isPackedImages () {
+        return packedImages;
+    }
+
+    /**
+     * Makes a packager known under {@code name}, so messages packed with it
+     * can be stored as packed images and unpacked again on read, when
+     * {@code packed-images} is enabled.
+     *
+     * @param name packager name written to the stream
+     * @param packager packager instance
+     */
+    public void registerPackager (String name, ISOPackager packager) {
+        packagers.put (name, packager);
+        packagerNames.put (packager, name);
+    }
+
+    @Override
+    public boolean canEncode (Object obj) {
+        return obj == null || obj instanceof Serializable || obj instanceof Result || obj instanceof TxnId;
+    }
+
+    @Override
+    public void write (DataOutput out, Object obj) throws IOException {
+        switch (obj) {
+            case null -> out.writeByte (NULL);
+            case String s -> {
+                out.writeByte (STRING);
+                writeString (out, s);
+            }
+            case Integer i -> {
+                out.writeByte (INTEGER);
+                writeVarLong (out, i);
+            }
+            case Long l -> {
+                out.writeByte (LONG);
+                writeVarLong (out, l);
+            }
+            case Boolean b -> {
+                out.writeByte (BOOLEAN);
+                out.writeBoolean (b);
+            }
+            case byte[] b -> {
+                out.writeByte (BYTES);
+                writeBytes (out, b);
+            }
+            case Short s -> {
+                out.writeByte (SHORT);
+                out.writeShort (s);
+            }
+            case Byte b -> {
+                out.writeByte (BYTE);
+                out.writeByte (b);
+            }
+            case Character c -> {
+                out.writeByte (CHAR);
+                out.writeChar (c);
+            }
+            case Double d -> {
+                out.writeByte (DOUBLE);
+                out.writeDouble (d);
+            }
+            case Float f -> {
+                out.writeByte (FLOAT);
+                out.writeFloat (f);
+            }
+            case BigDecimal d when d.getClass() == BigDecimal.class -> {
+                out.writeByte (BIG_DECIMAL);
+                writeVarLong (out, d.scale());
+                writeBytes (out, d.unscaledValue().toByteArray());
+            }
+            case BigInteger i when i.getClass() == BigInteger.class -> {
+                out.writeByte (BIG_INTEGER);
+                writeBytes (out, i.toByteArray());
+            }
+            case Date d when d.getClass() == Date.class -> {
+                out.writeByte (DATE);
+                writeVarLong (out, d.getTime());
+            }
+            case Instant i -> {
+                out.writeByte (INSTANT);
+                writeVarLong (out, i.getEpochSecond());
+                writeVarLong (out, i.getNano());
+            }
+            case TxnId t -> {
+                out.writeByte (TXNID);
+                writeVarLong (out, t.id());
+            }
+            case Result r -> {
+                out.writeByte (RESULT);
+                writeResult (out, r);
+            }
+            case Context c when c.getClass() == Context.class -> {
+                out.writeByte (CONTEXT);
+                c.writeEntries (out, this);
+            }
+            case ISOMsg m when m.getClass() == ISOMsg.class -> writeISOMsg (out, m);
+            case Serializable s -> writeSerializable (out, s);
+            default -> throw new NotSerializableException (obj.getClass().getName());
+        }
+    }
+
+    @Override
+    public Object read (DataInput in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> readString (in);
+            case INTEGER -> (int) readVarLong (in);
+            case LONG -> readVarLong (in);
+            case BOOLEAN -> in.readBoolean();
+            case BYTES -> readBytes (in);
+            case SHORT -> in.readShort();
+            case BYTE -> in.readByte();
+            case CHAR -> in.readChar();
+            case DOUBLE -> in.readDouble();
+            case FLOAT -> in.readFloat();
+            case BIG_DECIMAL -> {
+                int scale = (int) readVarLong (in);
+                yield new BigDecimal (new BigInteger (readBytes (in)), scale);
+            }
+            case BIG_INTEGER -> new BigInteger (readBytes (in));
+            case DATE -> new Date (readVarLong (in));
+            case INSTANT -> {
+                long seconds = readVarLong (in);
+                yield Instant.ofEpochSecond (seconds, readVarLong (in));
+            }
+            case TXNID -> TxnId.parse (readVarLong (in));
+            case RESULT -> readResult (in);
+            case CONTEXT -> {
+                Context ctx = new Context();
+                ctx.readEntries (in, this);
+                yield ctx;
+            }
+            case ISOMSG_IMAGE -> readISOMsgImage (in);
+            case ISOMSG -> readISOMsg (in);
+            case SERIALIZABLE -> {
+                try (ObjectInputStream ois = new ObjectInputStream (new ByteArrayInputStream (readBytes (in)))) {
+                    yield ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException (e);
+                }
+            }
+            case OBJECT -> {
+                if (!(in instanceof ObjectInput oi))
+                    throw new StreamCorruptedException ("Object tag outside an object stream");
+                try {
+                    yield oi.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException (e);
+                }
+            }
+            default -> throw new StreamCorruptedException ("Invalid tag " + tag);
+        };
+    }
+
+    private void writeSerializable (DataOutput out, Serializable obj) throws IOException {
+        if (out instanceof ObjectOutput oo) {
+            out.writeByte (OBJECT);
+            oo.writeObject (obj);
+        } else {
+            ByteArrayOutputStream b = new ByteArrayOutputStream (256);
+            try (ObjectOutputStream oos = new ObjectOutputStream (b)) {
+                oos.writeObject (obj);
+            }
+            out.writeByte (SERIALIZABLE);
+            writeBytes (out, b.toByteArray());
+        }
+    }
+
+    private void writeISOMsg (DataOutput out, ISOMsg m) throws IOException {
+        ISOPackager p = packedImages ? m.getPackager() : null;
+        String name = p != null ? packagerName (p) : null;
+        if (name != null) {
+            byte[] image = null;
+            try {
+                image = m.pack();
+            } catch (ISOException ignored) {
+                // not packable as is, store it field by field
+            }
+            if (image != null) {
+                out.writeByte (ISOMSG_IMAGE);
+                writeString (out, name);
+                writeVarLong (out, m.getFieldNumber());
+                out.writeByte (m.getDirection());
+                byte[] header = m.getHeader();
+                writeBytes (out, header != null ? header : new byte[0]);
+                writeBytes (out, image);
+                return;
+            }
+        }
+        out.writeByte (ISOMSG);
+        if (out instanceof ObjectOutput oo) {
+            m.writeExternal (oo);
+        } else {
+            ByteArrayOutputStream b = new ByteArrayOutputStream (256);
+            try (ObjectOutputStream oos = new ObjectOutputStream (b)) {
+                m.writeExternal (oos);
+            }
+            writeBytes (out, b.toByteArray());
+        }
+    }
+
+    private ISOMsg readISOMsgImage (DataInput in) throws IOException {
+        ISOPackager p = packager (readString (in));
+        ISOMsg m = new ISOMsg ((int) readVarLong (in));
+        m.setDirection (in.readByte());
+        byte[] header = readBytes (in);
+        byte[] image = readBytes (in);
+        m.setPackager (p);
+        try {
+            m.unpack (image);
+        } catch (ISOException e) {
+            throw new IOException (e);
+        }
+        if (header.length > 0)
+            m.setHeader (header);
+        return m;
+    }
+
+    private ISOMsg readISOMsg (DataInput in) throws IOException {
+        ISOMsg m = new ISOMsg();
+        try {
+            if (in instanceof ObjectInput oi) {
+                m.readExternal (oi);
+            } else {
+                try (ObjectInputStream ois = new ObjectInputStream (new ByteArrayInputStream (readBytes (in)))) {
+                    m.readExternal (ois);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException (e);
+        }
+        return m;
+    }
+
+    // registered name, or class name if the packager can be recreated from it
+    private String packagerName (ISOPackager p) {
+        String name = packagerNames.get (p);
+        if (name != null)
+            return name;
+        name = packagerClasses.computeIfAbsent (p.getClass(), c -> {
+            if (GenericPackager.class.isAssignableFrom (c))
+                return "";
+            try {
+                c.getConstructor();
+                return c.getName();
+            } catch (NoSuchMethodException e) {
+                return "";
+            }
+        });
+        return name.isEmpty() ? null : name;
+    }
+
+    private ISOPackager packager (String name) throws IOException {
+        ISOPackager p = packagers.get (name);
+        if (p == null) {
+            try {
+                p = (ISOPackager) Class.forName (name).getConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException ("Unable to create packager " + name, e);
+            }
+            ISOPackager prev = packagers.putIfAbsent (name, p);
+            if (prev != null)
+                p = prev;
+        }
+        return p;
+    }
+
+    private void writeResult (DataOutput out, Result r) throws IOException {
+        synchronized (r.entries()) {
+            writeVarLong (out, r.entries().size());
+            for (Result.Entry e : r.entries()) {
+                out.writeByte (e.getType().ordinal());
+                writeIRC (out, e.getIrc());
+                writeNullableString (out, e.getSource());
+                writeNullableString (out, e.getMessage());
+            }
+        }
+    }
+
+    private Result readResult (DataInput in) throws IOException {
+        Result r = new Result();
+        Result.Type[] types = Result.Type.values();
+        for (int i = (int) readVarLong (in); i > 0; i--) {
+            int type = in.readByte();
+            if (type < 0 || type >= types.length)
+                throw new StreamCorruptedException ("Invalid result entry type " + type);
+            IRC irc = readIRC (in);
+            String source = readNullableString (in);
+            r.entries().add (new Result.Entry (types[type], irc, source, readNullableString (in)));
+        }
+        return r;
+    }
+
+    private void writeIRC (DataOutput out, IRC irc) throws IOException {
+        if (irc == null) {
+            out.writeByte (IRC_NONE);
+        } else if (irc instanceof Enum<?> e) {
+            out.writeByte (IRC_ENUM);
+            writeString (out, e.getDeclaringClass().getName());
+            writeString (out, e.name());
+        } else {
+            out.writeByte (IRC_CODE);
+            writeVarLong (out, irc.irc());
+            out.writeBoolean (irc.success());
+            out.writeBoolean (irc.inhibit());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private IRC readIRC (DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case IRC_NONE:
+                return null;
+            case IRC_ENUM:
+                String clazz = readString (in);
+                String name = readString (in);
+                try {
+                    return (IRC) Enum.valueOf ((Class) Class.forName (clazz), name);
+                } catch (ClassNotFoundException | IllegalArgumentException e) {
+                    throw new IOException ("Unable to resolve IRC " + clazz + "." + name, e);
+                }
+            case IRC_CODE:
+                return new CodeIRC ((int) readVarLong (in), in.readBoolean(), in.readBoolean());
+            default:
+                throw new StreamCorruptedException ("Invalid IRC kind " + kind);
+        }
+    }
+
+    private static void writeString (DataOutput out, String s) throws IOException {
+        writeBytes (out, s.getBytes (StandardCharsets.UTF_8));
+    }
+
+    private static String readString (DataInput in) throws IOException {
+        return new String (readBytes (in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableString (DataOutput out, String s) throws IOException {
+        out.writeBoolean (s != null);
+        if (s != null)
+            writeString (out, s);
+    }
+
+    private static String readNullableString (DataInput in) throws IOException {
+        return in.readBoolean() ? readString (in) : null;
+    }
+
+    private static void writeBytes (DataOutput out, byte[] b) throws IOException {
+        writeVarLong (out, b.length);
+        out.write (b);
+    }
+
+    private static byte[] readBytes (DataInput in) throws IOException {
+        long len = readVarLong (in);
+        if (len < 0 || len > Integer.MAX_VALUE)
+            throw new StreamCorruptedException ("Invalid length " + len);
+        byte[] b = new byte[(int) len];
+        in.readFully (b);
+        return b;
+    }
+
+    // zig-zag encoded, seven bits per byte
+    static void writeVarLong (DataOutput out, long l) throws IOException {
+        long v = (l << 1) ^ (l >> 63);
+        while ((v & ~0x7FL) != 0L) {
+            out.writeByte ((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte ((int) v);
+    }
+
+    static long readVarLong (DataInput in) throws IOException {
+        long v = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return (v >>> 1) ^ -(v & 1);
+        }
+        throw new StreamCorruptedException ("Malformed variable-length integer");
+    }
+
+    private record CodeIRC (int irc, boolean success, boolean inhibit) implements IRC { }
+}
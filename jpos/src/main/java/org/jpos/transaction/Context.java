@@ -43,8 +43,10 @@ import static org.jpos.transaction.ContextConstants.*;
 public class Context implements Externalizable, Loggeable, Cloneable, Pausable, AuditLogEventConvertible {
     @Serial
     private static final long serialVersionUID = 2604524947983441462L;
-    private transient Map<Object,Object> map; // transient map
-    private Map<Object,Object> pmap;          // persistent (serializable) map
+    private static volatile ContextCodec codec = new BinaryContextCodec();
+    private transient volatile Map<Object,Object> map; // transient map
+    private volatile Map<Object,Object> pmap;          // persistent (serializable) map
+    private transient volatile int waiters;            // threads blocked in get(key, timeout)
     private transient boolean trace = false;
     private CompletableFuture<Integer> pausedFuture;
     private long timeout;
@@ -54,6 +56,26 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
         super ();
     }
 
+    /**
+     * Returns the codec used to externalize the persistent map.
+     *
+     * @return context codec
+     * @since 3.0.2
+     */
+    public static ContextCodec getCodec () {
+        return codec;
+    }
+
+    /**
+     * Replaces the codec used to externalize the persistent map.
+     *
+     * @param c context codec, not {@code null}
+     * @since 3.0.2
+     */
+    public static void setCodec (ContextCodec c) {
+        codec = Objects.requireNonNull (c);
+    }
+
     /**
      * Puts an Object in the transient Map.
      * @param key the map key
@@ -66,9 +88,7 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
             );
         }
         getMap().put (key, value);
-        synchronized (this) {
-            notifyAll();
-        }
+        wakeUpWaiters();
     }
     /**
      * Puts an Object in the transient or persistent Map.
@@ -82,9 +102,10 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
                 String.format("%s(P)='%s' [%s]", getKeyName(key), value, Caller.info(1))
             );
         }
-        if (persist && value instanceof Serializable)
+        if (persist && (value instanceof Serializable || codec.canEncode (value)))
             getPMap().put (key, value);
         getMap().put(key, value);
+        wakeUpWaiters();
     }
 
     /**
@@ -376,31 +397,33 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
         T obj;
         long now = System.currentTimeMillis();
         long end = now + timeout;
-        while ((obj = (T) map.get (key)) == null &&
-                (now = System.currentTimeMillis()) < end)
-        {
-            try {
-                if (end > now)
-                    this.wait (end - now);
-            } catch (InterruptedException ignored) { }
+        waiters++;
+        try {
+            while ((obj = (T) map.get (key)) == null &&
+                    (now = System.currentTimeMillis()) < end)
+            {
+                try {
+                    if (end > now)
+                        this.wait (end - now);
+                } catch (InterruptedException ignored) { }
+            }
+        } finally {
+            waiters--;
         }
         return obj;
     }
     public void writeExternal (ObjectOutput out) throws IOException {
-        out.writeByte (0);  // reserved for future expansion (version id)
-        Set s = getPMap().entrySet();
-        out.writeInt (s.size());
-        Iterator iter = s.iterator();
-        while (iter.hasNext()) {
-            Map.Entry entry = (Map.Entry) iter.next();
-            out.writeObject(entry.getKey());
-            out.writeObject(entry.getValue());
-        }
+        out.writeByte (1);  // version: 0 = plain writeObject, 1 = ContextCodec
+        writeEntries (out, codec);
     }
     public void readExternal  (ObjectInput in) 
         throws IOException, ClassNotFoundException
     {
-        in.readByte();  // ignore version for now
+        byte version = in.readByte();
+        if (version != 0) {
+            readEntries (in, codec);
+            return;
+        }
         getMap();       // force creation of map
         getPMap();      // and pmap
         int size = in.readInt();
@@ -412,10 +435,45 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
         }
     }
 
+    /**
+     * Writes the persistent map using {@code c}.
+     * @param out destination
+     * @param c codec used for keys and values
+     * @throws IOException on write error
+     */
+    void writeEntries (DataOutput out, ContextCodec c) throws IOException {
+        Map<Object,Object> m = getPMap();
+        synchronized (m) {  // keep size and entries consistent
+            out.writeInt (m.size());
+            for (Map.Entry<Object,Object> entry : m.entrySet()) {
+                c.write (out, entry.getKey());
+                c.write (out, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads entries written by {@link #writeEntries(DataOutput, ContextCodec)}
+     * into both the transient and the persistent maps.
+     * @param in source
+     * @param c codec used for keys and values
+     * @throws IOException on read error
+     */
+    void readEntries (DataInput in, ContextCodec c) throws IOException {
+        Map<Object,Object> m = getMap();
+        Map<Object,Object> pm = getPMap();
+        for (int size = in.readInt(); size > 0; size--) {
+            Object k = c.read (in);
+            Object v = c.read (in);
+            m.put (k, v);
+            pm.put (k, v);
+        }
+    }
+
     /**
      * Creates a copy of the current Context object.
      * <p>
-     * This method clones the Context object, creating new synchronized map containers
+     * This method clones the Context object, creating new map containers
      * that are independent of the original. However, the keys and values themselves
      * are <b>not cloned</b> - both Context instances will share references to the same
      * key/value objects. Structural changes (add/remove operations) to one Context's
@@ -423,8 +481,8 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
      * will be visible in both Contexts.
      * </p>
      * <p>
-     * The cloned Context preserves the thread-safety characteristics through
-     * {@code Collections.synchronizedMap} wrappers.
+     * The cloned Context preserves the thread-safety characteristics of the
+     * original (lock-free reads, serialized writes).
      * </p>
      *
      * @return a copy of the current Context object with independent map containers
@@ -434,14 +492,11 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
     public Context clone() {
         try {
             Context context = (Context) super.clone();
-            if (map != null) {
-                context.map = Collections.synchronizedMap (new LinkedHashMap<>());
-                context.map.putAll(map);
-            }
-            if (pmap != null) {
-                context.pmap = Collections.synchronizedMap (new LinkedHashMap<>());
-                context.pmap.putAll(pmap);
-            }
+            context.waiters = 0;
+            if (map != null)
+                context.map = new ContextMap (map);
+            if (pmap != null)
+                context.pmap = new ContextMap (pmap);
             return context;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(); // Should not happen
@@ -523,19 +578,42 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
      * Returns the persistent map, creating it lazily.
      * @return persistent map
      */
-    private synchronized Map<Object,Object> getPMap() {
-        if (pmap == null)
-            pmap = Collections.synchronizedMap (new LinkedHashMap<> ());
-        return pmap;
+    private Map<Object,Object> getPMap() {
+        Map<Object,Object> m = pmap;
+        if (m == null) {
+            synchronized (this) {
+                if ((m = pmap) == null)
+                    pmap = m = new ContextMap (8);
+            }
+        }
+        return m;
     }
     /**
      * Returns the transient map, creating it lazily.
+     * <p>
+     * The map is insertion ordered, its reads are lock-free and its writes
+     * are serialized on the map itself.
+     * </p>
      * @return transient map
      */
-    public synchronized Map<Object,Object> getMap() {
-        if (map == null)
-            map = Collections.synchronizedMap (new LinkedHashMap<>());
-        return map;
+    public Map<Object,Object> getMap() {
+        Map<Object,Object> m = map;
+        if (m == null) {
+            synchronized (this) {
+                if ((m = map) == null)
+                    map = m = new ContextMap();
+            }
+        }
+        return m;
+    }
+
+    // only take the monitor when somebody is blocked in get(key, timeout)
+    private void wakeUpWaiters() {
+        if (waiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
     }
 
     /**
@@ -661,6 +739,53 @@ public class Context implements Externalizable, Loggeable, Cloneable, Pausable,
         return result;
     }
 
+    /**
+     * Sets the absolute deadline for this transaction (persisted under {@link ContextConstants#DEADLINE}).
+     *
+     * @param deadline instant after which the transaction should take the abort path, or null to clear it
+     * @since 3.0.2
+     */
+    public void setDeadline (java.time.Instant deadline) {
+        if (deadline != null)
+            put (DEADLINE.toString(), deadline, true);
+        else
+            remove (DEADLINE.toString());
+    }
+
+    /**
+     * Returns the absolute deadline for this transaction.
+     *
+     * @return deadline, or null if none was set
+     * @since 3.0.2
+     */
+    public java.time.Instant getDeadline () {
+        return get (DEADLINE.toString()) instanceof java.time.Instant d ? d : null;
+    }
+
+    /**
+     * Returns the time left before the transaction deadline.
+     *
+     * @return remaining milliseconds (never negative), {@link Long#MAX_VALUE} if there is no deadline
+     * @since 3.0.2
+     */
+    public long getRemainingTime () {
+        java.time.Instant d = getDeadline();
+        if (d == null)
+            return Long.MAX_VALUE;
+        return Math.max (0L, d.toEpochMilli() - System.currentTimeMillis());
+    }
+
+    /**
+     * Tells whether the transaction deadline has passed.
+     *
+     * @return true if a deadline is set and it has been reached
+     * @since 3.0.2
+     */
+    public boolean isExpired () {
+        java.time.Instant d = getDeadline();
+        return d != null && d.toEpochMilli() <= System.currentTimeMillis();
+    }
+
     /**
      * Adds a trace message to the context log event.
      * @param msg trace information
@@ -0,0 +1,95 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Encodes {@link Context} entries (and whole contexts) for the
+ * {@link TransactionManager} persistent paths: context snapshots, the
+ * {@link TransactionJournal}, the retry queue and {@link Context}'s own
+ * {@link java.io.Externalizable} form.
+ *
+ * @see BinaryContextCodec
+ * @since 3.0.2
+ */
+public interface ContextCodec {
+    /**
+     * Writes {@code obj} to {@code out}.
+     *
+     * @param out destination
+     * @param obj object to encode, may be {@code null}
+     * @throws IOException on write error or if {@code obj} can not be encoded
+     */
+    void write (DataOutput out, Object obj) throws IOException;
+
+    /**
+     * Reads an object previously written by {@link #write(DataOutput, Object)}.
+     *
+     * @param in source
+     * @return decoded object, may be {@code null}
+     * @throws IOException on read error or malformed input
+     */
+    Object read (DataInput in) throws IOException;
+
+    /**
+     * Tells whether {@code obj} can be encoded by this codec, used by
+     * {@link Context#put(Object, Object, boolean)} to decide whether a value
+     * goes to the persistent map.
+     *
+     * @param obj candidate value
+     * @return true if {@code obj} is {@code null} or {@link Serializable}
+     */
+    default boolean canEncode (Object obj) {
+        return obj == null || obj instanceof Serializable;
+    }
+
+    /**
+     * Encodes {@code obj} into a byte array.
+     *
+     * @param obj object to encode
+     * @return encoded image
+     * @throws IOException if {@code obj} can not be encoded
+     */
+    default byte[] encode (Object obj) throws IOException {
+        ByteArrayOutputStream b = new ByteArrayOutputStream (512);
+        DataOutputStream out = new DataOutputStream (b);
+        write (out, obj);
+        out.flush();
+        return b.toByteArray();
+    }
+
+    /**
+     * Decodes an image produced by {@link #encode(Object)}.
+     *
+     * @param b encoded image
+     * @return decoded object
+     * @throws IOException if the image is malformed
+     */
+    default Object decode (byte[] b) throws IOException {
+        return read (new DataInputStream (new ByteArrayInputStream (b)));
+    }
+}
@@ -30,6 +30,8 @@ public enum ContextConstants {
     PROFILER,
     /** Wall-clock timestamp captured when the transaction started. */
     TIMESTAMP,
+    /** Transient {@link System#nanoTime()} at which the context was last placed on a transaction manager's input queue. */
+    QUEUED,
     /** Source channel/peer from which the request originated. */
     SOURCE,
     /** Inbound request message. */
@@ -78,6 +80,8 @@ public enum ContextConstants {
     ORIGINAL_DATA_ELEMENTS,
     /** Routing destination chosen for the transaction. */
     DESTINATION,
+    /** Absolute transaction deadline ({@link java.time.Instant}), see {@link Context#getRemainingTime()}. */
+    DEADLINE,
     /** Panic flag indicating the transaction must abort immediately. */
     PANIC;
 
@@ -0,0 +1,354 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Insertion-ordered map backing {@link Context}.
+ *
+ * <p>Entries are appended to an array in insertion order and located through
+ * a small open-addressed index (linear probing, load factor at most 0.5), so
+ * the 50 to 100 entries of a typical transaction need neither per-entry
+ * linked nodes nor hash buckets. Reads ({@code get}, {@code containsKey},
+ * iteration) are lock-free; writers serialize on the map's monitor, which
+ * keeps {@code synchronized (map)} blocks written for the previous
+ * {@code Collections.synchronizedMap} working as before.</p>
+ *
+ * <p>Removing an entry leaves a tombstone that is dropped the next time the
+ * entry array fills up; putting the key again appends it at the end, as
+ * {@link LinkedHashMap} does. Iterators are weakly consistent and never
+ * throw {@code ConcurrentModificationException}.</p>
+ */
+final class ContextMap extends AbstractMap<Object,Object> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -4215315062539375271L;
+    static final int DEFAULT_CAPACITY = 32;
+    private static final Object REMOVED = new Object();
+
+    private transient volatile Table table;
+    private transient volatile int size;
+    private transient Set<Map.Entry<Object,Object>> entrySet;
+
+    ContextMap () {
+        this (DEFAULT_CAPACITY);
+    }
+
+    ContextMap (int capacity) {
+        table = new Table (Math.max (4, Integer.highestOneBit (Math.max (1, capacity - 1)) << 1));
+    }
+
+    ContextMap (Map<?,?> m) {
+        this (Math.max (DEFAULT_CAPACITY, m.size()));
+        putAll (m);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Object get (Object key) {
+        Node n = find (key);
+        if (n == null)
+            return null;
+        Object v = n.value;
+        return v != REMOVED ? v : null;
+    }
+
+    @Override
+    public boolean containsKey (Object key) {
+        Node n = find (key);
+        return n != null && n.value != REMOVED;
+    }
+
+    @Override
+    public synchronized Object put (Object key, Object value) {
+        int h = hash (key);
+        Table t = table;
+        int slot = slot (t, key, h);
+        int p = t.index[slot];
+        if (p != 0) {
+            Node n = t.nodes[p-1];
+            Object old = n.value;
+            if (old != REMOVED) {
+                n.value = value;
+                return old;
+            }
+        }
+        if (t.used == t.nodes.length) {
+            t = rebuild();
+            slot = slot (t, key, h);
+        }
+        int pos = t.used;
+        t.nodes[pos] = new Node (key, h, value);
+        t.index[slot] = pos + 1;
+        t.used = pos + 1;
+        size = size + 1;
+        return null;
+    }
+
+    @Override
+    public synchronized Object remove (Object key) {
+        Node n = find (key);
+        if (n == null || n.value == REMOVED)
+            return null;
+        Object old = n.value;
+        n.value = REMOVED;
+        size = size - 1;
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new Table (DEFAULT_CAPACITY);
+        size = 0;
+    }
+
+    @Override
+    public void forEach (BiConsumer<? super Object, ? super Object> action) {
+        Table t = table;
+        for (int i=0, used = t.used; i<used; i++) {
+            Node n = t.nodes[i];
+            if (n != null) {
+                Object v = n.value;
+                if (v != REMOVED)
+                    action.accept (n.key, v);
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Object,Object>> entrySet() {
+        Set<Map.Entry<Object,Object>> es = entrySet;
+        return es != null ? es : (entrySet = new EntrySet());
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return new LinkedHashMap<>(this);
+    }
+
+    private Node find (Object key) {
+        if (size == 0) // volatile read, pairs with the writer's last store
+            return null;
+        int h = hash (key);
+        Table t = table;
+        int mask = t.index.length - 1;
+        for (int i = h & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            int p = t.index[i];
+            if (p == 0)
+                return null;
+            Node n = t.nodes[p-1];
+            if (n == null)
+                return null; // not published yet
+            if (n.hash == h && Objects.equals (n.key, key))
+                return n;
+        }
+        return null;
+    }
+
+    // slot holding key, or the empty slot where it goes; callers hold the lock
+    private static int slot (Table t, Object key, int h) {
+        int mask = t.index.length - 1;
+        int i = h & mask;
+        for (int p; (p = t.index[i]) != 0; i = (i + 1) & mask) {
+            Node n = t.nodes[p-1];
+            if (n.hash == h && Objects.equals (n.key, key))
+                break;
+        }
+        return i;
+    }
+
+    // drops tombstones and grows the table if it is still more than half full
+    private Table rebuild() {
+        Table old = table;
+        int capacity = old.nodes.length;
+        if (size > capacity / 2)
+            capacity <<= 1;
+        Table t = new Table (capacity);
+        for (int i=0; i<old.used; i++) {
+            Node n = old.nodes[i];
+            if (n.value != REMOVED) {
+                int pos = t.used;
+                t.nodes[pos] = n;
+                t.index[slot (t, n.key, n.hash)] = pos + 1;
+                t.used = pos + 1;
+            }
+        }
+        table = t;
+        return t;
+    }
+
+    private static int hash (Object key) {
+        int h = key != null ? key.hashCode() : 0;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Table {
+        final Node[] nodes;
+        final int[] index; // 1-based positions in nodes, 0 means empty
+        volatile int used;
+
+        Table (int capacity) {
+            nodes = new Node[capacity];
+            index = new int[capacity << 1];
+        }
+    }
+
+    private final class Node implements Map.Entry<Object,Object> {
+        final Object key;
+        final int hash;
+        volatile Object value;
+
+        Node (Object key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            Object v = value;
+            return v != REMOVED ? v : null;
+        }
+
+        @Override
+        public Object setValue (Object v) {
+            return put (key, v);
+        }
+
+        @Override
+        public boolean equals (Object o) {
+            return o instanceof Map.Entry<?,?> e
+              && Objects.equals (key, e.getKey())
+              && Objects.equals (getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode (key) ^ Objects.hashCode (getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Object,Object>> {
+        @Override
+        public Iterator<Map.Entry<Object,Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains (Object o) {
+            if (!(o instanceof Map.Entry<?,?> e))
+                return false;
+            Node n = find (e.getKey());
+            return n != null && n.value != REMOVED && Objects.equals (n.value, e.getValue());
+        }
+
+        @Override
+        public boolean remove (Object o) {
+            if (contains (o)) {
+                ContextMap.this.remove (((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            ContextMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<Object,Object>> {
+        private final Table t = table;
+        private final int used = t.used;
+        private int pos;
+        private Node next;
+        private Node last;
+
+        EntryIterator() {
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Object,Object> next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            ContextMap.this.remove (last.key);
+            last = null;
+        }
+
+        private void advance() {
+            next = null;
+            while (pos < used) {
+                Node n = t.nodes[pos++];
+                if (n != null && n.value != REMOVED) {
+                    next = n;
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,679 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.HdrHistogram.AtomicHistogram;
+import org.jpos.space.SpaceError;
+import org.jpos.util.Loggeable;
+import org.jpos.util.Metrics;
+import org.jpos.util.MetricsProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only recovery journal for {@link TransactionManager} state.
+ *
+ * <p>It is a drop-in alternative to the {@code persistent-space} used to
+ * recover in-flight transactions: state changes ({@code PREPARING},
+ * {@code COMMITTING}, {@code DONE}), context snapshots and group selections
+ * are appended as CRC-protected records to segment files in a directory,
+ * and {@link TransactionManager#recover()} replays them after a restart.</p>
+ *
+ * <p>Records from all sessions are handed to a single writer thread that
+ * writes whatever is pending in one batch followed by a single
+ * {@code fsync} (group commit); callers wait only for the batch holding
+ * their record. {@code DONE} records are not waited for, replaying a
+ * completed transaction is already covered by the participants' contract.</p>
+ *
+ * <p>When the active segment grows past the configured size, the writer
+ * starts a new segment with a checkpoint of the transactions still in
+ * flight and deletes the older segments.</p>
+ *
+ * <pre>
+ * &lt;txnmgr class="org.jpos.transaction.TransactionManager"&gt;
+ *   &lt;property name="journal" value="data/txnmgr" /&gt;
+ *   &lt;property name="journal-segment-size" value="16777216" /&gt;
+ *   &lt;property name="journal-sync" value="true" /&gt;
+ *   ...
+ * &lt;/txnmgr&gt;
+ * </pre>
+ *
+ * @since 3.0.2
+ */
+public class TransactionJournal implements Loggeable, MetricsProvider, AutoCloseable {
+    /** Default segment size (16 MiB). */
+    public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024L * 1024L;
+
+    private static final String SUFFIX = ".journal";
+    private static final int MAX_BATCH = 1024;
+    private static final int UNSET = -1;
+    private static final byte SNAPSHOT   = 1;
+    private static final byte GROUP      = 2;
+    private static final byte DONE       = 3;
+    private static final byte CHECKPOINT = 4;
+    private static final byte MARK       = 5;
+    private static final int HAS_STATE   = 1;
+    private static final int HAS_CONTEXT = 2;
+
+    private final Path dir;
+    private final long segmentSize;
+    private final boolean sync;
+    private final ContextCodec codec;
+    private final Map<Long,Entry> entries = new ConcurrentHashMap<>();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong maxId = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final Metrics metrics;
+    private final Thread writer;
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+    private volatile boolean closed;
+
+    /**
+     * Opens (or creates) a journal, replaying any existing segments.
+     *
+     * @param dir journal directory, created if necessary
+     * @param segmentSize size in bytes after which a checkpoint starts a new segment
+     * @param sync true to {@code fsync} every batch
+     * @throws IOException if the journal can not be read or created
+     */
+    public TransactionJournal (Path dir, long segmentSize, boolean sync) throws IOException {
+        this (dir, segmentSize, sync, Context.getCodec());
+    }
+
+    /**
+     * Opens (or creates) a journal that stores contexts with {@code codec}.
+     *
+     * @param dir journal directory, created if necessary
+     * @param segmentSize size in bytes after which a checkpoint starts a new segment
+     * @param sync true to {@code fsync} every batch
+     * @param codec context codec
+     * @throws IOException if the journal can not be read or created
+     */
+    public TransactionJournal (Path dir, long segmentSize, boolean sync, ContextCodec codec) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize > 0 ? segmentSize : DEFAULT_SEGMENT_SIZE;
+        this.sync = sync;
+        this.codec = codec;
+        this.metrics = new Metrics(new AtomicHistogram(TimeUnit.SECONDS.toNanos(60), 2));
+        this.metrics.setConversion(1_000_000.0);
+        Files.createDirectories(dir);
+        List<Long> segments = segments();
+        for (long seq : segments)
+            replay (segmentPath (seq));
+        segment = segments.isEmpty() ? 0L : segments.get(segments.size()-1);
+        checkpoint();
+        writer = Thread.ofPlatform().daemon().name("txn-journal-" + dir.getFileName()).start(this::writeLoop);
+    }
+
+    /**
+     * Records a context snapshot and, optionally, a new state for {@code id},
+     * returning once the record is durable.
+     *
+     * @param id transaction id
+     * @param context context to record, {@code null} to clear it
+     * @param state new state, or {@code null} to leave it unchanged; {@link TransactionManager#DONE} delegates to {@link #done(long)}
+     */
+    public void snapshot (long id, Serializable context, Integer state) {
+        if (TransactionManager.DONE.equals (state)) {
+            done (id);
+            return;
+        }
+        byte[] ctx = context != null ? serialize (context) : null;
+        Entry e = entries.computeIfAbsent (id, k -> new Entry());
+        synchronized (e) {
+            if (state != null)
+                e.state = state;
+            e.context = ctx;
+        }
+        append (SNAPSHOT, id, snapshotBody (state, ctx, true), true);
+    }
+
+    /**
+     * Records a new state for {@code id}, returning once the record is durable.
+     *
+     * @param id transaction id
+     * @param state new state
+     */
+    public void setState (long id, int state) {
+        if (state == TransactionManager.DONE) {
+            done (id);
+            return;
+        }
+        Entry e = entries.computeIfAbsent (id, k -> new Entry());
+        synchronized (e) {
+            e.state = state;
+        }
+        append (SNAPSHOT, id, snapshotBody (state, null, false), true);
+    }
+
+    /**
+     * Appends a group to the execution stack of {@code id}, returning once the record is durable.
+     *
+     * @param id transaction id
+     * @param groupName group name
+     */
+    public void addGroup (long id, String groupName) {
+        Entry e = entries.computeIfAbsent (id, k -> new Entry());
+        int index;
+        synchronized (e) {
+            index = e.groups.size();
+            e.groups.add (groupName);
+        }
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(b)) {
+            out.writeInt (index);
+            out.writeUTF (groupName);
+        } catch (IOException ex) {
+            throw new SpaceError (ex);
+        }
+        append (GROUP, id, b.toByteArray(), true);
+    }
+
+    /**
+     * Marks {@code id} as done. The transaction is kept in memory (see
+     * {@link #isDone(long)}) until {@link #forget(long)} is called.
+     *
+     * @param id transaction id
+     */
+    public void done (long id) {
+        Entry e = entries.get (id);
+        if (e == null) {
+            // nothing was journaled (recovery disabled), just track completion
+            e = new Entry();
+            e.state = TransactionManager.DONE;
+            if (entries.putIfAbsent (id, e) == null)
+                return;
+            e = entries.get (id);
+        }
+        synchronized (e) {
+            e.state = TransactionManager.DONE;
+            e.context = null;
+            e.groups.clear();
+        }
+        append (DONE, id, new byte[0], false);
+    }
+
+    /**
+     * Removes {@code id} from memory, journaling its completion if it was not done.
+     *
+     * @param id transaction id
+     */
+    public void forget (long id) {
+        Entry e = entries.remove (id);
+        if (e != null && e.state != TransactionManager.DONE)
+            append (DONE, id, new byte[0], false);
+    }
+
+    /**
+     * Tells whether {@code id} has been marked as done and not yet forgotten.
+     *
+     * @param id transaction id
+     * @return true if done
+     */
+    public boolean isDone (long id) {
+        Entry e = entries.get (id);
+        return e != null && e.state == TransactionManager.DONE;
+    }
+
+    /**
+     * Returns the recorded state of {@code id}.
+     *
+     * @param id transaction id
+     * @return state or {@code null} if unknown
+     */
+    public Integer getState (long id) {
+        Entry e = entries.get (id);
+        return e != null && e.state != UNSET ? e.state : null;
+    }
+
+    /**
+     * Returns the last context recorded for {@code id}.
+     *
+     * @param id transaction id
+     * @return context or {@code null}
+     */
+    public Serializable getContext (long id) {
+        Entry e = entries.get (id);
+        byte[] b;
+        if (e == null)
+            return null;
+        synchronized (e) {
+            b = e.context;
+        }
+        return b != null ? deserialize (b) : null;
+    }
+
+    /**
+     * Returns the groups recorded for {@code id}, in selection order.
+     *
+     * @param id transaction id
+     * @return groups, possibly empty
+     */
+    public List<String> getGroups (long id) {
+        Entry e = entries.get (id);
+        if (e == null)
+            return Collections.emptyList();
+        synchronized (e) {
+            return new ArrayList<>(e.groups);
+        }
+    }
+
+    /**
+     * Returns the ids of the transactions that are not done, in ascending order.
+     *
+     * @return pending transaction ids
+     */
+    public List<Long> getPendingIds () {
+        List<Long> l = new ArrayList<>();
+        entries.forEach ((id, e) -> {
+            if (e.state != UNSET && e.state != TransactionManager.DONE)
+                l.add (id);
+        });
+        Collections.sort (l);
+        return l;
+    }
+
+    /**
+     * Returns the highest transaction id ever seen by this journal.
+     *
+     * @return max transaction id, 0 if none
+     */
+    public long getMaxId () {
+        return maxId.get();
+    }
+
+    /**
+     * Returns the number of batches written.
+     *
+     * @return batches
+     */
+    public long getBatchCount () {
+        return batches.get();
+    }
+
+    /**
+     * Returns the number of records written.
+     *
+     * @return records
+     */
+    public long getRecordCount () {
+        return records.get();
+    }
+
+    /**
+     * Returns the number of checkpoints taken.
+     *
+     * @return checkpoints
+     */
+    public long getCheckpointCount () {
+        return checkpoints.get();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close () {
+        synchronized (queue) {
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public void dump (PrintStream p, String indent) {
+        p.printf ("%s<journal dir='%s' segment='%d' pending='%d' batches='%d' records='%d' checkpoints='%d'>%n",
+          indent, dir, segment, getPendingIds().size(), batches.get(), records.get(), checkpoints.get());
+        metrics.dump (p, indent + "  ");
+        p.printf ("%s</journal>%n", indent);
+    }
+
+    private void append (byte type, long id, byte[] body, boolean wait) {
+        maxId.accumulateAndGet (id, Math::max);
+        Pending p = new Pending (type, id, body, wait ? new CompletableFuture<>() : null, System.nanoTime());
+        // close() sets 'closed' under the same lock, so the writer sees every accepted entry
+        synchronized (queue) {
+            if (closed)
+                throw new SpaceError ("journal closed");
+            queue.add (p);
+        }
+        if (wait) {
+            try {
+                p.done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SpaceError (e);
+            } catch (ExecutionException e) {
+                throw new SpaceError (e.getCause());
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending p = queue.poll (100L, TimeUnit.MILLISECONDS);
+                if (p == null)
+                    continue;
+                batch.add (p);
+                queue.drainTo (batch, MAX_BATCH - 1);
+                write (batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        // only reached early if interrupted, don't leave appenders waiting
+        synchronized (queue) {
+            closed = true;
+        }
+        queue.drainTo (batch);
+        for (Pending p : batch)
+            if (p.done != null)
+                p.done.completeExceptionally (new SpaceError ("journal closed"));
+    }
+
+    private void write (List<Pending> batch) {
+        long start = System.nanoTime();
+        long mark = segmentBytes;
+        try {
+            ByteArrayOutputStream b = new ByteArrayOutputStream();
+            for (Pending p : batch)
+                b.write (encode (p.type, p.id, p.body));
+            writeFully (ByteBuffer.wrap (b.toByteArray()));
+            if (sync)
+                channel.force (false);
+        } catch (Throwable t) {
+            rollback (mark);
+            for (Pending p : batch)
+                if (p.done != null)
+                    p.done.completeExceptionally (t);
+            return;
+        }
+        batches.incrementAndGet();
+        records.addAndGet (batch.size());
+        long now = System.nanoTime();
+        metrics.record ("write", now - start);
+        for (Pending p : batch) {
+            metrics.record ("latency", now - p.enqueued);
+            if (p.done != null)
+                p.done.complete (null);
+        }
+        if (segmentBytes >= segmentSize) {
+            try {
+                checkpoint();
+            } catch (IOException ignored) {
+                // previous segments are kept, the next batch retries
+            }
+        }
+    }
+
+    /**
+     * Cuts a partially written batch off the current segment, so that a torn
+     * record does not hide the records appended after it on replay. If the
+     * segment can not be truncated, the journal moves on to a new segment.
+     */
+    private void rollback (long mark) {
+        if (truncate (mark))
+            return;
+        try {
+            checkpoint();
+        } catch (IOException ignored) {
+            // nothing else we can do, the next batch fails and retries
+        }
+    }
+
+    private boolean truncate (long mark) {
+        try {
+            channel.truncate (mark);
+            channel.position (mark);
+            segmentBytes = mark;
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts a new segment holding the state of every transaction in flight,
+     * then deletes the previous segments. Runs on the writer thread (or the
+     * constructor before it starts).
+     */
+    private void checkpoint () throws IOException {
+        long previous = segment;
+        if (channel != null)
+            channel.close();
+        segment = previous + 1;
+        channel = FileChannel.open (segmentPath (segment),
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        segmentBytes = 0L;
+
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        b.write (encode (MARK, maxId.get(), new byte[0]));
+        for (Map.Entry<Long,Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            byte[] body;
+            synchronized (e) {
+                if (e.state == UNSET || e.state == TransactionManager.DONE)
+                    continue;
+                ByteArrayOutputStream cb = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream (cb);
+                out.write (snapshotBody (e.state, e.context, true));
+                out.writeInt (e.groups.size());
+                for (String g : e.groups)
+                    out.writeUTF (g);
+                out.flush();
+                body = cb.toByteArray();
+            }
+            b.write (encode (CHECKPOINT, me.getKey(), body));
+        }
+        try {
+            writeFully (ByteBuffer.wrap (b.toByteArray()));
+            channel.force (true);
+        } catch (IOException e) {
+            // older segments still hold the full state, don't leave a torn checkpoint ahead of the next records
+            truncate (0L);
+            throw e;
+        }
+        for (long seq : segments()) {
+            if (seq < segment)
+                Files.deleteIfExists (segmentPath (seq));
+        }
+        checkpoints.incrementAndGet();
+    }
+
+    // package-private so that tests can simulate torn writes
+    void writeFully (ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining())
+            segmentBytes += channel.write (buf);
+    }
+
+    private void replay (Path path) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap (Files.readAllBytes (path));
+        while (buf.remaining() >= 4) {
+            int len = buf.getInt();
+            if (len < 9 || buf.remaining() < len + 4)
+                return; // torn write at the end of the segment
+            byte[] rec = new byte[len];
+            buf.get (rec);
+            CRC32 crc = new CRC32();
+            crc.update (rec);
+            if ((int) crc.getValue() != buf.getInt())
+                return;
+            ByteBuffer r = ByteBuffer.wrap (rec);
+            byte type = r.get();
+            long id = r.getLong();
+            byte[] body = new byte[r.remaining()];
+            r.get (body);
+            apply (type, id, body);
+        }
+    }
+
+    private void apply (byte type, long id, byte[] body) throws IOException {
+        maxId.accumulateAndGet (id, Math::max);
+        DataInputStream in = new DataInputStream (new ByteArrayInputStream (body));
+        switch (type) {
+            case SNAPSHOT: {
+                Entry e = entries.computeIfAbsent (id, k -> new Entry());
+                readSnapshot (in, e);
+                break;
+            }
+            case CHECKPOINT: {
+                Entry e = new Entry();
+                readSnapshot (in, e);
+                for (int i = in.readInt(); i > 0; i--)
+                    e.groups.add (in.readUTF());
+                entries.put (id, e);
+                break;
+            }
+            case GROUP: {
+                Entry e = entries.computeIfAbsent (id, k -> new Entry());
+                int index = in.readInt();
+                String groupName = in.readUTF();
+                if (e.groups.size() == index) // already part of a checkpoint otherwise
+                    e.groups.add (groupName);
+                break;
+            }
+            case DONE:
+                entries.remove (id);
+                break;
+            case MARK:
+                break;
+        }
+    }
+
+    private static byte[] snapshotBody (Integer state, byte[] ctx, boolean withContext) {
+        ByteBuffer b = ByteBuffer.allocate (9 + (ctx != null ? ctx.length : 0));
+        b.put ((byte) ((state != null ? HAS_STATE : 0) | (withContext ? HAS_CONTEXT : 0)));
+        b.putInt (state != null ? state : UNSET);
+        b.putInt (ctx != null ? ctx.length : -1);
+        if (ctx != null)
+            b.put (ctx);
+        return b.array();
+    }
+
+    private static void readSnapshot (DataInputStream in, Entry e) throws IOException {
+        int flags = in.readByte();
+        int state = in.readInt();
+        int len = in.readInt();
+        byte[] ctx = null;
+        if (len >= 0) {
+            ctx = new byte[len];
+            in.readFully (ctx);
+        }
+        if ((flags & HAS_STATE) != 0)
+            e.state = state;
+        if ((flags & HAS_CONTEXT) != 0)
+            e.context = ctx;
+    }
+
+    private static byte[] encode (byte type, long id, byte[] body) {
+        ByteBuffer b = ByteBuffer.allocate (4 + 9 + body.length + 4);
+        b.putInt (9 + body.length);
+        b.put (type);
+        b.putLong (id);
+        b.put (body);
+        CRC32 crc = new CRC32();
+        crc.update (b.array(), 4, 9 + body.length);
+        b.putInt ((int) crc.getValue());
+        return b.array();
+    }
+
+    private byte[] serialize (Serializable obj) {
+        try {
+            return codec.encode (obj);
+        } catch (IOException e) {
+            throw new SpaceError (e);
+        }
+    }
+
+    private Serializable deserialize (byte[] b) {
+        try {
+            return (Serializable) codec.decode (b);
+        } catch (IOException | ClassCastException e) {
+            throw new SpaceError (e);
+        }
+    }
+
+    private List<Long> segments () throws IOException {
+        TreeMap<Long,Path> m = new TreeMap<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream (dir, "*" + SUFFIX)) {
+            for (Path p : ds) {
+                String n = p.getFileName().toString();
+                try {
+                    m.put (Long.parseLong (n.substring (0, n.length() - SUFFIX.length())), p);
+                } catch (NumberFormatException ignored) { }
+            }
+        }
+        return new ArrayList<>(m.keySet());
+    }
+
+    private Path segmentPath (long seq) {
+        return dir.resolve (String.format ("%016d%s", seq, SUFFIX));
+    }
+
+    private static class Entry {
+        volatile int state = UNSET;
+        byte[] context;
+        final List<String> groups = new ArrayList<>();
+    }
+
+    private record Pending (byte type, long id, byte[] body, CompletableFuture<Void> done, long enqueued) { }
+}
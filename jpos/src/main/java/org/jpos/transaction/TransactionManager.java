@@ -30,21 +30,26 @@ import org.jpos.core.Configuration;
 import org.jpos.core.ConfigurationException;
 import org.jpos.log.evt.Txn;
 import org.jpos.metrics.MeterInfo;
-import org.jpos.function.TriConsumer;
 import org.jpos.function.TriFunction;
 import org.jpos.jfr.TMEvent;
 import org.jpos.metrics.MeterFactory;
 import org.jpos.q2.QBeanSupport;
 import org.jpos.q2.QFactory;
+import org.jpos.rc.CMF;
+import org.jpos.rc.IRC;
 import org.jpos.space.*;
 import org.jpos.util.*;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -52,10 +57,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.jpos.iso.ISOMsg;
 import org.jpos.iso.ISOUtil;
 import org.jpos.util.Metrics;
 
 import static org.jpos.transaction.ContextConstants.LOGEVT;
+import static org.jpos.transaction.ContextConstants.QUEUED;
 import static org.jpos.transaction.ContextConstants.TIMESTAMP;
 
 
@@ -64,8 +71,14 @@ import static org.jpos.transaction.ContextConstants.TIMESTAMP;
  *
  * <p>Reads contexts from a configured input space, walks each transaction
  * through its prepare/commit/abort lifecycle, and persists state to a
- * persistent space so in-flight transactions can be recovered after a
- * restart.</p>
+ * persistent space (or, when the {@code journal} property is set, to a
+ * {@link TransactionJournal}) so in-flight transactions can be recovered
+ * after a restart.</p>
+ *
+ * <p>Persisted contexts are encoded with the {@link Context#getCodec() Context codec}.
+ * A {@code <context-codec class="...">} element replaces it process-wide (see
+ * {@link Context#setCodec(ContextCodec)}), so that the persistent space, the
+ * journal and {@link Context#writeExternal} always agree.</p>
  */
 @SuppressWarnings("unchecked")
 public class TransactionManager
@@ -95,17 +108,22 @@ public class TransactionManager
     public static final long    MAX_PARTICIPANTS = 1000;  // loop prevention
     /** Default maximum time, in milliseconds, that a session waits for input. */
     public static final long    MAX_WAIT = 15000L;
+    private static final int    SUSPENDED = Integer.MIN_VALUE;
     /** Configured group-name to participant-list mapping. */
     protected Map<String,List<TransactionParticipant>> groups;
     private Set<Destroyable> destroyables = new HashSet<>();
     private static final ThreadLocal<Serializable> tlContext = new ThreadLocal<>();
     private static final ThreadLocal<Long> tlId = new ThreadLocal<>();
+    private static final String[] DEFAULT_PARTITION_FIELDS = { "2" };
     private Metrics metrics;
     private Map<TransactionParticipant,ParticipantParams> params = new HashMap<>();
+    private final Map<TransactionParticipant,ParticipantParams> unconfiguredParams = new ConcurrentHashMap<>();
     private long globalMaxTime;
 
     private Space<String,Object> sp;
     private Space<String,Object> psp;
+    private TransactionJournal journal;
+    private ContextCodec codec;
     private Space<String,Object> isp;  // real input space
     private Space<String,Object> iisp; // internal input space
     private String queue;
@@ -121,6 +139,7 @@ public class TransactionManager
     private int maxActiveTransactions;
     private final AtomicInteger activeSessions = new AtomicInteger();
     private final AtomicInteger pausedSessions = new AtomicInteger();
+    private final Queue<Transaction> resumed = new ConcurrentLinkedQueue<>();
 
     private final AtomicLong head = new AtomicLong();
     private final AtomicLong tail = new AtomicLong();
@@ -132,10 +151,25 @@ public class TransactionManager
     private Runnable retryTask = null;
     private TPS tps;
     private ExecutorService executor;
-    private final List<Meter> meters = new ArrayList<>();
+    private Lane[] lanes;
+    private Semaphore laneBacklog;
+    private String partitionKey;
+    private String[] partitionFields;
+    private final AtomicInteger unkeyed = new AtomicInteger();
+    private final List<Meter> meters = new CopyOnWriteArrayList<>();
 
     private Gauge activeSessionsGauge;
     private Counter transactionCounter;
+    private Counter deadlineAbortCounter;
+    private final AtomicLong deadlineAborts = new AtomicLong();
+    private long deadline;
+    private IRC deadlineIrc = CMF.ISSUER_TIMEOUT;
+    private Timer queueWaitTimer;
+    private Timer processTimer;
+    private Permits permits;
+    private AdaptiveLimit adaptive;
+    private long adaptiveInterval;
+    private volatile int sessionLimit;
     private boolean freezeLog;
     private UUID uuid = UUID.randomUUID();
 
@@ -152,7 +186,25 @@ public class TransactionManager
         sp  = SpaceFactory.getSpace (cfg.get ("space"));
         isp = iisp = SpaceFactory.getSpace (cfg.get ("input-space", cfg.get ("space")));
         psp  = SpaceFactory.getSpace (cfg.get ("persistent-space", this.toString()));
-        doRecover = cfg.getBoolean ("recover", psp instanceof PersistentSpace);
+        Element codecConfig = getPersist().getChild ("context-codec");
+        ContextCodec c = codecConfig != null ? getFactory().newInstance (codecConfig) : null;
+        if (c != null)
+            Context.setCodec (c);
+        codec = Context.getCodec();
+        String journalDir = cfg.get ("journal", null);
+        if (journalDir != null) {
+            try {
+                journal = new TransactionJournal (
+                  Paths.get (journalDir),
+                  cfg.getLong ("journal-segment-size", TransactionJournal.DEFAULT_SEGMENT_SIZE),
+                  cfg.getBoolean ("journal-sync", true),
+                  codec
+                );
+            } catch (IOException e) {
+                throw new ConfigurationException ("Unable to open journal " + journalDir, e);
+            }
+        }
+        doRecover = cfg.getBoolean ("recover", journal != null || psp instanceof PersistentSpace);
         tail.set(cfg.getLong ("initial-tail", 1));
         head.set(tail.get());
         groups = new HashMap<>();
@@ -168,6 +220,8 @@ public class TransactionManager
             tps.stop();
         tps = new TPS (cfg.getBoolean ("auto-update-tps", true));
         Thread.ofPlatform().start(this);
+        if (adaptive != null)
+            Thread.ofVirtual().name(getName() + "-adaptive-sessions").start(this::adjustSessions);
         if (psp.rdp (RETRY_QUEUE) != null)
             checkRetryTask();
 
@@ -196,12 +250,19 @@ public class TransactionManager
             }
         }
     }
+
+    @Override
+    protected void destroyService () {
+        if (journal != null)
+            journal.close();
+    }
     /**
      * Enqueues a context at the tail of the input queue (FIFO ordering).
      *
      * @param context serialisable transaction context
      */
     public void queue (Serializable context) {
+        markQueued(context);
         iisp.out(queue, context);
     }
     /**
@@ -210,8 +271,23 @@ public class TransactionManager
      * @param context serialisable transaction context
      */
     public void push (Serializable context) {
+        markQueued(context);
         iisp.push(queue, context);
     }
+
+    /**
+     * Stamps {@code context} with the time it is placed on an input queue, the
+     * reference for the {@code queue-wait} metric. Producers writing contexts
+     * to the input space directly should call it too; contexts that are not
+     * a {@link Context}, or carry no stamp, are not measured.
+     *
+     * @param context transaction context about to be queued
+     * @since 3.0.2
+     */
+    public static void markQueued (Serializable context) {
+        if (context instanceof Context ctx)
+            ctx.put (QUEUED, System.nanoTime());
+    }
     /**
      * Returns the configured input queue name.
      *
@@ -247,142 +323,167 @@ public class TransactionManager
         return psp;
     }
 
+    /**
+     * Returns the codec used to store contexts in the persistent space,
+     * the retry queue and the journal.
+     *
+     * @return context codec
+     * @since 3.0.2
+     */
+    public ContextCodec getContextCodec() {
+        return codec;
+    }
+
     @Override
     public void run () {
+        if (lanes != null) {
+            runPartitioned();
+            return;
+        }
         while (running()) {
-            if (heavyLoaded()) {
-                ISOUtil.sleep (100L);
-                getLog().info ("HeavyLoaded - active sessions: " + getActiveSessions());
+            try {
+                // a permit per session: wait exactly until one frees up, then take the next context in FIFO order
+                if (!permits.tryAcquire (MAX_WAIT, TimeUnit.MILLISECONDS)) {
+                    getLog().info ("HeavyLoaded - active sessions: " + getActiveSessions());
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                continue;
+            }
+            Object obj = iisp.inp (queue);
+            if (obj == null) {
+                // don't sit on the permit while idle, paused transactions need it to resume
+                releasePermit();
+                iisp.rd (queue, MAX_WAIT);
                 continue;
             }
-            Object obj = iisp.in (queue, MAX_WAIT);
             if (obj instanceof Serializable context) {
-                if (getActiveSessions() <= maxSessions) {
-                    if (context instanceof Context ctx)
-                        ctx.log ("active=%d, maxSessions=%d".formatted(getActiveSessions(), maxSessions));
-                    int session = activeSessions.incrementAndGet();
-                    transactionCounter.increment();
-                    executor.execute(() -> {
-                        try {
-                            runTransaction(context, session);
-                        } finally {
-                            activeSessions.decrementAndGet();
-                        }
-                    });
-                }
-                else {
-                    iisp.push(queue, context);  // push it back
-                    ISOUtil.sleep(100L);
+                try {
+                    executor.execute(() -> process (context, null));
+                } catch (RejectedExecutionException e) {
+                    releasePermit();
+                    iisp.push (queue, context);
+                    if (running())
+                        getLog().warn ("dispatch", e);
                 }
+            } else {
+                releasePermit();
             }
         }
     }
 
-    private void runTransaction (Serializable context, int session) {
-        long id = 0;
-        List<TransactionParticipant> members;
-        Iterator<TransactionParticipant> iter;
-        boolean abort;
-        LogEvent evt;
-        Profiler prof;
-        Thread thread = Thread.currentThread();
-
-        prof = null;
-        evt = null;
-        thread.setName (getName() + "-" + session + ":idle");
-        int action = -1;
-        id = head.getAndIncrement ();
-        TMEvent tme = new TMEvent(getName(), id);
-        Txn txn = new Txn(getName(), id);
-
-        tme.begin();
-        try {
-            setThreadLocal(id, context);
-            if (hasStatusListeners)
-                notifyStatusListeners (session, TransactionStatusEvent.State.READY, id, "", null);
-
-            Chronometer chronometer = new Chronometer(getStart(context));
-
-            abort = false;
-            members = new ArrayList<> ();
-            iter = getParticipants (DEFAULT_GROUP).iterator();
-            evt = new LogEvent()
-              .withSource(log)
-              .withTraceId(getTraceId(id));
-            evt.addMessage(txn);
-            evt.addMessage(context);
-            prof = new Profiler();
-            snapshot (id, context, PREPARING);
-            action = prepare (session, id, context, members, iter, abort, evt, prof, chronometer);
-            switch (action) {
-                case PREPARED:
-                    if (members.size() > 0) {
-                        setState(id, COMMITTING);
-                        commit(session, id, context, members, false, evt, prof);
-                    }
-                    break;
-                case ABORTED:
-                    if (members.size() > 0) {
-                        abort(session, id, context, members, false, evt, prof);
-                    }
-                    break;
-                case RETRY:
-                    psp.out (RETRY_QUEUE, context);
-                    checkRetryTask();
-                    break;
-                case NO_JOIN:
-                    break;
-            }
-            snapshot (id, null, DONE);
-            if (id == tail.get()) {
-                checkTail ();
-            } else {
-                purge (id, false);
+    /**
+     * Partitioned dispatch: contexts are appended to the lane selected by
+     * their partition key; each lane runs its transactions one at a time,
+     * taking a session permit for each of them. When the key is an ISOMsg,
+     * the lane is selected by its {@code partition-field} values (field 2
+     * unless configured, several fields may be joined as in {@code 41+11}).
+     */
+    private void runPartitioned () {
+        while (running()) {
+            try {
+                if (!laneBacklog.tryAcquire (MAX_WAIT, TimeUnit.MILLISECONDS)) {
+                    getLog().info ("HeavyLoaded - lane backlog: " + Arrays.toString (getLaneDepths()));
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                continue;
             }
-            tps.tick();
-        } catch (Throwable t) {
-            if (evt == null)
-                getLog().fatal (t); // should never happen
+            Object obj = iisp.in (queue, MAX_WAIT);
+            if (obj instanceof Serializable context)
+                lanes[laneOf (context)].add (context);
             else
-                evt.addMessage (t);
-        } finally {
-            removeThreadLocal();
-            if (hasStatusListeners) {
-                notifyStatusListeners (
-                  session,
-                  TransactionStatusEvent.State.DONE,
-                  id, "", context);
-            }
-            if (evt != null && (action == PREPARED || action == ABORTED || (action == -1 && prof != null))) {
-                switch (action) {
-                    case PREPARED :
-                        evt.setTag("commit");
-                        break;
-                    case ABORTED :
-                        evt.setTag ("abort");
-                        break;
-                    case -1:
-                        evt.setTag ("undefined");
-                        break;
-                }
-                if (getInTransit() > Math.max(maxActiveTransactions, activeSessions.get()) * 100L) {
-                    evt.addMessage("WARNING: IN-TRANSIT TOO HIGH");
-                }
-                evt.addMessage (
-                  String.format (" %s, elapsed=%dms",
-                    tmInfo(),
-                    prof.getElapsedInMillis()
-                  )
-                );
-                evt.addMessage (prof);
-                try {
-                    Logger.log(freeze(context, evt, prof));
-                } catch (Throwable t) {
-                    getLog().error(t);
-                }
+                laneBacklog.release();
+        }
+    }
+
+    /**
+     * Runs a transaction on the calling thread, which must hold a session permit.
+     *
+     * @param lane the partition lane running the transaction, or {@code null}
+     * @return {@code false} if the transaction was suspended on an
+     *         {@link AsyncTransactionParticipant} stage; its completion resumes
+     *         the transaction (and its lane) on a new session
+     */
+    private boolean process (Serializable context, Lane lane) {
+        long start = System.nanoTime();
+        long queueWait = 0L;
+        if (context instanceof Context ctx && ctx.get (QUEUED) instanceof Long queued) {
+            ctx.remove (QUEUED);
+            queueWait = TimeUnit.NANOSECONDS.toMillis (start - queued);
+            metrics.record ("queue-wait", queueWait);
+            queueWaitTimer.record (queueWait, TimeUnit.MILLISECONDS);
+        }
+        int session = activeSessions.incrementAndGet();
+        if (context instanceof Context ctx)
+            ctx.log ("active=%d, maxSessions=%d, queue-wait=%dms".formatted(session, maxSessions, queueWait));
+        transactionCounter.increment();
+        return new Transaction (context, session, queueWait, start, lane).begin();
+    }
+
+    /**
+     * Periodically moves the session limit to the value computed by the
+     * {@link AdaptiveLimit}, releasing or withdrawing session permits.
+     */
+    private void adjustSessions () {
+        while (running()) {
+            ISOUtil.sleep (adaptiveInterval);
+            int limit = adaptive.update (getActiveSessions(), Math.max (0, getOutstandingTransactions()));
+            int delta = limit - sessionLimit;
+            if (delta > 0) {
+                permits.release (delta);
+                resumeWaiting();
             }
-            tme.commit();
+            else if (delta < 0)
+                permits.reduce (-delta);
+            sessionLimit = limit;
+        }
+    }
+
+    private int laneOf (Serializable context) {
+        Object key = null;
+        if (context instanceof Context ctx) {
+            key = ctx.get (partitionKey);
+            if (key instanceof ISOMsg m)
+                key = partitionValue (m, partitionFields != null ? partitionFields : DEFAULT_PARTITION_FIELDS);
+            else if (partitionFields != null)
+                key = null;
+        }
+        if (key == null) // no ordering requirement, spread it
+            return Math.floorMod (unkeyed.getAndIncrement(), lanes.length);
+        int h = key.hashCode();
+        return Math.floorMod (h ^ (h >>> 16), lanes.length);
+    }
+
+    /**
+     * Extracts the ordering key from a message (by default its PAN), so that
+     * lanes never hash an ISOMsg by identity.
+     */
+    private static String partitionValue (ISOMsg m, String[] fields) {
+        if (fields.length == 1)
+            return m.getString (fields[0]);
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) {
+            String v = m.getString (f);
+            if (v == null)
+                return null;
+            sb.append (v).append ('|');
         }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the number of transactions waiting in each partition lane.
+     *
+     * @return lane depths, empty if partitioned mode is not configured
+     */
+    public int[] getLaneDepths () {
+        if (lanes == null)
+            return new int[0];
+        int[] depths = new int[lanes.length];
+        for (int i=0; i<lanes.length; i++)
+            depths[i] = lanes[i].depth();
+        return depths;
     }
 
     @Override
@@ -416,6 +517,8 @@ public class TransactionManager
         threshold = cfg.getInt ("threshold", sessions / 2);
         maxSessions = cfg.getInt ("max-sessions", sessions);
         globalMaxTime = cfg.getLong("max-time", 0L);
+        deadline = cfg.getLong ("deadline", 0L);
+        deadlineIrc = irc (cfg.get ("deadline-irc", CMF.ISSUER_TIMEOUT.name()));
         if (maxSessions < sessions)
             throw new ConfigurationException("max-sessions < sessions");
         if (maxActiveTransactions > 0) {
@@ -425,6 +528,42 @@ public class TransactionManager
                 throw new ConfigurationException("max-active-sessions < max-sessions");
         }
         callSelectorOnAbort = cfg.getBoolean("call-selector-on-abort", true);
+        permits = new Permits(maxSessions);
+        String adaptiveMode = cfg.get ("adaptive-sessions", "none");
+        if (!"none".equalsIgnoreCase (adaptiveMode)) {
+            try {
+                adaptive = new AdaptiveLimit (
+                  AdaptiveLimit.mode (adaptiveMode), sessions, maxSessions,
+                  cfg.getDouble ("adaptive-tolerance", 1.5), cfg.getDouble ("adaptive-backoff", 0.9)
+                );
+            } catch (IllegalArgumentException e) {
+                throw new ConfigurationException ("invalid adaptive-sessions '" + adaptiveMode + "' (none, aimd or gradient expected)");
+            }
+            adaptiveInterval = cfg.getLong ("adaptive-interval", 1000L);
+            permits.reduce (maxSessions - sessions);
+            sessionLimit = sessions;
+        } else {
+            adaptive = null;
+            sessionLimit = maxSessions;
+        }
+        int partitions = cfg.getInt ("partitions", 0);
+        if (partitions > 0) {
+            partitionKey = cfg.get ("partition-key", ContextConstants.REQUEST.toString());
+            String fields = cfg.get ("partition-field", null);
+            partitionFields = fields != null ? fields.split ("\\+", -1) : null;
+            if (partitionFields != null) {
+                for (String f : partitionFields) {
+                    if (f.isBlank())
+                        throw new ConfigurationException ("invalid partition-field '" + fields + "'");
+                }
+            }
+            laneBacklog = new Semaphore (cfg.getInt ("partition-backlog", Math.max (1000, partitions * 10)));
+            lanes = new Lane[partitions];
+            for (int i=0; i<partitions; i++)
+                lanes[i] = new Lane(i);
+        } else {
+            lanes = null;
+        }
         metrics = new Metrics(new AtomicHistogram(cfg.getLong("metrics-highest-trackable-value", 60000), 2));
         abortOnMisconfiguredGroups = cfg.getBoolean("abort-on-misconfigured-groups");
 
@@ -435,8 +574,39 @@ public class TransactionManager
             transactionCounter = MeterFactory.counter
               (getServer().getMeterRegistry(), MeterInfo.TM_COUNTER, Tags.of("name", getName())
             );
+            deadlineAbortCounter = MeterFactory.counter
+              (getServer().getMeterRegistry(), MeterInfo.TM_DEADLINE_ABORT, Tags.of("name", getName())
+            );
+            queueWaitTimer = MeterFactory.timer
+              (getServer().getMeterRegistry(), MeterInfo.TM_QUEUE_WAIT, Tags.of("name", getName())
+            );
+            processTimer = MeterFactory.timer
+              (getServer().getMeterRegistry(), MeterInfo.TM_PROCESS, Tags.of("name", getName())
+            );
             meters.add(activeSessionsGauge);
+            if (adaptive != null) {
+                meters.add (MeterFactory.gauge
+                  (getServer().getMeterRegistry(), MeterInfo.TM_SESSION_LIMIT, Tags.of("name", getName()), BaseUnits.SESSIONS, this::getSessionLimit)
+                );
+                meters.add (MeterFactory.gauge
+                  (getServer().getMeterRegistry(), MeterInfo.TM_SESSION_RTT, Tags.of("name", getName(), "window", "short"), "ms", () -> adaptive.getShortRtt() / 1_000_000.0)
+                );
+                meters.add (MeterFactory.gauge
+                  (getServer().getMeterRegistry(), MeterInfo.TM_SESSION_RTT, Tags.of("name", getName(), "window", "long"), "ms", () -> adaptive.getLongRtt() / 1_000_000.0)
+                );
+            }
+            if (lanes != null) {
+                for (Lane lane : lanes) {
+                    meters.add (MeterFactory.gauge
+                      (getServer().getMeterRegistry(), MeterInfo.TM_LANE_DEPTH,
+                        Tags.of("name", getName(), "lane", Integer.toString(lane.index)), BaseUnits.TASKS, lane::depth)
+                    );
+                }
+            }
             meters.add(transactionCounter);
+            meters.add(deadlineAbortCounter);
+            meters.add(queueWaitTimer);
+            meters.add(processTimer);
         } catch (Exception e) {
             throw new ConfigurationException (e);
         }
@@ -514,6 +684,14 @@ public class TransactionManager
         if (metrics != null) {
             metrics.dump(ps, indent);
         }
+        if (journal != null)
+            journal.dump(ps, indent);
+        if (lanes != null)
+            ps.printf ("%slanes=%s%n", indent, Arrays.toString (getLaneDepths()));
+        if (adaptive != null)
+            ps.printf ("%sadaptive=%s, session-limit=%d [%d..%d], short-rtt=%.2fms, long-rtt=%.2fms%n",
+              indent, adaptive.getMode(), sessionLimit, sessions, maxSessions,
+              adaptive.getShortRtt() / 1_000_000.0, adaptive.getLongRtt() / 1_000_000.0);
     }
 
     /**
@@ -532,27 +710,7 @@ public class TransactionManager
     protected void commit
         (int session, long id, Serializable context, List<TransactionParticipant> members, boolean recover, LogEvent evt, Profiler prof)
     {
-        for (TransactionParticipant p :members) {
-            var jfr = new TMEvent.Commit("%s:%s".formatted(getName(), p.getClass().getName()), id);
-            jfr.begin();
-            ParticipantParams pp = getParams(p);
-            if (recover && p instanceof ContextRecovery cr) {
-                context = recover (cr, id, context, pp, true);
-                if (evt != null)
-                    evt.addMessage (Trace.of("commit-recover", getName(p)));
-            }
-            if (hasStatusListeners)
-                notifyStatusListeners (
-                    session, TransactionStatusEvent.State.COMMITING, id, getName(p), context
-                );
-            commitOrAbort (p, id, context, pp, this::commit);
-            if (evt != null) {
-                evt.addMessage (Trace.of("commit", getName(p)));
-                if (prof != null)
-                    prof.checkPoint (" commit: " + getName(p));
-            }
-            jfr.commit();
-        }
+        new Transaction (session, id, context, members, null, false, recover, evt, prof, null).complete (true);
     }
     /**
      * Walks {@code members} in order, invoking each participant's abort phase
@@ -570,25 +728,7 @@ public class TransactionManager
     protected void abort
         (int session, long id, Serializable context, List<TransactionParticipant> members, boolean recover, LogEvent evt, Profiler prof)
     {
-        for (TransactionParticipant p :members) {
-            ParticipantParams pp = getParams(p);
-            if (recover && p instanceof ContextRecovery cr) {
-                context = recover (cr, id, context, pp, true);
-                if (evt != null)
-                    evt.addMessage (Trace.of("abort-recover", getName(p)));
-            }
-            if (hasStatusListeners)
-                notifyStatusListeners (
-                    session, TransactionStatusEvent.State.ABORTING, id, getName(p), context
-                );
-
-            commitOrAbort (p, id, context, pp, this::abort);
-            if (evt != null) {
-                evt.addMessage (Trace.of("abort", getName(p)));
-                if (prof != null)
-                    prof.checkPoint ("  abort: " + getName(p));
-            }
-        }
+        new Transaction (session, id, context, members, null, false, recover, evt, prof, null).complete (false);
     }
     /**
      * Invokes {@link AbortParticipant#prepareForAbort(long, Serializable)} on
@@ -604,7 +744,7 @@ public class TransactionManager
     protected int prepareForAbort
         (TransactionParticipant p, long id, Serializable context)
     {
-        Chronometer c = new Chronometer();
+        long start = System.nanoTime();
         try {
             if (p instanceof AbortParticipant) {
                 setThreadName(id, "prepareForAbort", p);
@@ -613,9 +753,8 @@ public class TransactionManager
         } catch (Throwable t) {
             logParticipantWarning("PREPARE-FOR-ABORT: " + id, p, t);
         } finally {
-            getParams(p).timers.prepareForAbortTimer.record (c.elapsed(), TimeUnit.MILLISECONDS);
-            if (metrics != null)
-                metrics.record(getName(p) + "-prepare-for-abort", c.elapsed());
+            Timers timers = getParams(p).timers;
+            record (timers.prepareForAbortTimer, timers.prepareForAbortKey, System.nanoTime() - start);
         }
         return ABORTED | NO_JOIN;
     }
@@ -631,17 +770,17 @@ public class TransactionManager
     protected int prepare
         (TransactionParticipant p, long id, Serializable context)
     {
-        Chronometer c = new Chronometer();
+        long start = System.nanoTime();
         try {
             setThreadName(id, "prepare", p);
+            if (p instanceof AsyncTransactionParticipant ap)
+                return await (ap.prepareAsync (id, context));
             return p.prepare (id, context);
         } catch (Throwable t) {
             logParticipantWarning("PREPARE: " + id, p, t);
         } finally {
-            getParams(p).timers.prepareTimer.record (c.elapsed(), TimeUnit.MILLISECONDS);
-            if (metrics != null) {
-                metrics.record(getName(p) + "-prepare", c.elapsed());
-            }
+            Timers timers = getParams(p).timers;
+            record (timers.prepareTimer, timers.prepareKey, System.nanoTime() - start);
         }
         return ABORTED;
     }
@@ -656,16 +795,18 @@ public class TransactionManager
     protected void commit
         (TransactionParticipant p, long id, Serializable context)
     {
-        Chronometer c = new Chronometer();
+        long start = System.nanoTime();
         try {
             setThreadName(id, "commit", p);
-            p.commit(id, context);
+            if (p instanceof AsyncTransactionParticipant ap)
+                await (ap.commitAsync (id, context));
+            else
+                p.commit(id, context);
         } catch (Throwable t) {
             logParticipantWarning("COMMIT: " + id, p, t);
         } finally {
-            getParams(p).timers.commitTimer.record (c.elapsed(), TimeUnit.MILLISECONDS);
-            if (metrics != null)
-                metrics.record(getName(p) + "-commit", c.elapsed());
+            Timers timers = getParams(p).timers;
+            record (timers.commitTimer, timers.commitKey, System.nanoTime() - start);
         }
     }
     /**
@@ -679,16 +820,18 @@ public class TransactionManager
     protected void abort
         (TransactionParticipant p, long id, Serializable context)
     {
-        Chronometer c = new Chronometer();
+        long start = System.nanoTime();
         try {
             setThreadName(id, "abort", p);
-            p.abort(id, context);
+            if (p instanceof AsyncTransactionParticipant ap)
+                await (ap.abortAsync (id, context));
+            else
+                p.abort(id, context);
         } catch (Throwable t) {
             logParticipantWarning("ABORT: " + id, p, t);
         } finally {
-            getParams(p).timers.abortTimer.record (c.elapsed(), TimeUnit.MILLISECONDS);
-            if (metrics != null)
-                metrics.record(getName(p) + "-abort", c.elapsed());
+            Timers timers = getParams(p).timers;
+            record (timers.abortTimer, timers.abortKey, System.nanoTime() - start);
         }
     }
     /**
@@ -710,122 +853,7 @@ public class TransactionManager
     protected int prepare
         (int session, long id, Serializable context, List<TransactionParticipant> members, Iterator<TransactionParticipant> iter, boolean abort, LogEvent evt, Profiler prof, Chronometer chronometer)
     {
-        boolean retry = false;
-        for (int i=0; iter.hasNext (); i++) {
-            int action;
-            if (i > MAX_PARTICIPANTS) {
-                getLog().warn (
-                    "loop detected - transaction " +id + " aborted."
-                );
-                return ABORTED;
-            }
-            TransactionParticipant p = iter.next();
-
-            ParticipantParams pp = getParams(p);
-            if (!abort && pp.maxTime > 0 && chronometer.elapsed() > pp.maxTime) {
-                abort = true;
-                if (evt != null)
-                    evt.addMessage("    forcedAbort: " + getName(p) + " elapsed=" + chronometer.elapsed());
-            }
-
-            TMEvent jfr;
-            if (abort) {
-                jfr = new TMEvent.PrepareForAbort("%s:%s".formatted(getName(), p.getClass().getName()), id);
-                jfr.begin();
-                if (hasStatusListeners)
-                    notifyStatusListeners (
-                        session, TransactionStatusEvent.State.PREPARING_FOR_ABORT, id, getName(p), context
-                    );
-
-                action = prepareOrAbort (p, id, context, pp, this::prepareForAbort);
-
-                if (evt != null && p instanceof AbortParticipant) {
-                    evt.addMessage(Trace.of("prepareForAbort", getName(p)));
-                    if (prof != null)
-                        prof.checkPoint ("prepareForAbort: " + getName(p));
-                }
-            } else {
-                if (hasStatusListeners)
-                    notifyStatusListeners (
-                        session, TransactionStatusEvent.State.PREPARING, id, getName(p), context
-                    );
-
-                jfr = new TMEvent.Prepare("%s:%s".formatted(getName(), p.getClass().getName()), id);
-                jfr.begin();
-
-                chronometer.lap();
-                action = prepareOrAbort (p, id, context, pp, this::prepare);
-                boolean timeout = pp.timeout > 0 && chronometer.partial() > pp.timeout;
-                boolean maxTime = pp.maxTime > 0 && chronometer.elapsed() > pp.maxTime;
-                if (timeout || maxTime)
-                    action &= (PREPARED ^ 0xFFFF);
-
-                abort  = (action & PREPARED) == ABORTED;
-                retry  = (action & RETRY) == RETRY;
-
-                if (evt != null) {
-                    evt.addMessage (Trace.of("prepare", getName(p),
-                            (abort ? " ABORTED" : " PREPARED")
-                            + (timeout ? " TIMEOUT" : "")
-                            + (maxTime ? " MAX_TIMEOUT" : "")
-                            + (retry ? " RETRY" : "")
-                            + ((action & READONLY) == READONLY ? " READONLY" : "")
-                            + ((action & NO_JOIN) == NO_JOIN ? " NO_JOIN" : ""))
-                    );
-                    if (prof != null)
-                        prof.checkPoint ("prepare: " + getName(p));
-                }
-            }
-
-            if ((action & READONLY) == 0) {
-                Chronometer c = new Chronometer();
-                snapshot (id, context);
-                getParams(p).timers.snapshotTimer.record (c.elapsed(), TimeUnit.MILLISECONDS);
-                if (metrics != null)
-                    metrics.record(getName(p) + "-snapshot", c.elapsed());
-            }
-            if ((action & NO_JOIN) == 0) {
-                members.add (p);
-            }
-            if (p instanceof GroupSelector && ((action & PREPARED) == PREPARED || callSelectorOnAbort)) {
-                String groupName = null;
-                Chronometer c = new Chronometer();
-                try {
-                    groupName = ((GroupSelector)p).select (id, context);
-                } catch (Exception e) {
-                    if (evt != null) 
-                        evt.addMessage ("       selector: " + getName(p) + " " + e.getMessage());
-                    else 
-                        getLog().error ("       selector: " + getName(p) + " " + e.getMessage());
-                } finally {
-                    if (metrics != null)
-                        metrics.record(getName(p) + "-selector", c.lap());
-                }
-                if (evt != null) {
-                    evt.addMessage (Trace.of("selector", groupName, ""));
-                }
-                if (groupName != null) {
-                    StringTokenizer st = new StringTokenizer (groupName, " ,");
-                    List<TransactionParticipant> participants = new ArrayList();
-                    while (st.hasMoreTokens ()) {
-                        String grp = st.nextToken();
-                        addGroup (id, grp);
-                        if (evt != null && groups.get(grp) == null) {
-                            evt.addMessage ("                 WARNING: group '" + grp + "' not configured");
-                            if (abortOnMisconfiguredGroups)
-                                abort = true;
-                        }
-                        participants.addAll (getParticipants (grp));
-                    }
-                    while (iter.hasNext())
-                        participants.add (iter.next());
-
-                    iter = participants.iterator();
-                }
-            }
-            jfr.commit();
-        }
-        return abort ? retry ? RETRY : ABORTED : PREPARED;
+        return new Transaction (session, id, context, members, iter, abort, false, evt, prof, chronometer).prepare();
     }
     /**
      * Returns the configured participants for a named group.
@@ -855,6 +883,11 @@ public class TransactionManager
         List<TransactionParticipant> participants = getParticipants (DEFAULT_GROUP);
         // Add DEFAULT_GROUP participants 
         participantsChain.addAll(participants);
+        if (journal != null) {
+            for (String grp : journal.getGroups (id))
+                participantsChain.addAll (getParticipants (grp));
+            return participantsChain;
+        }
         String key = getKey(GROUPS, id);
         String grp;
         // now add participants of Group 
@@ -957,7 +990,7 @@ public class TransactionManager
                 getSet(e.getChild("requires")),
                 getSet(e.getChild("provides")),
                 getSet(e.getChild("optional")),
-                getOrCreateTimers(participant)
+                getOrCreateTimers(participant, participantShortName)
               )
             );
         } catch (Exception ex) {
@@ -1033,6 +1066,13 @@ public class TransactionManager
      * @return {@code true} when the tail transaction has reached terminal state
      */
     protected boolean tailDone () {
+        if (journal != null) {
+            if (journal.isDone (tail.get())) {
+                journal.forget (tail.get());
+                return true;
+            }
+            return false;
+        }
         String stateKey = getKey(STATE, tail.get());
         if (DONE.equals (psp.rdp (stateKey))) {
             purge (tail.get(), true);
@@ -1065,12 +1105,17 @@ public class TransactionManager
         var jfr = new TMEvent.Snapshot(getName()+":"+status, id);
         jfr.begin();
 
+        if (journal != null) {
+            journal.snapshot (id, context, status);
+            jfr.commit();
+            return;
+        }
         String contextKey = getKey (CONTEXT, id);
         synchronized (psp) {
             commitOff (psp);
             SpaceUtil.wipe(psp, contextKey);
             if (context != null)
-                psp.out (contextKey, context);
+                psp.out (contextKey, encode (context));
 
             if (status != null) {
                 String stateKey  = getKey (STATE, id);
@@ -1080,6 +1125,28 @@ public class TransactionManager
         }
         jfr.commit();
     }
+
+    // contexts go to a persistent space as codec images, other spaces get them as is
+    private Serializable encode (Serializable context) {
+        if (!(psp instanceof PersistentSpace))
+            return context;
+        try {
+            return new EncodedContext (codec.encode (context));
+        } catch (IOException e) {
+            throw new SpaceError (e);
+        }
+    }
+
+    private Serializable decode (Object obj) {
+        if (!(obj instanceof EncodedContext ec))
+            return (Serializable) obj; // not encoded, or stored by an earlier version
+        try {
+            return (Serializable) codec.decode (ec.image());
+        } catch (IOException e) {
+            throw new SpaceError (e);
+        }
+    }
+
     /**
      * Atomically replaces the persisted lifecycle state for {@code id}.
      *
@@ -1087,6 +1154,11 @@ public class TransactionManager
      * @param state new state, or {@code null} to clear it
      */
     protected void setState (long id, Integer state) {
+        if (journal != null) {
+            if (state != null)
+                journal.setState (id, state);
+            return;
+        }
         String stateKey  = getKey (STATE, id);
         synchronized (psp) {
             commitOff (psp);
@@ -1103,8 +1175,12 @@ public class TransactionManager
      * @param groupName group to schedule, or {@code null} for a no-op
      */
     protected void addGroup (long id, String groupName) {
-        if (groupName != null)
-            psp.out (getKey (GROUPS, id), groupName);
+        if (groupName != null) {
+            if (journal != null)
+                journal.addGroup (id, groupName);
+            else
+                psp.out (getKey (GROUPS, id), groupName);
+        }
     }
     /**
      * Removes persistent state associated with a transaction.
@@ -1114,6 +1190,11 @@ public class TransactionManager
      *             (otherwise only context and group entries are cleared)
      */
     protected void purge (long id, boolean full) {
+        if (journal != null) {
+            if (full)
+                journal.forget (id);
+            return;
+        }
         String stateKey   = getKey (STATE, id);
         String contextKey = getKey (CONTEXT, id);
         String groupsKey  = getKey (GROUPS, id);
@@ -1130,8 +1211,26 @@ public class TransactionManager
     /**
      * Replays every in-flight transaction recorded in the persistent space,
      * advancing the tail pointer as each completes. No-op when recovery is disabled.
+     * When a {@link TransactionJournal} is configured, its pending transactions are
+     * replayed instead (or discarded if recovery is disabled) and the head and tail
+     * pointers move past the highest journaled id.
      */
     protected void recover () {
+        if (journal != null) {
+            List<Long> pending = journal.getPendingIds();
+            if (!pending.isEmpty())
+                getLog().info ("recover - journal pending=" + pending.size() + (doRecover ? "" : " (discarded)"));
+            for (long id : pending) {
+                if (doRecover)
+                    recover (id);
+                else
+                    journal.forget (id);
+            }
+            long next = Math.max (tail.get(), journal.getMaxId() + 1);
+            tail.set (next);
+            head.set (next);
+            return;
+        }
         if (doRecover) {
             if (tail.get() < head.get()) {
                 getLog().info ("recover - tail=" +tail.get()+", head="+head.get());
@@ -1152,15 +1251,27 @@ public class TransactionManager
         Profiler prof = new Profiler();
         evt.addMessage ("<id>" + id + "</id>");
         try {
-            String stateKey   = getKey (STATE, id);
-            String contextKey = getKey (CONTEXT, id);
-            Integer state = (Integer) psp.rdp (stateKey);
-            if (state == null) {
-                evt.addMessage ("unknown stateKey " + stateKey);
-                SpaceUtil.wipe (psp, contextKey);   // just in case ...
-                return;
+            Integer state;
+            Serializable context;
+            if (journal != null) {
+                state = journal.getState (id);
+                if (state == null) {
+                    evt.addMessage ("unknown journal entry " + id);
+                    journal.forget (id);
+                    return;
+                }
+                context = journal.getContext (id);
+            } else {
+                String stateKey   = getKey (STATE, id);
+                String contextKey = getKey (CONTEXT, id);
+                state = (Integer) psp.rdp (stateKey);
+                if (state == null) {
+                    evt.addMessage ("unknown stateKey " + stateKey);
+                    SpaceUtil.wipe (psp, contextKey);   // just in case ...
+                    return;
+                }
+                context = decode (psp.rdp (contextKey));
             }
-            Serializable context = (Serializable) psp.rdp (contextKey);
             if (context != null)
                 evt.addMessage (context);
 
@@ -1202,6 +1313,9 @@ public class TransactionManager
         return freezeLog ? new FrozenLogEvent(evt) : evt;
     }
 
+    // context stored as a ContextCodec image
+    private record EncodedContext (byte[] image) implements Serializable { }
+
     /**
      * Background task that periodically pushes any contexts written to the
      * {@link #RETRY_QUEUE} back onto the input queue.
@@ -1213,9 +1327,11 @@ public class TransactionManager
         public void run() {
             Thread.currentThread().setName (getName()+"-retry-task");
             while (running()) {
-                for (Serializable context; (context = (Serializable)psp.rdp (RETRY_QUEUE)) != null;) 
+                for (Object context; (context = psp.rdp (RETRY_QUEUE)) != null;) 
                 {
-                    iisp.out (queue, context, retryTimeout);
+                    Serializable ctx = decode (context);
+                    markQueued (ctx);
+                    iisp.out (queue, ctx, retryTimeout);
                     psp.inp (RETRY_QUEUE);
                 }
                 ISOUtil.sleep(retryInterval);
@@ -1290,6 +1406,11 @@ public class TransactionManager
     public int getMaxSessions() {
         return maxSessions;
     }
+
+    @Override
+    public int getSessionLimit() {
+        return sessionLimit;
+    }
     /**
      * Returns the current thread's transaction context as a raw {@link Serializable}.
      *
@@ -1347,12 +1468,22 @@ public class TransactionManager
     }
 
     private ParticipantParams getParams (TransactionParticipant p) {
-        return Optional.ofNullable(params.get(p)).orElseGet(() ->
-          new ParticipantParams(defaultParticipantName(p), 0L, 0L, Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
-            getOrCreateTimers(p))
+        ParticipantParams pp = params.get(p);
+        if (pp != null)
+            return pp;
+        // participant not created through createParticipant, build its meters once
+        return unconfiguredParams.computeIfAbsent(p, k ->
+          new ParticipantParams(defaultParticipantName(k), 0L, 0L, Collections.emptySet(), Collections.emptySet(), Collections.emptySet(),
+            getOrCreateTimers(k, defaultParticipantName(k)))
         );
     }
 
+    private void record (Timer timer, String key, long nanos) {
+        timer.record (nanos, TimeUnit.NANOSECONDS);
+        if (metrics != null)
+            metrics.record (key, TimeUnit.NANOSECONDS.toMillis (nanos));
+    }
+
     private String participantName(TransactionParticipant p, String alias) {
         String resolvedAlias = alias != null ? alias.trim() : "";
         return !resolvedAlias.isEmpty() ? resolvedAlias : defaultParticipantName(p);
@@ -1366,14 +1497,35 @@ public class TransactionManager
         Logger.log(getLog().createWarn(detail).withTag("participant", getName(participant)).add(t));
     }
 
+    /**
+     * Returns the number of transactions that took the abort path because
+     * their {@link Context#getDeadline() deadline} expired before a participant ran.
+     *
+     * @return deadline aborts since this transaction manager was configured
+     * @since 3.0.2
+     */
+    public long getDeadlineAborts () {
+        return deadlineAborts.get();
+    }
+
     private String tmInfo() {
-        return String.format ("in-transit=%d, head=%d, tail=%d, paused=%d, outstanding=%d, active-sessions=%d/%d%s",
+        return String.format ("in-transit=%d, head=%d, tail=%d, paused=%d, outstanding=%d, active-sessions=%d/%d, deadline-aborts=%d%s",
           getInTransit(), head.get(), tail.get(), pausedSessions.get(), getOutstandingTransactions(),
-          getActiveSessions(), maxSessions,
+          getActiveSessions(), sessionLimit, deadlineAborts.get(),
           (tps != null ? ", " + tps : "")
         );
     }
 
+    private static IRC irc (String s) throws ConfigurationException {
+        IRC irc = null;
+        try {
+            irc = s.chars().allMatch(Character::isDigit) ? CMF.valueOf (Integer.parseInt(s)) : CMF.valueOf (s);
+        } catch (IllegalArgumentException ignored) { }
+        if (irc == null)
+            throw new ConfigurationException ("invalid deadline-irc '" + s + "'");
+        return irc;
+    }
+
     private long getLong (Element e, String attributeName, long defValue) {
         String s = QFactory.getAttributeValue (e, attributeName);
         if (s != null) {
@@ -1393,10 +1545,6 @@ public class TransactionManager
         return Instant.now();
     }
 
-    private boolean heavyLoaded() {
-        return getActiveSessions() >= maxSessions;
-    }
-
     private int pauseAndWait(Serializable context, int action) {
         if (context instanceof Pausable pausable) try {
             pausedSessions.incrementAndGet();
@@ -1420,7 +1568,621 @@ public class TransactionManager
     }
 
     /**
-     * Per-participant configuration: short name, timeouts, dependency sets,
+     * Waits, bounded by {@code pause-timeout}, for an {@link AsyncTransactionParticipant}
+     * stage invoked outside of a dispatched transaction (recovery, or the
+     * protected participant loops called directly). Transactions dispatched
+     * by this manager never wait here; see {@link Transaction}.
+     */
+    private <T> T await (CompletionStage<T> stage)
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        CompletableFuture<T> f = stage.toCompletableFuture();
+        try {
+            return f.get (pauseTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            f.cancel (false);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a session permit back, handing it over to a resumed transaction
+     * if there is one waiting.
+     */
+    private void releasePermit () {
+        permits.release();
+        resumeWaiting();
+    }
+
+    /**
+     * Dispatches resumed transactions while session permits are available.
+     * It runs whenever a permit is released, so a transaction whose async
+     * stage has completed gets the next free session ahead of the input queue.
+     */
+    private void resumeWaiting () {
+        while (!resumed.isEmpty() && permits.tryAcquire()) {
+            Transaction t = resumed.poll();
+            if (t == null) {
+                permits.release();
+                continue;
+            }
+            try {
+                executor.execute (t);
+            } catch (RejectedExecutionException e) {
+                t.run(); // shutting down, finish it here
+            }
+        }
+    }
+
+    private enum Phase { START, PREPARE, COMMIT, ABORT }
+
+    /**
+     * A transaction in progress.
+     *
+     * <p>The participant loops keep their position here rather than on the
+     * stack, so that a transaction waiting on an {@link AsyncTransactionParticipant}
+     * stage gives up both its session and its thread. Much like
+     * {@link Pausable#resume(int)} completes a paused transaction, the stage's
+     * completion (or {@code pause-timeout}, which aborts it) queues the
+     * transaction to continue on the next free session.</p>
+     *
+     * <p>Transactions created by the protected {@code prepare}, {@code commit}
+     * and {@code abort} loops are not dispatched by this manager and run
+     * their async participants synchronously.</p>
+     */
+    private final class Transaction implements Runnable {
+        private final int session;
+        private final long id;
+        private final boolean suspendable;
+        private final boolean recover;
+        private Serializable context;
+        private List<TransactionParticipant> members;
+        private Iterator<TransactionParticipant> iter;
+        private boolean abort;
+        private boolean retry;
+        private int step;
+        private LogEvent evt;
+        private Profiler prof;
+        private Chronometer chronometer;
+        private TMEvent jfr;
+
+        private long queueWait;
+        private long start;
+        private Lane lane;
+        private TMEvent tme;
+        private Txn txn;
+        private Phase phase = Phase.START;
+        private int action = -1;
+        private boolean holdsSession;
+
+        private CompletableFuture<?> pending;
+        private TransactionParticipant pendingParticipant;
+        private Serializable view;
+        private long pendingStart;
+
+        Transaction (Serializable context, int session, long queueWait, long start, Lane lane) {
+            this.context = context;
+            this.session = session;
+            this.queueWait = queueWait;
+            this.start = start;
+            this.lane = lane;
+            this.suspendable = true;
+            this.recover = false;
+            this.holdsSession = true;
+            this.id = head.getAndIncrement ();
+        }
+
+        Transaction (int session, long id, Serializable context, List<TransactionParticipant> members, Iterator<TransactionParticipant> iter,
+                     boolean abort, boolean recover, LogEvent evt, Profiler prof, Chronometer chronometer) {
+            this.session = session;
+            this.id = id;
+            this.context = context;
+            this.members = members;
+            this.iter = iter;
+            this.abort = abort;
+            this.recover = recover;
+            this.evt = evt;
+            this.prof = prof;
+            this.chronometer = chronometer;
+            this.suspendable = false;
+        }
+
+        /**
+         * Starts the transaction on the dispatching thread.
+         *
+         * @return {@code false} if it was suspended
+         */
+        boolean begin () {
+            Thread.currentThread().setName (getName() + "-" + session + ":idle");
+            tme = new TMEvent(getName(), id);
+            txn = new Txn(getName(), id);
+            tme.begin();
+            return proceed();
+        }
+
+        /**
+         * Continues the transaction once its pending stage has completed, on
+         * a session acquired by {@link #resumeWaiting()}.
+         */
+        @Override
+        public void run () {
+            activeSessions.incrementAndGet();
+            holdsSession = true;
+            if (proceed() && lane != null)
+                lane.resume();
+        }
+
+        private boolean proceed () {
+            try {
+                setThreadLocal(id, context);
+                if (phase == Phase.START) {
+                    if (hasStatusListeners)
+                        notifyStatusListeners (session, TransactionStatusEvent.State.READY, id, "", null);
+                    chronometer = new Chronometer(getStart(context));
+                    members = new ArrayList<> ();
+                    iter = getParticipants (DEFAULT_GROUP).iterator();
+                    evt = new LogEvent()
+                      .withSource(log)
+                      .withTraceId(getTraceId(id));
+                    evt.addMessage(txn);
+                    evt.addMessage(context);
+                    prof = new Profiler();
+                    if (deadline > 0L && context instanceof Context c && c.getDeadline() == null)
+                        c.setDeadline (getStart(context).plusMillis(deadline));
+                    snapshot (id, context, PREPARING);
+                    phase = Phase.PREPARE;
+                }
+                if (phase == Phase.PREPARE) {
+                    int result = prepare();
+                    if (result == SUSPENDED)
+                        return suspend();
+                    action = result;
+                    step = 0;
+                    switch (action) {
+                        case PREPARED:
+                            if (members.size() > 0) {
+                                setState(id, COMMITTING);
+                                phase = Phase.COMMIT;
+                            }
+                            break;
+                        case ABORTED:
+                            if (members.size() > 0)
+                                phase = Phase.ABORT;
+                            break;
+                        case RETRY:
+                            psp.out (RETRY_QUEUE, encode (context));
+                            checkRetryTask();
+                            break;
+                        case NO_JOIN:
+                            break;
+                    }
+                }
+                if ((phase == Phase.COMMIT || phase == Phase.ABORT) && !complete (phase == Phase.COMMIT))
+                    return suspend();
+                snapshot (id, null, DONE);
+                if (id == tail.get()) {
+                    checkTail ();
+                } else {
+                    purge (id, false);
+                }
+                tps.tick();
+            } catch (Throwable t) {
+                if (evt == null)
+                    getLog().fatal (t); // should never happen
+                else
+                    evt.addMessage (t);
+            }
+            end();
+            return true;
+        }
+
+        /**
+         * Gives up the session and the thread until the pending stage completes.
+         */
+        private boolean suspend () {
+            CompletableFuture<?> f = pending;
+            removeThreadLocal();
+            releaseSession();
+            pausedSessions.incrementAndGet();
+            f.orTimeout (pauseTimeout, TimeUnit.MILLISECONDS).whenComplete ((r, t) -> {
+                pausedSessions.decrementAndGet();
+                resumed.add (this);
+                resumeWaiting();
+            });
+            return false;
+        }
+
+        private void end () {
+            removeThreadLocal();
+            if (hasStatusListeners) {
+                notifyStatusListeners (
+                  session,
+                  TransactionStatusEvent.State.DONE,
+                  id, "", context);
+            }
+            if (evt != null && (action == PREPARED || action == ABORTED || (action == -1 && prof != null))) {
+                switch (action) {
+                    case PREPARED :
+                        evt.setTag("commit");
+                        break;
+                    case ABORTED :
+                        evt.setTag ("abort");
+                        break;
+                    case -1:
+                        evt.setTag ("undefined");
+                        break;
+                }
+                if (getInTransit() > Math.max(maxActiveTransactions, activeSessions.get()) * 100L) {
+                    evt.addMessage("WARNING: IN-TRANSIT TOO HIGH");
+                }
+                evt.addMessage (
+                  String.format (" %s, queue-wait=%dms, elapsed=%dms",
+                    tmInfo(),
+                    queueWait,
+                    prof.getElapsedInMillis()
+                  )
+                );
+                evt.addMessage (prof);
+                try {
+                    Logger.log(freeze(context, evt, prof));
+                } catch (Throwable t) {
+                    getLog().error(t);
+                }
+            }
+            tme.commit();
+            releaseSession();
+            long elapsed = System.nanoTime() - start;
+            metrics.record ("process", TimeUnit.NANOSECONDS.toMillis(elapsed));
+            processTimer.record (elapsed, TimeUnit.NANOSECONDS);
+            if (adaptive != null)
+                adaptive.sample (elapsed);
+        }
+
+        private void releaseSession () {
+            if (holdsSession) {
+                holdsSession = false;
+                activeSessions.decrementAndGet();
+                releasePermit();
+            }
+        }
+
+        /**
+         * Invokes an async participant phase.
+         *
+         * @return {@code true} if its stage is already done, otherwise the
+         *         stage is left pending and the transaction has to suspend
+         */
+        private boolean call (TransactionParticipant p, String method, Supplier<CompletionStage<?>> stage, Serializable view) {
+            setThreadName (id, method, p);
+            pendingParticipant = p;
+            pendingStart = System.nanoTime();
+            this.view = view;
+            try {
+                pending = stage.get().toCompletableFuture();
+            } catch (Throwable t) {
+                pending = CompletableFuture.failedFuture (t);
+            }
+            return pending.isDone();
+        }
+
+        /**
+         * Takes the result of the pending stage, logging failures and
+         * recording timers the way the synchronous phase methods do.
+         */
+        private int join (String method) {
+            CompletableFuture<?> f = pending;
+            TransactionParticipant p = pendingParticipant;
+            pending = null;
+            try {
+                return f.join() instanceof Integer result ? result : ABORTED;
+            } catch (Throwable t) {
+                logParticipantWarning (
+                  method + ": " + id, p, t instanceof CompletionException && t.getCause() != null ? t.getCause() : t
+                );
+                return ABORTED;
+            } finally {
+                Timers timers = getParams(p).timers;
+                long elapsed = System.nanoTime() - pendingStart;
+                switch (method) {
+                    case "PREPARE" -> record (timers.prepareTimer, timers.prepareKey, elapsed);
+                    case "COMMIT" -> record (timers.commitTimer, timers.commitKey, elapsed);
+                    default -> record (timers.abortTimer, timers.abortKey, elapsed);
+                }
+            }
+        }
+
+        /**
+         * Drives the prepare phase, see
+         * {@link TransactionManager#prepare(int, long, Serializable, List, Iterator, boolean, LogEvent, Profiler, Chronometer)}.
+         *
+         * @return the outcome, or {@code SUSPENDED}
+         */
+        int prepare () {
+            if (pending != null) {
+                TransactionParticipant p = pendingParticipant;
+                ParticipantParams pp = getParams(p);
+                afterPrepare (p, pp, TransactionManager.this.prepared (id, context, pp, view, join ("PREPARE")));
+                step++;
+            }
+            for (; iter.hasNext (); step++) {
+                if (step > MAX_PARTICIPANTS) {
+                    getLog().warn (
+                        "loop detected - transaction " +id + " aborted."
+                    );
+                    return ABORTED;
+                }
+                TransactionParticipant p = iter.next();
+
+                ParticipantParams pp = getParams(p);
+                if (!abort && pp.maxTime > 0 && chronometer.elapsed() > pp.maxTime) {
+                    abort = true;
+                    if (evt != null)
+                        evt.addMessage("    forcedAbort: " + getName(p) + " elapsed=" + chronometer.elapsed());
+                }
+                if (!abort && context instanceof Context ctx && ctx.isExpired()) {
+                    abort = true;
+                    ctx.getResult().fail (deadlineIrc, getName(), "deadline expired before %s", getName(p));
+                    deadlineAborts.incrementAndGet();
+                    if (deadlineAbortCounter != null)
+                        deadlineAbortCounter.increment();
+                    if (evt != null)
+                        evt.addMessage("    deadline: " + getName(p) + " elapsed=" + chronometer.elapsed());
+                }
+
+                if (abort) {
+                    jfr = new TMEvent.PrepareForAbort("%s:%s".formatted(getName(), p.getClass().getName()), id);
+                    jfr.begin();
+                    if (hasStatusListeners)
+                        notifyStatusListeners (
+                            session, TransactionStatusEvent.State.PREPARING_FOR_ABORT, id, getName(p), context
+                        );
+
+                    int action = prepareOrAbort (p, id, context, pp, TransactionManager.this::prepareForAbort);
+
+                    if (evt != null && p instanceof AbortParticipant) {
+                        evt.addMessage(Trace.of("prepareForAbort", getName(p)));
+                        if (prof != null)
+                            prof.checkPoint ("prepareForAbort: " + getName(p));
+                    }
+                    joined (p, pp, action);
+                } else {
+                    if (hasStatusListeners)
+                        notifyStatusListeners (
+                            session, TransactionStatusEvent.State.PREPARING, id, getName(p), context
+                        );
+
+                    jfr = new TMEvent.Prepare("%s:%s".formatted(getName(), p.getClass().getName()), id);
+                    jfr.begin();
+
+                    chronometer.lap();
+                    Serializable c = prepareView (context, pp);
+                    int action;
+                    if (c != null && suspendable && p instanceof AsyncTransactionParticipant ap) {
+                        if (!call (p, "prepare", () -> ap.prepareAsync (id, c), c))
+                            return SUSPENDED;
+                        action = join ("PREPARE");
+                    } else {
+                        action = c != null ? TransactionManager.this.prepare (p, id, c) : ABORTED;
+                    }
+                    afterPrepare (p, pp, TransactionManager.this.prepared (id, context, pp, c, action));
+                }
+            }
+            return abort ? retry ? RETRY : ABORTED : PREPARED;
+        }
+
+        private void afterPrepare (TransactionParticipant p, ParticipantParams pp, int action) {
+            boolean timeout = pp.timeout > 0 && chronometer.partial() > pp.timeout;
+            boolean maxTime = pp.maxTime > 0 && chronometer.elapsed() > pp.maxTime;
+            if (timeout || maxTime)
+                action &= (PREPARED ^ 0xFFFF);
+
+            abort  = (action & PREPARED) == ABORTED;
+            retry  = (action & RETRY) == RETRY;
+            if (retry)
+                pp.timers.retryCounter.increment();
+            else if (abort)
+                pp.timers.abortCounter.increment();
+
+            if (evt != null) {
+                evt.addMessage (Trace.of("prepare", getName(p),
+                        (abort ? " ABORTED" : " PREPARED")
+                        + (timeout ? " TIMEOUT" : "")
+                        + (maxTime ? " MAX_TIMEOUT" : "")
+                        + (retry ? " RETRY" : "")
+                        + ((action & READONLY) == READONLY ? " READONLY" : "")
+                        + ((action & NO_JOIN) == NO_JOIN ? " NO_JOIN" : ""))
+                );
+                if (prof != null)
+                    prof.checkPoint ("prepare: " + getName(p));
+            }
+            joined (p, pp, action);
+        }
+
+        private void joined (TransactionParticipant p, ParticipantParams pp, int action) {
+            if ((action & READONLY) == 0) {
+                long start = System.nanoTime();
+                snapshot (id, context);
+                record (pp.timers.snapshotTimer, pp.timers.snapshotKey, System.nanoTime() - start);
+            }
+            if ((action & NO_JOIN) == 0) {
+                members.add (p);
+            }
+            if (p instanceof GroupSelector && ((action & PREPARED) == PREPARED || callSelectorOnAbort)) {
+                String groupName = null;
+                Chronometer c = new Chronometer();
+                try {
+                    groupName = ((GroupSelector)p).select (id, context);
+                } catch (Exception e) {
+                    if (evt != null) 
+                        evt.addMessage ("       selector: " + getName(p) + " " + e.getMessage());
+                    else 
+                        getLog().error ("       selector: " + getName(p) + " " + e.getMessage());
+                } finally {
+                    if (metrics != null)
+                        metrics.record(pp.timers.selectorKey, c.lap());
+                }
+                if (evt != null) {
+                    evt.addMessage (Trace.of("selector", groupName, ""));
+                }
+                if (groupName != null) {
+                    StringTokenizer st = new StringTokenizer (groupName, " ,");
+                    List<TransactionParticipant> participants = new ArrayList();
+                    while (st.hasMoreTokens ()) {
+                        String grp = st.nextToken();
+                        addGroup (id, grp);
+                        if (evt != null && groups.get(grp) == null) {
+                            evt.addMessage ("                 WARNING: group '" + grp + "' not configured");
+                            if (abortOnMisconfiguredGroups)
+                                abort = true;
+                        }
+                        participants.addAll (getParticipants (grp));
+                    }
+                    while (iter.hasNext())
+                        participants.add (iter.next());
+
+                    iter = participants.iterator();
+                }
+            }
+            jfr.commit();
+        }
+
+        /**
+         * Drives the commit (or abort) phase over {@code members}, see
+         * {@link TransactionManager#commit(int, long, Serializable, List, boolean, LogEvent, Profiler)}.
+         *
+         * @return {@code false} if suspended
+         */
+        boolean complete (boolean commit) {
+            String method = commit ? "COMMIT" : "ABORT";
+            if (pending != null) {
+                TransactionParticipant p = pendingParticipant;
+                join (method);
+                completed (p, getParams(p), view, commit);
+                step++;
+            }
+            for (; step < members.size(); step++) {
+                TransactionParticipant p = members.get(step);
+                if (commit) {
+                    jfr = new TMEvent.Commit("%s:%s".formatted(getName(), p.getClass().getName()), id);
+                    jfr.begin();
+                } else {
+                    jfr = null;
+                }
+                ParticipantParams pp = getParams(p);
+                if (recover && p instanceof ContextRecovery cr) {
+                    context = TransactionManager.this.recover (cr, id, context, pp, true);
+                    if (evt != null)
+                        evt.addMessage (Trace.of(commit ? "commit-recover" : "abort-recover", getName(p)));
+                }
+                if (hasStatusListeners)
+                    notifyStatusListeners (
+                        session, commit ? TransactionStatusEvent.State.COMMITING : TransactionStatusEvent.State.ABORTING,
+                        id, getName(p), context
+                    );
+                Serializable c = commitView (context, pp);
+                if (suspendable && p instanceof AsyncTransactionParticipant ap) {
+                    if (!call (p, method.toLowerCase(), () -> commit ? ap.commitAsync (id, c) : ap.abortAsync (id, c), c))
+                        return false;
+                    join (method);
+                } else if (commit) {
+                    TransactionManager.this.commit (p, id, c);
+                } else {
+                    TransactionManager.this.abort (p, id, c);
+                }
+                completed (p, pp, c, commit);
+            }
+            return true;
+        }
+
+        private void completed (TransactionParticipant p, ParticipantParams pp, Serializable view, boolean commit) {
+            if (view != context && view instanceof Context c && context instanceof Context ctx)
+                ctx.merge(c.clone(pp.provides.toArray()));
+            if (evt != null) {
+                evt.addMessage (Trace.of(commit ? "commit" : "abort", getName(p)));
+                if (prof != null)
+                    prof.checkPoint ((commit ? " commit: " : "  abort: ") + getName(p));
+            }
+            if (jfr != null)
+                jfr.commit();
+        }
+    }
+
+    /**
+     * Session permits; the adaptive controller withdraws permits with
+     * {@link #reduce(int)} (possibly below zero while sessions drain) and
+     * gives them back with {@link #release(int)}.
+     */
+    private static final class Permits extends Semaphore {
+        Permits (int permits) {
+            super (permits);
+        }
+        void reduce (int n) {
+            reducePermits (n);
+        }
+    }
+
+    /**
+     * Ordered partition lane. Transactions added to a lane run one at a time,
+     * in arrival order, on an executor thread that exists only while the
+     * lane has work. A transaction suspended on an async participant keeps
+     * the lane busy; its completion resumes the lane.
+     */
+    private class Lane implements Runnable {
+        final int index;
+        final ArrayDeque<Serializable> queue = new ArrayDeque<>();
+        boolean running;
+
+        Lane (int index) {
+            this.index = index;
+        }
+
+        void add (Serializable context) {
+            synchronized (this) {
+                queue.addLast (context);
+                if (running)
+                    return;
+                running = true;
+            }
+            resume();
+        }
+
+        void resume () {
+            try {
+                executor.execute (this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    running = false;
+                }
+                if (running())
+                    getLog().warn ("dispatch lane " + index, e);
+            }
+        }
+
+        synchronized int depth () {
+            return queue.size();
+        }
+
+        @Override
+        public void run () {
+            for (;;) {
+                Serializable context;
+                synchronized (this) {
+                    context = queue.pollFirst();
+                    if (context == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                laneBacklog.release();
+                permits.acquireUninterruptibly();
+                if (!process (context, this))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Per-participant configuration: short name, timeouts, dependency sets,
      * and the timer bundle used to record per-phase metrics.
      *
      * @param name     short name used in trace messages and timer tags
@@ -1445,12 +2207,24 @@ public class TransactionManager
             return !requires.isEmpty() || !optional.isEmpty();
         }
     }
+    /**
+     * Per-participant meter handles and {@link Metrics} keys, created once
+     * so the hot path records without building names or tags.
+     */
     private record Timers (
         io.micrometer.core.instrument.Timer prepareTimer,
         io.micrometer.core.instrument.Timer prepareForAbortTimer,
         io.micrometer.core.instrument.Timer commitTimer,
         io.micrometer.core.instrument.Timer abortTimer,
-        io.micrometer.core.instrument.Timer snapshotTimer)
+        io.micrometer.core.instrument.Timer snapshotTimer,
+        Counter abortCounter,
+        Counter retryCounter,
+        String prepareKey,
+        String prepareForAbortKey,
+        String commitKey,
+        String abortKey,
+        String snapshotKey,
+        String selectorKey)
     { }
     /**
      * Single line of participant trace data accumulated on a {@link LogEvent}
@@ -1498,31 +2272,45 @@ public class TransactionManager
     }
 
     private int prepareOrAbort (TransactionParticipant p, long id, Serializable context, ParticipantParams pp, TriFunction<TransactionParticipant, Long, Serializable, Integer> preparationFunction) {
-        int action;
+        Serializable c = prepareView (context, pp);
+        return prepared (id, context, pp, c, c != null ? preparationFunction.apply(p, id, c) : ABORTED);
+    }
 
+    /**
+     * Returns the context a participant is prepared with: the context itself,
+     * or a clone limited to its {@code requires} and {@code optional} entries
+     * if it is constrained ({@code null}, logged, when a required entry is missing).
+     */
+    private Serializable prepareView (Serializable context, ParticipantParams pp) {
         if (context instanceof Context ctx && pp.isConstrained()) {
             if (!ctx.hasKeys(pp.requires.toArray())) {
                 ctx.log ("missing.requires: '%s'".formatted(ctx.keysNotPresent(pp.requires.toArray())));
-                action = ABORTED;
-            } else {
-                Context c = ctx.clone(pp.requires.toArray(), pp.optional.toArray());
-                action = preparationFunction.apply(p, id, c);
-                if (!pp.requires.contains(LOGEVT.toString())) {
-                    // if we are not inheriting parent's log event and there's a log event
-                    // in the childs context, copy it.
-                    LogEvent evt = c.get(LOGEVT.toString());
-                    if (evt != null) {
-                        LogEvent parentLogEvent = ctx.getLogEvent();
-                        synchronized (parentLogEvent) {
-                            parentLogEvent.getPayLoad().addAll(evt.getPayLoad());
-                        }
-                        c.remove(LOGEVT.toString());
+                return null;
+            }
+            return ctx.clone(pp.requires.toArray(), pp.optional.toArray());
+        }
+        return context;
+    }
+
+    /**
+     * Merges what a constrained participant {@code provides} back into the
+     * context, and waits on a {@code PAUSE} result.
+     */
+    private int prepared (long id, Serializable context, ParticipantParams pp, Serializable view, int action) {
+        if (view != context && view instanceof Context c && context instanceof Context ctx) {
+            if (!pp.requires.contains(LOGEVT.toString())) {
+                // if we are not inheriting parent's log event and there's a log event
+                // in the childs context, copy it.
+                LogEvent evt = c.get(LOGEVT.toString());
+                if (evt != null) {
+                    LogEvent parentLogEvent = ctx.getLogEvent();
+                    synchronized (parentLogEvent) {
+                        parentLogEvent.getPayLoad().addAll(evt.getPayLoad());
                     }
+                    c.remove(LOGEVT.toString());
                 }
-                ctx.merge(c.clone(pp.provides.toArray()));
             }
-        } else {
-            action = preparationFunction.apply(p, id, context);
+            ctx.merge(c.clone(pp.provides.toArray()));
         }
         if ((action & PAUSE) == PAUSE) {
             var jfrp = new TMEvent.Pause(getName(), id);
@@ -1533,14 +2321,9 @@ public class TransactionManager
         return action;
     }
 
-    private void commitOrAbort (TransactionParticipant p, long id, Serializable context, ParticipantParams pp, TriConsumer<TransactionParticipant, Long, Serializable> preparationFunction) {
-        if (context instanceof Context ctx && pp.isConstrained()) {
-            Context c = ctx.clone(pp.requires.toArray(), pp.optional.toArray());
-            preparationFunction.accept(p, id, c);
-            ctx.merge(c.clone(pp.provides.toArray()));
-        } else {
-            preparationFunction.accept(p, id, context);
-        }
+    private Serializable commitView (Serializable context, ParticipantParams pp) {
+        return context instanceof Context ctx && pp.isConstrained() ?
+          ctx.clone(pp.requires.toArray(), pp.optional.toArray()) : context;
     }
 
     private Serializable recover (ContextRecovery p, long id, Serializable context, ParticipantParams pp, boolean commit) {
@@ -1560,27 +2343,32 @@ public class TransactionManager
         }
     }
 
-    private Timers getOrCreateTimers(TransactionParticipant p) {
+    private Timers getOrCreateTimers(TransactionParticipant p, String participantShortName) {
         return Optional.ofNullable(params.get(p)).map(ParticipantParams::timers).orElseGet(() -> {
-            String participantShortName = Optional.ofNullable(params.get(p))
-              .map(ParticipantParams::name)
-              .orElseGet(() -> defaultParticipantName(p));
             var mr = getServer().getMeterRegistry();
             var tags = Tags.of("name", getName(), "participant", participantShortName);
             String realm = (p instanceof LogSource ls) ? ls.getRealm() : null;
             tags = tags.and("realm", (realm != null && !realm.isEmpty()) ? realm.trim() : "");
 
             return new Timers(
-              addTimer(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "prepare"))),
-              addTimer(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "prepare-for-abort"))),
-              addTimer(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "commit"))),
-              addTimer(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "abort"))),
-              addTimer(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "snapshot")))
+              addMeter(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "prepare"))),
+              addMeter(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "prepare-for-abort"))),
+              addMeter(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "commit"))),
+              addMeter(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "abort"))),
+              addMeter(MeterFactory.timer(mr, MeterInfo.TM_OPERATION, tags.and("phase", "snapshot"))),
+              addMeter(MeterFactory.counter(mr, MeterInfo.TM_PARTICIPANT, tags.and("result", "aborted"))),
+              addMeter(MeterFactory.counter(mr, MeterInfo.TM_PARTICIPANT, tags.and("result", "retry"))),
+              participantShortName + "-prepare",
+              participantShortName + "-prepare-for-abort",
+              participantShortName + "-commit",
+              participantShortName + "-abort",
+              participantShortName + "-snapshot",
+              participantShortName + "-selector"
             );
         });
     }
 
-    private Timer addTimer (Timer m) {
+    private <T extends Meter> T addMeter (T m) {
         meters.add (m);
         return m;
     }
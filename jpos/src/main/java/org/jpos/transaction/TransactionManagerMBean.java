@@ -57,6 +57,14 @@ public interface TransactionManagerMBean extends QBeanSupportMBean {
      * @return maximum session count
      */
     int getMaxSessions();
+    /**
+     * Returns the current session limit: {@code max-sessions}, or the value
+     * chosen by the adaptive controller when {@code adaptive-sessions} is set.
+     *
+     * @return effective session limit
+     * @since 3.0.2
+     */
+    int getSessionLimit();
     /**
      * Returns a human-readable summary of TPS statistics.
      *
@@ -23,6 +23,7 @@ import org.jpos.core.Configuration;
 import org.jpos.core.ConfigurationException;
 import org.jpos.space.Space;
 import org.jpos.space.SpaceFactory;
+import org.jpos.transaction.TransactionManager;
 import org.jpos.transaction.TransactionParticipant;
 
 import java.io.Serializable;
@@ -39,6 +40,7 @@ public class Forward implements TransactionParticipant, Configurable  {
     String queue;
     long timeout;
     public int prepare (long id, Serializable o) {
+        TransactionManager.markQueued (o);
         sp.out (queue, o, timeout);
         return PREPARED | READONLY | NO_JOIN;
     }
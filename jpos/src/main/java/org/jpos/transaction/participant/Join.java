@@ -19,31 +19,71 @@
 package org.jpos.transaction.participant;
 
 import org.jdom2.Element;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
 import org.jpos.core.ConfigurationException;
 import org.jpos.core.XmlConfigurable;
 import org.jpos.transaction.AbortParticipant;
+import org.jpos.transaction.Context;
 import org.jpos.transaction.TransactionConstants;
 import org.jpos.transaction.TransactionManager;
 import org.jpos.transaction.TransactionParticipant;
+import org.jpos.util.Profiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Transaction participant that runs a list of nested participants concurrently
  * (one virtual thread each) and merges their lifecycle results.
+ *
+ * <p>Every phase is a scope: branches are forked on virtual threads and,
+ * without a deadline, the phase does not return before all of them have
+ * finished. A {@code deadline} (prepare and prepareForAbort) or
+ * {@code commit-deadline} (commit and abort) bounds the phase: branches still
+ * running when it expires are interrupted and abandoned, the phase returns
+ * right away and, in the prepare phases, they count as {@code ABORTED}.
+ * Cancellation is best effort, a branch that ignores the interrupt keeps
+ * running in the background (holding its {@code max-concurrency} slot)
+ * until it returns. With
+ * {@code cancel-on-failure}, a prepare branch that aborts, asks for a retry or
+ * throws interrupts its siblings. {@code max-concurrency} caps the number of
+ * branches running at the same time across all transactions.</p>
+ *
+ * <p>When the context is a {@link Context}, each branch's elapsed time is
+ * added to its {@link Profiler} as {@code join-<phase>:<participant>}.</p>
+ *
+ * <pre>
+ * &lt;participant class="org.jpos.transaction.participant.Join"&gt;
+ *   &lt;property name="deadline" value="2000" /&gt;
+ *   &lt;property name="cancel-on-failure" value="true" /&gt;
+ *   &lt;property name="max-concurrency" value="64" /&gt;
+ *   &lt;participant class="..." /&gt;
+ *   &lt;participant class="..." /&gt;
+ * &lt;/participant&gt;
+ * </pre>
  */
 @SuppressWarnings("unchecked")
 public class Join
        implements TransactionConstants, AbortParticipant,
-                  XmlConfigurable
+                  Configurable, XmlConfigurable
 {
     /** Default constructor; no instance state to initialise. */
     public Join() {}
     private TransactionManager tm;
     private final List<TransactionParticipant> participants = new ArrayList<> ();
+    private ThreadFactory[][] factories = new ThreadFactory[Runner.MODES.length][0];
+    private String[][] labels = new String[Runner.MODES.length][0];
+    private long deadline;
+    private long commitDeadline;
+    private boolean cancelOnFailure;
+    private Semaphore permits;
 
     /**
      * Runs {@code prepare} on every nested participant in parallel and merges their results.
@@ -54,7 +94,7 @@ public class Join
      */
     public int prepare (long id, Serializable o) {
         return mergeActions(
-            joinRunners(prepare (createRunners(id, o)))
+            run (Runner.PREPARE, id, o)
         );
     }
     /**
@@ -66,7 +106,7 @@ public class Join
      */
     public int prepareForAbort  (long id, Serializable o) {
         return mergeActions(
-            joinRunners(prepareForAbort (createRunners(id, o)))
+            run (Runner.PREPARE_FOR_ABORT, id, o)
         );
     }
     /**
@@ -76,7 +116,7 @@ public class Join
      * @param o transaction context
      */
     public void commit (long id, Serializable o) {
-        joinRunners(commit (createRunners(id, o)));
+        run (Runner.COMMIT, id, o);
     }
     /**
      * Runs {@code abort} on every nested participant in parallel.
@@ -85,7 +125,21 @@ public class Join
      * @param o transaction context
      */
     public void abort  (long id, Serializable o) {
-        joinRunners(abort (createRunners(id, o)));
+        run (Runner.ABORT, id, o);
+    }
+    /**
+     * Reads the {@code deadline}, {@code commit-deadline}, {@code cancel-on-failure}
+     * and {@code max-concurrency} properties.
+     *
+     * @param cfg configuration
+     */
+    @Override
+    public void setConfiguration (Configuration cfg) {
+        deadline = cfg.getLong ("deadline", 0L);
+        commitDeadline = cfg.getLong ("commit-deadline", 0L);
+        cancelOnFailure = cfg.getBoolean ("cancel-on-failure", false);
+        int maxConcurrency = cfg.getInt ("max-concurrency", 0);
+        permits = maxConcurrency > 0 ? new Semaphore (maxConcurrency) : null;
     }
     /**
      * Reads {@code <participant>} children from {@code e} and instantiates each via the
@@ -96,7 +150,7 @@ public class Join
      */
     public void setConfiguration (Element e) throws ConfigurationException {
         for (Element element : e.getChildren("participant")) {
-            participants.add(tm.createParticipant(element));
+            addParticipant (tm.createParticipant(element));
         }
     }
     /**
@@ -107,35 +161,61 @@ public class Join
     public void setTransactionManager (TransactionManager mgr) {
         this.tm = mgr;
     }
-    private Runner[] prepare (Runner[] runners) {
-        for (Runner runner : runners) runner.prepare();
-        return runners;
-    }
-    private Runner[] prepareForAbort (Runner[] runners) {
-        for (Runner runner : runners) runner.prepareForAbort();
-        return runners;
-    }
-    private Runner[] commit (Runner[] runners) {
-        for (Runner runner : runners) runner.commit();
-        return runners;
+    /**
+     * Adds a nested participant.
+     *
+     * @param p participant
+     * @since 3.0.2
+     */
+    public synchronized void addParticipant (TransactionParticipant p) {
+        participants.add (p);
+        int n = participants.size();
+        ThreadFactory[][] f = new ThreadFactory[Runner.MODES.length][];
+        String[][] l = new String[Runner.MODES.length][];
+        for (int m=0; m<Runner.MODES.length; m++) {
+            f[m] = Arrays.copyOf (factories[m], n);
+            l[m] = Arrays.copyOf (labels[m], n);
+            // thread names and profiler labels are computed once, forking a branch only starts a thread
+            f[m][n-1] = Thread.ofVirtual().name ("join-" + Runner.MODES[m] + ":" + p.getClass().getName()).factory();
+            l[m][n-1] = "join-" + Runner.MODES[m] + ":" + p.getClass().getSimpleName();
+        }
+        factories = f;
+        labels = l;
     }
-    private Runner[] abort (Runner[] runners) {
-        for (Runner runner : runners) runner.abort();
+
+    private Runner[] run (int mode, long id, Serializable o) {
+        Runner[] runners = createRunners (id, o);
+        boolean preparing = mode == Runner.PREPARE || mode == Runner.PREPARE_FOR_ABORT;
+        Scope scope = new Scope (runners, cancelOnFailure && preparing, permits);
+        ThreadFactory[] f = factories[mode];
+        long start = System.nanoTime();
+        for (int i=0; i<runners.length; i++)
+            runners[i].fork (mode, scope, f[i]);
+        scope.join (preparing ? deadline : commitDeadline);
+        if (o instanceof Context ctx)
+            profile (ctx.getProfiler(), labels[mode], runners, System.nanoTime() - start);
         return runners;
     }
     private Runner[] createRunners(long id, Serializable o) {
         Runner[] runners = new Runner[participants.size()];
-        Iterator<TransactionParticipant> iter = participants.iterator();
-        for (int i=0; iter.hasNext(); i++) {
-            runners[i] = new Runner (
-              iter.next(), id, o
-            );
-        }
+        for (int i=0; i<runners.length; i++)
+            runners[i] = new Runner (participants.get(i), id, o);
         return runners;
     }
-    private Runner[] joinRunners (Runner[] runners) {
-        for (Runner runner : runners) runner.join();
-        return runners;
+    private void profile (Profiler prof, String[] l, Runner[] runners, long elapsed) {
+        for (int i=0; i<runners.length; i++) {
+            Runner r = runners[i];
+            if (r.abandoned) {
+                prof.checkPoint (l[i] + " (abandoned)", elapsed);
+                if (tm != null)
+                    tm.getLog().warn (l[i] + " still running after deadline, abandoned");
+                continue;
+            }
+            String label = r.cancelled ? l[i] + " (cancelled)" : l[i];
+            prof.checkPoint (label, r.elapsed);
+            if (r.failure != null && tm != null)
+                tm.getLog().warn (l[i], r.failure);
+        }
     }
     private int mergeActions (Runner[] runners) {
         boolean prepared = true;
@@ -143,7 +223,7 @@ public class Join
         boolean no_join = true;
         boolean retry = false;
         for (Runner runner : runners) {
-            int action = runner.rc;
+            int action = runner.abandoned ? ABORTED : runner.rc;
             retry = (action & RETRY) == RETRY;
             if (retry)
                 return RETRY;
@@ -158,6 +238,64 @@ public class Join
                (no_join  ? NO_JOIN  : 0) |
                (readonly ? READONLY : 0);
     }
+
+    /**
+     * Branches of a single phase; {@link #join(long)} returns once all of
+     * them have terminated, or at the deadline, abandoning the rest.
+     */
+    static class Scope {
+        private final Runner[] runners;
+        private final boolean cancelOnFailure;
+        private final Semaphore permits;
+        private final CountDownLatch pending;
+        private volatile boolean cancelled;
+
+        Scope (Runner[] runners, boolean cancelOnFailure, Semaphore permits) {
+            this.runners = runners;
+            this.cancelOnFailure = cancelOnFailure;
+            this.permits = permits;
+            this.pending = new CountDownLatch (runners.length);
+        }
+
+        void join (long deadline) {
+            try {
+                if (deadline <= 0L) {
+                    pending.await();
+                    return;
+                }
+                if (pending.await (deadline, TimeUnit.MILLISECONDS))
+                    return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cancel();
+            for (Runner r : runners) {
+                if (!r.done)
+                    r.abandoned = true; // don't wait for it, nor look at its result
+            }
+        }
+
+        void failed (Runner r) {
+            if (cancelOnFailure)
+                cancel();
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            for (Runner r : runners) {
+                Thread t = r.t;
+                if (t != null && !r.done) {
+                    r.cancelled = true;
+                    t.interrupt();
+                }
+            }
+        }
+    }
+
     /**
      * Wraps a single nested {@link TransactionParticipant} in its own virtual thread
      * so its lifecycle calls can run concurrently with siblings.
@@ -169,7 +307,13 @@ public class Join
         long id;
         int mode;
         private Serializable ctx;
-        Thread t;
+        volatile Thread t;
+        private Scope scope;
+        volatile boolean done;
+        volatile boolean cancelled;
+        volatile boolean abandoned;
+        long elapsed;
+        Throwable failure;
         /** Mode constant: prepare. */
         public static final int PREPARE = 0;
         /** Mode constant: prepareForAbort. */
@@ -183,8 +327,6 @@ public class Join
             "prepare", "prepareForAbort", "commit", "abort"
         };
 
-        private String threadName;
-
         /**
          * Constructs a Runner for the given participant and transaction.
          *
@@ -215,6 +357,45 @@ public class Join
         }
         /** Invokes the appropriate lifecycle method on the wrapped participant. */
         public void run() {
+            long start = System.nanoTime();
+            boolean acquired = false;
+            try {
+                Semaphore permits = scope != null ? scope.permits : null;
+                if (permits != null) {
+                    permits.acquire();
+                    acquired = true;
+                }
+                if (scope != null && scope.isCancelled())
+                    throw new InterruptedException ("cancelled");
+                invoke();
+            } catch (InterruptedException e) {
+                cancelled = true;
+            } catch (Throwable e) {
+                if (scope != null && scope.isCancelled() && Thread.currentThread().isInterrupted())
+                    cancelled = true; // participant bailed out on our interrupt
+                else
+                    failure = e;
+            } finally {
+                if (acquired)
+                    scope.permits.release();
+                if (cancelled && (mode == PREPARE || mode == PREPARE_FOR_ABORT))
+                    rc = ABORTED;
+                elapsed = System.nanoTime() - start;
+                done = true;
+                if (scope != null) {
+                    if (failure != null || (!cancelled && isFailure()))
+                        scope.failed (this);
+                    scope.pending.countDown();
+                }
+            }
+        }
+        /** Waits for the runner's virtual thread to terminate, swallowing interrupts. */
+        public void join () {
+            try {
+                t.join ();
+            } catch (InterruptedException ignored) { }
+        }
+        private void invoke () {
             switch (mode) {
                 case PREPARE -> rc = p.prepare(id, ctx);
                 case PREPARE_FOR_ABORT -> {
@@ -231,11 +412,16 @@ public class Join
                 }
             }
         }
-        /** Waits for the runner's virtual thread to terminate, swallowing interrupts. */
-        public void join () {
-            try {
-                t.join ();
-            } catch (InterruptedException ignored) { }
+        private boolean isFailure () {
+            return (mode == PREPARE || mode == PREPARE_FOR_ABORT)
+              && ((rc & PREPARED) == ABORTED || (rc & RETRY) == RETRY);
+        }
+        private void fork (int m, Scope s, ThreadFactory factory) {
+            this.mode = m;
+            this.scope = s;
+            Thread thread = factory.newThread (this);
+            this.t = thread;
+            thread.start();
         }
         private void createThread (int m) {
             this.mode = m;
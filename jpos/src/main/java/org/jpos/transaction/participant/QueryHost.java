@@ -19,6 +19,8 @@
 package org.jpos.transaction.participant;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.jpos.core.Configurable;
 import org.jpos.core.Configuration;
@@ -26,8 +28,8 @@ import org.jpos.core.ConfigurationException;
 import org.jpos.iso.*;
 import org.jpos.rc.CMF;
 import org.jpos.rc.Result;
+import org.jpos.transaction.AsyncTransactionParticipant;
 import org.jpos.transaction.ContextConstants;
-import org.jpos.transaction.TransactionParticipant;
 import org.jpos.util.Caller;
 import org.jpos.util.Chronometer;
 import org.jpos.util.NameRegistrar;
@@ -37,8 +39,16 @@ import org.jpos.transaction.Context;
  * Transaction participant that routes the request to a downstream MUX,
  * waits for the response (synchronously or via continuations), and stores
  * the response back into the {@link Context}.
+ *
+ * <p>With {@code continuations} set to {@code true}, the request goes through
+ * {@link MUX#request(ISOMsg, long, ISOResponseListener, Object)} and the
+ * TransactionManager resumes the transaction when the response arrives.</p>
+ *
+ * <p>The request timeout is capped by {@link Context#getRemainingTime()} when the
+ * transaction carries a deadline; an already expired deadline fails with
+ * {@code ISSUER_TIMEOUT} without querying the host.</p>
  */
-public class QueryHost implements TransactionParticipant, Configurable {
+public class QueryHost implements AsyncTransactionParticipant, Configurable {
     /** Default {@link Context} key used to override the per-transaction timeout. */
     public static final String TIMEOUT_NAME = "QUERYHOST_TIMEOUT";
 
@@ -60,47 +70,67 @@ public class QueryHost implements TransactionParticipant, Configurable {
     public QueryHost () {
         super();
     }
-    public int prepare (long id, Serializable ser)  {
+    /**
+     * Sends the request to the destination MUX.
+     *
+     * <p>When {@code continuations} is enabled, the request is sent using the
+     * MUX's asynchronous API and the returned stage completes from the MUX's
+     * response listener, so no thread waits for the host; otherwise the MUX
+     * is queried synchronously and an already completed stage is returned.</p>
+     *
+     * @param id the Transaction identifier
+     * @param ser transaction context
+     * @return stage completing with the prepare result
+     */
+    @Override
+    public CompletionStage<Integer> prepareAsync (long id, Serializable ser) {
         Context ctx = (Context) ser;
 
         Result result = ctx.getResult();
         String ds = ctx.getString(destination);
         if (ds == null) {
-            return result.fail(
+            return completed(result.fail(
               CMF.MISCONFIGURED_ENDPOINT, Caller.info(), "'%s' not present in Context", destination
-            ).FAIL();
+            ).FAIL());
         }
         String muxName = cfg.get ("mux." + ds , "mux." + ds);
         MUX mux =  NameRegistrar.getIfExists (muxName);
         if (mux == null)
-            return result.fail(CMF.MISCONFIGURED_ENDPOINT, Caller.info(), "MUX '%s' not found", muxName).FAIL();
+            return completed(result.fail(CMF.MISCONFIGURED_ENDPOINT, Caller.info(), "MUX '%s' not found", muxName).FAIL());
 
         ISOMsg m = ctx.get (requestName);
         if (m == null)
-            return result.fail(CMF.INVALID_REQUEST, Caller.info(), "'%s' is null", requestName).FAIL();
+            return completed(result.fail(CMF.INVALID_REQUEST, Caller.info(), "'%s' is null", requestName).FAIL());
 
         Chronometer chronometer = new Chronometer();
         if (isConnected(mux)) {
+            long remaining = ctx.getRemainingTime();
+            if (remaining == 0L)
+                return completed(result.fail(CMF.ISSUER_TIMEOUT, Caller.info(), "deadline expired, '%s' not queried", muxName).FAIL());
             long t = Math.max(resolveTimeout(ctx) - chronometer.elapsed(), 1000L); // give at least a second to catch a response
+            t = Math.min(t, remaining); // but never past the transaction deadline
             try {
-                ISOMsg resp = mux.request(m, t);
-                if (resp != null) {
-                    ctx.put(responseName, resp);
-                    return PREPARED | READONLY | NO_JOIN;
-                } else if (ignoreUnreachable) {
-                    ctx.log(String.format ("MUX '%s' no response", muxName));
-                } else {
-                    return result.fail(CMF.HOST_UNREACHABLE, Caller.info(), "'%s' does not respond", muxName).FAIL();
+                if (continuations) {
+                    CompletableFuture<Integer> f = new CompletableFuture<>();
+                    mux.request(m, t, (resp, handBack) -> {
+                        try {
+                            f.complete(processResponse(ctx, resp, muxName));
+                        } catch (Throwable e) {
+                            f.completeExceptionally(e);
+                        }
+                    }, null);
+                    return f;
                 }
+                return completed(processResponse(ctx, mux.request(m, t), muxName));
             } catch (ISOException e) {
-                return result.fail(CMF.SYSTEM_ERROR, Caller.info(), e.getMessage()).FAIL();
+                return completed(result.fail(CMF.SYSTEM_ERROR, Caller.info(), e.getMessage()).FAIL());
             }
         } else if (ignoreUnreachable) {
             ctx.log(String.format ("MUX '%s' not connected", muxName));
         } else {
-            return result.fail(CMF.HOST_UNREACHABLE, Caller.info(), "'%s' is not connected", muxName).FAIL();
+            return completed(result.fail(CMF.HOST_UNREACHABLE, Caller.info(), "'%s' is not connected", muxName).FAIL());
         }
-        return PREPARED | NO_JOIN | READONLY;
+        return completed(PREPARED | NO_JOIN | READONLY);
     }
 
     public void setConfiguration (Configuration cfg) throws ConfigurationException {
@@ -113,6 +143,7 @@ public class QueryHost implements TransactionParticipant, Configurable {
         destination = cfg.get ("destination", ContextConstants.DESTINATION.toString());
         ignoreUnreachable = cfg.getBoolean("ignore-host-unreachable", false);
         checkConnected = cfg.getBoolean("check-connected", checkConnected);
+        continuations = cfg.getBoolean("continuations", false);
     }
 
     /**
@@ -132,6 +163,21 @@ public class QueryHost implements TransactionParticipant, Configurable {
             return Long.parseLong(o.toString());
     }
 
+    private int processResponse (Context ctx, ISOMsg resp, String muxName) {
+        if (resp != null) {
+            ctx.put(responseName, resp);
+        } else if (ignoreUnreachable) {
+            ctx.log(String.format ("MUX '%s' no response", muxName));
+        } else {
+            return ctx.getResult().fail(CMF.HOST_UNREACHABLE, Caller.info(), "'%s' does not respond", muxName).FAIL();
+        }
+        return PREPARED | READONLY | NO_JOIN;
+    }
+
+    private static CompletionStage<Integer> completed (int action) {
+        return CompletableFuture.completedFuture(action);
+    }
+
     /**
      * Indicates whether {@code mux} is currently connected, honouring the
      * {@code check-connected} configuration switch.
@@ -0,0 +1,273 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.util;
+
+import org.jpos.iso.ISOMsg;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous back end used by {@link Logger#startAsync(int, Logger.OverflowPolicy, int)}.
+ *
+ * <p>Producers claim slots in a bounded multi-producer ring buffer with a
+ * single CAS; a single platform thread drains it, running the logger's
+ * listener chain for up to {@code batchSize} events and then flushing every
+ * {@link Flushable} listener once. While a batch is being drained
+ * {@link Logger#isBatching()} returns true so listeners can skip their
+ * per-event flush.</p>
+ *
+ * <p>Queued events are frozen first, on the caller's thread: the caller
+ * usually keeps using the {@link ISOMsg}s it logged, so those (including the
+ * ones carried by {@link SimpleMsg}s) are copied. Everything else is rendered
+ * by the listeners on the dispatcher thread.</p>
+ */
+final class AsyncLogDispatcher implements Runnable {
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(100L);
+    private static final long FULL_PARK = TimeUnit.MICROSECONDS.toNanos(50L);
+
+    private final Logger logger;
+    private final Logger.OverflowPolicy policy;
+    private final int batchSize;
+    private final LogEvent[] buffer;
+    private final AtomicLongArray sequence;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final Thread thread;
+    private volatile long head;
+    private volatile boolean running = true;
+    private volatile boolean sleeping;
+    private long reported;
+
+    AsyncLogDispatcher (Logger logger, int capacity, Logger.OverflowPolicy policy, int batchSize) {
+        this.logger = logger;
+        this.policy = policy != null ? policy : Logger.OverflowPolicy.BLOCK;
+        this.batchSize = Math.max(1, batchSize);
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new LogEvent[size];
+        sequence = new AtomicLongArray(size);
+        for (int i=0; i<size; i++)
+            sequence.set(i, i);
+        mask = size - 1;
+        thread = Thread.ofPlatform()
+          .name("logger-" + (logger.getName().isEmpty() ? "async" : logger.getName()))
+          .daemon(true)
+          .unstarted(this);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues an event, applying the overflow policy if the ring is full.
+     *
+     * @param evt event to queue
+     * @return true if the event was queued or deliberately dropped, false if the
+     *         caller should dispatch it inline (dispatcher stopped or called from
+     *         the dispatcher thread itself)
+     */
+    boolean offer (LogEvent evt) {
+        if (!running || Thread.currentThread() == thread)
+            return false;
+        freeze(evt);
+        while (!tryOffer(evt)) {
+            if (policy == Logger.OverflowPolicy.DROP_ALL
+              || policy == Logger.OverflowPolicy.DROP_DEBUG && isDebug(evt)) {
+                dropped.incrementAndGet();
+                return true;
+            }
+            if (!running)
+                return false;
+            LockSupport.parkNanos(this, FULL_PARK);
+        }
+        if (sleeping)
+            LockSupport.unpark(thread);
+        return true;
+    }
+
+    /**
+     * Stops the writer thread after it drains whatever is already queued.
+     *
+     * @param timeout max time to wait for the writer thread, in millis
+     */
+    void stop (long timeout) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!thread.isAlive()) {
+            while (drain() > 0)
+                ; // producers that raced with stop
+        }
+    }
+
+    int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    long getDispatched() {
+        return dispatched.get();
+    }
+
+    @Override
+    public void run() {
+        while (running || size() > 0) {
+            if (drain() > 0)
+                continue;
+            sleeping = true;
+            if (running && size() == 0)
+                LockSupport.parkNanos(this, IDLE_PARK);
+            sleeping = false;
+        }
+    }
+
+    private int drain() {
+        int n = 0;
+        Logger.BATCHING.set(Boolean.TRUE);
+        try {
+            LogEvent evt;
+            while (n < batchSize && (evt = poll()) != null) {
+                logger.dispatch(evt);
+                n++;
+            }
+            if (n > 0) {
+                dispatched.addAndGet(n);
+                reportDropped();
+            }
+        } finally {
+            Logger.BATCHING.set(Boolean.FALSE);
+        }
+        if (n > 0)
+            flush();
+        return n;
+    }
+
+    private void reportDropped() {
+        long d = dropped.get();
+        if (d > reported) {
+            LogEvent evt = new LogEvent(Log.WARN, "async logger dropped " + (d - reported) + " event(s)");
+            reported = d;
+            logger.dispatch(evt);
+        }
+    }
+
+    private void flush() {
+        List<LogListener> snapshot;
+        synchronized (logger.listeners) {
+            snapshot = new ArrayList<>(logger.listeners);
+        }
+        for (LogListener l : snapshot) {
+            if (l instanceof Flushable f) {
+                try {
+                    f.flush();
+                } catch (IOException ignored) {
+                    // nothing we can do about it, the next batch will try again
+                }
+            }
+        }
+    }
+
+    private boolean tryOffer (LogEvent evt) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) pos & mask;
+            long dif = sequence.get(idx) - pos;
+            if (dif == 0L) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[idx] = evt;
+                    sequence.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0L) {
+                return false; // full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private LogEvent poll() {
+        long h = head;
+        int idx = (int) h & mask;
+        if (sequence.get(idx) != h + 1)
+            return null;
+        LogEvent evt = buffer[idx];
+        buffer[idx] = null;
+        sequence.set(idx, h + buffer.length);
+        head = h + 1;
+        return evt;
+    }
+
+    /**
+     * Replaces the mutable payload entries a caller is likely to keep using
+     * with copies: ISOMsgs are cloned and {@link SimpleMsg}s are copied along
+     * with the ISOMsgs they carry, so that listeners such as
+     * {@link ProtectedLogListener} still see, and mask, the actual messages.
+     * Other payload entries are passed by reference.
+     */
+    static void freeze (LogEvent evt) {
+        List<Object> payLoad = evt.getPayLoad();
+        synchronized (payLoad) {
+            for (int i=0; i<payLoad.size(); i++) {
+                Object o = payLoad.get(i);
+                if (o instanceof ISOMsg m)
+                    payLoad.set(i, m.clone());
+                else if (o instanceof SimpleMsg sm)
+                    payLoad.set(i, copy(sm));
+            }
+        }
+    }
+
+    private static SimpleMsg copy (SimpleMsg sm) {
+        Object content = switch (sm.msgContent) {
+            case ISOMsg m -> m.clone();
+            case SimpleMsg s -> copy(s);
+            case SimpleMsg[] a -> Arrays.stream(a).map(s -> s != null ? copy(s) : null).toArray(SimpleMsg[]::new);
+            case null, default -> sm.msgContent;
+        };
+        return new SimpleMsg(sm.tagName, sm.msgName, content);
+    }
+
+    private static boolean isDebug (LogEvent evt) {
+        String tag = evt.getTag();
+        return Log.DEBUG.equals(tag) || Log.TRACE.equals(tag);
+    }
+}
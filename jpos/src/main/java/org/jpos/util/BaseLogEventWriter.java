@@ -60,7 +60,8 @@ public abstract class BaseLogEventWriter implements LogEventWriter {
     public void write(LogEvent ev) {
         if (p != null && ev != null) {
             ev.dump(p, "");
-            p.flush();
+            if (!Logger.isBatching())
+                p.flush();
         }
     }
 }
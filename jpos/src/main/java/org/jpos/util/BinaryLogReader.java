@@ -0,0 +1,437 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.log.AuditLogEvent;
+import org.jpos.log.AuditLogEventRegistry;
+import org.jpos.log.LogRenderer;
+import org.jpos.log.LogRendererRegistry;
+import org.jpos.log.evt.LogMessage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads segments written by {@link BinaryLogWriter} back into {@link LogEvent}s,
+ * optionally filtered by realm, trace-id and time, and renders them with any
+ * registered {@link LogRenderer}.
+ *
+ * <p>Recorded ISO images are unpacked with the packager registered with
+ * {@link #setPackager(String, ISOPackager)} (typically a {@link GenericPackager}
+ * loaded from its definition file) for their packager id, or else with a fresh
+ * instance of the packager class they were packed with. Images that can not be
+ * unpacked are shown in hex.</p>
+ *
+ * <p>Can be used from the command line:</p>
+ * <pre>
+ * java -cp 'lib/*:jpos.jar' org.jpos.util.BinaryLogReader [options] segment-or-directory...
+ *   -f, --format xml|json|txt|markdown   output format (default xml)
+ *   -r, --realm realm                    realm, or realm prefix ending in '*'
+ *   -t, --trace-id id                    trace id
+ *       --from time, --to time           ISO-8601 instant, local date-time or date
+ *   -p, --packager id=file.xml           GenericPackager for images packed by 'id'
+ * </pre>
+ *
+ * @since 3.0.2
+ */
+public class BinaryLogReader {
+    private String realm;
+    private String traceId;
+    private Instant from;
+    private Instant to;
+    private final Map<String,ISOPackager> packagers = new HashMap<>();
+    private final ObjectMapper mapper = configure(AuditLogEventRegistry.register(new ObjectMapper()));
+
+    /** Default constructor; reads every event. */
+    public BinaryLogReader() { }
+
+    /**
+     * Only read events whose realm matches.
+     *
+     * @param realm realm, or realm prefix when it ends in {@code *}; null matches any
+     */
+    public void setRealm (String realm) {
+        this.realm = realm;
+    }
+
+    /**
+     * Only read events carrying the given {@code trace-id} tag.
+     *
+     * @param traceId trace id; null matches any
+     */
+    public void setTraceId (String traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * Only read events dumped within {@code [from, to)}.
+     *
+     * @param from lower bound (inclusive), null for none
+     * @param to upper bound (exclusive), null for none
+     */
+    public void setTimeRange (Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Registers the packager used to unpack images recorded with packager {@code id}.
+     *
+     * <p>{@code id} is matched against the {@link BinaryLogWriter#packagerId(ISOPackager)
+     * packager id} recorded by the writer. For a GenericPackager that is its
+     * class name followed by its definition in brackets; the definition alone, its
+     * file name, or the plain class name (matching any definition) are accepted as well.</p>
+     *
+     * @param id packager id, definition, definition file name, or class name
+     * @param packager packager to use
+     */
+    public void setPackager (String id, ISOPackager packager) {
+        packagers.put(id, packager);
+    }
+
+    /**
+     * Reads a segment, or every segment in a directory in sequence order.
+     *
+     * @param path segment file or directory
+     * @param consumer receives matching events
+     * @throws IOException if a segment can not be read or is not a binary log segment
+     */
+    public void read (Path path, Consumer<LogEvent> consumer) throws IOException {
+        if (Files.isDirectory(path)) {
+            for (Path p : BinaryLogWriter.segments(path, null))
+                readSegment(p, consumer);
+        } else {
+            readSegment(path, consumer);
+        }
+    }
+
+    /**
+     * Renders matching events.
+     *
+     * @param path segment file or directory
+     * @param type output format
+     * @param ps destination
+     * @throws IOException if a segment can not be read
+     */
+    public void render (Path path, LogRenderer.Type type, PrintStream ps) throws IOException {
+        LogRenderer<LogEvent> renderer = LogRendererRegistry.getRenderer(LogEvent.class, type);
+        if (renderer == null)
+            throw new IllegalArgumentException ("No LogEvent renderer for " + type);
+        read (path, evt -> renderer.render(evt, ps));
+        ps.flush();
+    }
+
+    private void readSegment (Path path, Consumer<LogEvent> consumer) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0L, ch.size());
+            if (buf.remaining() < BinaryLogWriter.HEADER_SIZE || buf.getInt() != BinaryLogWriter.MAGIC)
+                throw new IOException (path + " is not a binary log segment");
+            short version = buf.getShort();
+            if (version != BinaryLogWriter.VERSION)
+                throw new IOException (path + ": unsupported version " + version);
+            buf.position(BinaryLogWriter.HEADER_SIZE);
+            while (buf.remaining() >= 4) {
+                int len = buf.getInt();
+                if (len <= 0 || len > buf.remaining())
+                    break; // end of data, or a record still being written
+                ByteBuffer rec = buf.slice(buf.position(), len);
+                buf.position(buf.position() + len);
+                LogEvent evt = decode(rec);
+                if (evt != null)
+                    consumer.accept(evt);
+            }
+        }
+    }
+
+    private LogEvent decode (ByteBuffer b) {
+        if (b.get() != BinaryLogWriter.EVENT)
+            return null;
+        Instant dumpedAt = Instant.ofEpochSecond(b.getLong(), b.getInt());
+        Instant createdAt = dumpedAt.minusNanos(getVarLong(b));
+        if (from != null && dumpedAt.isBefore(from) || to != null && !dumpedAt.isBefore(to))
+            return null;
+        String tag = getString(b);
+        String r = getString(b);
+        if (!realmMatches(r))
+            return null;
+        Map<String,String> tags = new LinkedHashMap<>();
+        for (int i=getVarInt(b); i>0; i--)
+            tags.put(getString(b), getString(b));
+        if (traceId != null && !traceId.equals(tags.get("trace-id")))
+            return null;
+        LogEvent evt = r == null || r.isEmpty() ? new LogEvent(tag) : new LogEvent(new SimpleLogSource(null, r), tag);
+        evt.withTags(tags);
+        for (int i=getVarInt(b); i>0; i--)
+            evt.addMessage(decodeItem(b));
+        evt.setTimestamps(createdAt, dumpedAt);
+        return evt;
+    }
+
+    private Object decodeItem (ByteBuffer b) {
+        byte type = b.get();
+        return switch (type) {
+            case BinaryLogWriter.STRING -> getString(b);
+            case BinaryLogWriter.ISOMSG -> decodeISOMsg(b);
+            case BinaryLogWriter.FIELDS -> decodeFields(b, new ISOMsg());
+            case BinaryLogWriter.THROWABLE -> decodeThrowable(b);
+            case BinaryLogWriter.AUDIT -> decodeAudit(getBytes(b));
+            case BinaryLogWriter.LOGGEABLE -> new Dumped(getString(b), getString(b));
+            case BinaryLogWriter.BYTES -> getBytes(b);
+            default -> throw new IllegalStateException ("Unknown item type " + type);
+        };
+    }
+
+    private Object decodeISOMsg (ByteBuffer b) {
+        String id = getString(b);
+        byte[] image = getBytes(b);
+        Map<String,String> overrides = new LinkedHashMap<>();
+        for (int i=getVarInt(b); i>0; i--)
+            overrides.put(getString(b), getString(b));
+        try {
+            ISOMsg m = new ISOMsg();
+            m.setPackager(packager(id));
+            m.unpack(image);
+            overrides.forEach(m::set);
+            return m;
+        } catch (Exception e) {
+            return "ISOMsg packager=" + id + " image=" + ISOUtil.hexString(image) + " (" + e + ")";
+        }
+    }
+
+    private ISOMsg decodeFields (ByteBuffer b, ISOMsg m) {
+        for (int i=getVarInt(b); i>0; i--) {
+            int fldno = getVarInt(b);
+            byte kind = b.get();
+            switch (kind) {
+                case BinaryLogWriter.FIELD_MSG -> {
+                    try {
+                        m.set(decodeFields(b, new ISOMsg(fldno)));
+                    } catch (ISOException ignored) { }
+                }
+                case BinaryLogWriter.FIELD_BINARY -> m.set(fldno, getBytes(b));
+                default -> m.set(fldno, getString(b));
+            }
+        }
+        return m;
+    }
+
+    private Throwable decodeThrowable (ByteBuffer b) {
+        String className = getString(b);
+        String message = getString(b);
+        StackTraceElement[] st = new StackTraceElement[getVarInt(b)];
+        for (int i=0; i<st.length; i++)
+            st[i] = new StackTraceElement(getString(b), getString(b), getString(b), getVarInt(b) - 2);
+        Throwable cause = b.get() != 0 ? decodeThrowable(b) : null;
+        RecordedThrowable t = new RecordedThrowable(className, message, cause);
+        t.setStackTrace(st);
+        return t;
+    }
+
+    private Object decodeAudit (byte[] json) {
+        try {
+            return mapper.readValue(json, AuditLogEvent.class);
+        } catch (IOException e) {
+            return new LogMessage(new String(json, StandardCharsets.UTF_8));
+        }
+    }
+
+    private ISOPackager packager (String id) throws ReflectiveOperationException {
+        ISOPackager p = packagers.get(id);
+        if (p == null) {
+            int i = id.indexOf('[');
+            boolean generic = i > 0 && id.endsWith("]"); // class[definition]
+            String className = generic ? id.substring(0, i) : id;
+            if (generic) {
+                String definition = id.substring(i + 1, id.length() - 1);
+                p = packagers.get(definition);
+                if (p == null)
+                    p = packagers.get(definition.substring(definition.lastIndexOf('/') + 1));
+            }
+            if (p == null)
+                p = packagers.get(className);
+            if (p == null)
+                p = (ISOPackager) Class.forName(className).getDeclaredConstructor().newInstance();
+            packagers.put(id, p);
+        }
+        return p;
+    }
+
+    private boolean realmMatches (String r) {
+        if (realm == null)
+            return true;
+        if (r == null)
+            return false;
+        if (realm.endsWith("*"))
+            return r.startsWith(realm.substring(0, realm.length() - 1));
+        return realm.equals(r);
+    }
+
+    /**
+     * Applies the settings shared by {@link BinaryLogWriter} and this reader to
+     * the mapper used for {@link AuditLogEvent} items.
+     *
+     * @param mapper mapper to configure
+     * @return the same mapper
+     */
+    static ObjectMapper configure (ObjectMapper mapper) {
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper.setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+        return mapper;
+    }
+
+    private static int getVarInt (ByteBuffer b) {
+        return (int) getVarLong(b);
+    }
+
+    private static long getVarLong (ByteBuffer b) {
+        long v = 0L;
+        for (int shift = 0; ; shift += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0)
+                return v;
+        }
+    }
+
+    private static byte[] getBytes (ByteBuffer b) {
+        byte[] v = new byte[getVarInt(b)];
+        b.get(v);
+        return v;
+    }
+
+    private static String getString (ByteBuffer b) {
+        int len = getVarInt(b) - 1;
+        if (len < 0)
+            return null;
+        byte[] v = new byte[len];
+        b.get(v);
+        return new String(v, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Command line entry point, see the class documentation for usage.
+     *
+     * @param args command line arguments
+     * @throws Exception on error
+     */
+    public static void main (String[] args) throws Exception {
+        BinaryLogReader reader = new BinaryLogReader();
+        LogRenderer.Type type = LogRenderer.Type.XML;
+        Instant from = null, to = null;
+        List<Path> paths = new ArrayList<>();
+        for (int i=0; i<args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "-f", "--format" -> type = LogRenderer.Type.valueOf(args[++i].toUpperCase());
+                case "-r", "--realm" -> reader.setRealm(args[++i]);
+                case "-t", "--trace-id" -> reader.setTraceId(args[++i]);
+                case "--from" -> from = parseTime(args[++i]);
+                case "--to" -> to = parseTime(args[++i]);
+                case "-p", "--packager" -> {
+                    String[] kv = args[++i].split("=", 2);
+                    if (kv.length != 2)
+                        usage();
+                    reader.setPackager(kv[0], new GenericPackager(kv[1]));
+                }
+                default -> {
+                    if (a.startsWith("-"))
+                        usage();
+                    paths.add(Path.of(a));
+                }
+            }
+        }
+        if (paths.isEmpty())
+            usage();
+        reader.setTimeRange(from, to);
+        for (Path p : paths)
+            reader.render(p, type, System.out);
+    }
+
+    private static Instant parseTime (String s) {
+        try {
+            return Instant.parse(s);
+        } catch (DateTimeParseException e) {
+            if (s.contains("T"))
+                return LocalDateTime.parse(s).atZone(ZoneId.systemDefault()).toInstant();
+            return LocalDate.parse(s).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        }
+    }
+
+    private static void usage() {
+        System.err.println ("Usage: BinaryLogReader [-f xml|json|txt|markdown] [-r realm[*]] [-t trace-id]");
+        System.err.println ("         [--from time] [--to time] [-p packager-id=file.xml] segment-or-directory...");
+        System.exit(1);
+    }
+
+    /** A recorded throwable, reporting the original class name. */
+    private static final class RecordedThrowable extends Throwable {
+        private final String className;
+
+        RecordedThrowable (String className, String message, Throwable cause) {
+            super(message, cause, false, true);
+            this.className = className;
+        }
+
+        @Override
+        public String toString() {
+            String msg = getLocalizedMessage();
+            return msg != null ? className + ": " + msg : className;
+        }
+    }
+
+    /** A {@link Loggeable} whose output was captured by the writer. */
+    private record Dumped (String className, String text) implements Loggeable {
+        @Override
+        public void dump (PrintStream p, String indent) {
+            for (String line : text.split("\\R")) {
+                p.print(indent);
+                p.println(line);
+            }
+        }
+    }
+}
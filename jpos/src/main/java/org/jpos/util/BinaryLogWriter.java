@@ -0,0 +1,566 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jpos.core.Configurable;
+import org.jpos.core.Configuration;
+import org.jpos.core.ConfigurationException;
+import org.jpos.iso.ISOComponent;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOPackager;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.log.AuditLogEvent;
+import org.jpos.log.AuditLogEventConvertible;
+import org.jpos.log.AuditLogEventRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogEventWriter} that records events in a compact tagged binary format
+ * instead of rendering them, leaving rendering to {@link BinaryLogReader}
+ * when (and if) somebody needs to look at them.
+ *
+ * <p>Events are appended to memory-mapped segment files named
+ * {@code <prefix>.<sequence>.jlog}; when a segment fills up a new one is
+ * created and closed segments are truncated to their used size. Payload items
+ * are stored as typed records: packed {@link ISOMsg} images together with the
+ * id of their packager (see {@link #packagerId(ISOPackager)}), strings,
+ * throwables (class, message, stack trace and causes), {@link AuditLogEvent}s
+ * (as their JSON form) and pre-dumped {@link Loggeable}s.</p>
+ *
+ * <p>ISOMsg payloads get the same PCI treatment as {@link JsonlLogWriter}:
+ * fields listed in {@code protect} are masked and fields listed in {@code wipe}
+ * are replaced by {@code [WIPED]}. Those fields never reach the packed image;
+ * their masked values are stored next to it. As in {@link ProtectedLogListener},
+ * ISOMsgs carried by {@link SimpleMsg}s are masked the same way before they
+ * are dumped.</p>
+ *
+ * <p>Configuration properties:</p>
+ * <ul>
+ *   <li>{@code dir} — segment directory (default {@code log})</li>
+ *   <li>{@code prefix} — segment file name prefix (default {@code q2})</li>
+ *   <li>{@code segment-size} — segment size in bytes (default 64MB)</li>
+ *   <li>{@code max-segments} — number of segments to keep, 0 keeps them all (default 0)</li>
+ *   <li>{@code protect} — space-separated field paths to mask (default {@code "2"})</li>
+ *   <li>{@code wipe} — space-separated field paths to wipe (default {@code "35 45 48 52 55"})</li>
+ * </ul>
+ *
+ * <p>The {@link PrintStream} supplied by the enclosing {@link LogListener} is not used.</p>
+ *
+ * @since 3.0.2
+ */
+public class BinaryLogWriter implements LogEventWriter, Configurable {
+    /** Segment file extension. */
+    public static final String SUFFIX = ".jlog";
+    static final int MAGIC = 0x6A4C4F47; // jLOG
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final byte EVENT    = 'E';
+    static final byte STRING   = 'S';
+    static final byte ISOMSG   = 'I';
+    static final byte FIELDS   = 'F';
+    static final byte THROWABLE= 'T';
+    static final byte AUDIT    = 'A';
+    static final byte LOGGEABLE= 'L';
+    static final byte BYTES    = 'B';
+
+    static final byte FIELD_STRING = 'S';
+    static final byte FIELD_BINARY = 'B';
+    static final byte FIELD_MSG    = 'M';
+    static final int MAX_CAUSES = 16;
+
+    private static final String WIPED = "[WIPED]";
+
+    private Path dir = Path.of("log");
+    private String prefix = "q2";
+    private long segmentSize = 64L * 1024 * 1024;
+    private int maxSegments;
+    private Set<String> protectFields = Set.of("2");
+    private Set<String> wipeFields = Set.of("35", "45", "48", "52", "55");
+    private final ObjectMapper mapper = BinaryLogReader.configure(AuditLogEventRegistry.register(new ObjectMapper()));
+    private final Encoder enc = new Encoder();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+    private long sequence = -1L;
+    private long failures;
+
+    /** Default constructor. */
+    public BinaryLogWriter() { }
+
+    @Override
+    public void setConfiguration (Configuration cfg) throws ConfigurationException {
+        dir = Path.of(cfg.get("dir", "log"));
+        prefix = cfg.get("prefix", "q2");
+        segmentSize = cfg.getLong("segment-size", segmentSize);
+        if (segmentSize < 4096L || segmentSize > Integer.MAX_VALUE)
+            throw new ConfigurationException ("segment-size must be between 4096 and " + Integer.MAX_VALUE);
+        maxSegments = cfg.getInt("max-segments", 0);
+        String protect = cfg.get("protect", null);
+        if (protect != null)
+            protectFields = toFieldPathSet(protect);
+        String wipe = cfg.get("wipe", null);
+        if (wipe != null)
+            wipeFields = toFieldPathSet(wipe);
+    }
+
+    @Override
+    public synchronized void write (LogEvent ev) {
+        if (ev == null)
+            return;
+        try {
+            enc.reset();
+            encode(ev);
+            int len = enc.size();
+            if (segment == null || segment.remaining() < len + 8)
+                rotate(len + 8);
+            int pos = segment.position();
+            segment.position(pos + 4);
+            segment.put(enc.buf, 0, len);
+            segment.putInt(pos, len); // length last, readers of a live segment never see half a record
+        } catch (IOException e) {
+            if (failures++ == 0) { // the log itself is broken, report once on stderr
+                System.err.println ("BinaryLogWriter: can not write to " + dir + ", further failures are only counted");
+                e.printStackTrace(System.err);
+            }
+            closeSegment();
+        }
+    }
+
+    @Override
+    public void setPrintStream (PrintStream printStream) {
+        // output goes to the mapped segments
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSegment();
+    }
+
+    /**
+     * Returns the number of events lost because a segment could not be written.
+     *
+     * @return write failures
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the segment currently being written.
+     *
+     * @return current segment path, or null if none is open
+     */
+    public synchronized Path getSegment() {
+        return segmentPath;
+    }
+
+    private void encode (LogEvent ev) {
+        ev.getTraceId(); // ensure trace-id is generated, as the other writers do
+        Instant dumpedAt = ev.getDumpedAt();
+        enc.put(EVENT);
+        enc.putLong(dumpedAt.getEpochSecond());
+        enc.putInt(dumpedAt.getNano());
+        enc.putVarLong(Math.max(0L, Duration.between(ev.getCreatedAt(), dumpedAt).toNanos()));
+        enc.putString(ev.getTag());
+        enc.putString(ev.getRealm());
+        Map<String,String> tags = ev.getTags();
+        enc.putVarInt(tags.size());
+        tags.forEach((k, v) -> {
+            enc.putString(k);
+            enc.putString(v);
+        });
+        Object[] payload;
+        synchronized (ev.getPayLoad()) {
+            payload = ev.getPayLoad().toArray();
+        }
+        enc.putVarInt(payload.length);
+        for (Object o : payload)
+            encodeItem(o);
+    }
+
+    private void encodeItem (Object o) {
+        switch (o) {
+            case null -> {
+                enc.put(STRING);
+                enc.putString("null");
+            }
+            case String s -> {
+                enc.put(STRING);
+                enc.putString(s);
+            }
+            case ISOMsg m -> encodeISOMsg(m);
+            case Throwable t -> {
+                enc.put(THROWABLE);
+                encodeThrowable(t, 0);
+            }
+            case AuditLogEvent ale -> encodeAudit(ale);
+            case byte[] b -> {
+                enc.put(BYTES);
+                enc.putBytes(b);
+            }
+            case Loggeable l -> {
+                enc.put(LOGGEABLE);
+                enc.putString(l.getClass().getName());
+                enc.putString(dump(l instanceof SimpleMsg sm ? protect(sm) : l));
+            }
+            case AuditLogEventConvertible c -> encodeAudit(c.toAuditEvent());
+            default -> {
+                enc.put(STRING);
+                enc.putString(o.toString());
+            }
+        }
+    }
+
+    private void encodeISOMsg (ISOMsg original) {
+        ISOMsg m = (ISOMsg) original.clone();
+        Map<String,String> overrides = mask(m);
+        if (m.getPackager() != null) {
+            try {
+                byte[] image = m.pack();
+                enc.put(ISOMSG);
+                enc.putString(packagerId(m.getPackager()));
+                enc.putBytes(image);
+                enc.putVarInt(overrides.size());
+                overrides.forEach((k, v) -> {
+                    enc.putString(k);
+                    enc.putString(v);
+                });
+                return;
+            } catch (ISOException | RuntimeException ignored) {
+                // fall back to the field tree
+            }
+        }
+        overrides.forEach(m::set);
+        enc.put(FIELDS);
+        encodeFields(m);
+    }
+
+    /**
+     * Identifies the packager an image was packed with: its class name or,
+     * for a {@link GenericPackager}, its {@link GenericPackager#getDescription()
+     * description}, which names the definition it was loaded from, so that
+     * images packed by different GenericPackagers can be told apart.
+     *
+     * @param p packager
+     * @return packager id, as matched by {@link BinaryLogReader#setPackager(String, ISOPackager)}
+     */
+    public static String packagerId (ISOPackager p) {
+        return p instanceof GenericPackager ? p.getDescription() : p.getClass().getName();
+    }
+
+    /**
+     * Removes the protected and wiped fields from {@code m}.
+     *
+     * @return the masked values of the removed fields
+     */
+    private Map<String,String> mask (ISOMsg m) {
+        Map<String,String> overrides = new LinkedHashMap<>();
+        for (String field : protectFields)
+            protect(m, field, overrides);
+        for (String field : wipeFields) {
+            if (m.hasField(field)) {
+                overrides.put(field, WIPED);
+                m.unset(field);
+            }
+        }
+        return overrides;
+    }
+
+    /**
+     * Returns {@code sm}, or a copy of it where every ISOMsg it carries has
+     * been masked; the original is left untouched.
+     */
+    private SimpleMsg protect (SimpleMsg sm) {
+        Object content = switch (sm.msgContent) {
+            case ISOMsg original -> {
+                ISOMsg m = (ISOMsg) original.clone();
+                mask(m).forEach(m::set);
+                yield m;
+            }
+            case SimpleMsg s -> protect(s);
+            case SimpleMsg[] a -> Arrays.stream(a).map(s -> s != null ? protect(s) : null).toArray(SimpleMsg[]::new);
+            case null, default -> sm.msgContent;
+        };
+        return content == sm.msgContent ? sm : new SimpleMsg(sm.tagName, sm.msgName, content);
+    }
+
+    private void encodeFields (ISOMsg m) {
+        List<ISOComponent> fields = new ArrayList<>();
+        List<Integer> keys = new ArrayList<>();
+        for (Object o : m.getChildren().entrySet()) {
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int fldno = (Integer) e.getKey();
+            if (fldno >= 0) {
+                keys.add(fldno);
+                fields.add((ISOComponent) e.getValue());
+            }
+        }
+        enc.putVarInt(fields.size());
+        for (int i=0; i<fields.size(); i++) {
+            ISOComponent c = fields.get(i);
+            enc.putVarInt(keys.get(i));
+            try {
+                if (c instanceof ISOMsg sub) {
+                    enc.put(FIELD_MSG);
+                    encodeFields(sub);
+                } else if (c.getValue() instanceof byte[] b) {
+                    enc.put(FIELD_BINARY);
+                    enc.putBytes(b);
+                } else {
+                    enc.put(FIELD_STRING);
+                    enc.putString(String.valueOf(c.getValue()));
+                }
+            } catch (ISOException e) {
+                enc.put(FIELD_STRING);
+                enc.putString(e.toString());
+            }
+        }
+    }
+
+    private void encodeThrowable (Throwable t, int depth) {
+        enc.putString(t.getClass().getName());
+        enc.putString(t.getMessage());
+        StackTraceElement[] st = t.getStackTrace();
+        enc.putVarInt(st.length);
+        for (StackTraceElement e : st) {
+            enc.putString(e.getClassName());
+            enc.putString(e.getMethodName());
+            enc.putString(e.getFileName());
+            enc.putVarInt(e.getLineNumber() + 2); // native methods use -2
+        }
+        Throwable cause = t.getCause();
+        if (cause != null && cause != t && depth < MAX_CAUSES) {
+            enc.put((byte) 1);
+            encodeThrowable(cause, depth + 1);
+        } else {
+            enc.put((byte) 0);
+        }
+    }
+
+    private void encodeAudit (AuditLogEvent ale) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(ale);
+            enc.put(AUDIT);
+            enc.putBytes(json);
+        } catch (JsonProcessingException e) {
+            enc.put(STRING);
+            enc.putString(ale.toString());
+        }
+    }
+
+    private void protect (ISOMsg m, String field, Map<String,String> overrides) {
+        try {
+            Object v = m.getValue(field);
+            if (v != null) {
+                overrides.put(field, v instanceof String s ? ISOUtil.protect(s) : WIPED);
+                m.unset(field);
+            }
+        } catch (ISOException ignored) {
+            // invalid or absent paths are ignored, as in ProtectedLogListener
+        }
+    }
+
+    private void rotate (int needed) throws IOException {
+        closeSegment();
+        Files.createDirectories(dir);
+        if (sequence < 0L)
+            sequence = segments(dir, prefix).stream().mapToLong(p -> sequence(p, prefix)).max().orElse(0L);
+        segmentPath = dir.resolve(String.format("%s.%08d%s", prefix, ++sequence, SUFFIX));
+        channel = FileChannel.open(segmentPath,
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(segmentSize, needed + HEADER_SIZE));
+        segment.putInt(MAGIC);
+        segment.putShort(VERSION);
+        segment.putShort((short) 0);
+        segment.putLong(System.currentTimeMillis());
+        purge();
+    }
+
+    private void closeSegment() {
+        if (channel != null) {
+            try {
+                int used = segment.position();
+                segment.force();
+                channel.truncate(used);
+            } catch (IOException | RuntimeException ignored) {
+                // the zero-filled tail is harmless, readers stop at the first empty record
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) { }
+        }
+        channel = null;
+        segment = null;
+        segmentPath = null;
+    }
+
+    private void purge() throws IOException {
+        if (maxSegments <= 0)
+            return;
+        List<Path> all = segments(dir, prefix);
+        for (int i=0; i<all.size() - maxSegments; i++)
+            Files.deleteIfExists(all.get(i));
+    }
+
+    /**
+     * Lists the segments with the given prefix in {@code dir}, oldest first.
+     *
+     * @param dir segment directory
+     * @param prefix segment prefix, or null for any prefix
+     * @return segment paths sorted by name
+     * @throws IOException on I/O error
+     */
+    static List<Path> segments (Path dir, String prefix) throws IOException {
+        if (!Files.isDirectory(dir))
+            return List.of();
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.endsWith(SUFFIX) && (prefix == null || n.startsWith(prefix + ".") && sequence(p, prefix) >= 0L);
+            }).sorted().toList();
+        }
+    }
+
+    private static long sequence (Path p, String prefix) {
+        String n = p.getFileName().toString();
+        try {
+            return Long.parseLong(n.substring(prefix.length() + 1, n.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return -1L;
+        }
+    }
+
+    private static String dump (Loggeable l) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(baos);
+        l.dump(ps, "");
+        return baos.toString();
+    }
+
+    private static Set<String> toFieldPathSet (String s) throws ConfigurationException {
+        Set<String> result = new TreeSet<>();
+        for (String token : s.trim().split("\\s+")) {
+            if (token.isEmpty())
+                continue;
+            for (String n : token.split("\\.", -1)) {
+                try {
+                    Integer.parseInt(n);
+                } catch (NumberFormatException e) {
+                    throw new ConfigurationException("Invalid ISO field path: " + token, e);
+                }
+            }
+            result.add(token);
+        }
+        return result;
+    }
+
+    /** Growable little encoding buffer, reused across events. */
+    static final class Encoder {
+        byte[] buf = new byte[1024];
+        int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void put (byte b) {
+            ensure(1);
+            buf[count++] = b;
+        }
+
+        void putInt (int v) {
+            ensure(4);
+            buf[count++] = (byte) (v >>> 24);
+            buf[count++] = (byte) (v >>> 16);
+            buf[count++] = (byte) (v >>> 8);
+            buf[count++] = (byte) v;
+        }
+
+        void putLong (long v) {
+            putInt((int) (v >>> 32));
+            putInt((int) v);
+        }
+
+        void putVarInt (int v) {
+            putVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void putVarLong (long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0L) {
+                buf[count++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte) v;
+        }
+
+        void putBytes (byte[] b) {
+            putVarInt(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, count, b.length);
+            count += b.length;
+        }
+
+        /** Null-safe: null is encoded as length 0, empty string as length 1 with no bytes following. */
+        void putString (String s) {
+            if (s == null) {
+                putVarInt(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            putVarInt(b.length + 1);
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, count, b.length);
+            count += b.length;
+        }
+
+        private void ensure (int n) {
+            if (count + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + n));
+        }
+    }
+}
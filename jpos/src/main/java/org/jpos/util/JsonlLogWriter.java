@@ -114,7 +114,8 @@ public class JsonlLogWriter extends BaseLogEventWriter implements Configurable {
                 events
             );
             p.println(mapper.writeValueAsString(logEvt));
-            p.flush();
+            if (!Logger.isBatching())
+                p.flush();
         } catch (JsonProcessingException e) {
             p.println("{\"error\":\"" + e.getMessage().replace("\"", "'") + "\"}");
             p.flush();
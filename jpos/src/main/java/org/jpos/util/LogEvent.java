@@ -501,4 +501,15 @@ public class LogEvent implements AuditLogEventConvertible {
     public Instant getCreatedAt() {
         return createdAt;
     }
+
+    /**
+     * Restores the timestamps of an event read back from a recording.
+     *
+     * @param createdAt creation timestamp
+     * @param dumpedAt dump timestamp
+     */
+    synchronized void setTimestamps (Instant createdAt, Instant dumpedAt) {
+        this.createdAt = createdAt;
+        this.dumpedAt = dumpedAt;
+    }
 }
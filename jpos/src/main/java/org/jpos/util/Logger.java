@@ -52,8 +52,23 @@ public class Logger implements LogProducer,Configurable
     Configuration cfg;
     String name;
     List<LogListener> listeners;
+    private volatile AsyncLogDispatcher async;
     /** Prefix used to register loggers in {@code NameRegistrar}. */
     public static final String NRPREFIX = "logger.";
+    static final ThreadLocal<Boolean> BATCHING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * What {@link #log(LogEvent)} does when the asynchronous ring buffer is full.
+     * @since 3.0.2
+     */
+    public enum OverflowPolicy {
+        /** Wait for the writer thread to make room. */
+        BLOCK,
+        /** Drop {@code debug} and {@code trace} events, wait for room for everything else. */
+        DROP_DEBUG,
+        /** Drop any event, counting it in {@link #getDropped()}. */
+        DROP_ALL
+    }
 
     /** Default constructor. */
     public Logger () {
@@ -109,18 +124,95 @@ public class Logger implements LogProducer,Configurable
             l = getLogger(Q2.LOGGER_NAME);
         }
         if (l != null && l.hasListeners ()) {
-            Iterator<LogListener> i = l.listeners.iterator();
-            while (i.hasNext() && evt != null) {
-                try {
-                    evt = i.next().log(evt);
-                } catch (ConcurrentModificationException e) {
-                    break;
-                } catch (Throwable t) {
-                    evt.addMessage (t);
-                }
+            AsyncLogDispatcher d = l.async;
+            if (d == null || !d.offer (evt))
+                l.dispatch (evt);
+        }
+    }
+
+    void dispatch (LogEvent evt) {
+        Iterator<LogListener> i = listeners.iterator();
+        while (i.hasNext() && evt != null) {
+            try {
+                evt = i.next().log(evt);
+            } catch (ConcurrentModificationException e) {
+                break;
+            } catch (Throwable t) {
+                evt.addMessage (t);
             }
         }
     }
+
+    /**
+     * Switches this logger to asynchronous dispatch.
+     * <p>
+     * {@link #log(LogEvent)} queues events in a bounded ring buffer and returns;
+     * a single writer thread runs the listener chain, flushing
+     * {@link java.io.Flushable} listeners once per batch. Events must not be
+     * modified after being logged. Calling this method on a logger that is
+     * already asynchronous restarts it with the new settings.
+     *
+     * @param capacity ring buffer size (rounded up to a power of two)
+     * @param policy what to do when the ring buffer is full
+     * @param batchSize max events dispatched between flushes
+     * @since 3.0.2
+     */
+    public synchronized void startAsync (int capacity, OverflowPolicy policy, int batchSize) {
+        stopAsync();
+        AsyncLogDispatcher d = new AsyncLogDispatcher (this, capacity, policy, batchSize);
+        d.start();
+        async = d;
+    }
+
+    /**
+     * Drains the ring buffer and switches back to synchronous dispatch.
+     * No-op if this logger is not asynchronous.
+     * @since 3.0.2
+     */
+    public synchronized void stopAsync () {
+        AsyncLogDispatcher d = async;
+        if (d != null) {
+            async = null;
+            d.stop (10000L);
+        }
+    }
+
+    /**
+     * @return true if this logger dispatches events asynchronously
+     * @since 3.0.2
+     */
+    public boolean isAsync () {
+        return async != null;
+    }
+
+    /**
+     * @return events dropped by the current asynchronous dispatcher's overflow policy (0 if synchronous)
+     * @since 3.0.2
+     */
+    public long getDropped () {
+        AsyncLogDispatcher d = async;
+        return d != null ? d.getDropped() : 0L;
+    }
+
+    /**
+     * @return events waiting in the asynchronous ring buffer (0 if synchronous)
+     * @since 3.0.2
+     */
+    public int getBacklog () {
+        AsyncLogDispatcher d = async;
+        return d != null ? d.size() : 0;
+    }
+
+    /**
+     * Tells listeners running on an asynchronous writer thread that a flush
+     * will follow the current batch, so they can skip their per-event flush.
+     *
+     * @return true while the calling thread is draining a batch
+     * @since 3.0.2
+     */
+    public static boolean isBatching () {
+        return BATCHING.get();
+    }
     /**
      * associates this Logger with a name using NameRegistrar
      * @param name name to register
@@ -134,6 +226,7 @@ public class Logger implements LogProducer,Configurable
      * destroy logger
      */
     public void destroy () {
+        stopAsync ();
         NameRegistrar.unregister (NRPREFIX+name);
         removeAllListeners ();
     }
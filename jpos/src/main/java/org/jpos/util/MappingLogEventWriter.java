@@ -91,7 +91,8 @@ public class MappingLogEventWriter extends BaseLogEventWriter implements XmlConf
             } catch (IOException e) {
                 e.printStackTrace(p);
             } finally {
-                p.flush();
+                if (!Logger.isBatching())
+                    p.flush();
                 captureOutputStream.reset();
             }
         } else {
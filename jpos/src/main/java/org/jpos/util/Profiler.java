@@ -59,8 +59,22 @@ public class Profiler implements Loggeable, AuditLogEventConvertible {
     @SuppressWarnings("unchecked")
     public synchronized void checkPoint (String detail) {
         long now = System.nanoTime();
+        add (detail, now - partial, now);
+        partial = now;
+    }
+    /**
+     * Records a checkpoint with an explicit duration, for work that ran
+     * concurrently with the profiled thread. The partial timer is not reset.
+     * @param detail checkpoint information
+     * @param durationInNanos measured duration
+     * @since 3.0.2
+     */
+    public synchronized void checkPoint (String detail, long durationInNanos) {
+        add (detail, durationInNanos, System.nanoTime());
+    }
+    private void add (String detail, long duration, long now) {
         Entry e = new Entry();
-        e.setDurationInNanos(now - partial);
+        e.setDurationInNanos(duration);
         e.setTotalDurationInNanos(now - start);
         if (events.containsKey(detail)) {
             for (int i=1; ;i++) {
@@ -73,7 +87,6 @@ public class Profiler implements Loggeable, AuditLogEventConvertible {
         }
         e.setEventName(detail);
         events.put (detail, e);
-        partial = now;
     }
     /**
      * Returns the total elapsed time since the last reset.
@@ -24,6 +24,7 @@ import org.jpos.core.Configuration;
 import org.jpos.core.ConfigurationException;
 import org.jpos.core.XmlConfigurable;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -174,10 +175,11 @@ public class RotateLogListener extends SimpleLogListener
         if (f != null)
             f.close();
         f = new FileOutputStream (logName, true);
-        setPrintStream (new PrintStream(f));
+        setPrintStream (new PrintStream(new BufferedOutputStream(f)));
         if (!hasWriter) {
             p.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
             p.println("<logger class=\"" + getClass().getName() + "\">");
+            p.flush();
         }
     }
     /**
@@ -187,8 +189,10 @@ public class RotateLogListener extends SimpleLogListener
     protected synchronized void closeLogFile() throws IOException {
         if (writer != null)
             writer.close();
-        else
+        else if (p != null) {
             p.println ("</logger>");
+            p.flush();
+        }
         if (f != null)
             f.close();
         f = null;
@@ -228,6 +232,7 @@ public class RotateLogListener extends SimpleLogListener
             p.println ("<log realm=\"rotate-log-listener\" at=\""+LocalDateTime.ofInstant(Instant.now(), ZoneId.systemDefault())+"\">");
             p.println ("   "+msg);
             p.println ("</log>");
+            p.flush();
         }
     }
     /** Checks whether the log file has exceeded {@code maxSize} and rotates if necessary. */
@@ -22,6 +22,7 @@ import org.jdom2.Element;
 import org.jpos.core.ConfigurationException;
 import org.jpos.core.XmlConfigurable;
 
+import java.io.Flushable;
 import java.io.PrintStream;
 
 /**
@@ -31,7 +32,7 @@ import java.io.PrintStream;
  * @see org.jpos.core.Configurable
  * @since jPOS 1.2
  */
-public class SimpleLogListener implements LogListener, XmlConfigurable, Destroyable {
+public class SimpleLogListener implements LogListener, XmlConfigurable, Destroyable, Flushable {
     LogEventWriter writer = null;
     PrintStream p;
 
@@ -77,12 +78,24 @@ public class SimpleLogListener implements LogListener, XmlConfigurable, Destroya
         } else {
             if (p != null) {
                 ev.dump(p, "");
-                p.flush();
+                if (!Logger.isBatching())
+                    p.flush();
             }
         }
         return ev;
     }
 
+    /**
+     * Flushes the underlying print stream; called once per batch by an
+     * asynchronous {@link Logger}.
+     * @since 3.0.2
+     */
+    @Override
+    public synchronized void flush() {
+        if (p != null)
+            p.flush();
+    }
+
     @Override
     public void setLogEventWriter (LogEventWriter writer) {
         this.writer = writer;
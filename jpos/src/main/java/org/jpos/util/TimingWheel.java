@@ -0,0 +1,249 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpos.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for large numbers of short-lived timeouts.
+ *
+ * <p>Scheduling and cancelling are O(1) and lock-free; a single daemon thread
+ * advances the wheel every tick and hands expired tasks to an {@link Executor}
+ * (a virtual thread per task by default). Timeouts fire no earlier than
+ * requested and at most one tick late, which suits request expiration far
+ * better than one {@code ScheduledFuture} per request.</p>
+ *
+ * @since 3.0.2
+ */
+public class TimingWheel {
+    /** Default tick duration, in milliseconds. */
+    public static final long DEFAULT_TICK = 10L;
+    /** Default number of buckets. */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static volatile TimingWheel defaultWheel;
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] wheel;
+    private final int mask;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final String name;
+    private volatile Thread worker;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a timing wheel.
+     *
+     * @param name worker thread name
+     * @param tick tick duration
+     * @param unit tick duration unit
+     * @param wheelSize number of buckets (rounded up to a power of two)
+     * @param executor runs expired tasks; {@code null} runs them on the wheel thread
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel (String name, long tick, TimeUnit unit, int wheelSize, Executor executor) {
+        if (tick <= 0L)
+            throw new IllegalArgumentException ("tick must be positive");
+        int size = Integer.highestOneBit (Math.max (wheelSize, 2) - 1) << 1;
+        this.name = name;
+        this.tickNanos = unit.toNanos (tick);
+        this.wheel = new ArrayDeque[size];
+        for (int i=0; i<size; i++)
+            wheel[i] = new ArrayDeque<>();
+        this.mask = size - 1;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a timing wheel that runs expired tasks on virtual threads.
+     *
+     * @param name worker thread name
+     * @param tick tick duration
+     * @param unit tick duration unit
+     * @param wheelSize number of buckets (rounded up to a power of two)
+     */
+    public TimingWheel (String name, long tick, TimeUnit unit, int wheelSize) {
+        this (name, tick, unit, wheelSize,
+          Executors.newThreadPerTaskExecutor (Thread.ofVirtual().name (name + "-task-", 0).factory()));
+    }
+
+    /**
+     * Returns the JVM-wide wheel ({@link #DEFAULT_TICK} ms tick, {@link #DEFAULT_WHEEL_SIZE} buckets).
+     *
+     * @return shared timing wheel
+     */
+    public static TimingWheel getDefault() {
+        if (defaultWheel == null) {
+            synchronized (TimingWheel.class) {
+                if (defaultWheel == null)
+                    defaultWheel = new TimingWheel ("timing-wheel", DEFAULT_TICK, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE);
+            }
+        }
+        return defaultWheel;
+    }
+
+    /**
+     * Schedules {@code task} to run once after {@code delay}.
+     *
+     * @param task task to run
+     * @param delay delay before running the task
+     * @param unit delay unit
+     * @return handle that can be used to cancel the task
+     */
+    public Timeout schedule (Runnable task, long delay, TimeUnit unit) {
+        if (stopped)
+            throw new IllegalStateException ("TimingWheel " + name + " stopped");
+        Timeout t = new Timeout (task, System.nanoTime() + unit.toNanos (Math.max (delay, 0L)));
+        pending.incrementAndGet();
+        incoming.add (t);
+        if (worker == null)
+            start();
+        return t;
+    }
+
+    /**
+     * Returns the number of scheduled tasks that have neither run nor been cancelled.
+     *
+     * @return pending timeouts
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the worker thread; pending tasks are discarded.
+     */
+    public void stop() {
+        stopped = true;
+        Thread t = worker;
+        if (t != null)
+            t.interrupt();
+    }
+
+    private synchronized void start() {
+        if (worker == null && !stopped) {
+            worker = Thread.ofPlatform().daemon().name (name).unstarted (this::run);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        long startTime = System.nanoTime();
+        long tick = 0L;
+        while (!stopped) {
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos (this, sleep);
+                if (stopped)
+                    return;
+            }
+            transfer (startTime, tick);
+            expire (wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transfer (long startTime, long tick) {
+        Timeout t;
+        while ((t = incoming.poll()) != null) {
+            if (t.state.get() != Timeout.PENDING)
+                continue;
+            long target = Math.max ((t.deadline - startTime) / tickNanos, tick);
+            t.rounds = (target - tick) / wheel.length;
+            wheel[(int) (target & mask)].addLast (t);
+        }
+    }
+
+    private void expire (ArrayDeque<Timeout> bucket) {
+        for (int n = bucket.size(); n > 0; n--) {
+            Timeout t = bucket.pollFirst();
+            if (t.state.get() != Timeout.PENDING)
+                continue;
+            if (t.rounds > 0L) {
+                t.rounds--;
+                bucket.addLast (t);
+            } else if (t.state.compareAndSet (Timeout.PENDING, Timeout.EXPIRED)) {
+                pending.decrementAndGet();
+                if (executor != null)
+                    executor.execute (t.task);
+                else
+                    t.task.run();
+            }
+        }
+    }
+
+    /**
+     * Handle to a task scheduled on a {@link TimingWheel}.
+     */
+    public final class Timeout {
+        static final int PENDING = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline;
+        final AtomicInteger state = new AtomicInteger (PENDING);
+        long rounds;
+
+        Timeout (Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         *
+         * @return true if this call cancelled the task
+         */
+        public boolean cancel() {
+            if (state.compareAndSet (PENDING, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Tells whether the task was cancelled.
+         *
+         * @return true if cancelled before it ran
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Tells whether the task has been handed to the executor.
+         *
+         * @return true once the timeout fired
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.metrics.iso;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jpos.core.ConfigurationException;
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.metrics.MeterInfo;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ISOMsgLatencyTest {
+
+    @Test
+    public void testDimensions() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ISOMsgLatency lat = new ISOMsgLatency();
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("field", "100");
+        cfg.put("field-tag", "issuer");
+        lat.setConfiguration(cfg);
+        lat.register(registry, Tags.of("name", "test-mux"));
+
+        lat.record(request("0100", "001"), response("0110", "00"), 10L);
+        lat.record(request("0100", "001"), response("0110", "00"), 30L);
+        lat.record(request("0100", "001"), response("0110", "05"), 20L);
+        lat.record(request("0800", null), null, 5L);
+
+        Timer approved = timer(registry, "0100", "00", "001");
+        assertNotNull(approved);
+        assertEquals(2L, approved.count());
+        assertEquals(1L, timer(registry, "0100", "05", "001").count());
+        assertEquals(1L, timer(registry, "0800", "timeout", "none").count());
+        assertEquals(3, lat.size());
+
+        var histograms = lat.getMetrics().metrics();
+        assertEquals(2L, histograms.get("0100.00.001").getTotalCount());
+        assertEquals(30L, histograms.get("0100.00.001").getMaxValue());
+
+        lat.unregister();
+        assertNull(Search.in(registry).name(MeterInfo.MUX_LATENCY.id()).timer());
+    }
+
+    @Test
+    public void testBoundedCardinality() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ISOMsgLatency lat = new ISOMsgLatency();
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("max-tags", "2");
+        lat.setConfiguration(cfg);
+        lat.register(registry, Tags.empty());
+
+        for (int i=0; i<10; i++)
+            lat.record(request("0200", null), response("0210", String.format("%02d", i)), 1L);
+        assertEquals(3, lat.size(), "two tuples plus 'other'");
+        assertEquals(8L, lat.getOverflow());
+        Timer other = Search.in(registry).name(MeterInfo.MUX_LATENCY.id())
+          .tags("mti", ISOMsgLatency.OTHER, "rc", ISOMsgLatency.OTHER).timer();
+        assertNotNull(other);
+        assertEquals(8L, other.count());
+    }
+
+    @Test
+    public void testInvalidField() {
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("field", "abc");
+        assertThrows(ConfigurationException.class, () -> new ISOMsgLatency().setConfiguration(cfg));
+    }
+
+    private static Timer timer (SimpleMeterRegistry registry, String mti, String rc, String issuer) {
+        return Search.in(registry).name(MeterInfo.MUX_LATENCY.id())
+          .tags("name", "test-mux", "mti", mti, "rc", rc, "issuer", issuer).timer();
+    }
+
+    private static ISOMsg request (String mti, String issuer) throws ISOException {
+        ISOMsg m = new ISOMsg(mti);
+        if (issuer != null)
+            m.set(100, issuer);
+        return m;
+    }
+
+    private static ISOMsg response (String mti, String rc) throws ISOException {
+        ISOMsg m = new ISOMsg(mti);
+        m.set(39, rc);
+        return m;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpos.q2.iso;
+
+import org.jpos.iso.ISOMsg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares compiled {@link KeyExtractor} keys with the legacy string-building
+ * QMUX key; run with {@code main}, optionally passing the iteration count.
+ */
+public class KeyExtractorBenchmark {
+    public static void main (String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Map<String,String[]> mtiKey = new HashMap<>();
+        mtiKey.put("02:381000", new String[] { "7", "11" });
+        String[] key = { "41", "11" };
+        KeyExtractor x = new KeyExtractor("send", key, mtiKey, KeyExtractorTest.NOMAP, false);
+
+        ISOMsg[] msgs = new ISOMsg[1024];
+        for (int i=0; i<msgs.length; i++) {
+            ISOMsg m = new ISOMsg(i % 2 == 0 ? "0200" : "0210");
+            m.set(3, i % 3 == 0 ? "381000" : "000000");
+            m.set(7, "0102030405");
+            m.set(11, Integer.toString(i));
+            m.set(41, "29110001");
+            msgs[i] = m;
+        }
+        for (int round=0; round<3; round++) {
+            long sink = 0L;
+            long start = System.nanoTime();
+            for (int i=0; i<iterations; i++)
+                sink += KeyExtractorTest.legacyKey(msgs[i & 1023], "send", key, mtiKey, KeyExtractorTest.NOMAP, false).hashCode();
+            long legacy = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i=0; i<iterations; i++)
+                sink += x.extract(msgs[i & 1023]).hashCode();
+            long compiled = System.nanoTime() - start;
+            System.out.printf ("round %d: legacy %.1f ns/key, compiled %.1f ns/key (%d)%n",
+              round, (double) legacy / iterations, (double) compiled / iterations, sink & 1);
+        }
+    }
+}
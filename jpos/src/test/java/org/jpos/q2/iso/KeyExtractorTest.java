@@ -0,0 +1,175 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpos.q2.iso;
+
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.header.BaseHeader;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyExtractorTest {
+    static final String[] NOMAP = { QMUX.nomap, QMUX.nomap, "0022446689" };
+
+    @Test
+    public void testMatchesLegacyKeys() throws Exception {
+        Map<String,String[]> mtiKey = new HashMap<>();
+        mtiKey.put("02:381000", new String[] { "7", "11" });
+        mtiKey.put("02:261000", new String[] { "7", "11", "41" });
+        mtiKey.put("04", new String[] { "11", "41", "37" });
+        String[] key = { "41", "11" };
+        KeyExtractor x = new KeyExtractor("send", key, mtiKey, NOMAP, false);
+
+        Random rnd = new Random(42L);
+        String[] mtis = { "0100", "0110", "0200", "0210", "0400", "0410", "0800", "0810", "1200", "2100", "210" };
+        String[] pcodes = { null, "381000", "261000", "000000", " 381000 ", "" };
+        for (int i=0; i<5000; i++) {
+            ISOMsg m = new ISOMsg(mtis[rnd.nextInt(mtis.length)]);
+            String pcode = pcodes[rnd.nextInt(pcodes.length)];
+            if (pcode != null)
+                m.set(3, pcode);
+            m.set(7, "0102030405");
+            if (rnd.nextInt(10) > 0)
+                m.set(11, rnd.nextBoolean() ? Integer.toString(rnd.nextInt(999999)) : " " + rnd.nextInt(99) + " ");
+            if (rnd.nextBoolean())
+                m.set(37, "RRN" + i);
+            if (rnd.nextInt(10) > 0)
+                m.set(41, rnd.nextBoolean() ? "TERM" + rnd.nextInt(100) : " 29110001 ");
+            String expected, actual;
+            try {
+                expected = legacyKey(m, "send", key, mtiKey, NOMAP, false);
+            } catch (ISOException e) {
+                expected = e.getMessage();
+            }
+            try {
+                actual = x.extract(m).toString();
+            } catch (ISOException e) {
+                actual = e.getMessage();
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testHeaderIsKey() throws Exception {
+        KeyExtractor x = new KeyExtractor("out", new String[] { "11" }, new HashMap<>(), NOMAP, true);
+        ISOMsg m = new ISOMsg("0800");
+        m.set(11, "1");
+        m.setHeader(new BaseHeader(new byte[] { 0x01, (byte) 0xAB }));
+        assertEquals("out.080.01AB.000001", x.extract(m).toString());
+        assertEquals(legacyKey(m, "out", new String[] { "11" }, new HashMap<>(), NOMAP, true), x.extract(m).toString());
+    }
+
+    @Test
+    public void testErrors() {
+        KeyExtractor x = new KeyExtractor("out", new String[] { "11", "41" }, new HashMap<>(), NOMAP, false);
+        ISOException e = assertThrows(ISOException.class, () -> x.extract(new ISOMsg("0800")));
+        assertEquals("Key fields not found - not sending out.080", e.getMessage());
+        ISOMsg m = new ISOMsg("0800");
+        m.set(41, "12345678901234567");
+        assertThrows(ISOException.class, () -> x.extract(m));
+    }
+
+    @Test
+    public void testKeyEquality() throws Exception {
+        KeyExtractor x = new KeyExtractor("out", new String[] { "11" }, new HashMap<>(), NOMAP, false);
+        ISOMsg req = new ISOMsg("0200");
+        req.set(11, "12");
+        ISOMsg resp = (ISOMsg) req.clone();
+        resp.setResponseMTI();
+        KeyExtractor.Key k = x.extract(req);
+        assertEquals(k, x.extract(resp));
+        assertEquals(k.hashCode(), x.extract(resp).hashCode());
+        assertEquals(k, KeyExtractor.Key.of("out.020000012"));
+        assertNotEquals(k, KeyExtractor.Key.of("out.020000013"));
+    }
+
+    /**
+     * Key building as done by QMUX before keys were compiled; kept as the reference
+     * for {@link #testMatchesLegacyKeys()} and {@link KeyExtractorBenchmark}.
+     */
+    static String legacyKey (ISOMsg m, String out, String[] key, Map<String,String[]> mtiKey, String[] mtiMapping, boolean headerIsKey)
+      throws ISOException
+    {
+        StringBuilder sb = new StringBuilder (out);
+        sb.append ('.');
+        sb.append (legacyMapMTI(m.getMTI(), mtiMapping));
+        if (headerIsKey && m.getHeader()!=null) {
+            sb.append ('.');
+            sb.append(ISOUtil.hexString(m.getHeader()));
+            sb.append ('.');
+        }
+        boolean hasFields = false;
+        String mti = m.getMTI();
+        String mtiPrefix = mti.substring(0,2);
+        String[] k = null;
+        String pcode = m.hasField(3) ? sanitize(m.getString(3)) : null;
+        if (pcode != null)
+            k = mtiKey.get(mtiPrefix + ':' + pcode);
+        if (k == null)
+            k = mtiKey.getOrDefault(mtiPrefix, key);
+        for (String f : k) {
+            String v = m.getString(f);
+            if (v != null) {
+                if ("11".equals(f)) {
+                    String vt = v.trim();
+                    int l = m.getMTI().charAt(0) == '2' ? 12 : 6;
+                    if (vt.length() < l)
+                        v = ISOUtil.zeropad(vt, l);
+                }
+                if ("41".equals(f)) {
+                    v = ISOUtil.zeropad(v.trim(), 16);
+                }
+                hasFields = true;
+                sb.append(v);
+            }
+        }
+        if (!hasFields)
+            throw new ISOException ("Key fields not found - not sending " + sb.toString());
+        return sb.toString();
+    }
+
+    private static String sanitize (String pcode) {
+        if (pcode == null)
+            return null;
+        String trimmed = pcode.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String legacyMapMTI (String mti, String[] mtiMapping) throws ISOException {
+        StringBuilder sb = new StringBuilder();
+        if (mti != null) {
+            if (mti.length() < 4)
+                mti = ISOUtil.zeropad(mti, 4);
+            if (mti.length() == 4) {
+                for (int i=0; i<mtiMapping.length; i++) {
+                    int c = mti.charAt (i) - '0';
+                    if (c >= 0 && c < 10)
+                        sb.append (mtiMapping[i].charAt(c));
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
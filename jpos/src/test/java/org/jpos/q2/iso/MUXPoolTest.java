@@ -23,9 +23,23 @@ import static org.apache.commons.lang3.SystemUtils.isJavaVersionAtMost;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.jdom2.Element;
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOException;
 import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOResponseListener;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.MUX;
+import org.jpos.q2.Q2;
+import org.jpos.space.Space;
+import org.jpos.space.SpaceFactory;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MUXPoolTest {
     @Test
     public void testInitServiceThrowsNullPointerException() throws Throwable {
@@ -87,4 +101,276 @@ public class MUXPoolTest {
         mUXPool.stopService();
         assertNull(mUXPool.getName(), "mUXPool.getName()");
     }
+
+    @Test
+    public void testLeastPending() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        MUXPool pool = pool(MUXPool.LEAST_PENDING, a, b);
+        pool.members[0].begin();
+        pool.members[0].begin();
+        for (int i=0; i<4; i++)
+            assertNotNull(pool.request(new ISOMsg("0800"), 1000L));
+        assertEquals(0, a.requests.get());
+        assertEquals(4, b.requests.get());
+    }
+
+    @Test
+    public void testEwmaLatency() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.delay = 50L;
+        MUXPool pool = pool(MUXPool.EWMA_LATENCY, a, b);
+        pool.request(new ISOMsg("0800"), 1000L); // warm both members up
+        pool.request(new ISOMsg("0800"), 1000L);
+        assertTrue(pool.members[0].ewma() > pool.members[1].ewma());
+        for (int i=0; i<4; i++)
+            pool.request(new ISOMsg("0800"), 1000L);
+        assertEquals(1, a.requests.get());
+        assertEquals(5, b.requests.get());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.answer = false;
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        pool.breakerFailureRate = 0.5;
+        pool.breakerMinRequests = 4;
+        pool.breakerOpenTime = 200L;
+        for (int i=0; i<4; i++)
+            assertNull(pool.request(new ISOMsg("0800"), 1000L));
+        assertTrue(pool.members[0].isOpen());
+        assertEquals(1L, pool.members[0].getOpenCount());
+        assertNotNull(pool.request(new ISOMsg("0800"), 1000L));
+        assertEquals(4, a.requests.get());
+        assertEquals(1, b.requests.get());
+
+        Thread.sleep(250L);
+        assertNull(pool.request(new ISOMsg("0800"), 1000L), "half-open probe goes to the primary");
+        assertEquals(5, a.requests.get());
+        assertTrue(pool.members[0].isOpen(), "failed probe re-opens the breaker");
+        assertEquals(2L, pool.members[0].getOpenCount());
+
+        a.answer = true;
+        Thread.sleep(250L);
+        assertNotNull(pool.request(new ISOMsg("0800"), 1000L));
+        assertFalse(pool.members[0].isOpen(), "successful probe closes the breaker");
+        assertEquals(6, a.requests.get());
+    }
+
+    @Test
+    public void testSingleHalfOpenProbe() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.answer = false;
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        pool.breakerFailureRate = 0.5;
+        pool.breakerMinRequests = 2;
+        pool.breakerOpenTime = 100L;
+        for (int i=0; i<2; i++)
+            assertNull(pool.request(new ISOMsg("0800"), 1000L));
+        assertTrue(pool.members[0].isOpen());
+        Thread.sleep(150L);
+
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i=0; i<threads.length; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException ignored) { }
+                if (pool.members[0].admit())
+                    admitted.incrementAndGet();
+            });
+        }
+        go.countDown();
+        for (Thread t : threads)
+            t.join();
+        assertEquals(1, admitted.get(), "only one request may probe a half-open breaker");
+
+        AtomicInteger selections = new AtomicInteger();
+        pool.strategyHandler = (p, m, maxWait) -> selections.getAndIncrement() == 0 ? a : null; // selected before the probe started
+        assertNotNull(pool.request(new ISOMsg("0800"), 1000L), "probe loser should be routed to the secondary");
+        assertEquals(2, a.requests.get());
+        assertEquals(1, b.requests.get());
+    }
+
+    @Test
+    public void testWakeOnReconnect() throws Exception {
+        QMUX qmux = new QMUX();
+        qmux.setServer(new Q2());
+        qmux.setConfiguration(new SimpleConfiguration());
+        Element persist = new Element("qmux");
+        persist.addContent(new Element("space").setText("tspace:muxpool-test"));
+        persist.addContent(new Element("in").setText("pool-test.in"));
+        persist.addContent(new Element("out").setText("pool-test.out"));
+        persist.addContent(new Element("ready").setText("pool-test.ready"));
+        qmux.setPersist(persist);
+        qmux.setName("muxpool-test");
+        qmux.init();
+        qmux.start();
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, qmux);
+        pool.startService();
+        Space sp = SpaceFactory.getSpace("tspace:muxpool-test");
+        try {
+            new Thread(() -> {
+                ISOUtil.sleep(100L);
+                sp.out("pool-test.ready", new Date());
+                try {
+                    ISOMsg m = (ISOMsg) sp.in("pool-test.out", 2000L);
+                    m.setResponseMTI();
+                    sp.out("pool-test.in", m);
+                } catch (Exception ignored) { }
+            }).start();
+            long start = System.currentTimeMillis();
+            ISOMsg m = new ISOMsg("0800");
+            m.set(11, "000001");
+            m.set(41, "29110001");
+            assertNotNull(pool.request(m, 3000L));
+            assertTrue(System.currentTimeMillis() - start < 900L, "pool waited for the poll interval instead of the ready signal");
+        } finally {
+            pool.stopService();
+            qmux.stop();
+            qmux.destroy();
+            sp.inp("pool-test.ready");
+        }
+    }
+
+    @Test
+    public void testRequestAsyncDoesNotWaitForMUX() {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.connected = b.connected = false;
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        long start = System.currentTimeMillis();
+        CompletableFuture<ISOMsg> f = pool.requestAsync(new ISOMsg("0800"), Duration.ofSeconds(5L));
+        assertTrue(System.currentTimeMillis() - start < 1000L, "requestAsync waited for a usable MUX");
+        assertTrue(f.isCompletedExceptionally());
+        assertEquals(0, a.requests.get() + b.requests.get());
+    }
+
+    @Test
+    public void testHedging() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.delay = 500L;
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        pool.hedgeMTIs = new String[] { "0100" };
+        pool.hedgePCodes = new String[] { "31" };
+        pool.hedgeBudget = 100.0;
+        pool.hedgeDelay = 50L;
+        pool.hedgeMinSamples = 100;
+        pool.hedgeWindow = 10000L;
+
+        ISOMsg m = new ISOMsg("0100");
+        m.set(3, "310000");
+        long start = System.currentTimeMillis();
+        assertNotNull(pool.request(m, 2000L));
+        assertTrue(System.currentTimeMillis() - start < 400L, "hedge answer should win");
+        assertEquals(1L, pool.getHedges());
+        assertEquals(1L, pool.getHedgeWins());
+        assertNotNull(pool.requestAsync(m, Duration.ofMillis(2000L)).get());
+        assertEquals(2L, pool.getHedges());
+        assertEquals(2L, pool.getHedgeWins());
+
+        m.set(3, "000000"); // not in hedge-pcode
+        assertNotNull(pool.request(m, 2000L));
+        assertEquals(2L, pool.getHedges());
+        assertEquals(3, a.requests.get());
+        assertEquals(2, b.requests.get());
+
+        a.delay = 0L;
+        m.set(3, "310000"); // primary answers before the hedge delay
+        assertNotNull(pool.request(m, 2000L));
+        assertEquals(2L, pool.getHedges());
+        assertEquals(2, b.requests.get());
+    }
+
+    @Test
+    public void testHedgeBudget() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.delay = 200L;
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        pool.hedgeMTIs = new String[] { "0800" };
+        pool.hedgeBudget = 50.0;
+        pool.hedgeDelay = 20L;
+        pool.hedgeMinSamples = 100;
+        pool.hedgeWindow = 10000L;
+        for (int i=0; i<4; i++)
+            assertNotNull(pool.request(new ISOMsg("0800"), 2000L));
+        assertEquals(2L, pool.getHedges(), "50% budget allows a hedge every other request");
+        assertEquals(2L, pool.getHedgeWins());
+    }
+
+    @Test
+    public void testHedgedRequestHonorsTimeout() throws Exception {
+        StubMUX a = new StubMUX(), b = new StubMUX();
+        a.delay = b.delay = 2000L; // neither member honors the timeout
+        MUXPool pool = pool(MUXPool.PRIMARY_SECONDARY, a, b);
+        pool.hedgeMTIs = new String[] { "0800" };
+        pool.hedgeBudget = 100.0;
+        pool.hedgeDelay = 20L;
+        pool.hedgeMinSamples = 100;
+        pool.hedgeWindow = 10000L;
+        long start = System.currentTimeMillis();
+        assertNull(pool.request(new ISOMsg("0800"), 200L));
+        assertTrue(System.currentTimeMillis() - start < 1000L, "hedged request outlived its timeout");
+        assertEquals(1L, pool.getHedges());
+    }
+
+    private static MUXPool pool (int strategy, MUX... muxes) {
+        MUXPool pool = new MUXPool();
+        pool.strategy = strategy;
+        pool.mux = muxes;
+        pool.muxName = new String[muxes.length];
+        pool.members = new MUXPool.Member[muxes.length];
+        pool.ewmaAlpha = 0.5;
+        for (int i=0; i<muxes.length; i++) {
+            pool.muxName[i] = "m" + i;
+            pool.members[i] = pool.new Member(pool.muxName[i]);
+        }
+        return pool;
+    }
+
+    static class StubMUX implements MUX {
+        final AtomicInteger requests = new AtomicInteger();
+        volatile boolean answer = true;
+        volatile boolean connected = true;
+        volatile long delay;
+
+        @Override
+        public ISOMsg request(ISOMsg m, long timeout) throws ISOException {
+            requests.incrementAndGet();
+            if (delay > 0L)
+                ISOUtil.sleep(delay);
+            if (!answer)
+                return null;
+            ISOMsg r = (ISOMsg) m.clone();
+            r.setResponseMTI();
+            return r;
+        }
+
+        @Override
+        public void request(ISOMsg m, long timeout, ISOResponseListener r, Object handBack) throws ISOException {
+            r.responseReceived(request(m, timeout), handBack);
+        }
+
+        @Override
+        public CompletableFuture<ISOMsg> requestAsync(ISOMsg m, Duration timeout) {
+            CompletableFuture<ISOMsg> f = new CompletableFuture<>();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    f.complete(request(m, timeout.toMillis()));
+                } catch (ISOException e) {
+                    f.completeExceptionally(e);
+                }
+            });
+            return f;
+        }
+
+        @Override
+        public void send(ISOMsg m) { }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
 }
@@ -0,0 +1,255 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.q2.iso;
+
+import org.jpos.core.ConfigurationException;
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOException;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOResponseListener;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.MUX;
+import org.jpos.util.NameRegistrar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MUXProxyTest {
+    LocalMUX local;
+    MUXProxyServer server;
+    MUXProxyClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        local = new LocalMUX();
+        NameRegistrar.register("mux.proxy-test-local", local);
+        server = new MUXProxyServer();
+        server.setName("proxy-test-server");
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("mux", "proxy-test-local");
+        cfg.put("port", "0");
+        cfg.put("bind-address", "127.0.0.1");
+        server.setConfiguration(cfg);
+        server.init();
+        server.start();
+        assertTrue(server.getLocalPort() > 0);
+
+        client = new MUXProxyClient();
+        client.setName("proxy-test-client");
+        cfg = new SimpleConfiguration();
+        cfg.put("host", "127.0.0.1");
+        cfg.put("port", Integer.toString(server.getLocalPort()));
+        cfg.put("reconnect-delay", "100");
+        client.setConfiguration(cfg);
+        client.init();
+        client.start();
+        waitFor(client::isConnected);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.stop();
+        client.destroy();
+        server.stop();
+        NameRegistrar.unregister("mux.proxy-test-local");
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        ISOMsg resp = client.request(request(1), 5000L);
+        assertNotNull(resp);
+        assertEquals("0810", resp.getMTI());
+        assertEquals("000001", resp.getString(11));
+        assertEquals("00", resp.getString(39));
+        assertSame(client, NameRegistrar.get("mux.proxy-test-client"));
+    }
+
+    @Test
+    public void testPipelining() throws Exception {
+        local.delay = 50L;
+        List<CompletableFuture<ISOMsg>> futures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i=1; i<=200; i++)
+            futures.add(client.requestAsync(request(i), Duration.ofSeconds(5)));
+        for (int i=1; i<=200; i++) {
+            ISOMsg resp = futures.get(i-1).get(5, TimeUnit.SECONDS);
+            assertNotNull(resp);
+            assertEquals(ISOUtil.zeropad(i, 6), resp.getString(11));
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000L, "requests should be outstanding concurrently");
+        assertEquals(200L, client.getRX());
+        assertEquals(200L, server.getResponses());
+        assertEquals(0, client.getPending());
+    }
+
+    @Test
+    public void testExpiredAndCallback() throws Exception {
+        local.answer = false;
+        assertNull(client.request(request(1), 200L));
+        waitFor(() -> server.getExpirations() == 1L);
+
+        local.answer = true;
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ISOMsg> ref = new AtomicReference<>();
+        client.request(request(2), 5000L, new ISOResponseListener() {
+            @Override
+            public void responseReceived(ISOMsg resp, Object handBack) {
+                ref.set(resp);
+                latch.countDown();
+            }
+            @Override
+            public void expired(Object handBack) {
+                latch.countDown();
+            }
+        }, null);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("000002", ref.get().getString(11));
+    }
+
+    @Test
+    public void testStatusAndReconnect() throws Exception {
+        local.connected = false;
+        waitFor(() -> !client.isConnected());
+        local.connected = true;
+        waitFor(client::isConnected);
+
+        server.port = server.getLocalPort(); // restart on the same port
+        server.stop();
+        waitFor(() -> !client.isConnected());
+        assertThrows(ISOException.class, () -> client.request(request(1), 1000L));
+        server.start();
+        waitFor(client::isConnected);
+        assertNotNull(client.request(request(2), 5000L));
+    }
+
+    @Test
+    public void testRequestLimits() throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class,
+          () -> client.requestAsync(request(1), Duration.ZERO).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ISOException.class, e.getCause());
+
+        server.maxInflight = 2;
+        local.delay = 500L;
+        List<CompletableFuture<ISOMsg>> futures = new ArrayList<>();
+        for (int i=2; i<=4; i++)
+            futures.add(client.requestAsync(request(i), Duration.ofSeconds(5)));
+        e = assertThrows(ExecutionException.class, () -> futures.get(2).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("in flight"));
+        assertNotNull(futures.get(0).get(5, TimeUnit.SECONDS));
+        assertNotNull(futures.get(1).get(5, TimeUnit.SECONDS));
+        assertNotNull(client.request(request(5), 5000L), "slots are released as responses complete");
+    }
+
+    @Test
+    public void testAccessControl() throws Exception {
+        String[] allow = { "10.0.0.2", "10.0.1.*" };
+        assertTrue(MUXProxyServer.isAllowed(InetAddress.getLoopbackAddress(), new String[0]));
+        assertTrue(MUXProxyServer.isAllowed(InetAddress.getByName("10.0.0.2"), allow));
+        assertTrue(MUXProxyServer.isAllowed(InetAddress.getByName("10.0.1.77"), allow));
+        assertFalse(MUXProxyServer.isAllowed(InetAddress.getByName("10.0.0.3"), allow));
+        assertFalse(MUXProxyServer.isAllowed(InetAddress.getByName("10.0.0.2"), new String[0]));
+
+        MUXProxyServer open = new MUXProxyServer();
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("mux", "proxy-test-local");
+        cfg.put("port", "0");
+        cfg.put("bind-address", "0.0.0.0");
+        open.setConfiguration(cfg);
+        assertThrows(ConfigurationException.class, open::initService, "non-loopback bind-address requires an allow list");
+        cfg.put("allow", "10.0.0.2");
+        open.setConfiguration(cfg);
+        open.initService();
+    }
+
+    private static ISOMsg request (int stan) throws ISOException {
+        ISOMsg m = new ISOMsg("0800");
+        m.set(11, ISOUtil.zeropad(stan, 6));
+        m.set(41, "29110001");
+        m.set(70, "301");
+        return m;
+    }
+
+    private static void waitFor (BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000L;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end)
+                fail("condition not met");
+            Thread.sleep(10L);
+        }
+    }
+
+    static class LocalMUX implements MUX {
+        volatile boolean connected = true;
+        volatile boolean answer = true;
+        volatile long delay;
+
+        @Override
+        public CompletableFuture<ISOMsg> requestAsync(ISOMsg m, Duration timeout) {
+            CompletableFuture<ISOMsg> f = new CompletableFuture<>();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    f.complete(request(m, timeout.toMillis()));
+                } catch (ISOException e) {
+                    f.completeExceptionally(e);
+                }
+            });
+            return f;
+        }
+
+        @Override
+        public ISOMsg request(ISOMsg m, long timeout) throws ISOException {
+            if (!answer) {
+                ISOUtil.sleep(timeout);
+                return null;
+            }
+            if (delay > 0L)
+                ISOUtil.sleep(delay);
+            ISOMsg r = (ISOMsg) m.clone();
+            r.setResponseMTI();
+            r.set(39, "00");
+            return r;
+        }
+
+        @Override
+        public void request(ISOMsg m, long timeout, ISOResponseListener rl, Object handBack) throws ISOException {
+            rl.responseReceived(request(m, timeout), handBack);
+        }
+
+        @Override
+        public void send(ISOMsg m) { }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
+}
@@ -22,7 +22,9 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -38,10 +40,13 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unchecked")
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -82,10 +87,10 @@ public class QMUXTestCase implements ISOResponseListener {
     public void testExpiredMessage() throws Exception {
         mux.request(createMsg("000001"), 500L, this, "Handback One");
         assertFalse(expiredCalled, "expired called too fast");
-        assertNotNull(getInternalSpace(mux).rdp("send.0800000000029110001000001.req"), "Space doesn't contain message key");
+        assertTrue(((QMUX) mux).isPending("send.0800000000029110001000001"), "Space doesn't contain message key");
         Thread.sleep(1000L);
         assertTrue(expiredCalled, "expired has not been called after 1 second");
-        assertNull(getInternalSpace(mux).rdp("send.0800000000029110001000001.req"), "Cleanup failed, Space still contains message key");
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000001"), "Cleanup failed, Space still contains message key");
         assertEquals("Handback One", receivedHandback, "Handback One not received");
     }
 
@@ -95,17 +100,76 @@ public class QMUXTestCase implements ISOResponseListener {
         assertFalse(expiredCalled, "expired called too fast");
         ISOMsg m = (ISOMsg) sp.in("send", 500L);
         assertNotNull(m, "Message not received by pseudo-channel");
-        assertNotNull(getInternalSpace(mux).rdp("send.0800000000029110001000002.req"), "Space doesn't contain message key");
+        assertTrue(((QMUX) mux).isPending("send.0800000000029110001000002"), "Space doesn't contain message key");
         m.setResponseMTI();
         sp.out("receive", m);
         Thread.sleep(100L);
         assertNotNull(responseMsg, "Response not received");
         Thread.sleep(1000L);
         assertFalse(expiredCalled, "Response received but expired was called");
-        assertNull(getInternalSpace(mux).rdp("send.0800000000029110001000002.req"), "Cleanup failed, Space still contains message key");
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000002"), "Cleanup failed, Space still contains message key");
         assertEquals("Handback Two", receivedHandback, "Handback Two not received");
     }
 
+    @Test
+    public void testDuplicateKey() throws Exception {
+        mux.request(createMsg("000003"), 500L, this, "Handback Three");
+        assertThrows(ISOException.class, () -> mux.request(createMsg("000003"), 500L));
+        assertThrows(ISOException.class, () -> mux.request(createMsg("000003"), 500L, this, "Handback Four"));
+        assertNotNull(sp.in("send", 500L));
+        Thread.sleep(1000L);
+        assertTrue(expiredCalled, "expired has not been called after 1 second");
+        assertEquals("Handback Three", receivedHandback);
+    }
+
+    @Test
+    public void testSyncRequest() throws Exception {
+        new Thread(() -> {
+            ISOMsg m = (ISOMsg) sp.in("send", 1000L);
+            if (m != null) {
+                try {
+                    m.setResponseMTI();
+                    m.set(39, "00");
+                } catch (ISOException ignored) { }
+                sp.out("receive", m);
+            }
+        }).start();
+        ISOMsg resp = mux.request(createMsg("000005"), 2000L);
+        assertNotNull(resp, "Response not received");
+        assertEquals("0810", resp.getMTI());
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000005"));
+        assertNull(mux.request(createMsg("000006"), 200L), "unanswered request should time out");
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000006"));
+    }
+
+    @Test
+    public void testRequestAsync() throws Exception {
+        CompletableFuture<ISOMsg> f = mux.requestAsync(createMsg("000007"), Duration.ofSeconds(2L));
+        assertTrue(((QMUX) mux).isPending("send.0800000000029110001000007"));
+        ISOMsg m = (ISOMsg) sp.in("send", 500L);
+        assertNotNull(m, "Message not received by pseudo-channel");
+        m.setResponseMTI();
+        sp.out("receive", m);
+        ISOMsg resp = f.get(1L, TimeUnit.SECONDS);
+        assertNotNull(resp, "Response not received");
+        assertEquals("0810", resp.getMTI());
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000007"));
+
+        CompletableFuture<ISOMsg> expired = mux.requestAsync(createMsg("000008"), Duration.ofMillis(200L));
+        assertNull(expired.get(2L, TimeUnit.SECONDS), "unanswered request should complete with null");
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000008"));
+    }
+
+    @Test
+    public void testRequestAsyncRejectsNonPositiveTimeout() throws Exception {
+        int pendingBefore = ((QMUX) mux).getRXPending();
+        CompletableFuture<ISOMsg> f = mux.requestAsync(createMsg("000009"), Duration.ZERO);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(1L, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        assertFalse(((QMUX) mux).isPending("send.0800000000029110001000009"));
+        assertEquals(pendingBefore, ((QMUX) mux).getRXPending());
+    }
+
     @AfterAll
     public static void tearDown() throws Exception {
         Thread.sleep(2000L); // let the thing run
@@ -113,6 +177,46 @@ public class QMUXTestCase implements ISOResponseListener {
         Thread.sleep(2000L);
     }
 
+    @Test
+    public void testCoalescing() throws Exception {
+        QMUX qmux = (QMUX) mux;
+        int coalesced = qmux.getRXCoalesced();
+        ISOMsg req = createMsg("000010");
+        req.setMTI("0100");
+        CompletableFuture<ISOMsg> original = mux.requestAsync(req, Duration.ofSeconds(5));
+        CompletableFuture<ISOMsg> retransmission = mux.requestAsync((ISOMsg) req.clone(), Duration.ofSeconds(5));
+        CompletableFuture<ISOMsg> sync = CompletableFuture.supplyAsync(() -> {
+            try {
+                return mux.request((ISOMsg) req.clone(), 5000L);
+            } catch (ISOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        ISOMsg m = (ISOMsg) sp.in("send", 1000L);
+        assertNotNull(m);
+        while (qmux.getRXCoalesced() < coalesced + 2)
+            Thread.sleep(10L);
+        m.setResponseMTI();
+        m.set(39, "00");
+        sp.out("receive", m);
+
+        ISOMsg resp = original.get(5, TimeUnit.SECONDS);
+        assertNotNull(resp);
+        ISOMsg r2 = retransmission.get(5, TimeUnit.SECONDS);
+        ISOMsg r3 = sync.get(5, TimeUnit.SECONDS);
+        assertEquals("00", r2.getString(39));
+        assertEquals("00", r3.getString(39));
+        assertNotSame(resp, r2, "coalesced requests get a clone");
+        assertNotSame(r2, r3);
+        assertNull(sp.rdp("send"), "only the original goes to the host");
+        assertEquals(coalesced + 2, qmux.getRXCoalesced());
+
+        ISOMsg echo = createMsg("000011"); // 0800 is not listed in coalesce-mti
+        mux.requestAsync(echo, Duration.ofMillis(500L));
+        assertThrows(ISOException.class, () -> mux.request((ISOMsg) echo.clone(), 500L));
+        assertNotNull(sp.in("send", 500L));
+    }
+
     private ISOMsg createMsg(String stan) throws ISOException {
         ISOMsg m = new ISOMsg("0800");
         m.set(11, stan);
@@ -147,10 +251,4 @@ public class QMUXTestCase implements ISOResponseListener {
             assertEquals(((QMUX) mux).getKey(request), ((QMUX) mux).getKey(response));
         }
     }
-
-    private Space getInternalSpace (MUX mux) throws NoSuchFieldException, IllegalAccessException {
-        Field field = mux.getClass().getDeclaredField("isp");
-        field.setAccessible(true);
-        return (Space) field.get(mux);
-    }
 }
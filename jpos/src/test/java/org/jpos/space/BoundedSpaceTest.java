@@ -0,0 +1,173 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+public class BoundedSpaceTest {
+    @Test
+    public void testParseLimits() {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "*.in=10,q=5/timeout/250, x=1/drop-oldest");
+        assertEquals(3, sp.getLimits().size());
+        assertEquals(new BoundedSpace.Limit("*.in", 10, BoundedSpace.Policy.BLOCK, 0L), sp.getLimit("channel.in"));
+        assertEquals(BoundedSpace.Policy.TIMEOUT, sp.getLimit("q").policy());
+        assertEquals(250L, sp.getLimit("q").timeout());
+        assertNull(sp.getLimit("other"));
+        assertThrows(IllegalArgumentException.class, () -> sp.addLimits("bad"));
+        assertThrows(IllegalArgumentException.class, () -> sp.addLimits("k=1/never"));
+    }
+
+    @Test
+    public void testUnboundedKey() {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "q=1/reject");
+        for (int i=0; i<10; i++)
+            sp.out("free", i);
+        assertEquals(10, sp.size("free"));
+    }
+
+    @Test
+    public void testReject() {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new LSpace<>(), "q=2/reject");
+        sp.out("q", 1);
+        sp.push("q", 0);
+        assertThrows(SpaceError.class, () -> sp.out("q", 2));
+        assertEquals(1L, sp.getRejected("q"));
+        assertEquals(0, sp.inp("q"));
+        sp.out("q", 2);
+        assertEquals(2, sp.size("q"));
+    }
+
+    @Test
+    public void testDropOldest() {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "q=3/drop-oldest");
+        for (int i=0; i<5; i++)
+            sp.out("q", i);
+        assertEquals(3, sp.size("q"));
+        assertEquals(2L, sp.getDropped("q"));
+        assertEquals(2, sp.inp("q"));
+    }
+
+    @Test
+    public void testTimeout() {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "q=1/timeout/100");
+        sp.out("q", 1);
+        long start = System.currentTimeMillis();
+        assertThrows(SpaceError.class, () -> sp.out("q", 2));
+        assertTrue(System.currentTimeMillis() - start >= 100L);
+        assertEquals(1, sp.size("q"));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "q=1");
+        sp.out("q", 1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            sp.out("q", 2);
+            done.countDown();
+        });
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, sp.in("q"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, sp.inp("q"));
+    }
+
+    @Test
+    public void testBlockWithConsumerOnUnderlyingSpace() throws Exception {
+        TSpace<String,Object> raw = new TSpace<>();
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(raw, "q=1");
+        sp.out("q", 1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            sp.out("q", 2);
+            done.countDown();
+        });
+        assertEquals(1, raw.in("q"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBlockWithConsumerOnUnderlyingLSpace() throws Exception {
+        LSpace<String,Object> raw = new LSpace<>();
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(raw, "q=1");
+        sp.out("q", 1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            sp.out("q", 2);
+            done.countDown();
+        });
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, raw.inp("q"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, raw.inp("q"));
+    }
+
+    @Test
+    public void testIdleWildcardKeysAreEvicted() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "*.in=1/reject");
+        sp.setMeterRegistry(registry, Tags.empty());
+        for (int i=0; i<5000; i++) {
+            sp.out("k" + i + ".in", i);
+            assertEquals(i, sp.inp("k" + i + ".in"));
+        }
+        assertTrue(sp.getTrackedKeys() <= 2048, "tracked keys " + sp.getTrackedKeys());
+        assertEquals(1, registry.find("jpos.space.depth").gauges().size());
+        sp.out("last.in", "x");
+        assertThrows(SpaceError.class, () -> sp.out("last.in", "y"));
+        assertEquals(1L, sp.getRejected("other.in"));
+        assertEquals(1.0, registry.find("jpos.space.depth").tags("key", "*.in").gauge().value());
+    }
+
+    @Test
+    public void testSpaceFactoryURI() {
+        Space<String,Object> sp = SpaceFactory.getSpace("tspace:bounded-test:bounded=*.in=1/reject");
+        assertTrue(sp instanceof BoundedSpace);
+        assertFalse(SpaceFactory.getSpace("tspace:bounded-test:plain") instanceof BoundedSpace,
+          "three-part URIs without the bounded= qualifier keep their meaning");
+        sp.out("x.in", "1");
+        assertThrows(SpaceError.class, () -> sp.out("x.in", "2"));
+        assertEquals("1", SpaceFactory.getSpace("tspace:bounded-test").inp("x.in"));
+        assertEquals("tspace:default", SpaceFactory.normalize(null));
+        assertEquals("tspace:abc", SpaceFactory.normalize("abc"));
+    }
+
+    @Test
+    public void testDepthGauge() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedSpace<String,Object> sp = new BoundedSpace<>(new TSpace<>(), "q=10");
+        sp.setMeterRegistry(registry, Tags.of("name", "test"));
+        sp.out("q", 1);
+        sp.out("q", 2);
+        Gauge g = registry.find("jpos.space.depth").tags("key", "q").gauge();
+        assertNotNull(g);
+        assertEquals(2.0, g.value());
+        sp.removeMeters();
+        assertNull(registry.find("jpos.space.depth").gauge());
+    }
+}
@@ -20,6 +20,7 @@ package org.jpos.space;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -245,4 +246,41 @@ public class JESpaceTestCase {
         sp.out("CTX", ctx);
         assertNotNull(sp.in("CTX"), "entry should not be null");
     }
+    @Test
+    public void testGroupCommit(@TempDir Path dir) throws Exception {
+        JESpace<String,Object> gsp = new JESpace<>("testGroupCommit", dir.toString() + ",group.commit.size=32,group.commit.wait=5");
+        try {
+            int threads = 8;
+            Thread[] t = new Thread[threads];
+            for (int i=0; i<threads; i++) {
+                final String k = "gc" + i;
+                t[i] = Thread.ofVirtual().start(() -> {
+                    for (int j=0; j<COUNT; j++)
+                        gsp.out(k, j);
+                });
+            }
+            for (Thread th : t)
+                th.join();
+            gsp.push("gc0", "first");
+            for (int i=0; i<threads; i++) {
+                assertEquals(COUNT + (i == 0 ? 1 : 0), gsp.size("gc" + i));
+                if (i == 0)
+                    assertEquals("first", gsp.inp("gc0"));
+                for (int j=0; j<COUNT; j++)
+                    assertEquals(j, gsp.inp("gc" + i));
+            }
+            assertEquals(threads*COUNT + 1, gsp.getBatchedWriteCount());
+            assertTrue(gsp.getBatchCount() <= gsp.getBatchedWriteCount());
+            assertNotNull(gsp.getMetrics().metrics().get("commit"));
+        } finally {
+            gsp.close();
+        }
+    }
+    @Test
+    public void testGroupCommitAfterClose(@TempDir Path dir) throws Exception {
+        JESpace<String,Object> gsp = new JESpace<>("testGroupCommitAfterClose", dir.toString() + ",group.commit.size=8,group.commit.wait=1");
+        gsp.out("k", "v");
+        gsp.close();
+        assertThrows(SpaceError.class, () -> gsp.out("k", "v2"));
+    }
 }
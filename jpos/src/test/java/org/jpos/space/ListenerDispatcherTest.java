@@ -0,0 +1,130 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+public class ListenerDispatcherTest {
+    @Test
+    public void testModeNames() {
+        assertEquals(ListenerDispatcher.Mode.INLINE, ListenerDispatcher.mode(null));
+        assertEquals(ListenerDispatcher.Mode.PER_KEY, ListenerDispatcher.mode("per-key"));
+        assertEquals(ListenerDispatcher.Mode.QUEUED, ListenerDispatcher.mode("Queued"));
+        assertThrows(IllegalArgumentException.class, () -> ListenerDispatcher.mode("bogus"));
+    }
+
+    @Test
+    public void testInline() {
+        TSpace<String,Object> sp = new TSpace<>();
+        ListenerDispatcher d = new ListenerDispatcher(ListenerDispatcher.Mode.INLINE);
+        sp.setListenerDispatcher(d);
+        List<Object> seen = new CopyOnWriteArrayList<>();
+        sp.addListener("k", (key, value) -> seen.add(value));
+        sp.out("k", "1");
+        assertEquals(List.of("1"), seen);
+        assertEquals(1L, d.getDispatched());
+        assertNotNull(d.getMetrics().metrics().get("notify"));
+    }
+
+    @Test
+    public void testPerKeyOrdering() throws Exception {
+        checkOrdering(new TSpace<>(), ListenerDispatcher.Mode.PER_KEY);
+        checkOrdering(new LSpace<>(), ListenerDispatcher.Mode.PER_KEY);
+    }
+
+    @Test
+    public void testQueuedOrdering() throws Exception {
+        checkOrdering(new TSpace<>(), ListenerDispatcher.Mode.QUEUED);
+        checkOrdering(new LSpace<>(), ListenerDispatcher.Mode.QUEUED);
+    }
+
+    @Test
+    public void testSlowListenerDoesNotBlockProducer() throws Exception {
+        TSpace<String,Object> sp = new TSpace<>();
+        ListenerDispatcher d = new ListenerDispatcher(ListenerDispatcher.Mode.QUEUED, 100);
+        sp.setListenerDispatcher(d);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(10);
+        sp.addListener("slow", (key, value) -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignored) { }
+            done.countDown();
+        });
+        for (int i=0; i<10; i++)
+            sp.out("slow", i);
+        assertTrue(d.getBacklog() > 0, "backlog expected");
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, d.getBacklog());
+        d.close();
+    }
+
+    @Test
+    public void testRemovedListenerReleasesLane() throws Exception {
+        LSpace<String,Object> sp = new LSpace<>();
+        ListenerDispatcher d = new ListenerDispatcher(ListenerDispatcher.Mode.QUEUED);
+        sp.setListenerDispatcher(d);
+        CountDownLatch done = new CountDownLatch(3);
+        SpaceListener<String,Object> l = (key, value) -> done.countDown();
+        sp.addListener("k", l);
+        for (int i=0; i<3; i++)
+            sp.out("k", i);
+        assertEquals(1, d.getLanes());
+        sp.removeListener("k", l);
+        assertTrue(done.await(5, TimeUnit.SECONDS), "queued notifications are still delivered");
+        long end = System.currentTimeMillis() + 5000L;
+        while (d.getLanes() > 0 && System.currentTimeMillis() < end)
+            Thread.sleep(10L);
+        assertEquals(0, d.getLanes());
+        d.close();
+    }
+
+    private void checkOrdering (LocalSpace<String,Object> sp, ListenerDispatcher.Mode mode) throws Exception {
+        ListenerDispatcher d = new ListenerDispatcher(mode);
+        if (sp instanceof TSpace)
+            ((TSpace) sp).setListenerDispatcher(d);
+        else
+            ((LSpace) sp).setListenerDispatcher(d);
+        int n = 1000;
+        List<Object> a = new CopyOnWriteArrayList<>();
+        List<Object> b = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2*n);
+        sp.addListener("a", (key, value) -> { a.add(value); latch.countDown(); });
+        sp.addListener("b", (key, value) -> { b.add(value); latch.countDown(); });
+        for (int i=0; i<n; i++) {
+            sp.out("a", i);
+            sp.out("b", i);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS), mode + " timed out");
+        for (int i=0; i<n; i++) {
+            assertEquals(i, a.get(i), mode + " out of order");
+            assertEquals(i, b.get(i), mode + " out of order");
+        }
+        d.close();
+    }
+}
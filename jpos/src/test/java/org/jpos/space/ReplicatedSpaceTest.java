@@ -0,0 +1,182 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import org.jpos.iso.ISOMsg;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+public class ReplicatedSpaceTest {
+    ReplicatedSpace<String,Object> a;
+    ReplicatedSpace<String,Object> b;
+    int portA;
+    int portB;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        a = new ReplicatedSpace<>(new TSpace<>(), "a", "rep.");
+        b = new ReplicatedSpace<>(new TSpace<>(), "b", "rep.");
+        a.setReconnectDelay(100L);
+        b.setReconnectDelay(100L);
+        portA = a.listen(0);
+        portB = b.listen(0);
+        a.addPeer("127.0.0.1", portB);
+        b.addPeer("127.0.0.1", portA);
+        waitFor(() -> a.isConnected() && b.isConnected());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        a.close();
+        b.close();
+    }
+
+    @Test
+    public void testOutAndTake() throws Exception {
+        a.out("rep.q", "1");
+        a.out("rep.q", "2");
+        assertEquals("1", b.getSpace().rd("rep.q", 5000L));
+        waitFor(() -> b.size("rep.q") == 2);
+        assertEquals("1", b.inp("rep.q"));
+        waitFor(() -> a.size("rep.q") == 1);
+        assertEquals("2", a.rdp("rep.q"));
+    }
+
+    @Test
+    public void testNonReplicatedKey() throws Exception {
+        a.out("local", "1");
+        a.out("rep.marker", "2");
+        assertEquals("2", b.getSpace().rd("rep.marker", 5000L));
+        assertNull(b.rdp("local"));
+    }
+
+    @Test
+    public void testPutWithTimeout() throws Exception {
+        a.put("rep.ready", "up", 60000L);
+        assertEquals("up", b.getSpace().rd("rep.ready", 5000L));
+        a.put("rep.ready", "up2", 60000L);
+        waitFor(() -> "up2".equals(b.rdp("rep.ready")));
+        assertEquals(1, b.size("rep.ready"));
+        a.inp("rep.ready");
+        waitFor(() -> b.rdp("rep.ready") == null);
+    }
+
+    @Test
+    public void testISOMsg() throws Exception {
+        ISOMsg m = new ISOMsg("0800");
+        m.set(11, "000001");
+        m.set(70, "301");
+        a.out("rep.isomsg", m);
+        ISOMsg r = (ISOMsg) b.getSpace().rd("rep.isomsg", 5000L);
+        assertNotNull(r);
+        assertEquals("0800", r.getMTI());
+        assertEquals("000001", r.getString(11));
+        assertEquals("301", r.getString(70));
+    }
+
+    @Test
+    public void testCatchUpOnReconnect() throws Exception {
+        b.close();
+        assertTrue(a.removePeer("127.0.0.1", portB));
+        a.out("rep.saf", "x");
+        a.out("rep.saf", "y");
+        b = new ReplicatedSpace<>(new TSpace<>(), "b", "rep.");
+        portB = b.listen(0);
+        a.addPeer("127.0.0.1", portB);
+        b.addPeer("127.0.0.1", portA);
+        waitFor(() -> b.size("rep.saf") == 2);
+        assertEquals("x", b.inp("rep.saf"));
+        waitFor(() -> a.size("rep.saf") == 1);
+    }
+
+    @Test
+    public void testReconnectWithCursor() throws Exception {
+        a.out("rep.q", "1");
+        a.out("rep.q", "2");
+        waitFor(() -> b.size("rep.q") == 2);
+        assertTrue(a.removePeer("127.0.0.1", portB));
+        assertFalse(a.removePeer("127.0.0.1", portB));
+        a.out("rep.q", "3");
+        assertEquals("1", a.inp("rep.q"));
+        Thread.sleep(200L);
+        assertEquals(2, b.size("rep.q"), "removed peer should not receive operations");
+        assertEquals("1", b.rdp("rep.q"));
+
+        a.addPeer("127.0.0.1", portB); // same peer, resumes from the cursor it reports
+        waitFor(() -> b.size("rep.q") == 2 && "2".equals(b.rdp("rep.q")));
+        assertEquals("2", b.inp("rep.q"));
+        assertEquals("3", b.inp("rep.q"));
+        waitFor(() -> a.size("rep.q") == 0);
+    }
+
+    @Test
+    public void testRejectsUnknownPeer() throws Exception {
+        ReplicatedSpace<String,Object> c = new ReplicatedSpace<>(new TSpace<>(), "c", "rep.");
+        try {
+            int portC = c.listen(0);
+            a.addPeer("127.0.0.1", portC);
+            c.allowPeer("127.0.0.2"); // not where a connects from
+            a.out("rep.x", "1");
+            Thread.sleep(300L);
+            assertNull(c.rdp("rep.x"));
+        } finally {
+            c.close();
+        }
+    }
+
+    @Test
+    public void testCodecRejectsUnsafePayloads() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SpaceCodec.write(new DataOutputStream(baos), new Unlisted());
+        byte[] b = baos.toByteArray();
+        assertThrows(InvalidClassException.class,
+          () -> SpaceCodec.read(new DataInputStream(new ByteArrayInputStream(b))));
+
+        ByteArrayOutputStream big = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(big);
+        out.writeByte(SpaceCodec.BYTES);
+        out.writeInt(Integer.MAX_VALUE);
+        assertThrows(StreamCorruptedException.class,
+          () -> SpaceCodec.read(new DataInputStream(new ByteArrayInputStream(big.toByteArray()))));
+    }
+
+    static class Unlisted implements Serializable { }
+
+    private static void waitFor (BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000L;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end)
+                fail("condition not met");
+            Thread.sleep(10L);
+        }
+    }
+}
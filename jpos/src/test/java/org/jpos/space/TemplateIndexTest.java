@@ -0,0 +1,109 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.space;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unchecked")
+public class TemplateIndexTest {
+    private LocalSpace space (String type, String key, TemplateIndex index) {
+        if ("tspace".equals(type)) {
+            TSpace sp = new TSpace();
+            sp.setTemplateIndex(key, index);
+            return sp;
+        }
+        LSpace sp = new LSpace();
+        sp.setTemplateIndex(key, index);
+        return sp;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "tspace", "lspace" })
+    public void testEqualityIndex (String type) {
+        LocalSpace sp = space(type, "k", TemplateIndex.EQUALITY);
+        for (int i=0; i<10000; i++)
+            sp.out("k", "v" + i);
+        assertEquals("v9999", sp.rdp(new ObjectTemplate("k", "v9999")));
+        assertEquals("v5000", sp.inp(new ObjectTemplate("k", "v5000")));
+        assertNull(sp.inp(new ObjectTemplate("k", "v5000")));
+        assertEquals(9999, sp.size("k"));
+        assertEquals("v0", sp.inp("k"));
+        assertEquals("v1", sp.rdp("k"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "tspace", "lspace" })
+    public void testDigestIndex (String type) {
+        LocalSpace sp = space(type, "k", TemplateIndex.DIGEST);
+        for (int i=0; i<100; i++)
+            sp.out("k", i);
+        assertEquals(42, sp.inp(new MD5Template("k", 42)));
+        assertNull(sp.rdp(new MD5Template("k", 42)));
+        assertEquals(99, sp.size("k"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "tspace", "lspace" })
+    public void testDuplicatesKeepListOrder (String type) {
+        LocalSpace sp = space(type, "k", TemplateIndex.EQUALITY);
+        sp.out("k", "x");
+        sp.out("k", "dup");
+        sp.push("k", "dup");
+        sp.out("k", "dup");
+        Template t = new ObjectTemplate("k", "dup");
+        assertNotNull(sp.inp(t));
+        assertEquals("x", sp.inp("k"));
+        assertNotNull(sp.inp(t));
+        assertNotNull(sp.inp(t));
+        assertNull(sp.inp(t));
+        assertEquals(0, sp.size("k"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "tspace", "lspace" })
+    public void testExpiredEntriesAreSkipped (String type) throws Exception {
+        LocalSpace sp = space(type, "k", TemplateIndex.EQUALITY);
+        sp.out("k", "a", 50L);
+        sp.out("k", "a");
+        Thread.sleep(100L);
+        assertEquals("a", sp.inp(new ObjectTemplate("k", "a")));
+        assertNull(sp.inp(new ObjectTemplate("k", "a")));
+        assertEquals(0, sp.size("k"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "tspace", "lspace" })
+    public void testIndexExistingEntriesAndFallback (String type) {
+        LocalSpace sp = space(type, "other", TemplateIndex.EQUALITY);
+        sp.out("k", "a");
+        sp.out("k", "b");
+        if (sp instanceof TSpace)
+            ((TSpace) sp).setTemplateIndex("k", TemplateIndex.DIGEST);
+        else
+            ((LSpace) sp).setTemplateIndex("k", TemplateIndex.DIGEST);
+        assertEquals("b", sp.rdp(new MD5Template("k", "b")));
+        // not served by a DIGEST index, resolved by scanning
+        assertEquals("b", sp.inp(new ObjectTemplate("k", "b")));
+        assertEquals("a", sp.inp("k"));
+        assertNull(sp.rdp("k"));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimitTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void testAIMDGrowsUnderDemand() {
+        AdaptiveLimit limit = new AdaptiveLimit(AdaptiveLimit.Mode.AIMD, 2, 10, 1.5, 0.5);
+        assertEquals(2, limit.getLimit());
+        for (int i=0; i<20; i++) {
+            sample(limit, 10L * MS);
+            limit.update(limit.getLimit(), 5);
+        }
+        assertEquals(10, limit.getLimit(), "limit should be capped at max");
+    }
+
+    @Test
+    public void testAIMDBacksOffOnLatency() {
+        AdaptiveLimit limit = new AdaptiveLimit(AdaptiveLimit.Mode.AIMD, 2, 10, 1.5, 0.5);
+        for (int i=0; i<10; i++) {
+            sample(limit, 10L * MS);
+            limit.update(limit.getLimit(), 5);
+        }
+        assertEquals(10, limit.getLimit());
+        sample(limit, 50L * MS);
+        assertEquals(5, limit.update(10, 5));
+        for (int i=0; i<3; i++) {
+            sample(limit, 50L * MS);
+            limit.update(limit.getLimit(), 5);
+        }
+        assertEquals(2, limit.getLimit(), "limit should not go below min");
+    }
+
+    @Test
+    public void testNoGrowthWithoutDemand() {
+        AdaptiveLimit limit = new AdaptiveLimit(AdaptiveLimit.Mode.AIMD, 2, 10, 1.5, 0.5);
+        for (int i=0; i<10; i++) {
+            sample(limit, 10L * MS);
+            limit.update(0, 0);
+        }
+        assertEquals(2, limit.getLimit());
+        assertEquals(2, limit.update(0, 5), "no samples, no change");
+    }
+
+    @Test
+    public void testGradient() {
+        AdaptiveLimit limit = new AdaptiveLimit(AdaptiveLimit.Mode.GRADIENT, 4, 64, 1.5, 0.9);
+        for (int i=0; i<50; i++) {
+            sample(limit, 10L * MS);
+            limit.update(limit.getLimit(), 10);
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 4, "limit did not grow: " + grown);
+        for (int i=0; i<5; i++) {
+            sample(limit, 100L * MS);
+            limit.update(limit.getLimit(), 10);
+        }
+        int shrunk = limit.getLimit();
+        assertTrue(shrunk < grown, "limit did not shrink: " + shrunk);
+        assertTrue(limit.getShortRtt() > limit.getLongRtt());
+        for (int i=0; i<20; i++) {
+            sample(limit, 10L * MS);
+            limit.update(limit.getLimit(), 10);
+        }
+        assertTrue(limit.getLimit() > shrunk, "limit did not recover: " + limit.getLimit());
+    }
+
+    private static void sample (AdaptiveLimit limit, long nanos) {
+        for (int i=0; i<10; i++)
+            limit.sample(nanos);
+    }
+}
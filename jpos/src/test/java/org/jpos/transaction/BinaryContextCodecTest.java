@@ -0,0 +1,184 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.iso.packager.ISO87APackager;
+import org.jpos.rc.CMF;
+import org.jpos.rc.Result;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryContextCodecTest {
+    private final BinaryContextCodec codec = new BinaryContextCodec();
+
+    @Test
+    public void testScalars() throws Exception {
+        List<Object> values = List.of(
+          "jPOS", "", 0, -1, Integer.MAX_VALUE, Long.MIN_VALUE, 42L, true, (short) 7, (byte) -3,
+          'x', 1.5d, 2.5f, new BigDecimal("-123.4500"), new Date(1234567890L),
+          Instant.ofEpochSecond(1700000000L, 123456789)
+        );
+        for (Object v : values)
+            assertEquals(v, codec.decode(codec.encode(v)), v.getClass().getSimpleName());
+        assertNull(codec.decode(codec.encode(null)));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) codec.decode(codec.encode(new byte[] { 1, 2, 3 })));
+        assertEquals(2, codec.encode(1L).length, "small longs take a tag and a byte");
+    }
+
+    @Test
+    public void testISOMsgFieldByField() throws Exception {
+        ISOMsg m = message(new ISO87APackager());
+        m.setHeader("ISO0060000".getBytes());
+        m.setDirection(ISOMsg.INCOMING);
+        byte[] b = codec.encode(m);
+        assertEquals(BinaryContextCodec.ISOMSG, b[0]);
+        ISOMsg r = (ISOMsg) codec.decode(b);
+        assertEquals("0200", r.getMTI());
+        assertEquals("4111111111111111", r.getString(2));
+        assertEquals("0", r.getString(3));
+        assertEquals("1000", r.getString(4));
+        assertEquals("1", r.getString(11));
+        assertEquals("TERM1", r.getString(41));
+        assertEquals("ISO0060000", new String(r.getHeader()));
+        assertEquals(ISOMsg.INCOMING, r.getDirection());
+        assertTrue(r.getPackager() instanceof ISO87APackager);
+    }
+
+    @Test
+    public void testISOMsgAsImage() throws Exception {
+        BinaryContextCodec images = new BinaryContextCodec();
+        images.setConfiguration(new SimpleConfiguration(props("packed-images", "true")));
+        assertTrue(images.isPackedImages());
+        ISOMsg m = message(new ISO87APackager());
+        m.setHeader("ISO0060000".getBytes());
+        m.setDirection(ISOMsg.INCOMING);
+        byte[] b = images.encode(m);
+        assertEquals(BinaryContextCodec.ISOMSG_IMAGE, b[0]);
+        assertTrue(b.length < codec.encode(m).length, "image should be smaller than the field by field encoding");
+        ISOMsg r = (ISOMsg) images.decode(b);
+        assertEquals("0200", r.getMTI());
+        assertEquals("4111111111111111", r.getString(2));
+        // the packed image comes back as the packager formats it, that's why image mode is opt-in
+        assertEquals("000001", r.getString(11));
+        assertEquals("TERM1   ", r.getString(41));
+        assertEquals("ISO0060000", new String(r.getHeader()));
+        assertEquals(ISOMsg.INCOMING, r.getDirection());
+        assertTrue(r.getPackager() instanceof ISO87APackager);
+    }
+
+    @Test
+    public void testISOMsgWithoutRecreatablePackager() throws Exception {
+        BinaryContextCodec images = new BinaryContextCodec();
+        images.setPackedImages(true);
+        GenericPackager gp = new GenericPackager("jar:packager/iso87ascii.xml");
+        ISOMsg m = message(gp);
+        byte[] b = images.encode(m);
+        assertEquals(BinaryContextCodec.ISOMSG, b[0], "generic packagers can not be recreated by name");
+        assertEquals("1", ((ISOMsg) images.decode(b)).getString(11));
+
+        images.registerPackager("iso87ascii", gp);
+        b = images.encode(m);
+        assertEquals(BinaryContextCodec.ISOMSG_IMAGE, b[0]);
+        ISOMsg r = (ISOMsg) images.decode(b);
+        assertSame(gp, r.getPackager());
+        assertEquals("000001", r.getString(11));
+
+        ISOMsg noPackager = new ISOMsg("0800");
+        noPackager.set(70, "301");
+        assertEquals("301", ((ISOMsg) images.decode(images.encode(noPackager))).getString(70));
+    }
+
+    @Test
+    public void testResultAndTxnId() throws Exception {
+        Result result = new Result();
+        result.info("tst", "info %d", 1);
+        result.fail(CMF.INVALID_AMOUNT, "tst", "bad amount");
+        Result r = (Result) codec.decode(codec.encode(result));
+        assertEquals(2, r.entries().size());
+        assertTrue(r.hasInfo());
+        assertEquals(CMF.INVALID_AMOUNT, r.failure().getIrc());
+        assertEquals("bad amount", r.failure().getMessage());
+        assertEquals("tst", r.failure().getSource());
+
+        TxnId id = TxnId.create(ZonedDateTime.now(), 1, 12345L);
+        assertEquals(id, codec.decode(codec.encode(id)));
+    }
+
+    @Test
+    public void testContext() throws Exception {
+        Context ctx = new Context();
+        ctx.put("TRANSIENT", "not persisted");
+        ctx.put("REQUEST", message(new ISO87APackager()), true);
+        ctx.put("AMOUNT", new BigDecimal("10.00"), true);
+        ctx.put("RESULT", new Result().info("tst", "ok"), true);
+        ctx.put("ID", 123L, true);
+
+        Context r = (Context) codec.decode(codec.encode(ctx));
+        assertNull(r.get("TRANSIENT"));
+        assertEquals("1", ((ISOMsg) r.get("REQUEST")).getString(11));
+        assertEquals(new BigDecimal("10.00"), r.get("AMOUNT"));
+        assertTrue(((Result) r.get("RESULT")).hasInfo());
+        assertEquals(123L, (Long) r.get("ID"));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(baos)) {
+            out.writeObject(ctx);
+        }
+        assertTrue(codec.encode(ctx).length < baos.size(), "codec image should be smaller than Java serialization");
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            Context c = (Context) in.readObject();
+            assertEquals(123L, (Long) c.get("ID"));
+            assertTrue(((Result) c.get("RESULT")).hasInfo(), "Result goes through the codec in writeExternal");
+            assertEquals("4111111111111111", ((ISOMsg) c.get("REQUEST")).getString(2));
+        }
+    }
+
+    private static ISOMsg message (org.jpos.iso.ISOPackager p) throws Exception {
+        ISOMsg m = new ISOMsg("0200");
+        m.setPackager(p);
+        m.set(2, "4111111111111111");
+        m.set(3, "0");
+        m.set(4, "1000");
+        m.set(11, "1");
+        m.set(41, "TERM1");
+        return m;
+    }
+
+    private static Properties props (String... kv) {
+        Properties p = new Properties();
+        for (int i=0; i<kv.length; i+=2)
+            p.setProperty(kv[i], kv[i+1]);
+        return p;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContextMapTest {
+    @Test
+    public void testMatchesLinkedHashMap() {
+        Random rnd = new Random(42L);
+        ContextMap map = new ContextMap(4);
+        Map<Object,Object> expected = new LinkedHashMap<>();
+        for (int i=0; i<20000; i++) {
+            String key = "K" + rnd.nextInt(200);
+            switch (rnd.nextInt(4)) {
+                case 0, 1 -> assertEquals(expected.put(key, i), map.put(key, i), key);
+                case 2 -> assertEquals(expected.remove(key), map.remove(key), key);
+                default -> assertEquals(expected.get(key), map.get(key), key);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected.size(), map.size());
+                assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    @Test
+    public void testInsertionOrder() {
+        ContextMap map = new ContextMap();
+        for (int i=0; i<100; i++)
+            map.put("K" + i, i);
+        map.remove("K10");
+        map.put("K10", "again");
+        map.put("K20", "replaced");
+        List<Object> keys = new ArrayList<>(map.keySet());
+        assertEquals(100, keys.size());
+        assertEquals("K0", keys.get(0));
+        assertEquals("K11", keys.get(10));
+        assertEquals("K20", keys.get(19), "replacing a value keeps its position");
+        assertEquals("K10", keys.get(99), "a re-inserted key goes last");
+        assertEquals("replaced", map.get("K20"));
+    }
+
+    @Test
+    public void testNullKeyAndValue() {
+        ContextMap map = new ContextMap();
+        assertNull(map.get(null));
+        map.put(null, "NULL");
+        map.put("A", null);
+        assertEquals("NULL", map.get(null));
+        assertTrue(map.containsKey("A"));
+        assertNull(map.get("A"));
+        assertFalse(map.containsKey("B"));
+        assertEquals("NULL", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        ContextMap map = new ContextMap();
+        for (int i=0; i<10; i++)
+            map.put(i, i);
+        for (Iterator<Map.Entry<Object,Object>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            if ((Integer) it.next().getKey() % 2 == 0)
+                it.remove();
+        }
+        assertEquals(List.of(1, 3, 5, 7, 9), new ArrayList<>(map.keySet()));
+        map.clear();
+        assertTrue(map.isEmpty());
+        map.put("X", "Y");
+        assertEquals(Map.of("X", "Y"), new ContextMap(map));
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        ContextMap map = new ContextMap(4);
+        map.put("STABLE", "S");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+        for (int r=0; r<4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    while (done.getCount() > 0) {
+                        assertEquals("S", map.get("STABLE"));
+                        for (Map.Entry<Object,Object> e : map.entrySet())
+                            assertNotNull(e.getKey());
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }));
+        }
+        for (int i=0; i<50000; i++) {
+            map.put("K" + (i % 500), i);
+            if (i % 3 == 0)
+                map.remove("K" + ((i + 250) % 500));
+        }
+        done.countDown();
+        for (Thread t : readers)
+            t.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testContextWaiterIsWokenByPut() throws Exception {
+        Context ctx = new Context();
+        ctx.put("EARLY", "value");
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException ignored) { }
+            ctx.put("LATE", "value");
+        });
+        long start = System.currentTimeMillis();
+        assertEquals("value", ctx.get("LATE", 10000L));
+        assertTrue(System.currentTimeMillis() - start < 5000L);
+    }
+}
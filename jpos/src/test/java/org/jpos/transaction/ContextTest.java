@@ -33,6 +33,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.PrintStream;
+import java.time.Instant;
 import java.util.ConcurrentModificationException;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -470,4 +471,24 @@ public class ContextTest {
         assertTrue(converted instanceof AuditLogEvent,
             "Profiler should expand to nested AuditLogEvent (got " + converted + ")");
     }
+
+    @Test
+    public void deadline() throws Exception {
+        Context ctx = new Context();
+        assertNull(ctx.getDeadline());
+        assertEquals(Long.MAX_VALUE, ctx.getRemainingTime());
+        assertFalse(ctx.isExpired());
+
+        ctx.setDeadline(Instant.now().plusSeconds(60L));
+        assertTrue(ctx.getRemainingTime() > 0L && ctx.getRemainingTime() <= 60000L);
+        assertFalse(ctx.isExpired());
+        assertNotNull(Serializer.serializeDeserialize(ctx).getDeadline(), "deadline is persisted");
+
+        ctx.setDeadline(Instant.now().minusMillis(1L));
+        assertEquals(0L, ctx.getRemainingTime());
+        assertTrue(ctx.isExpired());
+
+        ctx.setDeadline(null);
+        assertNull(ctx.getDeadline());
+    }
 }
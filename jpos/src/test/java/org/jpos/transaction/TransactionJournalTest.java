@@ -0,0 +1,199 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction;
+
+import org.jpos.space.SpaceError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.jpos.transaction.TransactionManager.COMMITTING;
+import static org.jpos.transaction.TransactionManager.DONE;
+import static org.jpos.transaction.TransactionManager.PREPARING;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReplay() throws Exception {
+        TransactionJournal j = new TransactionJournal(dir, 0L, true);
+        j.snapshot(1L, context("one"), PREPARING);
+        j.snapshot(2L, context("two"), PREPARING);
+        j.addGroup(2L, "credit");
+        j.setState(2L, COMMITTING);
+        j.snapshot(3L, context("three"), PREPARING);
+        j.snapshot(3L, null, DONE);
+        j.close();
+
+        j = new TransactionJournal(dir, 0L, true);
+        assertEquals(List.of(1L, 2L), j.getPendingIds());
+        assertEquals(PREPARING, j.getState(1L));
+        assertEquals(COMMITTING, j.getState(2L));
+        assertEquals("two", ((Context) j.getContext(2L)).getString("NAME"));
+        assertEquals(List.of("credit"), j.getGroups(2L));
+        assertNull(j.getState(3L));
+        assertEquals(3L, j.getMaxId());
+
+        j.forget(1L);
+        j.forget(2L);
+        j.close();
+        j = new TransactionJournal(dir, 0L, true);
+        assertTrue(j.getPendingIds().isEmpty());
+        assertEquals(3L, j.getMaxId());
+        j.close();
+    }
+
+    @Test
+    public void testDoneUntilForgotten() throws Exception {
+        try (TransactionJournal j = new TransactionJournal(dir, 0L, false)) {
+            assertFalse(j.isDone(1L));
+            j.snapshot(1L, context("one"), PREPARING);
+            j.done(1L);
+            assertTrue(j.isDone(1L));
+            assertTrue(j.getPendingIds().isEmpty());
+            j.forget(1L);
+            assertFalse(j.isDone(1L));
+            j.done(2L); // never journaled, only tracked
+            assertTrue(j.isDone(2L));
+        }
+    }
+
+    @Test
+    public void testCheckpointTruncates() throws Exception {
+        TransactionJournal j = new TransactionJournal(dir, 4096L, false);
+        j.snapshot(1L, context("pending"), PREPARING);
+        j.addGroup(1L, "g1");
+        for (long id=2L; id<200L; id++) {
+            j.snapshot(id, context("txn-" + id), PREPARING);
+            j.snapshot(id, null, DONE);
+            j.forget(id);
+        }
+        j.snapshot(200L, context("last"), PREPARING); // waits for the preceding DONE records
+        assertTrue(j.getCheckpointCount() > 1, "no checkpoint taken");
+        j.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.count() <= 2, "old segments not truncated");
+        }
+        j = new TransactionJournal(dir, 4096L, false);
+        assertEquals(List.of(1L, 200L), j.getPendingIds());
+        assertEquals("pending", ((Context) j.getContext(1L)).getString("NAME"));
+        assertEquals(List.of("g1"), j.getGroups(1L));
+        j.close();
+    }
+
+    @Test
+    public void testTornWriteIgnored() throws Exception {
+        TransactionJournal j = new TransactionJournal(dir, 0L, true);
+        j.snapshot(1L, context("one"), PREPARING);
+        j.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.sorted().reduce((a, b) -> b).orElseThrow();
+            Files.write(segment, new byte[] { 0, 0, 1, 0, 1, 2 }, StandardOpenOption.APPEND);
+        }
+        j = new TransactionJournal(dir, 0L, true);
+        assertEquals(List.of(1L), j.getPendingIds());
+        j.close();
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        try (TransactionJournal j = new TransactionJournal(dir, 0L, true)) {
+            Thread[] threads = new Thread[100];
+            for (int i=0; i<threads.length; i++) {
+                long id = i + 1;
+                threads[i] = Thread.ofVirtual().start(() -> j.snapshot(id, context("txn-" + id), PREPARING));
+            }
+            for (Thread t : threads)
+                t.join();
+            assertEquals(100, j.getPendingIds().size());
+            assertEquals(100L, j.getRecordCount());
+            assertTrue(j.getBatchCount() < j.getRecordCount(), "records were not batched");
+        }
+    }
+
+    @Test
+    public void testAppendRacingCloseNeverHangs() throws Exception {
+        TransactionJournal j = new TransactionJournal(dir, 0L, true);
+        Thread[] threads = new Thread[200];
+        for (int i=0; i<threads.length; i++) {
+            long id = i + 1;
+            threads[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    j.snapshot(id, context("txn-" + id), PREPARING);
+                } catch (SpaceError ignored) {
+                    // closed before it was accepted
+                }
+            });
+        }
+        j.close();
+        for (Thread t : threads)
+            assertTrue(t.join(Duration.ofSeconds(5L)), "append still waiting after close");
+    }
+
+    private static Context context (String name) {
+        Context ctx = new Context();
+        ctx.put("NAME", name, true);
+        return ctx;
+    }
+
+    @Test
+    public void testTornWriteDoesNotHideLaterRecords() throws Exception {
+        TornJournal j = new TornJournal(dir);
+        j.snapshot(1L, context("one"), PREPARING);
+        j.tear = true;
+        assertThrows(SpaceError.class, () -> j.snapshot(2L, context("two"), PREPARING));
+        j.snapshot(3L, context("three"), COMMITTING);
+        j.close();
+
+        try (TransactionJournal r = new TransactionJournal(dir, 0L, true)) {
+            assertEquals(PREPARING, r.getState(1L));
+            assertEquals(COMMITTING, r.getState(3L));
+            assertEquals("three", ((Context) r.getContext(3L)).getString("NAME"));
+        }
+    }
+
+    static class TornJournal extends TransactionJournal {
+        volatile boolean tear;
+
+        TornJournal (Path dir) throws IOException {
+            super(dir, 0L, true);
+        }
+
+        @Override
+        void writeFully (ByteBuffer buf) throws IOException {
+            if (tear) {
+                tear = false;
+                buf.limit(buf.position() + buf.remaining() / 2);
+                super.writeFully(buf);
+                throw new IOException("torn write");
+            }
+            super.writeFully(buf);
+        }
+    }
+}
@@ -18,11 +18,15 @@
 
 package org.jpos.transaction;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.jdom2.Element;
 import org.jpos.q2.Q2;
 import org.jpos.q2.QFactory;
+import org.jpos.rc.CMF;
 import org.jpos.util.Caller;
+import org.jpos.util.Chronometer;
 import org.jpos.util.Log;
 import org.jpos.util.LogEvent;
 import org.jpos.util.Logger;
@@ -33,10 +37,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.when;
 
@@ -49,6 +56,7 @@ public class TransactionManagerLoggingTest {
 
     private TestTransactionManager tm;
     private List<LogEvent> events;
+    private SimpleMeterRegistry registry;
 
     @BeforeEach
     void setUp() {
@@ -56,7 +64,8 @@ public class TransactionManagerLoggingTest {
         tm.setServer(q2);
         tm.setName("txnmgr-test");
         lenient().when(q2.getFactory()).thenReturn(factory);
-        lenient().when(q2.getMeterRegistry()).thenReturn(new SimpleMeterRegistry());
+        registry = new SimpleMeterRegistry();
+        lenient().when(q2.getMeterRegistry()).thenReturn(registry);
 
         events = new ArrayList<>();
         Logger logger = new Logger();
@@ -93,10 +102,76 @@ public class TransactionManagerLoggingTest {
         assertEquals(Caller.shortClassName(FailingParticipant.class.getName()), event.getTags().get("participant"));
     }
 
+    @Test
+    void participantMetersAreTaggedPerPhase() throws Exception {
+        Element e = new Element("participant");
+        e.setAttribute("class", FailingParticipant.class.getName());
+        e.setAttribute("realm", "auth-check");
+        when(factory.newInstance(FailingParticipant.class.getName())).thenReturn(new FailingParticipant());
+        TransactionParticipant participant = tm.createParticipant(e);
+
+        assertEquals(TransactionConstants.ABORTED, tm.invokePrepare(List.of(participant), 1L));
+        assertEquals(TransactionConstants.ABORTED, tm.invokePrepare(List.of(participant), 2L));
+
+        Timer prepare = registry.get("jpos.tm.op")
+          .tags("name", "txnmgr-test", "participant", "auth-check", "phase", "prepare").timer();
+        assertEquals(2L, prepare.count());
+        assertTrue(prepare.totalTime(TimeUnit.NANOSECONDS) > 0L, "recorded with nanosecond resolution");
+        Counter aborted = registry.get("jpos.tm.participant")
+          .tags("name", "txnmgr-test", "participant", "auth-check", "result", "aborted").counter();
+        assertEquals(2.0, aborted.count());
+        assertEquals(0.0, registry.get("jpos.tm.participant").tags("participant", "auth-check", "result", "retry").counter().count());
+    }
+
+    @Test
+    void unconfiguredParticipantRegistersMetersOnce() {
+        FailingParticipant participant = new FailingParticipant();
+        tm.invokePrepare(participant, 1L, new Context());
+        int meters = registry.getMeters().size();
+        tm.invokePrepare(participant, 2L, new Context());
+        assertEquals(meters, registry.getMeters().size());
+        String name = Caller.shortClassName(FailingParticipant.class.getName());
+        assertEquals(2L, registry.get("jpos.tm.op").tags("participant", name, "phase", "prepare").timer().count());
+    }
+
+    @Test
+    void expiredDeadlineTakesAbortPath() {
+        CountingParticipant participant = new CountingParticipant();
+        Context ctx = new Context();
+        ctx.setDeadline(Instant.now().minusMillis(1L));
+
+        assertEquals(TransactionConstants.ABORTED, tm.invokePrepare(List.of(participant, participant), 1L, ctx));
+        assertEquals(0, participant.prepared);
+        assertEquals(1L, tm.getDeadlineAborts());
+        assertTrue(ctx.getResult().hasFailure(CMF.ISSUER_TIMEOUT));
+
+        Context live = new Context();
+        live.setDeadline(Instant.now().plusSeconds(60L));
+        assertEquals(TransactionConstants.PREPARED, tm.invokePrepare(List.of(participant), 2L, live));
+        assertEquals(1, participant.prepared);
+        assertEquals(1L, tm.getDeadlineAborts());
+    }
+
     static class TestTransactionManager extends TransactionManager {
         int invokePrepare(TransactionParticipant participant, long id, Serializable context) {
             return prepare(participant, id, context);
         }
+        int invokePrepare(List<TransactionParticipant> participants, long id) {
+            return invokePrepare(participants, id, new Context());
+        }
+        int invokePrepare(List<TransactionParticipant> participants, long id, Context context) {
+            return prepare(0, id, context, new ArrayList<>(), participants.iterator(), false, null, null, new Chronometer());
+        }
+    }
+
+    public static class CountingParticipant implements TransactionParticipant {
+        int prepared;
+
+        @Override
+        public int prepare(long id, Serializable context) {
+            prepared++;
+            return TransactionConstants.PREPARED | TransactionConstants.READONLY;
+        }
     }
 
     public static class FailingParticipant implements TransactionParticipant {
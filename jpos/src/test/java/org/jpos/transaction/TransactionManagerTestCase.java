@@ -19,10 +19,13 @@
 package org.jpos.transaction;
 
 import org.jpos.iso.ISOUtil;
+import org.jpos.iso.ISOMsg;
 import org.jpos.q2.Q2;
 import org.jpos.space.Space;
 import org.jpos.space.SpaceFactory;
+import org.jpos.transaction.participant.ConcurrencyProbe;
 import org.jpos.util.Caller;
+import org.jpos.util.NameRegistrar;
 import org.jpos.util.ThroughputControl;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
@@ -32,10 +35,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.function.IntPredicate;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.jpos.transaction.ContextConstants.QUEUED;
 import static org.jpos.transaction.ContextConstants.TIMESTAMP;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 @SuppressWarnings("unchecked")
@@ -45,6 +53,12 @@ public class TransactionManagerTestCase {
     public static String QUEUE = "TXNMGRTEST";
     public static String QUEUE_EMPTY = "TXNMGRTEST.EMPTY";
     public static String QUEUE_DELAY = "TXNMGRTEST.DELAY";
+    public static String QUEUE_FIFO = "TXNMGRTEST.FIFO";
+    public static String QUEUE_ASYNC = "TXNMGRTEST.ASYNC";
+    public static String QUEUE_ASYNC_LIMIT = "TXNMGRTEST.ASYNC.LIMIT";
+    public static String QUEUE_JOURNAL = "TXNMGRTEST.JOURNAL";
+    public static String QUEUE_PARTITIONED = "TXNMGRTEST.PARTITIONED";
+    public static String QUEUE_ADAPTIVE = "TXNMGRTEST.ADAPTIVE";
 
     @BeforeAll
     public static void setUp (@TempDir Path deployDir) throws IOException {
@@ -135,6 +149,19 @@ public class TransactionManagerTestCase {
         assertEquals("01", rc);
     }
 
+    @Test
+    public void testQueueWaitMeasuredFromEnqueue() throws Exception {
+        TransactionManager tm = NameRegistrar.get("txnmgr-delay");
+        Context ctx = new Context();
+        ctx.put(TIMESTAMP, Instant.now().minusSeconds(60L));
+        tm.queue(ctx);
+        assertEquals("01", ctx.get("RC", 5000L));
+        assertNull(ctx.get(QUEUED), "QUEUED stamp not consumed");
+        long maxWait = tm.getMetrics().metrics("queue-wait").values().stream()
+          .mapToLong(h -> h.getMaxValue()).max().orElse(0L);
+        assertTrue(maxWait < 5000L, "queue-wait taken from TIMESTAMP, max " + maxWait + "ms");
+    }
+
     @Test
     public void testTMMaxTime() {
         Context ctx = new Context();
@@ -162,6 +189,171 @@ public class TransactionManagerTestCase {
         sp.out(QUEUE, ctx);
     }
 
+    @Test
+    public void testSaturatedSessionsKeepFIFO() throws Exception {
+        int count = 10;
+        Context[] ctx = new Context[count];
+        long[] done = new long[count];
+        Thread[] waiters = new Thread[count];
+        long start = System.nanoTime();
+        for (int i=0; i<count; i++) {
+            ctx[i] = new Context();
+            ctx[i].put("DELAY-0", 20L);
+            sp.out(QUEUE_FIFO, ctx[i]);
+        }
+        for (int i=0; i<count; i++) {
+            final int n = i;
+            waiters[i] = Thread.ofVirtual().start(() -> {
+                assertEquals("00", ctx[n].get("RC", 5000L));
+                done[n] = System.nanoTime();
+            });
+        }
+        for (Thread t : waiters)
+            t.join();
+        for (int i=1; i<count; i++)
+            assertTrue(done[i] > done[i-1], "out of order completion at " + i);
+        long elapsed = (done[count-1] - start) / 1_000_000L;
+        assertTrue(elapsed < count*20L + 500L, "elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    public void testAsyncParticipantReleasesSession() throws Exception {
+        int count = 50;
+        Context[] ctx = new Context[count];
+        long start = System.nanoTime();
+        for (int i=0; i<count; i++) {
+            ctx[i] = new Context();
+            ctx[i].put("ASYNC-DELAY", 200L);
+            sp.out(QUEUE_ASYNC, ctx[i]);
+        }
+        for (int i=0; i<count; i++)
+            assertEquals("00", ctx[i].get("RC", 5000L));
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(elapsed < count*200L / 2, "single session serialized async calls, elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    public void testAsyncParticipantReleasesThread() {
+        Context ctx = new Context();
+        ctx.put("ASYNC-DELAY", 200L);
+        sp.out(QUEUE_ASYNC, ctx);
+        assertEquals("00", ctx.get("RC", 5000L));
+        assertEquals(Boolean.FALSE, ctx.get("ASYNC-CALLER-ALIVE"), "transaction thread parked while the stage was pending");
+    }
+
+    @Test
+    public void testAsyncParticipantHonorsMaxSessions() throws Exception {
+        ConcurrencyProbe.reset();
+        int count = 20;
+        Context[] ctx = new Context[count];
+        for (int i=0; i<count; i++) {
+            ctx[i] = new Context();
+            ctx[i].put("ASYNC-DELAY", 100L);
+            ctx[i].put("PROBE-DELAY", 20L);
+            sp.out(QUEUE_ASYNC_LIMIT, ctx[i]);
+        }
+        for (int i=0; i<count; i++)
+            assertEquals("00", ctx[i].get("RC", 10000L));
+        assertTrue(ConcurrencyProbe.getMax() <= 2, "max concurrent sessions " + ConcurrencyProbe.getMax());
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+        TransactionManager tm = NameRegistrar.get("txnmgr-journal");
+        assertSame(Context.getCodec(), tm.getContextCodec(), "the TM and Context share one codec");
+        int count = 20;
+        Context[] ctx = new Context[count];
+        for (int i=0; i<count; i++) {
+            ctx[i] = new Context();
+            ctx[i].put("DELAY-0", 5L);
+            sp.out(QUEUE_JOURNAL, ctx[i]);
+        }
+        for (int i=0; i<count; i++)
+            assertEquals("00", ctx[i].get("RC", 5000L));
+        long end = System.currentTimeMillis() + 5000L;
+        while (tm.getInTransit() > 0 && System.currentTimeMillis() < end)
+            Thread.sleep(10L);
+        assertEquals(0L, tm.getInTransit(), "tail did not catch up with head");
+    }
+
+    @Test
+    public void testPartitionedLanesKeepOrderPerKey() throws Exception {
+        TransactionManager tm = NameRegistrar.get("txnmgr-partitioned");
+        assertEquals(4, tm.getLaneDepths().length);
+        int keys = 4;
+        int perKey = 10;
+        int count = keys * perKey;
+        Context[] ctx = new Context[count];
+        long[] done = new long[count];
+        Thread[] waiters = new Thread[count];
+        long start = System.nanoTime();
+        for (int i=0; i<count; i++) {
+            ISOMsg m = new ISOMsg("0100");
+            m.set(2, "411111111111111" + (i % keys));
+            ctx[i] = new Context();
+            ctx[i].put("REQUEST", m);
+            ctx[i].put("DELAY-0", 20L);
+            sp.out(QUEUE_PARTITIONED, ctx[i]);
+        }
+        for (int i=0; i<count; i++) {
+            final int n = i;
+            waiters[i] = Thread.ofVirtual().start(() -> {
+                assertEquals("00", ctx[n].get("RC", 5000L));
+                done[n] = System.nanoTime();
+            });
+        }
+        for (Thread t : waiters)
+            t.join();
+        for (int i=keys; i<count; i++)
+            assertTrue(done[i] > done[i-keys], "out of order completion for key " + (i % keys));
+        long elapsed = (done[count-1] - start) / 1_000_000L;
+        assertTrue(elapsed < count*20L, "lanes did not run in parallel, elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    public void testAdaptiveLimitFollowsLatency() throws Exception {
+        TransactionManager tm = NameRegistrar.get("txnmgr-adaptive");
+        assertEquals(2, tm.getSessionLimit());
+
+        Context[] fast = submit(QUEUE_ADAPTIVE, 600, 5L);
+        int peak = awaitLimit(tm, l -> l >= 6, "limit did not grow under load");
+        await(fast);
+
+        Context[] slow = submit(QUEUE_ADAPTIVE, 30, 150L);
+        int shrunk = awaitLimit(tm, l -> l < peak, "limit did not shrink when latency went up from " + peak);
+        await(slow);
+
+        fast = submit(QUEUE_ADAPTIVE, 600, 5L);
+        awaitLimit(tm, l -> l > shrunk, "limit did not recover from " + shrunk);
+        await(fast);
+    }
+
+    private static Context[] submit(String queue, int count, long delay) {
+        Context[] ctx = new Context[count];
+        for (int i=0; i<count; i++) {
+            ctx[i] = new Context();
+            ctx[i].put("DELAY-0", delay);
+            sp.out(queue, ctx[i]);
+        }
+        return ctx;
+    }
+
+    private static void await(Context[] ctx) {
+        for (Context c : ctx)
+            assertEquals("00", c.get("RC", 30000L));
+    }
+
+    private static int awaitLimit(TransactionManager tm, IntPredicate condition, String message) {
+        long end = System.currentTimeMillis() + 20000L;
+        while (System.currentTimeMillis() < end) {
+            int limit = tm.getSessionLimit();
+            if (condition.test(limit))
+                return limit;
+            ISOUtil.sleep(10L);
+        }
+        fail(message + ", limit " + tm.getSessionLimit());
+        return -1;
+    }
 
     @AfterAll
     static void tearDown() throws Exception {
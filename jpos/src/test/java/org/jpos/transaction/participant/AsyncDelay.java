@@ -0,0 +1,43 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction.participant;
+
+import org.jpos.transaction.AsyncTransactionParticipant;
+import org.jpos.transaction.Context;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncDelay implements AsyncTransactionParticipant {
+    @Override
+    public CompletionStage<Integer> prepareAsync(long id, Serializable context) {
+        Context ctx = (Context) context;
+        long delay = ctx.get ("ASYNC-DELAY", 0L);
+        Thread caller = Thread.currentThread();
+        return CompletableFuture.supplyAsync(
+          () -> {
+              ctx.put ("ASYNC-CALLER-ALIVE", caller.isAlive());
+              return PREPARED | READONLY | NO_JOIN;
+          },
+          CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+        );
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction.participant;
+
+import org.jpos.iso.ISOUtil;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionParticipant;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyProbe implements TransactionParticipant {
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicInteger max = new AtomicInteger();
+
+    @Override
+    public int prepare(long id, Serializable context) {
+        Context ctx = (Context) context;
+        max.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            ISOUtil.sleep(ctx.get("PROBE-DELAY", 0L));
+        } finally {
+            active.decrementAndGet();
+        }
+        return PREPARED | READONLY | NO_JOIN;
+    }
+
+    public static int getMax() {
+        return max.get();
+    }
+
+    public static void reset() {
+        max.set(0);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.transaction.participant;
+
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.transaction.Context;
+import org.jpos.transaction.TransactionParticipant;
+import org.jpos.util.Profiler;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jpos.transaction.TransactionConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoinTest {
+    @Test
+    public void testRunsBranchesConcurrently() {
+        Join join = join(new SimpleConfiguration());
+        for (int i=0; i<3; i++)
+            join.addParticipant(sleeper(200L, PREPARED | READONLY));
+        Context ctx = new Context();
+        long start = System.currentTimeMillis();
+        assertEquals(PREPARED | READONLY, join.prepare(1L, ctx));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed < 500L, "branches should overlap, took " + elapsed + "ms");
+        Profiler prof = ctx.getProfiler();
+        assertNotNull(prof.getEntry("join-prepare:Sleeper"));
+        assertNotNull(prof.getEntry("join-prepare:Sleeper-2"));
+        assertTrue(prof.getEntry("join-prepare:Sleeper").getDuration() >= 200L);
+    }
+
+    @Test
+    public void testDeadlineAbortsSlowBranch() {
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("deadline", "100");
+        Join join = join(cfg);
+        join.addParticipant(sleeper(10L, PREPARED));
+        join.addParticipant(sleeper(10_000L, PREPARED));
+        Context ctx = new Context();
+        long start = System.currentTimeMillis();
+        assertEquals(ABORTED, join.prepare(1L, ctx) & PREPARED);
+        assertTrue(System.currentTimeMillis() - start < 5000L, "slow branch should have been interrupted");
+        assertTrue(ctx.getProfiler().getEntry("join-prepare:Sleeper (cancelled)") != null
+          || ctx.getProfiler().getEntry("join-prepare:Sleeper (abandoned)") != null);
+    }
+
+    @Test
+    public void testDeadlineAbandonsStubbornBranch() throws Exception {
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("deadline", "100");
+        Join join = join(cfg);
+        CountDownLatch release = new CountDownLatch(1);
+        join.addParticipant(sleeper(10L, PREPARED | READONLY));
+        join.addParticipant((TransactionParticipant) (id, context) -> {
+            for (;;) {
+                try {
+                    release.await();
+                    return PREPARED | READONLY;
+                } catch (InterruptedException ignored) {
+                    // keeps running past the deadline
+                }
+            }
+        });
+        try {
+            Context ctx = new Context();
+            long start = System.currentTimeMillis();
+            assertEquals(ABORTED, join.prepare(1L, ctx) & PREPARED);
+            assertTrue(System.currentTimeMillis() - start < 2000L, "prepare waited for the stubborn branch");
+            assertEquals(1, ctx.getProfiler().getEvents().keySet().stream().filter(k -> k.endsWith("(abandoned)")).count());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testCancelOnFailure() {
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("cancel-on-failure", "true");
+        Join join = join(cfg);
+        AtomicBoolean finished = new AtomicBoolean();
+        join.addParticipant((id, ctx) -> ABORTED);
+        join.addParticipant((id, ctx) -> {
+            try {
+                Thread.sleep(10_000L);
+                finished.set(true);
+            } catch (InterruptedException ignored) { }
+            return PREPARED;
+        });
+        long start = System.currentTimeMillis();
+        assertEquals(ABORTED, join.prepare(1L, new Context()) & PREPARED);
+        assertTrue(System.currentTimeMillis() - start < 5000L, "sibling should have been cancelled");
+        assertFalse(finished.get());
+    }
+
+    @Test
+    public void testFailureDoesNotCancelWithoutFlag() {
+        Join join = join(new SimpleConfiguration());
+        AtomicInteger completed = new AtomicInteger();
+        join.addParticipant((id, ctx) -> { throw new IllegalStateException("boom"); });
+        join.addParticipant((id, ctx) -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                return ABORTED;
+            }
+            completed.incrementAndGet();
+            return PREPARED;
+        });
+        assertEquals(ABORTED, join.prepare(1L, new Context()) & PREPARED);
+        assertEquals(1, completed.get());
+    }
+
+    @Test
+    public void testMaxConcurrency() {
+        SimpleConfiguration cfg = new SimpleConfiguration();
+        cfg.put("max-concurrency", "2");
+        Join join = join(cfg);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int i=0; i<6; i++) {
+            join.addParticipant((id, ctx) -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                ids.add(id);
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException ignored) { }
+                running.decrementAndGet();
+                return PREPARED | NO_JOIN;
+            });
+        }
+        assertEquals(PREPARED | NO_JOIN, join.prepare(7L, new Context()));
+        assertTrue(peak.get() <= 2, "peak concurrency " + peak.get());
+        assertEquals(Set.of(7L), ids);
+    }
+
+    private static Join join (SimpleConfiguration cfg) {
+        Join join = new Join();
+        join.setConfiguration(cfg);
+        return join;
+    }
+
+    private static TransactionParticipant sleeper (long millis, int rc) {
+        return new Sleeper(millis, rc);
+    }
+
+    private record Sleeper (long millis, int rc) implements TransactionParticipant {
+        @Override
+        public int prepare (long id, Serializable context) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                return ABORTED;
+            }
+            return rc;
+        }
+    }
+}
@@ -32,6 +32,8 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +63,19 @@ public class QueryHostTest implements TransactionConstants, MUX {
         assertFalse (ctx.getResult().hasFailures(), "Should not have failures");
     }
 
+    @Test
+    public void testSimpleQueryAsync() throws Exception {
+        Context ctx = new Context();
+        cfg.put("continuations", "yes");
+        queryHost.setConfiguration(cfg);
+        ctx.put(ContextConstants.REQUEST.toString(), createDummyRequest());
+        ctx.put(ContextConstants.DESTINATION.toString(), "TEST");
+        CompletableFuture<Integer> f = queryHost.prepareAsync(1L, ctx).toCompletableFuture();
+        assertEquals(PREPARED | READONLY | NO_JOIN, f.get(5, TimeUnit.SECONDS));
+        assertNotNull (ctx.get(ContextConstants.RESPONSE.toString()));
+        assertFalse (ctx.getResult().hasFailures(), "Should not have failures");
+    }
+
     @Test
     public void testNoRequest() throws Exception {
         Context ctx = new Context();
@@ -128,7 +143,10 @@ public class QueryHostTest implements TransactionConstants, MUX {
         ISOMsg r = (ISOMsg) m.clone();
         r.setResponseMTI();
         r.set(39, "00");
-        rl.responseReceived(r, handBack);
+        CompletableFuture.runAsync(
+          () -> rl.responseReceived(r, handBack),
+          CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS)
+        );
     }
 
     @Override
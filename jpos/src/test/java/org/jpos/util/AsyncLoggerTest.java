@@ -0,0 +1,187 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.util;
+
+import org.jpos.iso.ISOMsg;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncLoggerTest {
+    Logger logger;
+    Recorder recorder;
+
+    @BeforeEach
+    public void setUp() {
+        logger = new Logger();
+        recorder = new Recorder();
+        logger.addListener(recorder);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        recorder.gate.countDown();
+        logger.destroy();
+    }
+
+    @Test
+    public void testOrderedDelivery() throws Exception {
+        recorder.gate.countDown();
+        logger.startAsync(64, Logger.OverflowPolicy.BLOCK, 16);
+        assertTrue(logger.isAsync());
+        int threads = 4, messages = 2000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t=0; t<threads; t++) {
+            SimpleLogSource source = new SimpleLogSource(logger, "t" + t);
+            Thread.ofPlatform().start(() -> {
+                for (int i=0; i<messages; i++) {
+                    LogEvent evt = new LogEvent(source, Log.INFO);
+                    evt.addMessage(i);
+                    Logger.log(evt);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        logger.stopAsync();
+        assertFalse(logger.isAsync());
+        assertEquals(threads * messages, recorder.events.size());
+        int[] next = new int[threads];
+        for (LogEvent evt : recorder.events) {
+            int t = Integer.parseInt(evt.getRealm().substring(1));
+            assertEquals(next[t]++, evt.getPayLoad().get(0), "out of order event for " + evt.getRealm());
+        }
+        assertTrue(recorder.flushes.get() > 0);
+        assertTrue(recorder.flushes.get() <= threads * messages);
+        assertTrue(recorder.batched, "listener should run in batching mode");
+    }
+
+    @Test
+    public void testDropAll() throws Exception {
+        logger.startAsync(4, Logger.OverflowPolicy.DROP_ALL, 16);
+        SimpleLogSource source = new SimpleLogSource(logger, "drop");
+        for (int i=0; i<100; i++)
+            Logger.log(new LogEvent(source, Log.INFO, i));
+        long dropped = logger.getDropped();
+        assertTrue(dropped > 0L, "some events should have been dropped");
+        recorder.gate.countDown();
+        logger.stopAsync();
+        assertEquals(100L, recorder.count("drop") + dropped);
+        assertEquals(1, recorder.warnings(), "dropped events should be reported once");
+    }
+
+    @Test
+    public void testDropDebug() throws Exception {
+        logger.startAsync(4, Logger.OverflowPolicy.DROP_DEBUG, 16);
+        SimpleLogSource source = new SimpleLogSource(logger, "debug");
+        for (int i=0; i<20; i++)
+            Logger.log(new LogEvent(source, Log.DEBUG, i));
+        long dropped = logger.getDropped();
+        assertTrue(dropped > 0L);
+
+        CountDownLatch done = new CountDownLatch(1);
+        Thread.ofPlatform().start(() -> {
+            for (int i=0; i<20; i++)
+                Logger.log(new LogEvent(new SimpleLogSource(logger, "info"), Log.INFO, i));
+            done.countDown();
+        });
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS), "info events should wait for room");
+        recorder.gate.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        logger.stopAsync();
+        assertEquals(20, recorder.count("info"));
+        assertEquals(dropped, 20 - recorder.count("debug"));
+    }
+
+    @Test
+    public void testPayloadFrozenOnEnqueue() throws Exception {
+        logger.startAsync(16, Logger.OverflowPolicy.BLOCK, 16);
+        ISOMsg m = new ISOMsg("0100");
+        m.set(11, "000001");
+        ISOMsg inner = new ISOMsg("0110");
+        inner.set(11, "000001");
+        SimpleMsg sm = new SimpleMsg("response", new SimpleMsg[] { new SimpleMsg("msg", inner) });
+        Loggeable other = (p, indent) -> p.println(indent + "<other/>");
+        LogEvent evt = new LogEvent(new SimpleLogSource(logger, "frozen"), Log.INFO);
+        evt.addMessage(m);
+        evt.addMessage(sm);
+        evt.addMessage(other);
+        Logger.log(evt);
+        m.set(11, "000002"); // caller keeps using its objects while the event waits in the ring
+        inner.set(11, "000002");
+        recorder.gate.countDown();
+        logger.stopAsync();
+
+        List<Object> payLoad = recorder.events.get(0).getPayLoad();
+        ISOMsg logged = (ISOMsg) payLoad.get(0);
+        assertNotSame(m, logged);
+        assertEquals("000001", logged.getString(11));
+        SimpleMsg loggedSm = (SimpleMsg) payLoad.get(1);
+        assertNotSame(sm, loggedSm);
+        ISOMsg loggedInner = (ISOMsg) ((SimpleMsg[]) loggedSm.msgContent)[0].msgContent;
+        assertNotSame(inner, loggedInner);
+        assertEquals("000001", loggedInner.getString(11));
+        assertSame(other, payLoad.get(2), "other payloads are rendered on the dispatcher thread");
+    }
+
+    static class Recorder implements LogListener, Flushable {
+        final List<LogEvent> events = new ArrayList<>();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger flushes = new AtomicInteger();
+        int warnings;
+        volatile boolean batched;
+
+        @Override
+        public synchronized LogEvent log (LogEvent evt) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batched |= Logger.isBatching();
+            if (evt.getSource() != null)
+                events.add(evt);
+            else if (Log.WARN.equals(evt.getTag()))
+                warnings++;
+            return evt;
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+
+        synchronized int count (String realm) {
+            return (int) events.stream().filter(e -> realm.equals(e.getRealm())).count();
+        }
+
+        synchronized int warnings() {
+            return warnings;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jpos.util;
+
+import org.jpos.core.SimpleConfiguration;
+import org.jpos.iso.ISOMsg;
+import org.jpos.iso.ISOUtil;
+import org.jpos.iso.packager.GenericPackager;
+import org.jpos.iso.packager.ISO87BPackager;
+import org.jpos.log.LogRenderer;
+import org.jpos.log.evt.Warning;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryLogWriterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        BinaryLogWriter writer = writer(0L, 0);
+        ISOMsg m = new ISOMsg("0200");
+        m.setPackager(new ISO87BPackager());
+        m.set(2, "4111111111111111");
+        m.set(4, "000000001000");
+        m.set(11, "000001");
+        m.set(35, "4111111111111111=2512");
+        LogEvent evt = new LogEvent(new SimpleLogSource(null, "channel"), "send")
+          .add("hello")
+          .add(m)
+          .add(new IllegalStateException("outer", new IOException("inner")))
+          .add(new Warning("careful"))
+          .add(new byte[] { 1, 2, 3 })
+          .withTraceId("abc123");
+        Instant dumpedAt = evt.getDumpedAt();
+        writer.write(evt);
+        Path segment = writer.getSegment();
+        writer.close();
+
+        String raw = new String(Files.readAllBytes(segment), StandardCharsets.ISO_8859_1);
+        assertFalse(raw.contains("4111111111111111"), "PAN must not reach the segment");
+        assertFalse(ISOUtil.hexString(Files.readAllBytes(segment)).contains("4111111111111111"));
+
+        List<LogEvent> events = read(new BinaryLogReader());
+        assertEquals(1, events.size());
+        LogEvent r = events.get(0);
+        assertEquals("send", r.getTag());
+        assertEquals("channel", r.getRealm());
+        assertEquals("abc123", r.getTraceId());
+        assertEquals(dumpedAt, r.getDumpedAt());
+        assertEquals(evt.getCreatedAt(), r.getCreatedAt());
+        List<Object> payload = r.getPayLoad();
+        assertEquals(5, payload.size());
+        assertEquals("hello", payload.get(0));
+
+        ISOMsg rm = (ISOMsg) payload.get(1);
+        assertEquals("0200", rm.getMTI());
+        assertEquals("000000001000", rm.getString(4));
+        assertEquals(ISOUtil.protect("4111111111111111"), rm.getString(2));
+        assertEquals("[WIPED]", rm.getString(35));
+
+        Throwable t = (Throwable) payload.get(2);
+        assertEquals("java.lang.IllegalStateException: outer", t.toString());
+        assertEquals("java.io.IOException: inner", t.getCause().toString());
+        assertTrue(t.getStackTrace().length > 0);
+        assertEquals(getClass().getName(), t.getStackTrace()[0].getClassName());
+
+        assertEquals(new Warning("careful"), payload.get(3));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) payload.get(4));
+    }
+
+    @Test
+    public void testGenericPackagersToldApart() throws Exception {
+        GenericPackager ascii = new GenericPackager("jar:packager/iso87ascii.xml");
+        GenericPackager binary = new GenericPackager("jar:packager/iso87binary.xml");
+        assertNotEquals(BinaryLogWriter.packagerId(ascii), BinaryLogWriter.packagerId(binary));
+
+        BinaryLogWriter writer = writer(0L, 0);
+        for (GenericPackager p : new GenericPackager[] { ascii, binary }) {
+            ISOMsg m = new ISOMsg("0800");
+            m.setPackager(p);
+            m.set(11, "000001");
+            m.set(70, "301");
+            writer.write(new LogEvent("info", m));
+        }
+        writer.close();
+
+        BinaryLogReader reader = new BinaryLogReader();
+        reader.setPackager("iso87ascii.xml", new GenericPackager("jar:packager/iso87ascii.xml"));
+        reader.setPackager("jar:packager/iso87binary.xml", new GenericPackager("jar:packager/iso87binary.xml"));
+        List<LogEvent> events = read(reader);
+        assertEquals(2, events.size());
+        for (LogEvent evt : events) {
+            ISOMsg rm = assertInstanceOf(ISOMsg.class, evt.getPayLoad().get(0), "image not unpacked");
+            assertEquals("0800", rm.getMTI());
+            assertEquals("301", rm.getString(70));
+        }
+    }
+
+    @Test
+    public void testSimpleMsgContentProtected() throws Exception {
+        BinaryLogWriter writer = writer(0L, 0);
+        ISOMsg m = new ISOMsg("0200");
+        m.set(2, "4111111111111111");
+        m.set(35, "4111111111111111=2512");
+        m.set(11, "000001");
+        writer.write(new LogEvent("info", new SimpleMsg("request", "inner", new SimpleMsg[] { new SimpleMsg("msg", m) })));
+        Path segment = writer.getSegment();
+        writer.close();
+
+        String raw = new String(Files.readAllBytes(segment), StandardCharsets.ISO_8859_1);
+        assertFalse(raw.contains("4111111111111111"), "PAN must not reach the segment");
+        assertTrue(raw.contains(ISOUtil.protect("4111111111111111")), raw);
+        assertEquals("4111111111111111", m.getString(2), "payload must not be modified");
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        BinaryLogWriter writer = writer(4096L, 3);
+        String filler = "x".repeat(500);
+        for (int i=0; i<100; i++)
+            writer.write(new LogEvent(new SimpleLogSource(null, "r"), "info", i + " " + filler));
+        writer.close();
+        List<Path> segments = BinaryLogWriter.segments(dir, "test");
+        assertEquals(3, segments.size());
+        List<LogEvent> events = read(new BinaryLogReader());
+        assertTrue(events.size() > 3 && events.size() < 100);
+        int last = -1;
+        for (LogEvent evt : events) {
+            int n = Integer.parseInt(((String) evt.getPayLoad().get(0)).split(" ")[0]);
+            assertEquals(last < 0 ? n : last + 1, n, "events out of order");
+            last = n;
+        }
+        assertEquals(99, last);
+
+        writer = writer(4096L, 3);
+        writer.write(new LogEvent("info", "restart"));
+        assertTrue(writer.getSegment().getFileName().toString().compareTo(segments.get(2).getFileName().toString()) > 0,
+          "writer should continue after the last segment");
+        writer.close();
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        BinaryLogWriter writer = writer(0L, 0);
+        Instant start = Instant.now();
+        writer.write(new LogEvent(new SimpleLogSource(null, "mux.a"), "info", "1").withTraceId("t1"));
+        writer.write(new LogEvent(new SimpleLogSource(null, "mux.b"), "info", "2").withTraceId("t2"));
+        writer.write(new LogEvent(new SimpleLogSource(null, "channel"), "info", "3").withTraceId("t1"));
+        writer.close();
+
+        BinaryLogReader reader = new BinaryLogReader();
+        reader.setRealm("mux.*");
+        assertEquals(List.of("1", "2"), messages(read(reader)));
+        reader.setRealm("channel");
+        assertEquals(List.of("3"), messages(read(reader)));
+
+        reader = new BinaryLogReader();
+        reader.setTraceId("t1");
+        assertEquals(List.of("1", "3"), messages(read(reader)));
+
+        reader = new BinaryLogReader();
+        reader.setTimeRange(start.minusSeconds(60), start.minusSeconds(1));
+        assertTrue(read(reader).isEmpty());
+        reader.setTimeRange(start, null);
+        assertEquals(3, read(reader).size());
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        BinaryLogWriter writer = writer(0L, 0);
+        writer.write(new LogEvent(new SimpleLogSource(null, "render"), "warn", "something odd"));
+        writer.close();
+        for (LogRenderer.Type type : new LogRenderer.Type[] { LogRenderer.Type.XML, LogRenderer.Type.JSON }) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            new BinaryLogReader().render(dir, type, new PrintStream(baos));
+            String s = baos.toString();
+            assertTrue(s.contains("something odd"), type + ": " + s);
+            assertTrue(s.contains("render"), type + ": " + s);
+        }
+    }
+
+    @Test
+    public void testWriteFailuresReportedOnce() throws Exception {
+        Path file = Files.createFile(dir.resolve("not-a-directory"));
+        Properties props = new Properties();
+        props.setProperty("dir", file.toString());
+        BinaryLogWriter writer = new BinaryLogWriter();
+        writer.setConfiguration(new SimpleConfiguration(props));
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            for (int i=0; i<3; i++)
+                writer.write(new LogEvent("info", "lost " + i));
+        } finally {
+            System.setErr(stderr);
+        }
+        writer.close();
+        assertEquals(3L, writer.getFailures());
+        assertNull(writer.getSegment());
+        String reported = err.toString(StandardCharsets.UTF_8);
+        assertEquals(reported.indexOf("BinaryLogWriter:"), reported.lastIndexOf("BinaryLogWriter:"), "failure should be reported once");
+        assertTrue(reported.contains("BinaryLogWriter:"));
+    }
+
+    private BinaryLogWriter writer (long segmentSize, int maxSegments) throws Exception {
+        Properties props = new Properties();
+        props.setProperty("dir", dir.toString());
+        props.setProperty("prefix", "test");
+        if (segmentSize > 0L)
+            props.setProperty("segment-size", Long.toString(segmentSize));
+        props.setProperty("max-segments", Integer.toString(maxSegments));
+        BinaryLogWriter writer = new BinaryLogWriter();
+        writer.setConfiguration(new SimpleConfiguration(props));
+        return writer;
+    }
+
+    private List<LogEvent> read (BinaryLogReader reader) throws IOException {
+        List<LogEvent> events = new ArrayList<>();
+        reader.read(dir, events::add);
+        return events;
+    }
+
+    private static List<String> messages (List<LogEvent> events) {
+        return events.stream().map(e -> (String) e.getPayLoad().get(0)).toList();
+    }
+}
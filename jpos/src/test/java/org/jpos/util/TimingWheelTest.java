@@ -0,0 +1,91 @@
+/*
+ * jPOS Project [http://jpos.org]
+ * Copyright (C) 2000-2026 jPOS Software SRL
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jpos.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+    TimingWheel wheel;
+
+    @BeforeEach
+    public void setUp() {
+        wheel = new TimingWheel("test-wheel", 5L, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    public void testFiresNotBeforeDeadline() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] fired = new long[1];
+        TimingWheel.Timeout t = wheel.schedule(() -> {
+            fired[0] = System.nanoTime();
+            latch.countDown();
+        }, 100L, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(fired[0] - start >= TimeUnit.MILLISECONDS.toNanos(100L));
+        assertTrue(t.isExpired());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testMultipleRounds() throws Exception {
+        // 8 buckets of 5ms: 120ms needs several rotations
+        CountDownLatch latch = new CountDownLatch(2);
+        long start = System.currentTimeMillis();
+        wheel.schedule(latch::countDown, 120L, TimeUnit.MILLISECONDS);
+        wheel.schedule(latch::countDown, 10L, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 120L);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout t = wheel.schedule(runs::incrementAndGet, 30L, TimeUnit.MILLISECONDS);
+        assertEquals(1, wheel.size());
+        assertTrue(t.cancel());
+        assertFalse(t.cancel());
+        assertTrue(t.isCancelled());
+        assertEquals(0, wheel.size());
+        Thread.sleep(100L);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void testManyTimeouts() throws Exception {
+        int n = 10000;
+        CountDownLatch latch = new CountDownLatch(n);
+        for (int i=0; i<n; i++)
+            wheel.schedule(latch::countDown, i % 50, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.size());
+    }
+}